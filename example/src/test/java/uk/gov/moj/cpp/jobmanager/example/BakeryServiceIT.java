@@ -21,14 +21,31 @@ import uk.gov.moj.cpp.jobmanager.example.util.PropertiesFileValueProducer;
 import uk.gov.moj.cpp.jobmanager.it.util.OpenEjbJobJdbcRepository;
 import uk.gov.moj.cpp.jobstore.api.ExecutionService;
 import uk.gov.moj.cpp.jobstore.api.task.ExecutableTask;
+import uk.gov.moj.cpp.jobstore.persistence.InJvmJobArrivalNotifier;
 import uk.gov.moj.cpp.jobstore.persistence.JdbcJobStoreDataSourceProvider;
 import uk.gov.moj.cpp.jobstore.persistence.JdbcResultSetStreamer;
+import uk.gov.moj.cpp.jobstore.persistence.JobArrivalNotifierProducer;
+import uk.gov.moj.cpp.jobstore.persistence.JobDataCodecRegistry;
 import uk.gov.moj.cpp.jobstore.persistence.JobRepository;
 import uk.gov.moj.cpp.jobstore.persistence.JobSqlProvider;
+import uk.gov.moj.cpp.jobstore.persistence.PostgresJobArrivalNotifier;
 import uk.gov.moj.cpp.jobstore.persistence.PostgresJobSqlProvider;
 import uk.gov.moj.cpp.jobstore.persistence.PreparedStatementWrapperFactory;
 import uk.gov.moj.cpp.jobstore.service.JobService;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimMetrics;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimQuotas;
+import uk.gov.moj.cpp.task.execution.ClaimBatchSizer;
+import uk.gov.moj.cpp.task.execution.InlineContinuationBudgetProducer;
 import uk.gov.moj.cpp.task.execution.JobScheduler;
+import uk.gov.moj.cpp.task.execution.JobStartTimer;
+import uk.gov.moj.cpp.task.execution.LocalJobDispatcher;
+import uk.gov.moj.cpp.task.execution.LockedJobRegistry;
+import uk.gov.moj.cpp.task.execution.RejectedJobReleaser;
+import uk.gov.moj.cpp.task.execution.RetryPoliciesProducer;
+import uk.gov.moj.cpp.task.execution.TaskConcurrencyLimits;
+import uk.gov.moj.cpp.task.execution.TaskTimeoutsProducer;
+import uk.gov.moj.cpp.task.execution.TaskWatchdog;
+import uk.gov.moj.cpp.task.execution.WorkerIdentity;
 import uk.gov.moj.cpp.task.extension.TaskRegistry;
 
 import java.util.Properties;
@@ -69,10 +86,23 @@ public class BakeryServiceIT {
     @Module
     @Classes(cdi = true, value = {
             JobService.class,
+            TaskClaimQuotas.class,
+            TaskClaimMetrics.class,
             ExecutionService.class,
             JobRepository.class,
             TaskRegistry.class,
             JobScheduler.class,
+            LockedJobRegistry.class,
+            LocalJobDispatcher.class,
+            InlineContinuationBudgetProducer.class,
+            RetryPoliciesProducer.class,
+            TaskTimeoutsProducer.class,
+            JobStartTimer.class,
+            ClaimBatchSizer.class,
+            RejectedJobReleaser.class,
+            TaskWatchdog.class,
+            TaskConcurrencyLimits.class,
+            WorkerIdentity.class,
             SwitchOvenOnTask.class,
             JobUtil.class,
             ExecutableTask.class,
@@ -84,8 +114,12 @@ public class BakeryServiceIT {
             SliceAndEatCakeTask.class,
             JdbcJobStoreDataSourceProvider.class,
             PreparedStatementWrapperFactory.class,
+            JobDataCodecRegistry.class,
             JdbcResultSetStreamer.class,
             JobSqlProvider.class,
+            JobArrivalNotifierProducer.class,
+            PostgresJobArrivalNotifier.class,
+            InJvmJobArrivalNotifier.class,
             LoggerProducer.class,
             OpenEjbJobJdbcRepository.class,
             JndiBasedServiceContextNameProvider.class,
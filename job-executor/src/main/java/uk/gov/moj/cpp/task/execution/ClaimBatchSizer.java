@@ -0,0 +1,214 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Math.ceil;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.time.Duration.between;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.common.util.UtcClock;
+import uk.gov.moj.cpp.jobstore.management.PlatformMXBeans;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+
+/**
+ * Sizes each claim batch to the load on this node's executor, instead of always claiming
+ * worker.job.count jobs. A batch fills the free executor slots (jobstore.executor.capacity less
+ * the claimed jobs queued or running) plus the jobs expected to finish while the claim is in
+ * flight, estimated from the recent throughput and task duration, capped at
+ * jobstore.claim.batch.max.size. However many jobs are expected to finish, the claimed jobs
+ * queued or running never exceed jobstore.executor.max.in.flight, and a saturated node claims
+ * nothing. Registered as the platform
+ * MXBean uk.gov.moj.cpp.jobstore:type=ClaimBatchSizer,module=&lt;module name&gt;.
+ */
+@ApplicationScoped
+public class ClaimBatchSizer implements ClaimBatchSizerMXBean {
+
+    private static final double SMOOTHING = 0.3;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    @Inject
+    Logger logger;
+
+    @Resource(lookup = "java:module/ModuleName")
+    String moduleName;
+
+    @Inject
+    LockedJobRegistry lockedJobRegistry;
+
+    @Inject
+    JobStartTimer jobStartTimer;
+
+    @Inject
+    UtcClock clock;
+
+    @Inject
+    @Value(key = "jobstore.executor.capacity", defaultValue = "10")
+    String executorCapacity;
+
+    @Inject
+    @Value(key = "jobstore.claim.batch.max.size", defaultValue = "100")
+    String maxBatchSize;
+
+    @Inject
+    @Value(key = "jobstore.executor.max.in.flight", defaultValue = "20")
+    String maxInFlight;
+
+    @Inject
+    RejectedJobReleaser rejectedJobReleaser;
+
+    private ObjectName objectName;
+
+    private ZonedDateTime lastSizedAt;
+    private long lastFinishedJobCount;
+    private long lastFinishedRunNanos;
+    private double throughputPerSecond;
+    private double averageTaskDurationMillis;
+    private double averageClaimCycleMillis;
+    private int targetBatchSize;
+    private int currentBatchSize;
+
+    @PostConstruct
+    public void register() {
+        objectName = PlatformMXBeans.register(this, "ClaimBatchSizer", moduleName, logger);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        PlatformMXBeans.unregister(objectName, logger);
+    }
+
+    /**
+     * Works out how many jobs the next claim should take.
+     *
+     * @return the batch size, 0 if the executor has no free capacity
+     */
+    public synchronized int nextBatchSize() {
+        sampleFinishedJobs();
+
+        final int outstandingJobCount = getOutstandingJobCount();
+        final int freeSlots = max(0, parseInt(executorCapacity) - outstandingJobCount);
+        final int expectedToFinishDuringClaim = (int) ceil(expectedThroughputPerSecond() * averageClaimCycleMillis / 1000.0);
+
+        targetBatchSize = freeSlots == 0 ? 0 : freeSlots + expectedToFinishDuringClaim;
+        currentBatchSize = min(targetBatchSize, min(parseInt(maxBatchSize), max(0, parseInt(maxInFlight) - outstandingJobCount)));
+
+        return currentBatchSize;
+    }
+
+    /**
+     * Records how long a claim cycle took, from the start of the claim to the claimed jobs being
+     * handed to the executor.
+     */
+    public synchronized void recordClaimCycle(final Duration claimCycle) {
+        averageClaimCycleMillis = smooth(averageClaimCycleMillis, claimCycle.toNanos() / NANOS_PER_MILLI);
+    }
+
+    @Override
+    public int getExecutorCapacity() {
+        return parseInt(executorCapacity);
+    }
+
+    /**
+     * @return true if another job can be handed to the executor without going over
+     * jobstore.executor.max.in.flight
+     */
+    public boolean hasFreeCapacity() {
+        return getOutstandingJobCount() < parseInt(maxInFlight);
+    }
+
+    @Override
+    public int getMaxInFlight() {
+        return parseInt(maxInFlight);
+    }
+
+    @Override
+    public int getOutstandingJobCount() {
+        return max(0, lockedJobRegistry.getLockedJobCount() - jobStartTimer.getWaitingJobCount());
+    }
+
+    @Override
+    public int getRunningJobCount() {
+        return lockedJobRegistry.getRunningJobCount();
+    }
+
+    @Override
+    public long getRejectedJobCount() {
+        return rejectedJobReleaser.getRejectedJobCount();
+    }
+
+    @Override
+    public synchronized double getThroughputPerSecond() {
+        return throughputPerSecond;
+    }
+
+    @Override
+    public synchronized double getAverageTaskDurationMillis() {
+        return averageTaskDurationMillis;
+    }
+
+    @Override
+    public synchronized double getAverageClaimCycleMillis() {
+        return averageClaimCycleMillis;
+    }
+
+    @Override
+    public synchronized int getTargetBatchSize() {
+        return targetBatchSize;
+    }
+
+    @Override
+    public synchronized int getCurrentBatchSize() {
+        return currentBatchSize;
+    }
+
+    private void sampleFinishedJobs() {
+        final ZonedDateTime now = clock.now();
+        final long finishedJobCount = lockedJobRegistry.getFinishedJobCount();
+        final long finishedRunNanos = lockedJobRegistry.getFinishedRunNanos();
+
+        if (lastSizedAt != null) {
+            final long newlyFinished = finishedJobCount - lastFinishedJobCount;
+            final long elapsedMillis = between(lastSizedAt, now).toMillis();
+
+            if (elapsedMillis > 0) {
+                throughputPerSecond = smooth(throughputPerSecond, newlyFinished * 1000.0 / elapsedMillis);
+            }
+
+            if (newlyFinished > 0) {
+                averageTaskDurationMillis = smooth(averageTaskDurationMillis, (finishedRunNanos - lastFinishedRunNanos) / NANOS_PER_MILLI / newlyFinished);
+            }
+        }
+
+        lastSizedAt = now;
+        lastFinishedJobCount = finishedJobCount;
+        lastFinishedRunNanos = finishedRunNanos;
+    }
+
+    /**
+     * The measured throughput lags behind a node that has just become busy, so it is topped up to
+     * the rate the running jobs would finish at given the average task duration.
+     */
+    private double expectedThroughputPerSecond() {
+        if (averageTaskDurationMillis <= 0) {
+            return throughputPerSecond;
+        }
+
+        return max(throughputPerSecond, getRunningJobCount() * 1000.0 / averageTaskDurationMillis);
+    }
+
+    private static double smooth(final double average, final double sample) {
+        return average == 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+}
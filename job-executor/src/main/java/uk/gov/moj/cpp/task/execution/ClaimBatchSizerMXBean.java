@@ -0,0 +1,61 @@
+package uk.gov.moj.cpp.task.execution;
+
+/**
+ * The inputs and result of the claim batch sizing, exposed over JMX to tune
+ * jobstore.executor.capacity, jobstore.executor.max.in.flight and jobstore.claim.batch.max.size.
+ */
+public interface ClaimBatchSizerMXBean {
+
+    /**
+     * @return the number of jobs this node aims to have queued or running on its executor
+     */
+    int getExecutorCapacity();
+
+    /**
+     * @return the most claimed jobs this node lets queue or run on its executor
+     */
+    int getMaxInFlight();
+
+    /**
+     * @return the number of claimed jobs queued or running on the executor
+     */
+    int getOutstandingJobCount();
+
+    /**
+     * @return the number of claimed jobs the executor rejected, and that were released, since
+     * startup
+     */
+    long getRejectedJobCount();
+
+    /**
+     * @return the number of jobs running on the executor
+     */
+    int getRunningJobCount();
+
+    /**
+     * @return the smoothed number of jobs finished per second
+     */
+    double getThroughputPerSecond();
+
+    /**
+     * @return the smoothed time a job takes to run
+     */
+    double getAverageTaskDurationMillis();
+
+    /**
+     * @return the smoothed time a claim cycle takes, from the start of the claim to the claimed
+     * jobs reaching the executor
+     */
+    double getAverageClaimCycleMillis();
+
+    /**
+     * @return the batch size the executor load called for at the last claim, before it was
+     * capped at jobstore.claim.batch.max.size
+     */
+    int getTargetBatchSize();
+
+    /**
+     * @return the batch size used for the last claim
+     */
+    int getCurrentBatchSize();
+}
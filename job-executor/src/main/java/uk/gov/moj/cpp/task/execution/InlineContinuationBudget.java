@@ -0,0 +1,30 @@
+package uk.gov.moj.cpp.task.execution;
+
+import java.time.Duration;
+
+/**
+ * How far a {@link JobExecutor} may carry on running a job inline: when a task returns INPROGRESS
+ * with a next task that is already due, the executor checkpoints the job and runs the next step
+ * itself, keeping the job's lease, for up to maxSteps steps in total and only while less than
+ * maxDuration has passed since it started the job.
+ */
+public class InlineContinuationBudget {
+
+    public static final InlineContinuationBudget NO_INLINE_CONTINUATION = new InlineContinuationBudget(1, Duration.ZERO);
+
+    private final int maxSteps;
+    private final Duration maxDuration;
+
+    public InlineContinuationBudget(final int maxSteps, final Duration maxDuration) {
+        this.maxSteps = maxSteps;
+        this.maxDuration = maxDuration;
+    }
+
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+
+    public Duration getMaxDuration() {
+        return maxDuration;
+    }
+}
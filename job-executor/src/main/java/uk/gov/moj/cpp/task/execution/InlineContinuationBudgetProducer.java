@@ -0,0 +1,31 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.time.Duration.ofMillis;
+
+import uk.gov.justice.services.common.configuration.Value;
+
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+
+/**
+ * Produces the {@link InlineContinuationBudget} from jobstore.inline.continuation.max.steps and
+ * jobstore.inline.continuation.max.milliseconds. Setting max steps to 1 turns inline continuation
+ * off, so every step of a job is claimed by a scheduler.
+ */
+public class InlineContinuationBudgetProducer {
+
+    @Inject
+    @Value(key = "jobstore.inline.continuation.max.steps", defaultValue = "10")
+    String maxSteps;
+
+    @Inject
+    @Value(key = "jobstore.inline.continuation.max.milliseconds", defaultValue = "10000")
+    String maxMilliseconds;
+
+    @Produces
+    public InlineContinuationBudget inlineContinuationBudget() {
+        return new InlineContinuationBudget(parseInt(maxSteps), ofMillis(parseLong(maxMilliseconds)));
+    }
+}
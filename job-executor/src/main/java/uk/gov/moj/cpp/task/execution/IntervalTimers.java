@@ -0,0 +1,35 @@
+package uk.gov.moj.cpp.task.execution;
+
+import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+
+/**
+ * Starts and cancels the non persistent EJB interval timers of the job manager singletons. Each
+ * timer is named &lt;module name&gt;.job-manager.&lt;name&gt;.timer, so a bean that starts up again
+ * first cancels any timer of that name its previous instance left behind.
+ */
+final class IntervalTimers {
+
+    private IntervalTimers() {
+    }
+
+    static String timerNameOf(final String moduleName, final String name) {
+        final String timerModulePrefix = moduleName != null ? moduleName : "local";
+        return timerModulePrefix + ".job-manager." + name + ".timer";
+    }
+
+    static void cancelIntervalTimer(final TimerService timerService, final String timerName) {
+        timerService.getAllTimers().stream().filter(t -> timerName.equals(t.getInfo())).forEach(Timer::cancel);
+    }
+
+    static void startIntervalTimer(final TimerService timerService, final String timerName, final long initialDurationMilliseconds, final long intervalMilliseconds) {
+        cancelIntervalTimer(timerService, timerName);
+
+        final TimerConfig timerConfig = new TimerConfig();
+        timerConfig.setPersistent(false);
+        timerConfig.setInfo(timerName);
+
+        timerService.createIntervalTimer(initialDurationMilliseconds, intervalMilliseconds, timerConfig);
+    }
+}
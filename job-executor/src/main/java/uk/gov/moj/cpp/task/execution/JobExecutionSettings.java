@@ -0,0 +1,35 @@
+package uk.gov.moj.cpp.task.execution;
+
+/**
+ * How a {@link JobExecutor} runs a job beyond calling its task once: the
+ * {@link InlineContinuationBudget} for running further steps inline, the {@link RetryPolicies} for
+ * tasks that fail and the {@link TaskWatchdog} that times tasks out. Built by the
+ * {@link JobScheduler} and the {@link LocalJobDispatcher} from their own settings and shared by
+ * the executors they create.
+ */
+public class JobExecutionSettings {
+
+    public static final JobExecutionSettings DEFAULT = new JobExecutionSettings(InlineContinuationBudget.NO_INLINE_CONTINUATION, RetryPolicies.DEFAULT, TaskWatchdog.NO_TIMEOUTS);
+
+    private final InlineContinuationBudget inlineContinuationBudget;
+    private final RetryPolicies retryPolicies;
+    private final TaskWatchdog taskWatchdog;
+
+    public JobExecutionSettings(final InlineContinuationBudget inlineContinuationBudget, final RetryPolicies retryPolicies, final TaskWatchdog taskWatchdog) {
+        this.inlineContinuationBudget = inlineContinuationBudget;
+        this.retryPolicies = retryPolicies;
+        this.taskWatchdog = taskWatchdog;
+    }
+
+    public InlineContinuationBudget getInlineContinuationBudget() {
+        return inlineContinuationBudget;
+    }
+
+    public RetryPolicies getRetryPolicies() {
+        return retryPolicies;
+    }
+
+    public TaskWatchdog getTaskWatchdog() {
+        return taskWatchdog;
+    }
+}
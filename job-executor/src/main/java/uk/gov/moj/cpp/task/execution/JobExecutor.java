@@ -1,5 +1,9 @@
 package uk.gov.moj.cpp.task.execution;
 
+import static java.lang.String.format;
+import static java.time.temporal.ChronoUnit.MILLIS;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
 import static uk.gov.moj.cpp.jobstore.api.task.ExecutionInfo.executionInfo;
 import static uk.gov.moj.cpp.jobstore.api.task.ExecutionStatus.COMPLETED;
 import static uk.gov.moj.cpp.jobstore.api.task.ExecutionStatus.INPROGRESS;
@@ -11,81 +15,207 @@ import uk.gov.moj.cpp.jobstore.persistence.Job;
 import uk.gov.moj.cpp.jobstore.service.JobService;
 import uk.gov.moj.cpp.task.extension.TaskRegistry;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.transaction.HeuristicMixedException;
 import javax.transaction.HeuristicRollbackException;
 import javax.transaction.NotSupportedException;
 import javax.transaction.RollbackException;
+import javax.transaction.Status;
 import javax.transaction.SystemException;
 import javax.transaction.UserTransaction;
 
 import org.slf4j.Logger;
 
+/**
+ * Runs the next task of a claimed job. When the task returns INPROGRESS with a next task that is
+ * already due, the job is checkpointed and the next step run straight away on the same worker,
+ * keeping its lease, within the {@link InlineContinuationBudget}. Each step runs in its own
+ * transaction, so a failure only loses the step that failed. When a task throws, its transaction
+ * is rolled back and the job is either released to be retried after the backoff of the task's
+ * {@link RetryPolicy}, or moved to the dead letter table once the policy's attempts are used up.
+ * A task that runs past its timeout is interrupted by the {@link TaskWatchdog} and, once it
+ * returns, fails in the same way. A step whose job lost its lease while it ran is rolled back and
+ * left to the node that holds the job now.
+ */
 public class JobExecutor implements Runnable {
 
     private final Job job;
     private final TaskRegistry taskRegistry;
     private final JobService jobService;
+    private final LockedJobRegistry lockedJobRegistry;
     private final UserTransaction userTransaction;
     private final UtcClock clock;
     private final Logger logger;
+    private final InlineContinuationBudget inlineContinuationBudget;
+    private final RetryPolicies retryPolicies;
+    private final TaskWatchdog taskWatchdog;
 
     public JobExecutor(final Job jobData,
                        final TaskRegistry taskRegistry,
                        final JobService jobService,
+                       final LockedJobRegistry lockedJobRegistry,
                        final UserTransaction userTransaction,
                        final UtcClock clock,
                        final Logger logger) {
+        this(jobData, taskRegistry, jobService, lockedJobRegistry, userTransaction, clock, logger, JobExecutionSettings.DEFAULT);
+    }
+
+    public JobExecutor(final Job jobData,
+                       final TaskRegistry taskRegistry,
+                       final JobService jobService,
+                       final LockedJobRegistry lockedJobRegistry,
+                       final UserTransaction userTransaction,
+                       final UtcClock clock,
+                       final Logger logger,
+                       final JobExecutionSettings jobExecutionSettings) {
         this.job = jobData;
         this.taskRegistry = taskRegistry;
         this.jobService = jobService;
+        this.lockedJobRegistry = lockedJobRegistry;
         this.userTransaction = userTransaction;
         this.clock = clock;
         this.logger = logger;
+        this.inlineContinuationBudget = jobExecutionSettings.getInlineContinuationBudget();
+        this.retryPolicies = jobExecutionSettings.getRetryPolicies();
+        this.taskWatchdog = jobExecutionSettings.getTaskWatchdog();
     }
 
     @Override
     @SuppressWarnings("squid:S3457")
     public void run() {
-        final String taskName = job.getNextTask();
-        logger.info("Invoking {} task: ", taskName);
-        final Optional<ExecutableTask> task = taskRegistry.getTask(taskName);
+        final ZonedDateTime startedAt = clock.now();
+        Optional<Job> nextStep = of(job);
+        int stepCount = 0;
 
-        try {
-            userTransaction.begin();
-
-            if (task.isPresent()) {
-
-                final ExecutionInfo executionInfo = executionInfo().fromJob(job).build();
-
-                if (isStartTimeOfTask(executionInfo)) {
-                    executeTask(task.get(), executionInfo);
-                }
+        if (!lockedJobRegistry.markRunning(job.getJobId())) {
+            logger.info("Not starting {} as this node is shutting down, it will be released", this);
+            return;
+        }
 
-            } else {
-                logger.error("No task registered to process this job {}", job.getJobId());
-                jobService.releaseJob(job.getJobId());
+        try {
+            while (nextStep.isPresent()) {
+                nextStep = runStep(nextStep.get(), ++stepCount, startedAt);
             }
 
-            userTransaction.commit();
-
         } catch (final NotSupportedException |
                 SystemException |
                 RollbackException |
                 HeuristicMixedException |
-                HeuristicRollbackException e) {
+                HeuristicRollbackException |
+                RuntimeException e) {
 
             logger.error("Unexpected exception during transaction for Job {}, attempting rollback...{}", this, e);
 
             try {
-                userTransaction.rollback();
-                logger.info("Transaction rolled back successfully", e);
+                if (userTransaction.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                    userTransaction.rollback();
+                    logger.info("Transaction rolled back successfully", e);
+                }
             } catch (final SystemException e1) {
                 logger.error("Unexpected exception during transaction rollback, rollback maybe incomplete {}", this, e1);
             }
+        } finally {
+            lockedJobRegistry.deregister(job.getJobId());
+        }
+    }
+
+    @SuppressWarnings("squid:S3457")
+    private Optional<Job> runStep(final Job step, final int stepCount, final ZonedDateTime startedAt) throws NotSupportedException, SystemException, RollbackException, HeuristicMixedException, HeuristicRollbackException {
+        final String taskName = step.getNextTask();
+        logger.info("Invoking {} task: ", taskName);
+
+        if (stepCount > 1) {
+            // an inline step may be of another task, so the job is counted against the task it is running
+            lockedJobRegistry.register(step);
+        }
+
+        if (lockedJobRegistry.hasLostLease(step.getJobId())) {
+            logger.warn("Not running task {} of job {} as its lease has been lost", taskName, step.getJobId());
+            return empty();
+        }
+
+        final Optional<ExecutableTask> task = taskRegistry.getTask(taskName);
+        Optional<Job> nextStep = empty();
+
+        userTransaction.begin();
+
+        if (task.isPresent()) {
+
+            final ExecutionInfo executionInfo = executionInfo().fromJob(step).build();
+
+            if (isStartTimeOfTask(executionInfo)) {
+                final TaskWatchdog.Watch watch = taskWatchdog.watch(taskName, taskRegistry.getTaskTimeout(taskName));
+                RuntimeException failure = null;
+
+                try {
+                    nextStep = executeTask(step, task.get(), executionInfo, stepCount, startedAt);
+                } catch (final RuntimeException e) {
+                    failure = e;
+                }
+
+                if (watch.stop()) {
+                    failure = new TaskTimeoutException(format("Task %s of job %s ran past its timeout", taskName, step.getJobId()), failure);
+                }
+
+                if (failure != null) {
+                    userTransaction.rollback();
+                    if (lockedJobRegistry.hasLostLease(step.getJobId())) {
+                        logRolledBackForLostLease(step);
+                    } else {
+                        failStep(step, failure);
+                    }
+                    return empty();
+                }
+            } else {
+                logger.info("Releasing job {} as its task {} is not due until {}", step.getJobId(), taskName, executionInfo.getNextTaskStartTime());
+                jobService.releaseJob(step.getJobId());
+            }
+
+        } else {
+            logger.error("No task registered to process this job {}", step.getJobId());
+            jobService.releaseJob(step.getJobId());
+        }
+
+        if (lockedJobRegistry.hasLostLease(step.getJobId())) {
+            userTransaction.rollback();
+            logRolledBackForLostLease(step);
+            return empty();
+        }
+
+        userTransaction.commit();
+
+        return nextStep;
+    }
+
+    private void logRolledBackForLostLease(final Job step) {
+        logger.warn("Rolled back task {} of job {} as its lease was lost while it ran, the job may have been claimed by another node", step.getNextTask(), step.getJobId());
+    }
+
+    private void failStep(final Job step, final RuntimeException failure) throws NotSupportedException, SystemException, RollbackException, HeuristicMixedException, HeuristicRollbackException {
+        final RetryPolicy retryPolicy = retryPolicies.policyFor(step.getNextTask());
+        final int attempts = step.getAttempts() + 1;
+
+        userTransaction.begin();
+
+        if (retryPolicy.isExhausted(attempts)) {
+            logger.error("Task {} of job {} failed on attempt {} of {}, moving the job to the dead letter table", step.getNextTask(), step.getJobId(), attempts, retryPolicy.getMaxAttempts(), failure);
+            jobService.deadLetterJob(step.getJobId(), failure.toString());
+        } else {
+            final ZonedDateTime retryTime = clock.now().plus(retryPolicy.backoffFor(attempts, ThreadLocalRandom.current().nextDouble()));
+            logger.warn("Task {} of job {} failed on attempt {} of {}, retrying at {}", step.getNextTask(), step.getJobId(), attempts, retryPolicy.getMaxAttempts(), retryTime, failure);
+            jobService.retryJob(step.getJobId(), attempts, retryTime, step.getPriority());
         }
+
+        userTransaction.commit();
+    }
+
+    UUID getJobId() {
+        return job.getJobId();
     }
 
     @Override
@@ -96,21 +226,46 @@ public class JobExecutor implements Runnable {
     }
 
     private boolean isStartTimeOfTask(final ExecutionInfo executionInfo) {
-        final ZonedDateTime nextTaskStartTime = executionInfo.getNextTaskStartTime();
-        final ZonedDateTime now = clock.now();
+        // start times are scheduled to the millisecond, so a job fired within the millisecond it falls due is due
+        final ZonedDateTime nextTaskStartTime = executionInfo.getNextTaskStartTime().truncatedTo(MILLIS);
+        final ZonedDateTime now = clock.now().truncatedTo(MILLIS);
 
-        return nextTaskStartTime.isBefore(now) || nextTaskStartTime.isEqual(now);
+        return !nextTaskStartTime.isAfter(now);
     }
 
-    private void executeTask(final ExecutableTask task, final ExecutionInfo executionInfo) {
+    private Optional<Job> executeTask(final Job step, final ExecutableTask task, final ExecutionInfo executionInfo, final int stepCount, final ZonedDateTime startedAt) {
         final ExecutionInfo responseJob = task.execute(executionInfo);
 
         if (responseJob.getExecutionStatus().equals(INPROGRESS)) {
-            jobService.updateJobTaskData(job.getJobId(), responseJob.getJobData());
-            jobService.updateNextTaskDetails(job.getJobId(), responseJob.getNextTask(), responseJob.getNextTaskStartTime());
-            jobService.releaseJob(job.getJobId());
+            if (canContinueInline(responseJob, stepCount, startedAt)) {
+                jobService.checkpointJob(step.getJobId(), responseJob.getJobData(), responseJob.getNextTask(), responseJob.getNextTaskStartTime(), step.getPriority());
+
+                return of(Job.job()
+                        .from(step)
+                        .withJobData(responseJob.getJobData())
+                        .withNextTask(responseJob.getNextTask())
+                        .withNextTaskStartTime(responseJob.getNextTaskStartTime())
+                        .withAttempts(0)
+                        .build());
+            }
+
+            jobService.advanceJob(step.getJobId(), responseJob.getJobData(), responseJob.getNextTask(), responseJob.getNextTaskStartTime(), step.getPriority());
         } else if (responseJob.getExecutionStatus().equals(COMPLETED)) {
-            jobService.deleteJob(job.getJobId());
+            jobService.deleteJob(step.getJobId());
+        }
+
+        return empty();
+    }
+
+    private boolean canContinueInline(final ExecutionInfo responseJob, final int stepCount, final ZonedDateTime startedAt) {
+        if (stepCount >= inlineContinuationBudget.getMaxSteps()) {
+            return false;
         }
+
+        final ZonedDateTime now = clock.now();
+
+        return !responseJob.getNextTaskStartTime().isAfter(now)
+                && Duration.between(startedAt, now).compareTo(inlineContinuationBudget.getMaxDuration()) < 0
+                && taskRegistry.getTask(responseJob.getNextTask()).isPresent();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,89 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.lang.Long.parseLong;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static uk.gov.moj.cpp.task.execution.IntervalTimers.startIntervalTimer;
+import static uk.gov.moj.cpp.task.execution.IntervalTimers.timerNameOf;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.service.JobService;
+
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerService;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Periodically renews the leases of all jobs locked to this node in a single batched update, so
+ * a job that runs for longer than the lease (worker.job.lease.seconds) is not claimed by another
+ * worker while it is still running. The renewal interval should be well inside the lease, and
+ * startup fails if it is not shorter than it. A job that is no longer locked to this node, because
+ * its worker's heartbeat expired and it was released, cannot be renewed: it is marked in the
+ * {@link LockedJobRegistry} so the {@link JobExecutor} rolls back its step instead of committing
+ * over whichever node has claimed it since.
+ */
+@Singleton
+@Startup
+public class JobLeaseRenewer {
+
+    @Inject
+    private Logger logger;
+
+    @Resource(lookup = "java:module/ModuleName")
+    String moduleName;
+
+    @Resource
+    TimerService timerService;
+
+    @Inject
+    JobService jobService;
+
+    @Inject
+    LockedJobRegistry lockedJobRegistry;
+
+    @Inject
+    @Value(key = "jobstore.lease.renewal.interval.milliseconds", defaultValue = "20000")
+    String renewalIntervalMilliseconds;
+
+    @Inject
+    @Value(key = "worker.job.lease.seconds", defaultValue = "3600")
+    String jobLeaseSeconds;
+
+    @PostConstruct
+    public void init() {
+        final long renewalInterval = parseLong(renewalIntervalMilliseconds);
+        if (renewalInterval <= 0 || renewalInterval >= SECONDS.toMillis(parseLong(jobLeaseSeconds))) {
+            throw new IllegalArgumentException(format("Invalid jobstore.lease.renewal.interval.milliseconds setting '%s', expected a positive number of milliseconds shorter than the worker.job.lease.seconds lease of %s seconds",
+                    renewalIntervalMilliseconds, jobLeaseSeconds));
+        }
+
+        final String timerName = timerNameOf(moduleName, "job.lease");
+        logger.info("Creating timer [{}]", timerName);
+        startIntervalTimer(timerService, timerName, renewalInterval, renewalInterval);
+    }
+
+    @Timeout
+    public void renewLeases() {
+        final List<Job> lockedJobs = lockedJobRegistry.getLockedJobs();
+
+        if (!lockedJobs.isEmpty()) {
+            logger.debug("Renewing leases of {} locked jobs", lockedJobs.size());
+            final List<Job> lostJobs = jobService.renewJobLeases(lockedJobs);
+
+            if (!lostJobs.isEmpty()) {
+                logger.error("Lost the leases of {} jobs still held by this node, their steps will be rolled back: {}", lostJobs.size(), lostJobs.stream().map(Job::getJobId).collect(toList()));
+                lockedJobRegistry.markLeasesLost(lostJobs);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static uk.gov.moj.cpp.task.execution.IntervalTimers.cancelIntervalTimer;
+import static uk.gov.moj.cpp.task.execution.IntervalTimers.startIntervalTimer;
+import static uk.gov.moj.cpp.task.execution.IntervalTimers.timerNameOf;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.common.util.UtcClock;
+import uk.gov.moj.cpp.jobstore.persistence.JobSqlProvider;
+import uk.gov.moj.cpp.jobstore.service.JobService;
+
+import java.time.LocalDate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.inject.Inject;
+import javax.transaction.HeuristicMixedException;
+import javax.transaction.HeuristicRollbackException;
+import javax.transaction.NotSupportedException;
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.SystemException;
+import javax.transaction.UserTransaction;
+
+import org.slf4j.Logger;
+
+/**
+ * Keeps the daily partitions of a partitioned job table in step: creates the partitions for the
+ * next jobstore.partition.days.ahead days and drops the partitions older than
+ * jobstore.partition.retention.days once every job in them has finished. Only runs when the job
+ * store is partitioned (PartitionedPostgresJobSqlProvider). Each step runs in its own short
+ * transaction, away from the claims, and is skipped while another node is maintaining the
+ * partitions.
+ */
+@Singleton
+@Startup
+@TransactionManagement(TransactionManagementType.BEAN)
+public class JobPartitionMaintainer {
+
+    @Inject
+    private Logger logger;
+
+    @Resource(lookup = "java:module/ModuleName")
+    String moduleName;
+
+    @Resource
+    TimerService timerService;
+
+    @Inject
+    JobService jobService;
+
+    @Inject
+    JobSqlProvider jobSqlProvider;
+
+    @Inject
+    UtcClock clock;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    @Inject
+    @Value(key = "jobstore.partition.maintenance.interval.milliseconds", defaultValue = "3600000")
+    String maintenanceIntervalMilliseconds;
+
+    @Inject
+    @Value(key = "jobstore.partition.days.ahead", defaultValue = "7")
+    String partitionDaysAhead;
+
+    @Inject
+    @Value(key = "jobstore.partition.retention.days", defaultValue = "7")
+    String partitionRetentionDays;
+
+    @PostConstruct
+    public void init() {
+        final String timerName = timerNameOf(moduleName, "job.partition");
+
+        if (jobSqlProvider.isPartitioned()) {
+            logger.info("Creating timer [{}]", timerName);
+            startIntervalTimer(timerService, timerName, 0L, parseLong(maintenanceIntervalMilliseconds));
+        } else {
+            cancelIntervalTimer(timerService, timerName);
+        }
+    }
+
+    @Timeout
+    public void maintainPartitions() {
+        final LocalDate today = clock.now().toLocalDate();
+
+        inTransaction(() -> jobService.createJobPartitionsUntil(today.plusDays(parseInt(partitionDaysAhead))));
+
+        inTransaction(() -> {
+            final int droppedCount = jobService.dropFinishedJobPartitionsBefore(today.minusDays(parseInt(partitionRetentionDays)));
+            if (droppedCount > 0) {
+                logger.info("Dropped {} finished job partitions", droppedCount);
+            }
+        });
+    }
+
+    private void inTransaction(final Runnable partitionMaintenance) {
+        try {
+            userTransaction.begin();
+            partitionMaintenance.run();
+            userTransaction.commit();
+
+        } catch (final NotSupportedException | SystemException | RollbackException | HeuristicMixedException | HeuristicRollbackException | RuntimeException e) {
+
+            logger.error("Unexpected exception maintaining job partitions, it will be retried on the next timeout", e);
+
+            try {
+                if (userTransaction.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                    userTransaction.rollback();
+                }
+            } catch (final SystemException e1) {
+                logger.error("Unexpected exception during transaction rollback, rollback maybe incomplete", e1);
+            }
+        }
+    }
+}
@@ -1,21 +1,38 @@
 package uk.gov.moj.cpp.task.execution;
 
 import static java.lang.Long.parseLong;
-import static java.util.UUID.randomUUID;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.time.Duration.between;
+import static java.time.Duration.ofMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.stream.Collectors.toList;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import uk.gov.justice.services.common.configuration.Value;
 import uk.gov.justice.services.common.util.UtcClock;
 import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.persistence.JobArrivalNotifier;
 import uk.gov.moj.cpp.jobstore.service.JobService;
 import uk.gov.moj.cpp.task.extension.TaskRegistry;
 
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
@@ -26,6 +43,7 @@ import javax.ejb.TimerService;
 import javax.ejb.TransactionManagement;
 import javax.ejb.TransactionManagementType;
 import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
 import javax.inject.Inject;
 import javax.transaction.HeuristicMixedException;
 import javax.transaction.HeuristicRollbackException;
@@ -37,6 +55,14 @@ import javax.transaction.UserTransaction;
 
 import org.slf4j.Logger;
 
+/**
+ * Claims due jobs for this node's {@link WorkerIdentity} and hands them to the
+ * {@link JobExecutor}, each batch sized to the executor's free capacity. A claim cycle runs as
+ * soon as the {@link JobArrivalNotifier} reports new jobs and otherwise on an adaptive poll
+ * between jobstore.poll.min.interval.milliseconds and jobstore.poll.max.interval.milliseconds,
+ * with the interval timer as a safety net. On shutdown it stops claiming, waits for running jobs
+ * and releases the claimed jobs that never started.
+ */
 @Singleton
 @Startup
 @TransactionManagement(TransactionManagementType.BEAN)
@@ -55,15 +81,24 @@ public class JobScheduler {
     @Resource
     ManagedExecutorService executorService;
 
+    @Resource
+    ManagedScheduledExecutorService scheduledExecutorService;
+
     @Inject
     JobService jobService;
 
     @Inject
     TaskRegistry taskRegistry;
 
+    @Inject
+    LockedJobRegistry lockedJobRegistry;
+
     @Inject
     UtcClock clock;
 
+    @Inject
+    JobArrivalNotifier jobArrivalNotifier;
+
     @Inject
     @Value(key = "jobstore.timer.start.wait.milliseconds", defaultValue = "20000")
     String timerStartWaitSeconds;
@@ -72,15 +107,132 @@ public class JobScheduler {
     @Value(key = "jobstore.timer.interval.milliseconds", defaultValue = "20000")
     String timerIntervalSeconds;
 
+    @Inject
+    @Value(key = "jobstore.poll.min.interval.milliseconds", defaultValue = "100")
+    String pollMinIntervalMilliseconds;
+
+    @Inject
+    @Value(key = "jobstore.poll.max.interval.milliseconds", defaultValue = "60000")
+    String pollMaxIntervalMilliseconds;
+
+    @Inject
+    @Value(key = "jobstore.shutdown.drain.timeout.milliseconds", defaultValue = "30000")
+    String drainTimeoutMilliseconds;
+
     @Inject
     UserTransaction userTransaction;
 
+    @Inject
+    InlineContinuationBudget inlineContinuationBudget;
+
+    @Inject
+    RetryPolicies retryPolicies;
+
+    @Inject
+    TaskWatchdog taskWatchdog;
+
+    @Inject
+    JobStartTimer jobStartTimer;
+
+    @Inject
+    ClaimBatchSizer claimBatchSizer;
+
+    @Inject
+    RejectedJobReleaser rejectedJobReleaser;
+
+    @Inject
+    WorkerIdentity workerIdentity;
+
+    @Inject
+    TaskConcurrencyLimits taskConcurrencyLimits;
+
+    private static final long DRAIN_CHECK_MILLISECONDS = 100;
+
     private String timerName;
 
+    private final AtomicBoolean claimCyclePending = new AtomicBoolean();
+    private final AtomicBoolean claimCycleRunning = new AtomicBoolean();
+    private final AtomicBoolean claimCycleRequested = new AtomicBoolean();
+    private final Runnable jobArrivalListener = this::onJobArrival;
+    private final AtomicLong idleBackoffMillis = new AtomicLong();
+    private final AtomicReference<ScheduledFuture<?>> nextPoll = new AtomicReference<>();
+    private volatile ZonedDateTime nextPollTime;
+
     @PostConstruct
     public void init() {
         cancelExistingTimer();
         createIntervalTimer();
+        jobArrivalNotifier.addListener(jobArrivalListener);
+    }
+
+    @PreDestroy
+    public void stop() {
+        lockedJobRegistry.startDraining();
+        jobArrivalNotifier.removeListener(jobArrivalListener);
+
+        final ScheduledFuture<?> pendingPoll = nextPoll.getAndSet(null);
+        if (pendingPoll != null) {
+            pendingPoll.cancel(false);
+        }
+
+        waitForRunningJobs();
+        releaseJobsNotStarted();
+    }
+
+    private void waitForRunningJobs() {
+        final ZonedDateTime drainDeadline = clock.now().plus(ofMillis(parseLong(drainTimeoutMilliseconds)));
+
+        while (lockedJobRegistry.getRunningJobCount() > 0 && clock.now().isBefore(drainDeadline)) {
+            try {
+                Thread.sleep(DRAIN_CHECK_MILLISECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        final int runningJobCount = lockedJobRegistry.getRunningJobCount();
+        if (runningJobCount > 0) {
+            logger.warn("{} jobs were still running when the drain timed out, they stay locked to this worker", runningJobCount);
+        }
+    }
+
+    private void releaseJobsNotStarted() {
+        final List<UUID> notStartedJobIds = lockedJobRegistry.getNotStartedJobIds();
+
+        if (notStartedJobIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            userTransaction.begin();
+            final int releasedCount = jobService.releaseJobs(notStartedJobIds);
+            userTransaction.commit();
+
+            notStartedJobIds.forEach(lockedJobRegistry::deregister);
+            logger.info("Released {} claimed jobs that had not started", releasedCount);
+
+        } catch (final NotSupportedException | SystemException | RollbackException | HeuristicMixedException | HeuristicRollbackException | RuntimeException e) {
+
+            logger.error("Unexpected exception releasing claimed jobs on shutdown, they will be claimed again once their leases expire", e);
+
+            try {
+                if (userTransaction.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                    userTransaction.rollback();
+                }
+            } catch (final SystemException e1) {
+                logger.error("Unexpected exception during transaction rollback, rollback maybe incomplete", e1);
+            }
+        }
+    }
+
+    void onJobArrival() {
+        if (claimCyclePending.compareAndSet(false, true)) {
+            executorService.submit(() -> {
+                claimCyclePending.set(false);
+                fetchUnassignedJobs();
+            });
+        }
     }
 
     private void createIntervalTimer() {
@@ -108,27 +260,93 @@ public class JobScheduler {
 
 
     @Timeout
+    public void pollIfOverdue() {
+        final ZonedDateTime pollDueBy = nextPollTime;
+
+        if (pollDueBy == null || pollDueBy.isBefore(clock.now())) {
+            fetchUnassignedJobs();
+        }
+    }
+
+    /**
+     * Runs a claim cycle. Job arrivals, the adaptive poll and the interval timer all call this on
+     * the bean instance, bypassing the container lock, so only one cycle runs at a time: a call
+     * made while a cycle is running does not claim alongside it, each would size its batch from
+     * the same outstanding jobs and free slots and the node would claim too much. Instead it asks
+     * the running cycle to go round again once it has finished.
+     */
     public void fetchUnassignedJobs() {
+        claimCycleRequested.set(true);
+
+        while (claimCycleRequested.get() && claimCycleRunning.compareAndSet(false, true)) {
+            try {
+                claimCycleRequested.set(false);
+                runClaimCycle();
+            } finally {
+                claimCycleRunning.set(false);
+            }
+        }
+    }
+
+    private void runClaimCycle() {
+
+        if (lockedJobRegistry.isDraining()) {
+            return;
+        }
+
+        final int batchSize = claimBatchSizer.nextBatchSize();
+
+        if (batchSize == 0) {
+            logger.debug("Executor is at capacity, not claiming any jobs");
+            scheduleNextPoll(parseLong(pollMinIntervalMilliseconds));
+            return;
+        }
 
-        final UUID workerId = randomUUID();
+        final Set<String> taskNames = taskRegistry.getTaskNames();
+        final Map<String, Integer> freeSlots = taskConcurrencyLimits.freeSlotsFor(taskNames);
+        final Set<String> claimableTaskNames = new HashSet<>(taskNames);
+        freeSlots.forEach((taskName, slots) -> {
+            if (slots == 0) {
+                claimableTaskNames.remove(taskName);
+            }
+        });
+        final boolean anyTaskSaturated = claimableTaskNames.size() < taskNames.size();
+
+        if (anyTaskSaturated && claimableTaskNames.isEmpty()) {
+            logger.debug("Every task is at its concurrency limit, not claiming any jobs");
+            scheduleNextPoll(parseLong(pollMinIntervalMilliseconds));
+            return;
+        }
+
+        final UUID workerId = workerIdentity.getWorkerId();
+        final ZonedDateTime claimStartedAt = clock.now();
 
         logger.debug("Retrieving new work from jobstore for WorkerID [{}]", workerId);
 
         Stream<Job> unassignedJobs = null;
+        Long pollDelayMillis = null;
 
         try {
             userTransaction.begin();
 
             // Collect into List and forward to execute() method as a new Stream.
             // (as userTransaction.commit() will close the DB cursor/resultset)
-            unassignedJobs = jobService.getUnassignedJobsFor(workerId);
+            unassignedJobs = freeSlots.isEmpty()
+                    ? jobService.getUnassignedJobsFor(workerId, taskNames, batchSize)
+                    : jobService.getUnassignedJobsFor(workerId, claimableTaskNames, batchSize, freeSlots);
             final List<Job> jobList = unassignedJobs.collect(toList());
+            final boolean batchFull = jobList.size() >= batchSize;
+            final Optional<ZonedDateTime> nextClaimableTime = batchFull ? Optional.empty() : jobService.getNextClaimableTime(claimableTaskNames);
 
             userTransaction.commit();
 
             execute(jobList.stream());
+            claimBatchSizer.recordClaimCycle(between(claimStartedAt, clock.now()));
+
+            final long nextPollDelayMillis = nextPollDelayMillis(batchFull, !jobList.isEmpty(), nextClaimableTime);
+            pollDelayMillis = anyTaskSaturated ? min(nextPollDelayMillis, parseLong(pollMinIntervalMilliseconds)) : nextPollDelayMillis;
 
-        } catch (final NotSupportedException | SystemException | RollbackException | HeuristicMixedException | HeuristicRollbackException e) {
+        } catch (final NotSupportedException | SystemException | RollbackException | HeuristicMixedException | HeuristicRollbackException | RuntimeException e) {
 
             logger.error("Unexpected exception during transaction, attempting rollback...", e);
 
@@ -146,22 +364,82 @@ public class JobScheduler {
             if (unassignedJobs != null) {
                 unassignedJobs.close();
             }
+
+            // a failed cycle backs off as if it had claimed nothing, so polling carries on
+            scheduleNextPoll(pollDelayMillis != null ? pollDelayMillis : nextPollDelayMillis(false, false, Optional.empty()));
         }
     }
 
     private void execute(Stream<Job> jobsToDo) {
+        final List<UUID> rejectedJobIds = new ArrayList<>();
+        final JobExecutionSettings jobExecutionSettings = new JobExecutionSettings(inlineContinuationBudget, retryPolicies, taskWatchdog);
+
         jobsToDo.forEach(job -> {
             logger.trace("Trigger task execution:");
 
-            executorService.submit(new JobExecutor(
+            lockedJobRegistry.register(job);
+
+            final JobExecutor jobExecutor = new JobExecutor(
                     job,
                     taskRegistry,
                     jobService,
+                    lockedJobRegistry,
                     userTransaction,
                     clock,
-                    getLogger(JobExecutor.class)));
+                    getLogger(JobExecutor.class),
+                    jobExecutionSettings);
+
+            try {
+                if (isDueLater(job)) {
+                    jobStartTimer.startAt(jobExecutor, job.getNextTaskStartTime());
+                } else {
+                    executorService.submit(jobExecutor);
+                }
+            } catch (final RejectedExecutionException e) {
+                rejectedJobIds.add(job.getJobId());
+            }
 
             logger.trace("Invocation of Task complete");
         });
+
+        rejectedJobReleaser.release(rejectedJobIds);
+    }
+
+    /**
+     * Polls again at once after a full batch. Otherwise waits for the idle backoff, which starts
+     * at the minimum interval and doubles with every poll that claims nothing up to the maximum,
+     * or until the next waiting job can be claimed if that is sooner.
+     */
+    private long nextPollDelayMillis(final boolean batchFull, final boolean claimedAny, final Optional<ZonedDateTime> nextClaimableTime) {
+        final long minInterval = parseLong(pollMinIntervalMilliseconds);
+        final long maxInterval = parseLong(pollMaxIntervalMilliseconds);
+
+        if (batchFull || claimedAny) {
+            idleBackoffMillis.set(0);
+        }
+
+        if (batchFull) {
+            return 0;
+        }
+
+        final long backoff = idleBackoffMillis.updateAndGet(previous -> previous == 0 ? minInterval : min(previous * 2, maxInterval));
+
+        return nextClaimableTime
+                .map(claimableTime -> max(minInterval, min(backoff, between(clock.now(), claimableTime).toMillis())))
+                .orElse(backoff);
+    }
+
+    private void scheduleNextPoll(final long delayMillis) {
+        nextPollTime = clock.now().plus(ofMillis(delayMillis));
+
+        final ScheduledFuture<?> previousPoll = nextPoll.getAndSet(scheduledExecutorService.schedule(this::fetchUnassignedJobs, delayMillis, MILLISECONDS));
+        if (previousPoll != null) {
+            previousPoll.cancel(false);
+        }
+    }
+
+    private boolean isDueLater(final Job job) {
+        final ZonedDateTime nextTaskStartTime = job.getNextTaskStartTime();
+        return nextTaskStartTime != null && nextTaskStartTime.isAfter(clock.now());
     }
 }
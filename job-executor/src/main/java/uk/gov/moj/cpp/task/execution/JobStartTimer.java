@@ -0,0 +1,120 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.lang.Long.parseLong;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.common.util.UtcClock;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Holds jobs that were claimed ahead of their start time in a {@link TimingWheel} and submits
+ * each one to the executor as soon as it is due, to within jobstore.timing.wheel.tick.milliseconds.
+ * The jobs stay in the {@link LockedJobRegistry} while they wait, so their leases are renewed,
+ * and a job the executor rejects once it is due is released by the {@link RejectedJobReleaser}.
+ */
+@ApplicationScoped
+public class JobStartTimer {
+
+    private static final int WHEEL_SIZE = 512;
+
+    @Resource
+    ManagedExecutorService executorService;
+
+    @Resource
+    ManagedScheduledExecutorService scheduledExecutorService;
+
+    @Inject
+    UtcClock clock;
+
+    @Inject
+    RejectedJobReleaser rejectedJobReleaser;
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    @Value(key = "jobstore.timing.wheel.tick.milliseconds", defaultValue = "10")
+    String tickMilliseconds;
+
+    private TimingWheel<JobExecutor> timingWheel;
+    private ScheduledFuture<?> ticker;
+
+    /**
+     * Runs the job at its start time, or straight away if it is already due.
+     */
+    public void startAt(final JobExecutor jobExecutor, final ZonedDateTime startTime) {
+        final boolean scheduled;
+
+        synchronized (this) {
+            scheduled = timingWheel().schedule(jobExecutor, startTime.toInstant().toEpochMilli());
+        }
+
+        if (!scheduled) {
+            executorService.submit(jobExecutor);
+        }
+    }
+
+    public synchronized int getWaitingJobCount() {
+        return timingWheel == null ? 0 : timingWheel.size();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+
+    /**
+     * Called by the ticker every tick. Must not throw, or the ticker is cancelled.
+     */
+    void tick() {
+        final List<JobExecutor> dueJobExecutors = new ArrayList<>();
+        final List<UUID> rejectedJobIds = new ArrayList<>();
+
+        synchronized (this) {
+            timingWheel.advanceTo(nowMillis(), dueJobExecutors::add);
+        }
+
+        for (final JobExecutor dueJobExecutor : dueJobExecutors) {
+            try {
+                executorService.submit(dueJobExecutor);
+            } catch (final RuntimeException e) {
+                logger.error("Could not submit {}, releasing it", dueJobExecutor, e);
+                rejectedJobIds.add(dueJobExecutor.getJobId());
+            }
+        }
+
+        rejectedJobReleaser.release(rejectedJobIds);
+    }
+
+    private TimingWheel<JobExecutor> timingWheel() {
+        if (timingWheel == null) {
+            final long tick = parseLong(tickMilliseconds);
+            timingWheel = new TimingWheel<>(tick, WHEEL_SIZE, nowMillis());
+            ticker = scheduledExecutorService.scheduleAtFixedRate(this::tick, tick, tick, MILLISECONDS);
+        }
+
+        return timingWheel;
+    }
+
+    private long nowMillis() {
+        return clock.now().toInstant().toEpochMilli();
+    }
+}
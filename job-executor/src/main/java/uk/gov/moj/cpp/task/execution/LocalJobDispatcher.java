@@ -0,0 +1,148 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.util.stream.Collectors.toList;
+import static javax.enterprise.event.TransactionPhase.AFTER_SUCCESS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import uk.gov.justice.services.common.util.UtcClock;
+import uk.gov.moj.cpp.jobstore.api.DueJobSubmittedEvent;
+import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.service.JobService;
+import uk.gov.moj.cpp.task.extension.TaskRegistry;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.transaction.HeuristicMixedException;
+import javax.transaction.HeuristicRollbackException;
+import javax.transaction.NotSupportedException;
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.SystemException;
+import javax.transaction.UserTransaction;
+
+import org.slf4j.Logger;
+
+/**
+ * Runs jobs that were submitted on this node already due, without waiting for the
+ * {@link JobScheduler}. The observer is transactional, so it is only called once the submitting
+ * transaction has committed; the job is then claimed by id and executed on the local
+ * {@link ManagedExecutorService}. If another worker claims the job first, or this node's
+ * executor has no free capacity, the job's task is at its {@link TaskConcurrencyLimits} or the
+ * node is draining for shutdown, nothing is run here.
+ */
+@ApplicationScoped
+public class LocalJobDispatcher {
+
+    @Inject
+    private Logger logger;
+
+    @Resource
+    ManagedExecutorService executorService;
+
+    @Inject
+    JobService jobService;
+
+    @Inject
+    TaskRegistry taskRegistry;
+
+    @Inject
+    LockedJobRegistry lockedJobRegistry;
+
+    @Inject
+    UtcClock clock;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    @Inject
+    InlineContinuationBudget inlineContinuationBudget;
+
+    @Inject
+    RetryPolicies retryPolicies;
+
+    @Inject
+    TaskWatchdog taskWatchdog;
+
+    @Inject
+    ClaimBatchSizer claimBatchSizer;
+
+    @Inject
+    WorkerIdentity workerIdentity;
+
+    @Inject
+    TaskConcurrencyLimits taskConcurrencyLimits;
+
+    public void dispatch(@Observes(during = AFTER_SUCCESS) final DueJobSubmittedEvent event) {
+        if (!taskRegistry.getTaskNames().contains(event.getNextTask())) {
+            logger.debug("Task [{}] is not registered on this node, leaving job {} to the schedulers", event.getNextTask(), event.getJobId());
+            return;
+        }
+
+        if (lockedJobRegistry.isDraining() || !claimBatchSizer.hasFreeCapacity()) {
+            logger.debug("Executor is at capacity or draining, leaving job {} to the schedulers", event.getJobId());
+            return;
+        }
+
+        if (!taskConcurrencyLimits.hasFreeSlot(event.getNextTask())) {
+            logger.debug("Task [{}] is at its concurrency limit, leaving job {} to the schedulers", event.getNextTask(), event.getJobId());
+            return;
+        }
+
+        try {
+            executorService.submit(() -> claimAndExecute(event.getJobId()));
+        } catch (final RejectedExecutionException e) {
+            logger.debug("Executor rejected job {}, leaving it to the schedulers", event.getJobId());
+        }
+    }
+
+    void claimAndExecute(final UUID jobId) {
+        if (lockedJobRegistry.isDraining()) {
+            return;
+        }
+
+        final UUID workerId = workerIdentity.getWorkerId();
+
+        try {
+            userTransaction.begin();
+
+            final List<Job> claimedJobs = jobService.claimJob(jobId, workerId).collect(toList());
+
+            userTransaction.commit();
+
+            claimedJobs.forEach(this::execute);
+
+        } catch (final NotSupportedException | SystemException | RollbackException | HeuristicMixedException | HeuristicRollbackException | RuntimeException e) {
+
+            logger.error("Unexpected exception claiming job {} for local dispatch, attempting rollback...", jobId, e);
+
+            try {
+                if (userTransaction.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                    userTransaction.rollback();
+                }
+            } catch (final SystemException e1) {
+                logger.error("Unexpected exception during transaction rollback, rollback maybe incomplete", e1);
+            }
+        }
+    }
+
+    private void execute(final Job job) {
+        lockedJobRegistry.register(job);
+
+        new JobExecutor(
+                job,
+                taskRegistry,
+                jobService,
+                lockedJobRegistry,
+                userTransaction,
+                clock,
+                getLogger(JobExecutor.class),
+                new JobExecutionSettings(inlineContinuationBudget, retryPolicies, taskWatchdog)).run();
+    }
+}
@@ -0,0 +1,144 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.lang.System.nanoTime;
+import static java.util.Collections.unmodifiableList;
+import static java.util.stream.Collectors.toList;
+
+import uk.gov.moj.cpp.jobstore.persistence.Job;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * The jobs this node has claimed and not yet finished with, so their leases can be renewed
+ * while they wait for, or are running on, an executor thread. It also counts the jobs that have
+ * started running and how long finished jobs ran for, so claim batches can be sized to what the
+ * executor is actually getting through. Once the node starts draining for shutdown no more jobs
+ * are allowed to start, so the jobs that have not started can be released. A job whose lease was
+ * found to be lost, because it was released and may have been claimed by another node, is kept
+ * registered until it finishes but no longer renewed, and its steps must not be committed.
+ */
+@ApplicationScoped
+public class LockedJobRegistry {
+
+    private final Map<UUID, Job> lockedJobsById = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> runningSinceNanosById = new ConcurrentHashMap<>();
+    private final Set<UUID> lostLeaseJobIds = ConcurrentHashMap.newKeySet();
+    private final LongAdder finishedJobCount = new LongAdder();
+    private final LongAdder finishedRunNanos = new LongAdder();
+    private boolean draining;
+
+    public void register(final Job job) {
+        lockedJobsById.put(job.getJobId(), job);
+    }
+
+    /**
+     * Marks a registered job as running on an executor thread.
+     *
+     * @return false if the node is draining and the job must not be started
+     */
+    public synchronized boolean markRunning(final UUID jobId) {
+        if (draining) {
+            return false;
+        }
+
+        if (lockedJobsById.containsKey(jobId)) {
+            runningSinceNanosById.put(jobId, nanoTime());
+        }
+
+        return true;
+    }
+
+    /**
+     * Stops any more jobs from being started, ahead of shutting down.
+     */
+    public synchronized void startDraining() {
+        draining = true;
+    }
+
+    public synchronized boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * @return the ids of the registered jobs that have not started running
+     */
+    public List<UUID> getNotStartedJobIds() {
+        final List<UUID> notStartedJobIds = new ArrayList<>(lockedJobsById.keySet());
+        notStartedJobIds.removeAll(runningSinceNanosById.keySet());
+        return notStartedJobIds;
+    }
+
+    public void deregister(final UUID jobId) {
+        lockedJobsById.remove(jobId);
+        lostLeaseJobIds.remove(jobId);
+
+        final Long runningSinceNanos = runningSinceNanosById.remove(jobId);
+        if (runningSinceNanos != null) {
+            finishedRunNanos.add(nanoTime() - runningSinceNanos);
+            finishedJobCount.increment();
+        }
+    }
+
+    /**
+     * Marks registered jobs as having lost their lease.
+     */
+    public void markLeasesLost(final Collection<Job> jobs) {
+        jobs.stream()
+                .map(Job::getJobId)
+                .filter(lockedJobsById::containsKey)
+                .forEach(lostLeaseJobIds::add);
+    }
+
+    public boolean hasLostLease(final UUID jobId) {
+        return lostLeaseJobIds.contains(jobId);
+    }
+
+    /**
+     * @return the registered jobs whose leases have not been lost
+     */
+    public List<Job> getLockedJobs() {
+        return unmodifiableList(lockedJobsById.values().stream()
+                .filter(job -> !lostLeaseJobIds.contains(job.getJobId()))
+                .collect(toList()));
+    }
+
+    public int getLockedJobCount() {
+        return lockedJobsById.size();
+    }
+
+    /**
+     * @return the number of registered jobs, waiting or running, whose next task is the given task
+     */
+    public int getLockedJobCount(final String taskName) {
+        return (int) lockedJobsById.values().stream()
+                .filter(job -> taskName.equals(job.getNextTask()))
+                .count();
+    }
+
+    public int getRunningJobCount() {
+        return runningSinceNanosById.size();
+    }
+
+    /**
+     * @return the number of jobs that have run and been deregistered since startup
+     */
+    public long getFinishedJobCount() {
+        return finishedJobCount.sum();
+    }
+
+    /**
+     * @return the total time, in nanoseconds, the finished jobs spent running
+     */
+    public long getFinishedRunNanos() {
+        return finishedRunNanos.sum();
+    }
+}
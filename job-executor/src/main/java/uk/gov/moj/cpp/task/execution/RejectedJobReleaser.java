@@ -0,0 +1,77 @@
+package uk.gov.moj.cpp.task.execution;
+
+import uk.gov.moj.cpp.jobstore.service.JobService;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.HeuristicMixedException;
+import javax.transaction.HeuristicRollbackException;
+import javax.transaction.NotSupportedException;
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.SystemException;
+import javax.transaction.UserTransaction;
+
+import org.slf4j.Logger;
+
+/**
+ * Releases claimed jobs that the executor rejected, so they can be claimed again straight away
+ * rather than staying locked until their lease expires, and counts the rejections.
+ */
+@ApplicationScoped
+public class RejectedJobReleaser {
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    JobService jobService;
+
+    @Inject
+    LockedJobRegistry lockedJobRegistry;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    private final LongAdder rejectedJobCount = new LongAdder();
+
+    public void release(final Collection<UUID> rejectedJobIds) {
+        if (rejectedJobIds.isEmpty()) {
+            return;
+        }
+
+        rejectedJobCount.add(rejectedJobIds.size());
+        rejectedJobIds.forEach(lockedJobRegistry::deregister);
+
+        logger.warn("Executor rejected {} jobs, releasing them", rejectedJobIds.size());
+
+        try {
+            userTransaction.begin();
+            jobService.releaseJobs(rejectedJobIds);
+            userTransaction.commit();
+
+        } catch (final NotSupportedException | SystemException | RollbackException | HeuristicMixedException | HeuristicRollbackException | RuntimeException e) {
+
+            logger.error("Unexpected exception releasing rejected jobs, they will be claimed again once their leases expire", e);
+
+            try {
+                if (userTransaction.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                    userTransaction.rollback();
+                }
+            } catch (final SystemException e1) {
+                logger.error("Unexpected exception during transaction rollback, rollback maybe incomplete", e1);
+            }
+        }
+    }
+
+    /**
+     * @return the number of claimed jobs the executor has rejected since startup
+     */
+    public long getRejectedJobCount() {
+        return rejectedJobCount.sum();
+    }
+}
@@ -0,0 +1,26 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.util.Collections.emptyMap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@link RetryPolicy} of each task, falling back to a default policy for tasks without one.
+ */
+public class RetryPolicies {
+
+    public static final RetryPolicies DEFAULT = new RetryPolicies(RetryPolicy.DEFAULT, emptyMap());
+
+    private final RetryPolicy defaultPolicy;
+    private final Map<String, RetryPolicy> policiesByTask;
+
+    public RetryPolicies(final RetryPolicy defaultPolicy, final Map<String, RetryPolicy> policiesByTask) {
+        this.defaultPolicy = defaultPolicy;
+        this.policiesByTask = new HashMap<>(policiesByTask);
+    }
+
+    public RetryPolicy policyFor(final String taskName) {
+        return policiesByTask.getOrDefault(taskName, defaultPolicy);
+    }
+}
@@ -0,0 +1,48 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.time.Duration.ofMillis;
+import static uk.gov.moj.cpp.jobstore.configuration.TaskSettings.taskSettingsOf;
+
+import uk.gov.justice.services.common.configuration.Value;
+
+import java.util.Map;
+
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+
+/**
+ * Produces the {@link RetryPolicies} from jobstore.retry.max.attempts,
+ * jobstore.retry.initial.backoff.milliseconds and jobstore.retry.max.backoff.milliseconds, the
+ * default policy, and jobstore.retry.policies, a comma separated list of
+ * taskName:maxAttempts:initialBackoffMilliseconds:maxBackoffMilliseconds overriding it per task.
+ * Setting max attempts to 1 dead letters a job the first time its task throws.
+ */
+public class RetryPoliciesProducer {
+
+    @Inject
+    @Value(key = "jobstore.retry.max.attempts", defaultValue = "5")
+    String maxAttempts;
+
+    @Inject
+    @Value(key = "jobstore.retry.initial.backoff.milliseconds", defaultValue = "1000")
+    String initialBackoffMilliseconds;
+
+    @Inject
+    @Value(key = "jobstore.retry.max.backoff.milliseconds", defaultValue = "600000")
+    String maxBackoffMilliseconds;
+
+    @Inject
+    @Value(key = "jobstore.retry.policies", defaultValue = "")
+    String taskRetryPolicies;
+
+    @Produces
+    public RetryPolicies retryPolicies() {
+        final RetryPolicy defaultPolicy = new RetryPolicy(parseInt(maxAttempts), ofMillis(parseLong(initialBackoffMilliseconds)), ofMillis(parseLong(maxBackoffMilliseconds)));
+        final Map<String, RetryPolicy> policiesByTask = taskSettingsOf("jobstore.retry.policies", taskRetryPolicies, "taskName:maxAttempts:initialBackoffMilliseconds:maxBackoffMilliseconds",
+                values -> new RetryPolicy(parseInt(values[0]), ofMillis(parseLong(values[1])), ofMillis(parseLong(values[2]))));
+
+        return new RetryPolicies(defaultPolicy, policiesByTask);
+    }
+}
@@ -0,0 +1,60 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.lang.Math.min;
+
+import java.time.Duration;
+
+/**
+ * How a task that throws is retried: up to maxAttempts runs in all, waiting initialBackoff after
+ * the first failure and twice as long after each further failure, up to maxBackoff. Each wait is
+ * jittered to between half and all of its backoff, so jobs that failed together do not all come
+ * back at the same moment.
+ */
+public class RetryPolicy {
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(5, Duration.ofSeconds(1), Duration.ofMinutes(10));
+
+    private static final int MAX_DOUBLINGS = 30;
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    public RetryPolicy(final int maxAttempts, final Duration initialBackoff, final Duration maxBackoff) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * @param attempts the number of times the task has failed
+     * @return true if the task must not be run again
+     */
+    public boolean isExhausted(final int attempts) {
+        return attempts >= maxAttempts;
+    }
+
+    /**
+     * @param attempts the number of times the task has failed, at least 1
+     * @param jitter   a random number from 0 (inclusive) to 1 (exclusive)
+     * @return how long to wait before running the task again
+     */
+    public Duration backoffFor(final int attempts, final double jitter) {
+        final int doublings = min(attempts - 1, MAX_DOUBLINGS);
+        final long backoffMillis = min(initialBackoff.toMillis() << doublings, maxBackoff.toMillis());
+
+        return Duration.ofMillis(backoffMillis / 2 + (long) (jitter * (backoffMillis - backoffMillis / 2)));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+}
@@ -0,0 +1,66 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Math.max;
+import static uk.gov.moj.cpp.jobstore.configuration.TaskSettings.taskSettingsOf;
+
+import uk.gov.justice.services.common.configuration.Value;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Caps how many jobs of a task type this node holds at once, so one slow task cannot take every
+ * executor thread and stall unrelated work. The limits are set by jobstore.task.concurrency.limits
+ * as comma separated taskName:maximum pairs; tasks without a limit are only bounded by the
+ * executor. A job counts against its task's limit from the moment it is claimed until it is
+ * deregistered, whether it is waiting or running, so a saturated task is not claimed at all rather
+ * than being claimed only to wait in the executor queue.
+ */
+@ApplicationScoped
+public class TaskConcurrencyLimits {
+
+    @Inject
+    LockedJobRegistry lockedJobRegistry;
+
+    @Inject
+    @Value(key = "jobstore.task.concurrency.limits", defaultValue = "")
+    String taskConcurrencyLimits;
+
+    private Map<String, Integer> limits;
+
+    @PostConstruct
+    public void init() {
+        limits = taskSettingsOf("jobstore.task.concurrency.limits", taskConcurrencyLimits, "taskName:maximum", values -> parseInt(values[0]));
+    }
+
+    /**
+     * Works out how many more jobs of each limited task this node can take on.
+     *
+     * @param taskNames the tasks this node can execute
+     * @return the free slots of each of the given tasks that has a limit, tasks without a limit
+     * are left out
+     */
+    public Map<String, Integer> freeSlotsFor(final Set<String> taskNames) {
+        final Map<String, Integer> freeSlots = new HashMap<>();
+
+        for (final String taskName : taskNames) {
+            final Integer limit = limits.get(taskName);
+            if (limit != null) {
+                freeSlots.put(taskName, max(0, limit - lockedJobRegistry.getLockedJobCount(taskName)));
+            }
+        }
+
+        return freeSlots;
+    }
+
+    public boolean hasFreeSlot(final String taskName) {
+        final Integer limit = limits.get(taskName);
+        return limit == null || lockedJobRegistry.getLockedJobCount(taskName) < limit;
+    }
+}
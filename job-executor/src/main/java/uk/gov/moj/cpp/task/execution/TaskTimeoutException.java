@@ -0,0 +1,13 @@
+package uk.gov.moj.cpp.task.execution;
+
+/**
+ * Exception recorded as the failure of a task that ran past its timeout
+ */
+public class TaskTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = -3489125120853361452L;
+
+    public TaskTimeoutException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
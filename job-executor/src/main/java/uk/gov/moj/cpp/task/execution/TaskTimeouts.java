@@ -0,0 +1,37 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.util.Collections.emptyMap;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * How long each task may run before it is interrupted: the timeout configured for the task, else
+ * the timeout declared on its {@link uk.gov.moj.cpp.jobstore.api.annotation.Task} annotation,
+ * else the default timeout, if there is one. A task configured without a timeout runs without one
+ * whatever its annotation or the default say.
+ */
+public class TaskTimeouts {
+
+    public static final TaskTimeouts NONE = new TaskTimeouts(Optional.empty(), emptyMap());
+
+    private final Optional<Duration> defaultTimeout;
+    private final Map<String, Optional<Duration>> timeoutsByTask;
+
+    public TaskTimeouts(final Optional<Duration> defaultTimeout, final Map<String, Optional<Duration>> timeoutsByTask) {
+        this.defaultTimeout = defaultTimeout;
+        this.timeoutsByTask = new HashMap<>(timeoutsByTask);
+    }
+
+    public Optional<Duration> timeoutFor(final String taskName, final Optional<Duration> declaredTimeout) {
+        final Optional<Duration> configuredTimeout = timeoutsByTask.get(taskName);
+
+        if (configuredTimeout != null) {
+            return configuredTimeout;
+        }
+
+        return declaredTimeout.isPresent() ? declaredTimeout : defaultTimeout;
+    }
+}
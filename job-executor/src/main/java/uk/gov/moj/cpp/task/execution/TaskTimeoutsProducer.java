@@ -0,0 +1,44 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.lang.Long.parseLong;
+import static java.time.Duration.ofMillis;
+import static uk.gov.moj.cpp.jobstore.configuration.TaskSettings.taskSettingsOf;
+
+import uk.gov.justice.services.common.configuration.Value;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+
+/**
+ * Produces the {@link TaskTimeouts} from jobstore.task.timeout.milliseconds, the default timeout,
+ * and jobstore.task.timeouts, a comma separated list of taskName:timeoutMilliseconds overriding
+ * both the default and the timeout declared on the task. In both settings 0 means tasks run
+ * without a timeout.
+ */
+public class TaskTimeoutsProducer {
+
+    @Inject
+    @Value(key = "jobstore.task.timeout.milliseconds", defaultValue = "0")
+    String defaultTimeoutMilliseconds;
+
+    @Inject
+    @Value(key = "jobstore.task.timeouts", defaultValue = "")
+    String taskTimeouts;
+
+    @Produces
+    public TaskTimeouts taskTimeouts() {
+        final long defaultTimeout = parseLong(defaultTimeoutMilliseconds);
+        final Map<String, Optional<Duration>> timeoutsByTask = taskSettingsOf("jobstore.task.timeouts", taskTimeouts, "taskName:timeoutMilliseconds",
+                values -> timeoutOf(parseLong(values[0])));
+
+        return new TaskTimeouts(timeoutOf(defaultTimeout), timeoutsByTask);
+    }
+
+    private Optional<Duration> timeoutOf(final long timeoutMilliseconds) {
+        return timeoutMilliseconds > 0 ? Optional.of(ofMillis(timeoutMilliseconds)) : Optional.empty();
+    }
+}
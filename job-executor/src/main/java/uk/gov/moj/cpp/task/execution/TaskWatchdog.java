@@ -0,0 +1,197 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.lang.Long.parseLong;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.common.util.UtcClock;
+import uk.gov.moj.cpp.jobstore.management.PlatformMXBeans;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+
+/**
+ * Interrupts tasks that run past their timeout, as given by the {@link TaskTimeouts}. The
+ * interrupt is cooperative: a task blocked in an interruptible call, or one that checks its
+ * thread's interrupt flag, stops early, and whenever the task returns the {@link JobExecutor}
+ * rolls its step back and treats it as failed. The running tasks' watches are held in a set that
+ * a single ticker checks every jobstore.task.watchdog.tick.milliseconds, and a watch leaves the
+ * set as soon as its task returns, so nothing is left behind however many steps run. Registered
+ * as the platform MXBean uk.gov.moj.cpp.jobstore:type=TaskWatchdog,module=&lt;module name&gt;.
+ */
+@ApplicationScoped
+public class TaskWatchdog implements TaskWatchdogMXBean {
+
+    public static final TaskWatchdog NO_TIMEOUTS = new TaskWatchdog(TaskTimeouts.NONE);
+
+    private static final Watch UNWATCHED = new Watch(null, null, null, null, null);
+
+    @Inject
+    Logger logger;
+
+    @Resource(lookup = "java:module/ModuleName")
+    String moduleName;
+
+    @Resource
+    ManagedScheduledExecutorService scheduledExecutorService;
+
+    @Inject
+    TaskTimeouts taskTimeouts;
+
+    @Inject
+    UtcClock clock;
+
+    @Inject
+    @Value(key = "jobstore.task.watchdog.tick.milliseconds", defaultValue = "100")
+    String tickMilliseconds;
+
+    private final Set<Watch> runningWatches = ConcurrentHashMap.newKeySet();
+    private final LongAdder timedOutTaskCount = new LongAdder();
+    private ObjectName objectName;
+    private ScheduledFuture<?> ticker;
+
+    public TaskWatchdog() {
+    }
+
+    TaskWatchdog(final TaskTimeouts taskTimeouts) {
+        this.taskTimeouts = taskTimeouts;
+    }
+
+    @PostConstruct
+    public void register() {
+        objectName = PlatformMXBeans.register(this, "TaskWatchdog", moduleName, logger);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        synchronized (this) {
+            if (ticker != null) {
+                ticker.cancel(false);
+                ticker = null;
+            }
+        }
+
+        PlatformMXBeans.unregister(objectName, logger);
+    }
+
+    /**
+     * Starts watching the task about to run on the current thread.
+     *
+     * @param taskName        the task to run
+     * @param declaredTimeout the timeout declared on the task, if any
+     * @return the watch, to be stopped as soon as the task returns
+     */
+    public Watch watch(final String taskName, final Optional<Duration> declaredTimeout) {
+        final Optional<Duration> timeout = taskTimeouts.timeoutFor(taskName, declaredTimeout);
+
+        if (!timeout.isPresent()) {
+            return UNWATCHED;
+        }
+
+        startTicker();
+
+        final Watch watch = new Watch(Thread.currentThread(), taskName, timeout.get(), clock.now().plus(timeout.get()), runningWatches);
+        runningWatches.add(watch);
+
+        return watch;
+    }
+
+    /**
+     * Called by the ticker every tick. Must not throw, or the ticker is cancelled.
+     */
+    void tick() {
+        final ZonedDateTime now = clock.now();
+
+        for (final Watch watch : runningWatches) {
+            if (!watch.deadline.isAfter(now) && watch.timeOut()) {
+                runningWatches.remove(watch);
+                timedOutTaskCount.increment();
+                logger.warn("Task {} has run for longer than its timeout of {}, interrupting it", watch.taskName, watch.timeout);
+            }
+        }
+    }
+
+    int getRunningWatchCount() {
+        return runningWatches.size();
+    }
+
+    private synchronized void startTicker() {
+        if (ticker == null) {
+            final long tick = parseLong(tickMilliseconds);
+            ticker = scheduledExecutorService.scheduleAtFixedRate(this::tick, tick, tick, MILLISECONDS);
+        }
+    }
+
+    @Override
+    public long getTimedOutTaskCount() {
+        return timedOutTaskCount.sum();
+    }
+
+    /**
+     * A watch on one run of a task.
+     */
+    public static class Watch {
+
+        private final Thread taskThread;
+        private final String taskName;
+        private final Duration timeout;
+        private final ZonedDateTime deadline;
+        private final Set<Watch> runningWatches;
+        private boolean stopped;
+        private boolean timedOut;
+
+        private Watch(final Thread taskThread, final String taskName, final Duration timeout, final ZonedDateTime deadline, final Set<Watch> runningWatches) {
+            this.taskThread = taskThread;
+            this.taskName = taskName;
+            this.timeout = timeout;
+            this.deadline = deadline;
+            this.runningWatches = runningWatches;
+        }
+
+        /**
+         * Stops watching the task, clearing the interrupt if the task was interrupted. Must be
+         * called on the task's thread.
+         *
+         * @return true if the task ran past its timeout
+         */
+        public boolean stop() {
+            return taskThread != null && stopWatching();
+        }
+
+        private synchronized boolean stopWatching() {
+            stopped = true;
+            runningWatches.remove(this);
+
+            if (timedOut) {
+                Thread.interrupted();
+            }
+
+            return timedOut;
+        }
+
+        private synchronized boolean timeOut() {
+            if (stopped) {
+                return false;
+            }
+
+            timedOut = true;
+            taskThread.interrupt();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package uk.gov.moj.cpp.task.execution;
+
+/**
+ * The task timeouts seen by the {@link TaskWatchdog}, exposed over JMX.
+ */
+public interface TaskWatchdogMXBean {
+
+    /**
+     * @return the number of tasks interrupted for running past their timeout since startup
+     */
+    long getTimedOutTaskCount();
+}
@@ -0,0 +1,152 @@
+package uk.gov.moj.cpp.task.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel. The first wheel has wheelSize buckets of tickMillis each; every
+ * further wheel, added as later deadlines are scheduled, has buckets as wide as the whole of the
+ * wheel below it. Scheduling and firing are constant time per item, however many items are
+ * waiting, and an item is never fired before its deadline: deadlines are rounded up to the next
+ * tick, so an item fires within one tick after it falls due.
+ *
+ * Not thread safe, callers must synchronise.
+ *
+ * @param <T> the type of the scheduled items
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<Wheel> wheels = new ArrayList<>();
+    private int size;
+
+    public TimingWheel(final long tickMillis, final int wheelSize, final long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        wheels.add(new Wheel(tickMillis, startMillis));
+    }
+
+    /**
+     * Schedules the item to fire at the given deadline.
+     *
+     * @return false, without scheduling it, if the item is already due
+     */
+    public boolean schedule(final T item, final long deadlineMillis) {
+        final long expiration = ((deadlineMillis + tickMillis - 1) / tickMillis) * tickMillis;
+
+        if (!add(new Entry<>(item, expiration))) {
+            return false;
+        }
+
+        size++;
+        return true;
+    }
+
+    /**
+     * Moves the wheel on to the given time, firing every item whose deadline has been reached.
+     */
+    public void advanceTo(final long nowMillis, final Consumer<T> onExpired) {
+        final Wheel firstWheel = wheels.get(0);
+
+        while (firstWheel.currentTime + tickMillis <= nowMillis) {
+            if (size == 0) {
+                wheels.forEach(wheel -> wheel.currentTime = truncate(nowMillis, wheel.tick));
+                return;
+            }
+
+            final long time = firstWheel.currentTime + tickMillis;
+            final List<Entry<T>> reached = new ArrayList<>();
+
+            for (final Wheel wheel : wheels) {
+                final long wheelTime = truncate(time, wheel.tick);
+
+                if (wheelTime != wheel.currentTime) {
+                    wheel.currentTime = wheelTime;
+                    reached.addAll(wheel.flush(wheelTime));
+                }
+            }
+
+            for (final Entry<T> entry : reached) {
+                if (!add(entry)) {
+                    size--;
+                    onExpired.accept(entry.item);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private boolean add(final Entry<T> entry) {
+        for (int level = 0; ; level++) {
+            final Wheel wheel = wheelAt(level);
+
+            if (entry.expiration < wheel.currentTime + wheel.tick) {
+                return false;
+            }
+
+            if (entry.expiration < wheel.currentTime + wheel.interval) {
+                wheel.bucketFor(entry.expiration).add(entry);
+                return true;
+            }
+        }
+    }
+
+    private Wheel wheelAt(final int level) {
+        if (level == wheels.size()) {
+            final Wheel wheelBelow = wheels.get(level - 1);
+            wheels.add(new Wheel(wheelBelow.interval, wheels.get(0).currentTime));
+        }
+
+        return wheels.get(level);
+    }
+
+    private static long truncate(final long time, final long tick) {
+        return time - (time % tick);
+    }
+
+    private class Wheel {
+
+        private final long tick;
+        private final long interval;
+        private final List<List<Entry<T>>> buckets;
+        private long currentTime;
+
+        private Wheel(final long tick, final long startMillis) {
+            this.tick = tick;
+            this.interval = tick * wheelSize;
+            this.currentTime = truncate(startMillis, tick);
+            this.buckets = new ArrayList<>(wheelSize);
+
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new ArrayList<>());
+            }
+        }
+
+        private List<Entry<T>> bucketFor(final long expiration) {
+            return buckets.get((int) ((expiration / tick) % wheelSize));
+        }
+
+        private List<Entry<T>> flush(final long time) {
+            final List<Entry<T>> bucket = bucketFor(time);
+            final List<Entry<T>> entries = new ArrayList<>(bucket);
+            bucket.clear();
+            return entries;
+        }
+    }
+
+    private static class Entry<T> {
+
+        private final T item;
+        private final long expiration;
+
+        private Entry(final T item, final long expiration) {
+            this.item = item;
+            this.expiration = expiration;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.lang.Long.parseLong;
+import static java.lang.String.format;
+import static uk.gov.moj.cpp.task.execution.IntervalTimers.startIntervalTimer;
+import static uk.gov.moj.cpp.task.execution.IntervalTimers.timerNameOf;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.moj.cpp.jobstore.service.JobService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerService;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Writes this node's heartbeat to the worker table every
+ * jobstore.worker.heartbeat.interval.milliseconds and sweeps the jobs of any node whose heartbeat
+ * is older than jobstore.worker.heartbeat.expiry.milliseconds back into the pool, so the jobs of
+ * a node that was killed are picked up within seconds instead of when their leases expire. A live
+ * node whose heartbeat is merely late, after a long GC pause or a failed heartbeat, loses its jobs
+ * the same way, so startup fails unless the expiry is at least
+ * {@value #MIN_HEARTBEATS_PER_EXPIRY} heartbeat intervals.
+ */
+@Singleton
+@Startup
+public class WorkerHeartbeat {
+
+    static final int MIN_HEARTBEATS_PER_EXPIRY = 3;
+
+    @Inject
+    private Logger logger;
+
+    @Resource(lookup = "java:module/ModuleName")
+    String moduleName;
+
+    @Resource
+    TimerService timerService;
+
+    @Inject
+    JobService jobService;
+
+    @Inject
+    WorkerIdentity workerIdentity;
+
+    @Inject
+    @Value(key = "jobstore.worker.heartbeat.interval.milliseconds", defaultValue = "5000")
+    String heartbeatIntervalMilliseconds;
+
+    @Inject
+    @Value(key = "jobstore.worker.heartbeat.expiry.milliseconds", defaultValue = "30000")
+    String heartbeatExpiryMilliseconds;
+
+    @PostConstruct
+    public void init() {
+        final long heartbeatInterval = parseLong(heartbeatIntervalMilliseconds);
+        if (heartbeatInterval <= 0 || parseLong(heartbeatExpiryMilliseconds) < MIN_HEARTBEATS_PER_EXPIRY * heartbeatInterval) {
+            throw new IllegalArgumentException(format("Invalid jobstore.worker.heartbeat.expiry.milliseconds setting '%s', expected at least %d times the positive jobstore.worker.heartbeat.interval.milliseconds of %s",
+                    heartbeatExpiryMilliseconds, MIN_HEARTBEATS_PER_EXPIRY, heartbeatIntervalMilliseconds));
+        }
+
+        final String timerName = timerNameOf(moduleName, "worker.heartbeat");
+        logger.info("Creating timer [{}] for worker [{}]", timerName, workerIdentity.getWorkerId());
+        startIntervalTimer(timerService, timerName, 0L, heartbeatInterval);
+    }
+
+    @Timeout
+    public void beat() {
+        jobService.recordWorkerHeartbeat(workerIdentity.getWorkerId());
+
+        final int releasedCount = jobService.releaseJobsOfExpiredWorkers();
+
+        if (releasedCount > 0) {
+            logger.info("Released {} jobs locked to workers whose heartbeat has expired", releasedCount);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.util.UUID.randomUUID;
+
+import java.util.UUID;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * The worker id this node locks all of its jobs to, chosen once when the node starts. It is not
+ * kept across restarts, so the jobs left locked by a previous run of the node are released by the
+ * heartbeat sweep like those of any other dead node.
+ */
+@ApplicationScoped
+public class WorkerIdentity {
+
+    private final UUID workerId = randomUUID();
+
+    public UUID getWorkerId() {
+        return workerId;
+    }
+}
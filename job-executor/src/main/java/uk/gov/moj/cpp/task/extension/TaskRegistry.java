@@ -1,11 +1,16 @@
 package uk.gov.moj.cpp.task.extension;
 
+import static java.time.Duration.ofMillis;
+import static java.util.Collections.unmodifiableSet;
+
 import uk.gov.moj.cpp.jobstore.api.annotation.Task;
 import uk.gov.moj.cpp.jobstore.api.task.ExecutableTask;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
@@ -21,6 +26,7 @@ public class TaskRegistry {
     private  Logger logger;
 
     private final Map<String, ExecutableTask> taskProxyByNameMap = new HashMap<>();
+    private final Map<String, Duration> timeoutByNameMap = new HashMap<>();
 
     @Inject
     private Instance<ExecutableTask> taskBeanProxy;
@@ -28,7 +34,12 @@ public class TaskRegistry {
     public void register(@Observes final TaskFoundEvent event) {
 
         final Class taskClass = event.getClazz();
-        final String taskName = ((Task) taskClass.getAnnotation(Task.class)).value();
+        final Task task = (Task) taskClass.getAnnotation(Task.class);
+        final String taskName = task.value();
+
+        if (task.timeoutMilliseconds() > 0) {
+            timeoutByNameMap.putIfAbsent(taskName, ofMillis(task.timeoutMilliseconds()));
+        }
 
         logger.info("Notified of Work Task [type={}], [name={}]", taskClass, taskName);
 
@@ -50,4 +61,15 @@ public class TaskRegistry {
     public Optional<ExecutableTask> getTask(final String taskName) {
         return Optional.ofNullable(taskProxyByNameMap.get(taskName));
     }
+
+    /**
+     * @return the timeout declared on the task's {@link Task} annotation, if any
+     */
+    public Optional<Duration> getTaskTimeout(final String taskName) {
+        return Optional.ofNullable(timeoutByNameMap.get(taskName));
+    }
+
+    public Set<String> getTaskNames() {
+        return unmodifiableSet(taskProxyByNameMap.keySet());
+    }
 }
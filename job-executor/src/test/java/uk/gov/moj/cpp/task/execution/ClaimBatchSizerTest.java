@@ -0,0 +1,137 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.time.Duration.ofMillis;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+import uk.gov.justice.services.common.util.UtcClock;
+
+import java.time.ZonedDateTime;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ClaimBatchSizerTest {
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private LockedJobRegistry lockedJobRegistry;
+
+    @Mock
+    private JobStartTimer jobStartTimer;
+
+    @Mock
+    private UtcClock clock;
+
+    @Mock
+    private RejectedJobReleaser rejectedJobReleaser;
+
+    @InjectMocks
+    private ClaimBatchSizer claimBatchSizer;
+
+    private final ZonedDateTime now = ZonedDateTime.now();
+
+    @Before
+    public void setup() {
+        claimBatchSizer.executorCapacity = "10";
+        claimBatchSizer.maxBatchSize = "100";
+        claimBatchSizer.maxInFlight = "20";
+        when(clock.now()).thenReturn(now);
+    }
+
+    @Test
+    public void shouldClaimAFullExecutorsWorthOfJobsWhenIdle() {
+        assertThat(claimBatchSizer.nextBatchSize(), is(10));
+        assertThat(claimBatchSizer.getCurrentBatchSize(), is(10));
+    }
+
+    @Test
+    public void shouldOnlyClaimForTheFreeSlots() {
+        when(lockedJobRegistry.getLockedJobCount()).thenReturn(7);
+
+        assertThat(claimBatchSizer.nextBatchSize(), is(3));
+    }
+
+    @Test
+    public void shouldNotCountJobsWaitingForTheirStartTimeAsUsingASlot() {
+        when(lockedJobRegistry.getLockedJobCount()).thenReturn(12);
+        when(jobStartTimer.getWaitingJobCount()).thenReturn(5);
+
+        assertThat(claimBatchSizer.nextBatchSize(), is(3));
+    }
+
+    @Test
+    public void shouldClaimNothingWhenTheExecutorIsSaturated() {
+        when(lockedJobRegistry.getLockedJobCount()).thenReturn(15);
+
+        assertThat(claimBatchSizer.nextBatchSize(), is(0));
+        assertThat(claimBatchSizer.getTargetBatchSize(), is(0));
+    }
+
+    @Test
+    public void shouldAddTheJobsExpectedToFinishWhileTheClaimIsInFlight() {
+        claimBatchSizer.maxInFlight = "100";
+        when(lockedJobRegistry.getLockedJobCount()).thenReturn(8);
+        when(lockedJobRegistry.getRunningJobCount()).thenReturn(8);
+        claimBatchSizer.nextBatchSize();
+
+        when(clock.now()).thenReturn(now.plusSeconds(1));
+        when(lockedJobRegistry.getFinishedJobCount()).thenReturn(40L);
+        when(lockedJobRegistry.getFinishedRunNanos()).thenReturn(40 * 200_000_000L);
+        claimBatchSizer.recordClaimCycle(ofMillis(500));
+
+        assertThat(claimBatchSizer.nextBatchSize(), is(22));
+        assertThat(claimBatchSizer.getThroughputPerSecond(), is(closeTo(40.0, 0.001)));
+        assertThat(claimBatchSizer.getAverageTaskDurationMillis(), is(closeTo(200.0, 0.001)));
+        assertThat(claimBatchSizer.getAverageClaimCycleMillis(), is(closeTo(500.0, 0.001)));
+    }
+
+    @Test
+    public void shouldCapTheBatchAtTheMaximumBatchSize() {
+        claimBatchSizer.maxBatchSize = "5";
+
+        assertThat(claimBatchSizer.nextBatchSize(), is(5));
+        assertThat(claimBatchSizer.getTargetBatchSize(), is(10));
+    }
+
+    @Test
+    public void shouldNeverLetTheJobsInFlightExceedTheMaximum() {
+        claimBatchSizer.maxInFlight = "12";
+        when(lockedJobRegistry.getLockedJobCount()).thenReturn(8);
+        when(lockedJobRegistry.getRunningJobCount()).thenReturn(8);
+        claimBatchSizer.nextBatchSize();
+
+        when(clock.now()).thenReturn(now.plusSeconds(1));
+        when(lockedJobRegistry.getFinishedJobCount()).thenReturn(40L);
+        when(lockedJobRegistry.getFinishedRunNanos()).thenReturn(40 * 200_000_000L);
+        claimBatchSizer.recordClaimCycle(ofMillis(500));
+
+        assertThat(claimBatchSizer.nextBatchSize(), is(4));
+        assertThat(claimBatchSizer.getTargetBatchSize(), is(22));
+    }
+
+    @Test
+    public void shouldOnlyHaveFreeCapacityBelowTheMaximumInFlight() {
+        when(lockedJobRegistry.getLockedJobCount()).thenReturn(19, 20);
+
+        assertThat(claimBatchSizer.hasFreeCapacity(), is(true));
+        assertThat(claimBatchSizer.hasFreeCapacity(), is(false));
+    }
+
+    @Test
+    public void shouldExposeTheRejectedJobCount() {
+        when(rejectedJobReleaser.getRejectedJobCount()).thenReturn(3L);
+
+        assertThat(claimBatchSizer.getRejectedJobCount(), is(3L));
+    }
+}
@@ -0,0 +1,22 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.time.Duration.ofMillis;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Test;
+
+public class InlineContinuationBudgetProducerTest {
+
+    @Test
+    public void shouldProduceTheConfiguredBudget() {
+        final InlineContinuationBudgetProducer inlineContinuationBudgetProducer = new InlineContinuationBudgetProducer();
+        inlineContinuationBudgetProducer.maxSteps = "7";
+        inlineContinuationBudgetProducer.maxMilliseconds = "2500";
+
+        final InlineContinuationBudget inlineContinuationBudget = inlineContinuationBudgetProducer.inlineContinuationBudget();
+
+        assertThat(inlineContinuationBudget.getMaxSteps(), is(7));
+        assertThat(inlineContinuationBudget.getMaxDuration(), is(ofMillis(2500)));
+    }
+}
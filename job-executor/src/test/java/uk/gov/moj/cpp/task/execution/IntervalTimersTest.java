@@ -0,0 +1,60 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.moj.cpp.task.execution.IntervalTimers.startIntervalTimer;
+import static uk.gov.moj.cpp.task.execution.IntervalTimers.timerNameOf;
+
+import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IntervalTimersTest {
+
+    @Mock
+    private TimerService timerService;
+
+    @Mock
+    private Timer existingTimer;
+
+    @Mock
+    private Timer otherTimer;
+
+    @Captor
+    private ArgumentCaptor<TimerConfig> timerConfigArgumentCaptor;
+
+    @Test
+    public void shouldNameTimersAfterTheirModule() {
+        assertThat(timerNameOf("TEST_MODULE", "job.lease"), is("TEST_MODULE.job-manager.job.lease.timer"));
+        assertThat(timerNameOf(null, "job.lease"), is("local.job-manager.job.lease.timer"));
+    }
+
+    @Test
+    public void shouldReplaceATimerOfTheSameNameWithANonPersistentIntervalTimer() {
+        when(existingTimer.getInfo()).thenReturn("TEST_MODULE.job-manager.job.lease.timer");
+        when(otherTimer.getInfo()).thenReturn("TEST_MODULE.job-manager.job.timer");
+        when(timerService.getAllTimers()).thenReturn(asList(existingTimer, otherTimer));
+
+        startIntervalTimer(timerService, "TEST_MODULE.job-manager.job.lease.timer", 0L, 5000L);
+
+        verify(existingTimer).cancel();
+        verify(otherTimer, never()).cancel();
+        verify(timerService).createIntervalTimer(eq(0L), eq(5000L), timerConfigArgumentCaptor.capture());
+        assertFalse(timerConfigArgumentCaptor.getValue().isPersistent());
+        assertThat(timerConfigArgumentCaptor.getValue().getInfo(), is("TEST_MODULE.job-manager.job.lease.timer"));
+    }
+}
@@ -1,14 +1,22 @@
 package uk.gov.moj.cpp.task.execution;
 
 import static java.time.ZonedDateTime.now;
+import static java.util.Collections.emptyMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.Optional.empty;
 import static java.util.Optional.ofNullable;
 import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -19,20 +27,28 @@ import static uk.gov.moj.cpp.jobstore.api.task.ExecutionStatus.INPROGRESS;
 import uk.gov.justice.services.common.util.UtcClock;
 import uk.gov.moj.cpp.jobstore.api.task.ExecutionInfo;
 import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.persistence.LazyJsonObject;
 import uk.gov.moj.cpp.jobstore.service.JobService;
 import uk.gov.moj.cpp.task.extension.SampleTask;
 import uk.gov.moj.cpp.task.extension.TaskRegistry;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
 
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
 import javax.json.JsonObject;
 import javax.transaction.NotSupportedException;
 import javax.transaction.SystemException;
 import javax.transaction.UserTransaction;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.slf4j.Logger;
@@ -49,6 +65,9 @@ public class JobExecutorTest {
     @Mock
     private SampleTask sampleTask;
 
+    @Mock
+    private LockedJobRegistry lockedJobRegistry;
+
     @Mock
     private UserTransaction userTransaction;
 
@@ -58,6 +77,11 @@ public class JobExecutorTest {
     @Mock
     private Logger logger;
 
+    @Before
+    public void setup() {
+        when(lockedJobRegistry.markRunning(any(UUID.class))).thenReturn(true);
+        when(taskRegistry.getTaskTimeout(any(String.class))).thenReturn(empty());
+    }
 
     @Test
     public void shouldUpdateJobViaJobServiceWhenExecutionStatusIsInProgress() {
@@ -74,12 +98,30 @@ public class JobExecutorTest {
         createJobExecutor(job).run();
 
         verify(sampleTask).execute(any(ExecutionInfo.class));
-        verify(jobService).updateJobTaskData(jobId, jobData);
-        verify(jobService).updateNextTaskDetails(jobId, "taskName", nextTaskStartTime);
-        verify(jobService).releaseJob(jobId);
+        verify(jobService).advanceJob(jobId, jobData, "taskName", nextTaskStartTime, 0);
+        verify(jobService, never()).updateJobTaskData(any(), any());
+        verify(jobService, never()).updateNextTaskDetails(any(), any(), any());
+        verify(jobService, never()).releaseJob(any());
         verify(jobService, never()).deleteJob(any());
     }
 
+    @Test
+    public void shouldKeepThePriorityOfTheJobWhenAdvancingIt() {
+        final UUID jobId = randomUUID();
+        final JsonObject jobData = mock(JsonObject.class);
+        final ZonedDateTime nextTaskStartTime = now();
+        final Job job = Job.job().from(job(jobId, jobData, nextTaskStartTime)).withPriority(5).build();
+        final ExecutionInfo responseExecutionInfo = new ExecutionInfo(jobData, "taskName", nextTaskStartTime, INPROGRESS);
+
+        when(taskRegistry.getTask(eq("taskName"))).thenReturn(ofNullable(sampleTask));
+        when(sampleTask.execute(any(ExecutionInfo.class))).thenReturn(responseExecutionInfo);
+        when(clock.now()).thenReturn(nextTaskStartTime);
+
+        createJobExecutor(job).run();
+
+        verify(jobService).advanceJob(jobId, jobData, "taskName", nextTaskStartTime, 5);
+    }
+
     @Test
     public void shouldDeleteJobViaJobServiceWhenExecutionStatusIsCompleted() {
         final UUID jobId = randomUUID();
@@ -98,7 +140,22 @@ public class JobExecutorTest {
         verify(jobService, never()).updateJobTaskData(any(), any());
         verify(jobService, never()).updateNextTaskDetails(any(), any(), any());
         verify(jobService, never()).releaseJob(any());
+        verify(jobService, never()).advanceJob(any(), any(), any(), any(), anyInt());
         verify(jobService).deleteJob(jobId);
+        verify(lockedJobRegistry).markRunning(jobId);
+        verify(lockedJobRegistry).deregister(jobId);
+    }
+
+    @Test
+    public void shouldNotStartTheJobOnceTheNodeIsDraining() {
+        final UUID jobId = randomUUID();
+        final Job job = job(jobId, mock(JsonObject.class), now());
+        when(lockedJobRegistry.markRunning(jobId)).thenReturn(false);
+
+        createJobExecutor(job).run();
+
+        verifyZeroInteractions(taskRegistry, jobService);
+        verify(lockedJobRegistry, never()).deregister(jobId);
     }
 
     @Test
@@ -132,6 +189,20 @@ public class JobExecutorTest {
         verify(jobService).releaseJob(jobId);
     }
 
+    @Test
+    public void shouldNotMaterialiseJobDataOfJobsThatAreNotExecuted() {
+        final LazyJsonObject lazyJobData = new LazyJsonObject("{\"some\": \"json\"}");
+        final ZonedDateTime nextTaskStartTime = now();
+        final Job job = new Job(randomUUID(), lazyJobData, "taskName", nextTaskStartTime, empty(), empty());
+
+        when(taskRegistry.getTask(eq("taskName"))).thenReturn(ofNullable(sampleTask));
+        when(clock.now()).thenReturn(nextTaskStartTime.minusSeconds(10L));
+
+        createJobExecutor(job).run();
+
+        assertThat(lazyJobData.isParsed(), is(false));
+    }
+
     @Test
     public void shouldRollbackTransactionWhenExceptionThrown() throws SystemException, NotSupportedException {
         final UUID jobId = randomUUID();
@@ -147,6 +218,7 @@ public class JobExecutorTest {
 
         verify(logger).error("Unexpected exception during transaction for Job {}, attempting rollback...{}", jobExecutor, notSupportedException);
         verify(userTransaction).rollback();
+        verify(lockedJobRegistry).deregister(jobId);
     }
 
     @Test
@@ -184,9 +256,10 @@ public class JobExecutorTest {
         createJobExecutor(job).run();
 
         verify(sampleTask).execute(any(ExecutionInfo.class));
-        verify(jobService).updateJobTaskData(jobId, jobData);
-        verify(jobService).updateNextTaskDetails(jobId, "taskName", nextTaskStartTime);
-        verify(jobService).releaseJob(jobId);
+        verify(jobService).advanceJob(jobId, jobData, "taskName", nextTaskStartTime, 0);
+        verify(jobService, never()).updateJobTaskData(any(), any());
+        verify(jobService, never()).updateNextTaskDetails(any(), any(), any());
+        verify(jobService, never()).releaseJob(any());
         verify(jobService, never()).deleteJob(any());
     }
 
@@ -206,14 +279,15 @@ public class JobExecutorTest {
         createJobExecutor(job).run();
 
         verify(sampleTask).execute(any(ExecutionInfo.class));
-        verify(jobService).updateJobTaskData(jobId, jobData);
-        verify(jobService).updateNextTaskDetails(jobId, "taskName", nextTaskStartTime);
-        verify(jobService).releaseJob(jobId);
+        verify(jobService).advanceJob(jobId, jobData, "taskName", nextTaskStartTime, 0);
+        verify(jobService, never()).updateJobTaskData(any(), any());
+        verify(jobService, never()).updateNextTaskDetails(any(), any(), any());
+        verify(jobService, never()).releaseJob(any());
         verify(jobService, never()).deleteJob(any());
     }
 
     @Test
-    public void shouldNotInvokeExecuteOnExecuteTaskIfNextStartTimeIsAfterNow() {
+    public void shouldNotInvokeExecuteOnExecuteTaskIfNextStartTimeIsAfterNow() throws Exception {
         final UUID jobId = randomUUID();
         final JsonObject jobData = mock(JsonObject.class);
         final ZonedDateTime nextTaskStartTime = now();
@@ -226,11 +300,282 @@ public class JobExecutorTest {
         createJobExecutor(job).run();
 
         verifyZeroInteractions(sampleTask);
-        verifyZeroInteractions(jobService);
+        verify(jobService).releaseJob(jobId);
+        verify(userTransaction).commit();
+    }
+
+    @Test
+    public void shouldRunATaskFiredWithinTheMillisecondItFallsDue() {
+        final UUID jobId = randomUUID();
+        final JsonObject jobData = mock(JsonObject.class);
+        final ZonedDateTime nextTaskStartTime = ZonedDateTime.parse("2020-04-23T10:15:30.000700Z");
+        final Job job = job(jobId, jobData, nextTaskStartTime);
+
+        when(taskRegistry.getTask(eq("taskName"))).thenReturn(ofNullable(sampleTask));
+        when(sampleTask.execute(any(ExecutionInfo.class))).thenReturn(executionInfo().fromJob(job).withExecutionStatus(COMPLETED).build());
+        when(clock.now()).thenReturn(ZonedDateTime.parse("2020-04-23T10:15:30.000200Z"));
+
+        createJobExecutor(job).run();
+
+        verify(sampleTask).execute(any(ExecutionInfo.class));
+        verify(jobService).deleteJob(jobId);
+        verify(jobService, never()).releaseJob(any());
+    }
+
+    @Test
+    public void shouldCheckpointAndRunTheNextDueStepInlineKeepingTheLease() throws Exception {
+        final UUID jobId = randomUUID();
+        final JsonObject jobData = mock(JsonObject.class);
+        final JsonObject nextJobData = mock(JsonObject.class);
+        final ZonedDateTime now = now();
+        final Job job = job(jobId, jobData, now);
+        final SampleTask secondTask = mock(SampleTask.class);
+
+        when(taskRegistry.getTask(eq("taskName"))).thenReturn(ofNullable(sampleTask));
+        when(taskRegistry.getTask(eq("secondTask"))).thenReturn(ofNullable(secondTask));
+        when(sampleTask.execute(any(ExecutionInfo.class))).thenReturn(new ExecutionInfo(nextJobData, "secondTask", now, INPROGRESS));
+        when(secondTask.execute(any(ExecutionInfo.class))).thenReturn(new ExecutionInfo(nextJobData, "secondTask", now, COMPLETED));
+        when(clock.now()).thenReturn(now);
+
+        createJobExecutor(job, new InlineContinuationBudget(10, Duration.ofSeconds(10))).run();
+
+        verify(jobService).checkpointJob(jobId, nextJobData, "secondTask", now, 0);
+        verify(secondTask).execute(any(ExecutionInfo.class));
+        verify(jobService).deleteJob(jobId);
+        verify(jobService, never()).advanceJob(any(), any(), any(), any(), anyInt());
+        verify(userTransaction, times(2)).begin();
+        verify(userTransaction, times(2)).commit();
+        verify(lockedJobRegistry).deregister(jobId);
+
+        final ArgumentCaptor<Job> registeredStepCaptor = ArgumentCaptor.forClass(Job.class);
+        verify(lockedJobRegistry).register(registeredStepCaptor.capture());
+        assertThat(registeredStepCaptor.getValue().getJobId(), is(jobId));
+        assertThat(registeredStepCaptor.getValue().getNextTask(), is("secondTask"));
+    }
+
+    @Test
+    public void shouldReleaseTheJobOnceTheStepBudgetIsUsedUp() {
+        final UUID jobId = randomUUID();
+        final JsonObject jobData = mock(JsonObject.class);
+        final ZonedDateTime now = now();
+        final Job job = job(jobId, jobData, now);
+
+        when(taskRegistry.getTask(eq("taskName"))).thenReturn(ofNullable(sampleTask));
+        when(sampleTask.execute(any(ExecutionInfo.class))).thenReturn(new ExecutionInfo(jobData, "taskName", now, INPROGRESS));
+        when(clock.now()).thenReturn(now);
+
+        createJobExecutor(job, new InlineContinuationBudget(3, Duration.ofSeconds(10))).run();
+
+        verify(sampleTask, times(3)).execute(any(ExecutionInfo.class));
+        verify(jobService, times(2)).checkpointJob(jobId, jobData, "taskName", now, 0);
+        verify(jobService).advanceJob(jobId, jobData, "taskName", now, 0);
+    }
+
+    @Test
+    public void shouldReleaseTheJobOnceTheTimeBudgetIsUsedUp() {
+        final UUID jobId = randomUUID();
+        final JsonObject jobData = mock(JsonObject.class);
+        final ZonedDateTime startedAt = now();
+        final Job job = job(jobId, jobData, startedAt);
+
+        when(taskRegistry.getTask(eq("taskName"))).thenReturn(ofNullable(sampleTask));
+        when(sampleTask.execute(any(ExecutionInfo.class))).thenReturn(new ExecutionInfo(jobData, "taskName", startedAt, INPROGRESS));
+        when(clock.now()).thenReturn(startedAt, startedAt, startedAt.plusSeconds(11));
+
+        createJobExecutor(job, new InlineContinuationBudget(10, Duration.ofSeconds(10))).run();
+
+        verify(sampleTask).execute(any(ExecutionInfo.class));
+        verify(jobService, never()).checkpointJob(any(), any(), any(), any(), anyInt());
+        verify(jobService).advanceJob(jobId, jobData, "taskName", startedAt, 0);
+    }
+
+    @Test
+    public void shouldReleaseTheJobWhenItsNextStepIsNotDueYet() {
+        final UUID jobId = randomUUID();
+        final JsonObject jobData = mock(JsonObject.class);
+        final ZonedDateTime now = now();
+        final Job job = job(jobId, jobData, now);
+
+        when(taskRegistry.getTask(eq("taskName"))).thenReturn(ofNullable(sampleTask));
+        when(sampleTask.execute(any(ExecutionInfo.class))).thenReturn(new ExecutionInfo(jobData, "taskName", now.plusMinutes(5), INPROGRESS));
+        when(clock.now()).thenReturn(now);
+
+        createJobExecutor(job, new InlineContinuationBudget(10, Duration.ofSeconds(10))).run();
+
+        verify(jobService, never()).checkpointJob(any(), any(), any(), any(), anyInt());
+        verify(jobService).advanceJob(jobId, jobData, "taskName", now.plusMinutes(5), 0);
+    }
+
+    @Test
+    public void shouldReleaseTheJobWhenItsNextTaskIsNotRegisteredOnThisNode() {
+        final UUID jobId = randomUUID();
+        final JsonObject jobData = mock(JsonObject.class);
+        final ZonedDateTime now = now();
+        final Job job = job(jobId, jobData, now);
+
+        when(taskRegistry.getTask(eq("taskName"))).thenReturn(ofNullable(sampleTask));
+        when(taskRegistry.getTask(eq("remoteTask"))).thenReturn(empty());
+        when(sampleTask.execute(any(ExecutionInfo.class))).thenReturn(new ExecutionInfo(jobData, "remoteTask", now, INPROGRESS));
+        when(clock.now()).thenReturn(now);
+
+        createJobExecutor(job, new InlineContinuationBudget(10, Duration.ofSeconds(10))).run();
+
+        verify(jobService, never()).checkpointJob(any(), any(), any(), any(), anyInt());
+        verify(jobService).advanceJob(jobId, jobData, "remoteTask", now, 0);
+    }
+
+    @Test
+    public void shouldRollBackAndRetryTheJobAfterItsBackoffWhenTheTaskThrows() throws Exception {
+        final UUID jobId = randomUUID();
+        final ZonedDateTime now = now();
+        final Job job = Job.job().from(job(jobId, mock(JsonObject.class), now)).withAttempts(1).build();
+        final RetryPolicies retryPolicies = new RetryPolicies(new RetryPolicy(3, Duration.ofSeconds(10), Duration.ofMinutes(1)), emptyMap());
+
+        when(taskRegistry.getTask(eq("taskName"))).thenReturn(ofNullable(sampleTask));
+        when(sampleTask.execute(any(ExecutionInfo.class))).thenThrow(new IllegalStateException("downstream unavailable"));
+        when(clock.now()).thenReturn(now);
+
+        createJobExecutor(job, retryPolicies).run();
+
+        final ArgumentCaptor<ZonedDateTime> retryTimeCaptor = ArgumentCaptor.forClass(ZonedDateTime.class);
+        final InOrder inOrder = inOrder(userTransaction, jobService);
+        inOrder.verify(userTransaction).begin();
+        inOrder.verify(userTransaction).rollback();
+        inOrder.verify(userTransaction).begin();
+        inOrder.verify(jobService).retryJob(eq(jobId), eq(2), retryTimeCaptor.capture(), eq(0));
+        inOrder.verify(userTransaction).commit();
+        verify(jobService, never()).deadLetterJob(any(), any());
+        verify(lockedJobRegistry).deregister(jobId);
+
+        assertThat(retryTimeCaptor.getValue().isBefore(now.plusSeconds(10)), is(false));
+        assertThat(retryTimeCaptor.getValue().isAfter(now.plusSeconds(20)), is(false));
+    }
+
+    @Test
+    public void shouldRollBackTheFailureTransactionWhenTheJobCannotBeRetried() throws Exception {
+        final UUID jobId = randomUUID();
+        final ZonedDateTime now = now();
+        final Job job = job(jobId, mock(JsonObject.class), now);
+        final IllegalStateException retryFailure = new IllegalStateException("database unavailable");
+
+        when(taskRegistry.getTask(eq("taskName"))).thenReturn(ofNullable(sampleTask));
+        when(sampleTask.execute(any(ExecutionInfo.class))).thenThrow(new IllegalStateException("downstream unavailable"));
+        when(clock.now()).thenReturn(now);
+        doThrow(retryFailure).when(jobService).retryJob(eq(jobId), anyInt(), any(ZonedDateTime.class), anyInt());
+
+        final JobExecutor jobExecutor = createJobExecutor(job);
+        jobExecutor.run();
+
+        final InOrder inOrder = inOrder(userTransaction, jobService);
+        inOrder.verify(userTransaction).begin();
+        inOrder.verify(userTransaction).rollback();
+        inOrder.verify(userTransaction).begin();
+        inOrder.verify(jobService).retryJob(eq(jobId), eq(1), any(ZonedDateTime.class), eq(0));
+        inOrder.verify(userTransaction).rollback();
+        verify(userTransaction, never()).commit();
+        verify(logger).error("Unexpected exception during transaction for Job {}, attempting rollback...{}", jobExecutor, retryFailure);
+        verify(lockedJobRegistry).deregister(jobId);
+    }
+
+    @Test
+    public void shouldRollBackTheStepWithoutRetryingWhenTheLeaseIsLostWhileTheTaskRuns() throws Exception {
+        final UUID jobId = randomUUID();
+        final ZonedDateTime now = now();
+        final Job job = job(jobId, mock(JsonObject.class), now);
+
+        when(taskRegistry.getTask(eq("taskName"))).thenReturn(ofNullable(sampleTask));
+        when(sampleTask.execute(any(ExecutionInfo.class))).thenAnswer(invocation -> {
+            when(lockedJobRegistry.hasLostLease(jobId)).thenReturn(true);
+            return executionInfo().fromJob(job).withExecutionStatus(COMPLETED).build();
+        });
+        when(clock.now()).thenReturn(now);
+
+        createJobExecutor(job).run();
+
+        verify(jobService).deleteJob(jobId);
+        verify(userTransaction).rollback();
+        verify(userTransaction, never()).commit();
+        verify(jobService, never()).retryJob(any(), anyInt(), any(), anyInt());
+        verify(lockedJobRegistry).deregister(jobId);
+    }
+
+    @Test
+    public void shouldNotRunAStepOfAJobWhoseLeaseWasLostBeforeItStarted() throws Exception {
+        final UUID jobId = randomUUID();
+        final Job job = job(jobId, mock(JsonObject.class), now());
+
+        when(lockedJobRegistry.hasLostLease(jobId)).thenReturn(true);
+
+        createJobExecutor(job).run();
+
+        verify(sampleTask, never()).execute(any(ExecutionInfo.class));
+        verify(userTransaction, never()).begin();
+        verify(lockedJobRegistry).deregister(jobId);
+    }
+
+    @Test
+    public void shouldDeadLetterTheJobOnceItsRetryPolicyIsExhausted() throws Exception {
+        final UUID jobId = randomUUID();
+        final ZonedDateTime now = now();
+        final Job job = Job.job().from(job(jobId, mock(JsonObject.class), now)).withAttempts(2).build();
+        final RetryPolicies retryPolicies = new RetryPolicies(new RetryPolicy(3, Duration.ofSeconds(10), Duration.ofMinutes(1)), emptyMap());
+        final IllegalStateException failure = new IllegalStateException("downstream unavailable");
+
+        when(taskRegistry.getTask(eq("taskName"))).thenReturn(ofNullable(sampleTask));
+        when(sampleTask.execute(any(ExecutionInfo.class))).thenThrow(failure);
+        when(clock.now()).thenReturn(now);
+
+        createJobExecutor(job, retryPolicies).run();
+
+        verify(userTransaction).rollback();
+        verify(jobService).deadLetterJob(jobId, failure.toString());
+        verify(jobService, never()).retryJob(any(), anyInt(), any(), anyInt());
+        verify(userTransaction).commit();
+    }
+
+    @Test
+    public void shouldRollBackAndRetryTheJobWhenTheTaskRunsPastItsTimeout() throws Exception {
+        final UUID jobId = randomUUID();
+        final ZonedDateTime now = now();
+        final Job job = job(jobId, mock(JsonObject.class), now);
+        final ManagedScheduledExecutorService scheduledExecutorService = mock(ManagedScheduledExecutorService.class);
+        final UtcClock watchdogClock = mock(UtcClock.class);
+        final TaskWatchdog taskWatchdog = new TaskWatchdog();
+        taskWatchdog.logger = logger;
+        taskWatchdog.scheduledExecutorService = scheduledExecutorService;
+        taskWatchdog.taskTimeouts = new TaskTimeouts(Optional.of(Duration.ofSeconds(5)), emptyMap());
+        taskWatchdog.clock = watchdogClock;
+        taskWatchdog.tickMilliseconds = "100";
+        doReturn(mock(ScheduledFuture.class)).when(scheduledExecutorService).scheduleAtFixedRate(any(Runnable.class), eq(100L), eq(100L), eq(MILLISECONDS));
+        when(watchdogClock.now()).thenReturn(now);
+
+        when(taskRegistry.getTask(eq("taskName"))).thenReturn(ofNullable(sampleTask));
+        when(sampleTask.execute(any(ExecutionInfo.class))).thenAnswer(invocation -> {
+            when(watchdogClock.now()).thenReturn(now.plusSeconds(5));
+            taskWatchdog.tick();
+            return executionInfo().fromJob(job).withExecutionStatus(COMPLETED).build();
+        });
+        when(clock.now()).thenReturn(now);
+
+        new JobExecutor(job, taskRegistry, jobService, lockedJobRegistry, userTransaction, clock, logger, new JobExecutionSettings(InlineContinuationBudget.NO_INLINE_CONTINUATION, RetryPolicies.DEFAULT, taskWatchdog)).run();
+
+        verify(userTransaction).rollback();
+        verify(jobService).retryJob(eq(jobId), eq(1), any(ZonedDateTime.class), eq(0));
+        verify(userTransaction).commit();
+        assertThat(taskWatchdog.getTimedOutTaskCount(), is(1L));
+        assertThat(Thread.currentThread().isInterrupted(), is(false));
+    }
+
+    private JobExecutor createJobExecutor(final Job job, final RetryPolicies retryPolicies) {
+        return new JobExecutor(job, taskRegistry, jobService, lockedJobRegistry, userTransaction, clock, logger, new JobExecutionSettings(InlineContinuationBudget.NO_INLINE_CONTINUATION, retryPolicies, TaskWatchdog.NO_TIMEOUTS));
+    }
+
+    private JobExecutor createJobExecutor(final Job job, final InlineContinuationBudget inlineContinuationBudget) {
+        return new JobExecutor(job, taskRegistry, jobService, lockedJobRegistry, userTransaction, clock, logger, new JobExecutionSettings(inlineContinuationBudget, RetryPolicies.DEFAULT, TaskWatchdog.NO_TIMEOUTS));
     }
 
     private JobExecutor createJobExecutor(final Job job) {
-        return new JobExecutor(job, taskRegistry, jobService, userTransaction, clock, logger);
+        return new JobExecutor(job, taskRegistry, jobService, lockedJobRegistry, userTransaction, clock, logger);
     }
 
     private Job job(final UUID jobId,
@@ -0,0 +1,113 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.service.JobService;
+
+import java.util.List;
+
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JobLeaseRenewerTest {
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private TimerService timerService;
+
+    @Mock
+    private JobService jobService;
+
+    @Mock
+    private LockedJobRegistry lockedJobRegistry;
+
+    @Mock
+    private Job job;
+
+    @Captor
+    private ArgumentCaptor<TimerConfig> timerConfigArgumentCaptor;
+
+    @InjectMocks
+    private JobLeaseRenewer jobLeaseRenewer;
+
+    @Test
+    public void shouldRenewLeasesOfAllLockedJobsInOneCall() {
+        final List<Job> lockedJobs = singletonList(job);
+        when(lockedJobRegistry.getLockedJobs()).thenReturn(lockedJobs);
+
+        jobLeaseRenewer.renewLeases();
+
+        verify(jobService).renewJobLeases(lockedJobs);
+    }
+
+    @Test
+    public void shouldMarkTheJobsWhoseLeasesWereLost() {
+        final List<Job> lockedJobs = singletonList(job);
+        when(lockedJobRegistry.getLockedJobs()).thenReturn(lockedJobs);
+        when(jobService.renewJobLeases(lockedJobs)).thenReturn(lockedJobs);
+
+        jobLeaseRenewer.renewLeases();
+
+        verify(lockedJobRegistry).markLeasesLost(lockedJobs);
+    }
+
+    @Test
+    public void shouldNotRenewLeasesWhenNoJobsAreLocked() {
+        when(lockedJobRegistry.getLockedJobs()).thenReturn(emptyList());
+
+        jobLeaseRenewer.renewLeases();
+
+        verifyZeroInteractions(jobService);
+    }
+
+    @Test
+    public void shouldSetTimerTaskOnPostConstruct() {
+        jobLeaseRenewer.renewalIntervalMilliseconds = "5000";
+        jobLeaseRenewer.jobLeaseSeconds = "3600";
+        jobLeaseRenewer.moduleName = "TEST_TIMER";
+        jobLeaseRenewer.init();
+
+        verify(timerService).createIntervalTimer(eq(5000L), eq(5000L), timerConfigArgumentCaptor.capture());
+
+        assertFalse(timerConfigArgumentCaptor.getValue().isPersistent());
+        assertThat(timerConfigArgumentCaptor.getValue().getInfo(), is("TEST_TIMER.job-manager.job.lease.timer"));
+    }
+
+    @Test
+    public void shouldRefuseToStartWhenTheRenewalIntervalIsNotShorterThanTheJobLease() {
+        jobLeaseRenewer.renewalIntervalMilliseconds = "30000";
+        jobLeaseRenewer.jobLeaseSeconds = "30";
+
+        try {
+            jobLeaseRenewer.init();
+            fail("Expected an invalid renewal interval to be rejected");
+        } catch (final IllegalArgumentException expected) {
+            verify(timerService, never()).createIntervalTimer(anyLong(), anyLong(), any(TimerConfig.class));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.time.ZoneOffset.UTC;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import uk.gov.justice.services.common.util.UtcClock;
+import uk.gov.moj.cpp.jobstore.persistence.JdbcRepositoryException;
+import uk.gov.moj.cpp.jobstore.persistence.JobSqlProvider;
+import uk.gov.moj.cpp.jobstore.service.JobService;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.transaction.Status;
+import javax.transaction.UserTransaction;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JobPartitionMaintainerTest {
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private TimerService timerService;
+
+    @Mock
+    private JobService jobService;
+
+    @Mock
+    private JobSqlProvider jobSqlProvider;
+
+    @Mock
+    private UtcClock clock;
+
+    @Mock
+    private UserTransaction userTransaction;
+
+    @Captor
+    private ArgumentCaptor<TimerConfig> timerConfigArgumentCaptor;
+
+    @InjectMocks
+    private JobPartitionMaintainer jobPartitionMaintainer;
+
+    @Test
+    public void shouldCreatePartitionsAheadAndDropFinishedPartitionsPastRetentionInSeparateTransactions() throws Exception {
+        when(clock.now()).thenReturn(ZonedDateTime.of(2019, 3, 14, 10, 30, 0, 0, UTC));
+        jobPartitionMaintainer.partitionDaysAhead = "7";
+        jobPartitionMaintainer.partitionRetentionDays = "3";
+
+        jobPartitionMaintainer.maintainPartitions();
+
+        final InOrder inOrder = inOrder(userTransaction, jobService);
+        inOrder.verify(userTransaction).begin();
+        inOrder.verify(jobService).createJobPartitionsUntil(LocalDate.of(2019, 3, 21));
+        inOrder.verify(userTransaction).commit();
+        inOrder.verify(userTransaction).begin();
+        inOrder.verify(jobService).dropFinishedJobPartitionsBefore(LocalDate.of(2019, 3, 11));
+        inOrder.verify(userTransaction).commit();
+    }
+
+    @Test
+    public void shouldRollBackAFailedPartitionCreationAndStillDropFinishedPartitions() throws Exception {
+        when(clock.now()).thenReturn(ZonedDateTime.of(2019, 3, 14, 10, 30, 0, 0, UTC));
+        when(userTransaction.getStatus()).thenReturn(Status.STATUS_ACTIVE);
+        doThrow(new JdbcRepositoryException("Exception while creating job partition")).when(jobService).createJobPartitionsUntil(any(LocalDate.class));
+        jobPartitionMaintainer.partitionDaysAhead = "7";
+        jobPartitionMaintainer.partitionRetentionDays = "3";
+
+        jobPartitionMaintainer.maintainPartitions();
+
+        verify(userTransaction).rollback();
+        verify(jobService).dropFinishedJobPartitionsBefore(LocalDate.of(2019, 3, 11));
+        verify(userTransaction).commit();
+    }
+
+    @Test
+    public void shouldSetTimerTaskOnPostConstructWhenTheJobStoreIsPartitioned() {
+        when(jobSqlProvider.isPartitioned()).thenReturn(true);
+        jobPartitionMaintainer.maintenanceIntervalMilliseconds = "60000";
+        jobPartitionMaintainer.moduleName = "TEST_TIMER";
+        jobPartitionMaintainer.init();
+
+        verify(timerService).createIntervalTimer(eq(0L), eq(60000L), timerConfigArgumentCaptor.capture());
+        assertFalse(timerConfigArgumentCaptor.getValue().isPersistent());
+        assertThat(timerConfigArgumentCaptor.getValue().getInfo(), is("TEST_TIMER.job-manager.job.partition.timer"));
+    }
+
+    @Test
+    public void shouldNotSetTimerTaskWhenTheJobStoreIsNotPartitioned() {
+        when(jobSqlProvider.isPartitioned()).thenReturn(false);
+        when(timerService.getAllTimers()).thenReturn(emptyList());
+        jobPartitionMaintainer.init();
+
+        verify(timerService, never()).createIntervalTimer(anyLong(), anyLong(), any(TimerConfig.class));
+    }
+}
@@ -1,34 +1,65 @@
 package uk.gov.moj.cpp.task.execution;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertFalse;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import uk.gov.justice.services.common.util.UtcClock;
 import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.persistence.JobArrivalNotifier;
 import uk.gov.moj.cpp.jobstore.service.JobService;
 import uk.gov.moj.cpp.task.extension.TaskRegistry;
 
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import javax.ejb.TimerConfig;
 import javax.ejb.TimerService;
 import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
 import javax.transaction.NotSupportedException;
 import javax.transaction.SystemException;
 import javax.transaction.UserTransaction;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -40,6 +71,9 @@ public class JobSchedulerTest {
     @Mock
     private ManagedExecutorService executorService;
 
+    @Mock
+    private ManagedScheduledExecutorService scheduledExecutorService;
+
     @Mock
     private JobService jobService;
 
@@ -55,36 +89,102 @@ public class JobSchedulerTest {
     @Mock
     private TaskRegistry taskRegistry;
 
+    @Mock
+    private LockedJobRegistry lockedJobRegistry;
+
     @Mock
     private UserTransaction userTransaction;
 
     @Mock
     private UtcClock clock;
 
+    @Mock
+    private JobArrivalNotifier jobArrivalNotifier;
+
+    @Mock
+    private JobStartTimer jobStartTimer;
+
+    @Mock
+    private ClaimBatchSizer claimBatchSizer;
+
+    @Mock
+    private RejectedJobReleaser rejectedJobReleaser;
+
+    @Mock
+    private WorkerIdentity workerIdentity;
+
+    @Mock
+    private TaskConcurrencyLimits taskConcurrencyLimits;
+
     @Captor
     private ArgumentCaptor<TimerConfig> timerConfigArgumentCaptor;
 
     @InjectMocks
     private JobScheduler jobExecutor;
 
+    private final ZonedDateTime now = ZonedDateTime.now();
+    private final UUID workerId = UUID.randomUUID();
+
+    @Before
+    public void setup() {
+        jobExecutor.pollMinIntervalMilliseconds = "1000";
+        jobExecutor.pollMaxIntervalMilliseconds = "4000";
+        jobExecutor.drainTimeoutMilliseconds = "1000";
+        when(clock.now()).thenReturn(now);
+        when(claimBatchSizer.nextBatchSize()).thenReturn(10);
+        when(workerIdentity.getWorkerId()).thenReturn(workerId);
+        when(jobService.getNextClaimableTime(anySetOf(String.class))).thenReturn(empty());
+    }
+
     @Test
     public void shouldExecuteFetchedJobs() {
-        when(jobService.getUnassignedJobsFor(any(UUID.class))).thenReturn(Stream.of(job));
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(job));
 
         jobExecutor.fetchUnassignedJobs();
 
         verify(executorService).submit(any(JobExecutor.class));
     }
 
+    @Test
+    public void shouldRegisterFetchedJobsSoTheirLeasesAreRenewed() {
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(job));
+
+        jobExecutor.fetchUnassignedJobs();
+
+        verify(lockedJobRegistry).register(job);
+    }
+
     @Test
     public void shouldNotAttemptToExecuteEmptyStreamOfJobs() {
-        when(jobService.getUnassignedJobsFor(any(UUID.class))).thenReturn(Stream.of());
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of());
 
         jobExecutor.fetchUnassignedJobs();
 
         verifyZeroInteractions(executorService);
     }
 
+    @Test
+    public void shouldOnlyClaimJobsForTasksRegisteredOnThisNode() {
+        final Set<String> taskNames = singleton("registeredTask");
+        when(taskRegistry.getTaskNames()).thenReturn(taskNames);
+        when(jobService.getUnassignedJobsFor(any(UUID.class), eq(taskNames), eq(10))).thenReturn(Stream.of(job));
+
+        jobExecutor.fetchUnassignedJobs();
+
+        verify(jobService).getUnassignedJobsFor(any(UUID.class), eq(taskNames), eq(10));
+        verify(executorService).submit(any(JobExecutor.class));
+    }
+
+    @Test
+    public void shouldLockEveryClaimToThisNodesWorkerId() {
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(), Stream.of());
+
+        jobExecutor.fetchUnassignedJobs();
+        jobExecutor.fetchUnassignedJobs();
+
+        verify(jobService, times(2)).getUnassignedJobsFor(eq(workerId), anySetOf(String.class), anyInt());
+    }
+
     @Test
     public void shouldSetTimerTaskOnPostConstruct() {
         jobExecutor.timerIntervalSeconds = "1000";
@@ -101,7 +201,7 @@ public class JobSchedulerTest {
 
     @Test
     public void shouldRollbackTransactionWhenAnExceptionOccurs() throws SystemException, NotSupportedException {
-        when(jobService.getUnassignedJobsFor(any(UUID.class))).thenReturn(Stream.of(job));
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(job));
         doThrow(new NotSupportedException()).when(userTransaction).begin();
 
         jobExecutor.fetchUnassignedJobs();
@@ -109,4 +209,304 @@ public class JobSchedulerTest {
         verify(userTransaction).rollback();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldRollbackAndKeepPollingWhenTheClaimThrows() throws SystemException {
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenThrow(new IllegalStateException("database unavailable"));
+
+        jobExecutor.fetchUnassignedJobs();
+
+        verify(userTransaction).rollback();
+        verify(executorService, never()).submit(any(JobExecutor.class));
+        verify(scheduledExecutorService).schedule(any(Runnable.class), eq(1000L), eq(MILLISECONDS));
+    }
+
+    @Test
+    public void shouldListenForJobArrivalsOnPostConstructAndStopOnPreDestroy() {
+        jobExecutor.timerIntervalSeconds = "1000";
+        jobExecutor.timerStartWaitSeconds = "100";
+        jobExecutor.init();
+
+        final ArgumentCaptor<Runnable> listenerCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(jobArrivalNotifier).addListener(listenerCaptor.capture());
+
+        jobExecutor.stop();
+
+        verify(jobArrivalNotifier).removeListener(listenerCaptor.getValue());
+    }
+
+    @Test
+    public void shouldClaimJobsAsSoonAsJobsArrive() {
+        final ArgumentCaptor<Runnable> claimCycleCaptor = ArgumentCaptor.forClass(Runnable.class);
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(job));
+
+        jobExecutor.onJobArrival();
+
+        verify(executorService).submit(claimCycleCaptor.capture());
+        claimCycleCaptor.getValue().run();
+
+        verify(jobService).getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt());
+        verify(executorService).submit(isA(JobExecutor.class));
+    }
+
+    @Test
+    public void shouldQueueOnlyOneClaimCycleForJobsArrivingBeforeItRuns() {
+        final ArgumentCaptor<Runnable> claimCycleCaptor = ArgumentCaptor.forClass(Runnable.class);
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of());
+
+        jobExecutor.onJobArrival();
+        jobExecutor.onJobArrival();
+        jobExecutor.onJobArrival();
+
+        verify(executorService, times(1)).submit(claimCycleCaptor.capture());
+
+        claimCycleCaptor.getValue().run();
+        jobExecutor.onJobArrival();
+
+        verify(executorService, times(2)).submit(Mockito.<Runnable>any());
+    }
+
+    @Test
+    public void shouldHoldJobsClaimedAheadOfTheirStartTimeUntilTheyAreDue() {
+        final ZonedDateTime startTime = now.plusSeconds(5);
+        when(job.getNextTaskStartTime()).thenReturn(startTime);
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(job));
+
+        jobExecutor.fetchUnassignedJobs();
+
+        verify(lockedJobRegistry).register(job);
+        verify(jobStartTimer).startAt(isA(JobExecutor.class), eq(startTime));
+        verifyZeroInteractions(executorService);
+    }
+
+    @Test
+    public void shouldSubmitDueJobsStraightAway() {
+        when(job.getNextTaskStartTime()).thenReturn(now);
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(job));
+
+        jobExecutor.fetchUnassignedJobs();
+
+        verify(executorService).submit(isA(JobExecutor.class));
+        verifyZeroInteractions(jobStartTimer);
+    }
+
+    @Test
+    public void shouldPollAgainStraightAwayAfterAFullBatch() {
+        when(claimBatchSizer.nextBatchSize()).thenReturn(1);
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(job));
+
+        jobExecutor.fetchUnassignedJobs();
+
+        verify(scheduledExecutorService).schedule(any(Runnable.class), eq(0L), eq(MILLISECONDS));
+        verify(jobService, times(0)).getNextClaimableTime(anySetOf(String.class));
+    }
+
+    @Test
+    public void shouldBackOffExponentiallyWhileNoJobsAreClaimed() {
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(), Stream.of(), Stream.of(), Stream.of());
+
+        jobExecutor.fetchUnassignedJobs();
+        jobExecutor.fetchUnassignedJobs();
+        jobExecutor.fetchUnassignedJobs();
+        jobExecutor.fetchUnassignedJobs();
+
+        final InOrder inOrder = inOrder(scheduledExecutorService);
+        inOrder.verify(scheduledExecutorService).schedule(any(Runnable.class), eq(1000L), eq(MILLISECONDS));
+        inOrder.verify(scheduledExecutorService).schedule(any(Runnable.class), eq(2000L), eq(MILLISECONDS));
+        inOrder.verify(scheduledExecutorService, times(2)).schedule(any(Runnable.class), eq(4000L), eq(MILLISECONDS));
+    }
+
+    @Test
+    public void shouldResetTheBackOffOnceJobsAreClaimed() {
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(), Stream.of(), Stream.of(job));
+
+        jobExecutor.fetchUnassignedJobs();
+        jobExecutor.fetchUnassignedJobs();
+        jobExecutor.fetchUnassignedJobs();
+
+        final InOrder inOrder = inOrder(scheduledExecutorService);
+        inOrder.verify(scheduledExecutorService).schedule(any(Runnable.class), eq(1000L), eq(MILLISECONDS));
+        inOrder.verify(scheduledExecutorService).schedule(any(Runnable.class), eq(2000L), eq(MILLISECONDS));
+        inOrder.verify(scheduledExecutorService).schedule(any(Runnable.class), eq(1000L), eq(MILLISECONDS));
+    }
+
+    @Test
+    public void shouldSleepOnlyUntilTheNextWaitingJobCanBeClaimed() {
+        jobExecutor.pollMaxIntervalMilliseconds = "60000";
+        when(jobService.getNextClaimableTime(anySetOf(String.class))).thenReturn(empty(), empty(), of(now.plusNanos(2_500_000_000L)), of(now.minusSeconds(1)));
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(), Stream.of(), Stream.of(), Stream.of());
+
+        jobExecutor.fetchUnassignedJobs();
+        jobExecutor.fetchUnassignedJobs();
+        jobExecutor.fetchUnassignedJobs();
+        jobExecutor.fetchUnassignedJobs();
+
+        final InOrder inOrder = inOrder(scheduledExecutorService);
+        inOrder.verify(scheduledExecutorService).schedule(any(Runnable.class), eq(1000L), eq(MILLISECONDS));
+        inOrder.verify(scheduledExecutorService).schedule(any(Runnable.class), eq(2000L), eq(MILLISECONDS));
+        inOrder.verify(scheduledExecutorService).schedule(any(Runnable.class), eq(2500L), eq(MILLISECONDS));
+        inOrder.verify(scheduledExecutorService).schedule(any(Runnable.class), eq(1000L), eq(MILLISECONDS));
+    }
+
+    @Test
+    public void shouldOnlyClaimOnTimeoutWhenTheAdaptivePollIsOverdue() {
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(), Stream.of());
+
+        jobExecutor.pollIfOverdue();
+        jobExecutor.pollIfOverdue();
+
+        verify(jobService, times(1)).getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt());
+
+        when(clock.now()).thenReturn(now.plusSeconds(2));
+        jobExecutor.pollIfOverdue();
+
+        verify(jobService, times(2)).getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt());
+    }
+
+    @Test
+    public void shouldClaimTheBatchSizeTheExecutorHasCapacityFor() {
+        when(claimBatchSizer.nextBatchSize()).thenReturn(3);
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(job));
+
+        jobExecutor.fetchUnassignedJobs();
+
+        verify(jobService).getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), eq(3));
+        verify(claimBatchSizer).recordClaimCycle(any(Duration.class));
+    }
+
+    @Test
+    public void shouldNotClaimWhileTheExecutorIsAtCapacity() {
+        when(claimBatchSizer.nextBatchSize()).thenReturn(0);
+
+        jobExecutor.fetchUnassignedJobs();
+
+        verifyZeroInteractions(jobService, userTransaction);
+        verify(scheduledExecutorService).schedule(any(Runnable.class), eq(1000L), eq(MILLISECONDS));
+    }
+
+    @Test
+    public void shouldLeaveTasksAtTheirConcurrencyLimitOutOfTheClaim() {
+        final Set<String> taskNames = new HashSet<>(asList("slowTask", "limitedTask", "otherTask"));
+        final Set<String> claimableTaskNames = new HashSet<>(asList("limitedTask", "otherTask"));
+        final Map<String, Integer> freeSlots = new HashMap<>();
+        freeSlots.put("slowTask", 0);
+        freeSlots.put("limitedTask", 2);
+        when(taskRegistry.getTaskNames()).thenReturn(taskNames);
+        when(taskConcurrencyLimits.freeSlotsFor(taskNames)).thenReturn(freeSlots);
+        when(jobService.getUnassignedJobsFor(workerId, claimableTaskNames, 10, freeSlots)).thenReturn(Stream.of(job));
+
+        jobExecutor.fetchUnassignedJobs();
+
+        verify(jobService).getUnassignedJobsFor(workerId, claimableTaskNames, 10, freeSlots);
+        verify(jobService).getNextClaimableTime(claimableTaskNames);
+        verify(executorService).submit(any(JobExecutor.class));
+    }
+
+    @Test
+    public void shouldNotClaimWhileEveryTaskIsAtItsConcurrencyLimit() {
+        final Set<String> taskNames = singleton("slowTask");
+        when(taskRegistry.getTaskNames()).thenReturn(taskNames);
+        when(taskConcurrencyLimits.freeSlotsFor(taskNames)).thenReturn(singletonMap("slowTask", 0));
+
+        jobExecutor.fetchUnassignedJobs();
+
+        verifyZeroInteractions(jobService, userTransaction);
+        verify(scheduledExecutorService).schedule(any(Runnable.class), eq(1000L), eq(MILLISECONDS));
+    }
+
+    @Test
+    public void shouldNotClaimPastTheMaxInFlightWhenClaimCyclesAreTriggeredAtTheSameTime() {
+        final LockedJobRegistry realLockedJobRegistry = new LockedJobRegistry();
+        final ClaimBatchSizer realClaimBatchSizer = new ClaimBatchSizer();
+        realClaimBatchSizer.lockedJobRegistry = realLockedJobRegistry;
+        realClaimBatchSizer.jobStartTimer = jobStartTimer;
+        realClaimBatchSizer.clock = clock;
+        realClaimBatchSizer.executorCapacity = "5";
+        realClaimBatchSizer.maxBatchSize = "100";
+        realClaimBatchSizer.maxInFlight = "5";
+        jobExecutor.lockedJobRegistry = realLockedJobRegistry;
+        jobExecutor.claimBatchSizer = realClaimBatchSizer;
+
+        final AtomicInteger claimCount = new AtomicInteger();
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenAnswer(invocation -> {
+            if (claimCount.incrementAndGet() == 1) {
+                final Thread concurrentCycle = new Thread(jobExecutor::fetchUnassignedJobs);
+                concurrentCycle.start();
+                concurrentCycle.join();
+            }
+
+            final int batchSize = (int) invocation.getArguments()[2];
+            return IntStream.range(0, batchSize).mapToObj(i -> Job.job().withJobId(UUID.randomUUID()).withNextTask("someTask").build());
+        });
+
+        jobExecutor.fetchUnassignedJobs();
+
+        assertThat(claimCount.get(), is(1));
+        assertThat(realLockedJobRegistry.getLockedJobCount(), is(5));
+    }
+
+    @Test
+    public void shouldReleaseJobsTheExecutorRejectsAndCarryOnWithTheRest() {
+        final UUID rejectedJobId = UUID.randomUUID();
+        final Job rejectedJob = mock(Job.class);
+        when(rejectedJob.getJobId()).thenReturn(rejectedJobId);
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(rejectedJob, job));
+        when(executorService.submit(any(Runnable.class)))
+                .thenThrow(new RejectedExecutionException())
+                .thenReturn(null);
+
+        jobExecutor.fetchUnassignedJobs();
+
+        verify(executorService, times(2)).submit(isA(JobExecutor.class));
+        verify(rejectedJobReleaser).release(singletonList(rejectedJobId));
+    }
+
+    @Test
+    public void shouldCancelTheNextPollWhenStopped() {
+        final ScheduledFuture pendingPoll = mock(ScheduledFuture.class);
+        when(claimBatchSizer.nextBatchSize()).thenReturn(1);
+        when(jobService.getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt())).thenReturn(Stream.of(job));
+        doReturn(pendingPoll).when(scheduledExecutorService).schedule(any(Runnable.class), eq(0L), eq(MILLISECONDS));
+
+        jobExecutor.fetchUnassignedJobs();
+        jobExecutor.stop();
+
+        verify(pendingPoll).cancel(false);
+    }
+
+    @Test
+    public void shouldStopClaimingAndReleaseTheJobsThatHaveNotStartedWhenStopped() throws Exception {
+        final List<UUID> notStartedJobIds = singletonList(UUID.randomUUID());
+        when(lockedJobRegistry.getNotStartedJobIds()).thenReturn(notStartedJobIds);
+        when(jobService.releaseJobs(notStartedJobIds)).thenReturn(1);
+
+        jobExecutor.stop();
+
+        final InOrder inOrder = inOrder(lockedJobRegistry, userTransaction, jobService);
+        inOrder.verify(lockedJobRegistry).startDraining();
+        inOrder.verify(userTransaction).begin();
+        inOrder.verify(jobService).releaseJobs(notStartedJobIds);
+        inOrder.verify(userTransaction).commit();
+        inOrder.verify(lockedJobRegistry).deregister(notStartedJobIds.get(0));
+    }
+
+    @Test
+    public void shouldNotClaimJobsWhileDraining() {
+        when(lockedJobRegistry.isDraining()).thenReturn(true);
+
+        jobExecutor.fetchUnassignedJobs();
+
+        verify(jobService, never()).getUnassignedJobsFor(any(UUID.class), anySetOf(String.class), anyInt());
+        verifyZeroInteractions(scheduledExecutorService);
+    }
+
+    @Test
+    public void shouldStopWaitingForRunningJobsWhenTheDrainTimesOut() throws Exception {
+        when(lockedJobRegistry.getRunningJobCount()).thenReturn(1);
+        when(clock.now()).thenReturn(now, now.plusSeconds(2));
+
+        jobExecutor.stop();
+
+        verify(logger).warn("{} jobs were still running when the drain timed out, they stay locked to this worker", 1);
+        verify(userTransaction, never()).begin();
+    }
+}
@@ -0,0 +1,117 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.time.ZonedDateTime.now;
+import static java.util.Collections.singletonList;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import uk.gov.justice.services.common.util.UtcClock;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JobStartTimerTest {
+
+    @Mock
+    private ManagedExecutorService executorService;
+
+    @Mock
+    private ManagedScheduledExecutorService scheduledExecutorService;
+
+    @Mock
+    private UtcClock clock;
+
+    @Mock
+    private RejectedJobReleaser rejectedJobReleaser;
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private JobExecutor jobExecutor;
+
+    @InjectMocks
+    private JobStartTimer jobStartTimer;
+
+    private final ZonedDateTime startedAt = now();
+
+    @Before
+    public void setup() {
+        jobStartTimer.tickMilliseconds = "10";
+    }
+
+    @Test
+    public void shouldSubmitAJobWhenItFallsDue() {
+        when(clock.now()).thenReturn(startedAt, startedAt.plusNanos(40_000_000), startedAt.plusNanos(60_000_000));
+
+        jobStartTimer.startAt(jobExecutor, startedAt.plusNanos(50_000_000));
+
+        verify(scheduledExecutorService).scheduleAtFixedRate(any(Runnable.class), eq(10L), eq(10L), eq(MILLISECONDS));
+        assertThat(jobStartTimer.getWaitingJobCount(), is(1));
+
+        jobStartTimer.tick();
+        verify(executorService, never()).submit(jobExecutor);
+
+        jobStartTimer.tick();
+        verify(executorService).submit(jobExecutor);
+        assertThat(jobStartTimer.getWaitingJobCount(), is(0));
+    }
+
+    @Test
+    public void shouldSubmitAJobThatIsAlreadyDueStraightAway() {
+        when(clock.now()).thenReturn(startedAt);
+
+        jobStartTimer.startAt(jobExecutor, startedAt.minusSeconds(1));
+
+        verify(executorService).submit(jobExecutor);
+        assertThat(jobStartTimer.getWaitingJobCount(), is(0));
+    }
+
+    @Test
+    public void shouldReleaseAJobThatCannotBeSubmitted() {
+        final UUID jobId = randomUUID();
+        when(jobExecutor.getJobId()).thenReturn(jobId);
+        when(clock.now()).thenReturn(startedAt, startedAt.plusSeconds(1));
+        doThrow(new RejectedExecutionException()).when(executorService).submit(jobExecutor);
+
+        jobStartTimer.startAt(jobExecutor, startedAt.plusNanos(50_000_000));
+        jobStartTimer.tick();
+
+        verify(rejectedJobReleaser).release(singletonList(jobId));
+    }
+
+    @Test
+    public void shouldCancelTheTickerOnStop() {
+        final ScheduledFuture ticker = mock(ScheduledFuture.class);
+        when(clock.now()).thenReturn(startedAt);
+        when(scheduledExecutorService.scheduleAtFixedRate(any(Runnable.class), eq(10L), eq(10L), eq(MILLISECONDS))).thenReturn(ticker);
+
+        jobStartTimer.startAt(jobExecutor, startedAt.plusSeconds(1));
+        jobStartTimer.stop();
+
+        verify(ticker).cancel(false);
+    }
+}
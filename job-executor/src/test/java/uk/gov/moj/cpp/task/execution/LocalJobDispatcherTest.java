@@ -0,0 +1,184 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.util.Collections.singleton;
+import static java.util.Optional.empty;
+import static java.util.UUID.randomUUID;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import uk.gov.justice.services.common.util.UtcClock;
+import uk.gov.moj.cpp.jobstore.api.DueJobSubmittedEvent;
+import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.service.JobService;
+import uk.gov.moj.cpp.task.extension.TaskRegistry;
+
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.transaction.NotSupportedException;
+import javax.transaction.UserTransaction;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LocalJobDispatcherTest {
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private ManagedExecutorService executorService;
+
+    @Mock
+    private JobService jobService;
+
+    @Mock
+    private TaskRegistry taskRegistry;
+
+    @Mock
+    private LockedJobRegistry lockedJobRegistry;
+
+    @Mock
+    private UtcClock clock;
+
+    @Mock
+    private UserTransaction userTransaction;
+
+    @Mock
+    private ClaimBatchSizer claimBatchSizer;
+
+    @Mock
+    private WorkerIdentity workerIdentity;
+
+    @Mock
+    private TaskConcurrencyLimits taskConcurrencyLimits;
+
+    @Mock
+    private Job job;
+
+    @InjectMocks
+    private LocalJobDispatcher localJobDispatcher;
+
+    @Test
+    public void shouldClaimAndRunADueJobOnTheLocalExecutor() throws Exception {
+        final UUID jobId = randomUUID();
+        final UUID workerId = randomUUID();
+        final ArgumentCaptor<Runnable> dispatchCaptor = ArgumentCaptor.forClass(Runnable.class);
+        when(taskRegistry.getTaskNames()).thenReturn(singleton("localTask"));
+        when(jobService.claimJob(any(UUID.class), any(UUID.class))).thenReturn(Stream.of(job));
+        when(job.getJobId()).thenReturn(jobId);
+        when(job.getNextTask()).thenReturn("localTask");
+        when(taskRegistry.getTask("localTask")).thenReturn(empty());
+        when(claimBatchSizer.hasFreeCapacity()).thenReturn(true);
+        when(taskConcurrencyLimits.hasFreeSlot("localTask")).thenReturn(true);
+        when(workerIdentity.getWorkerId()).thenReturn(workerId);
+        when(lockedJobRegistry.markRunning(jobId)).thenReturn(true);
+
+        localJobDispatcher.dispatch(new DueJobSubmittedEvent(jobId, "localTask"));
+
+        verify(executorService).submit(dispatchCaptor.capture());
+        dispatchCaptor.getValue().run();
+
+        verify(jobService).claimJob(jobId, workerId);
+        verify(lockedJobRegistry).register(job);
+        verify(lockedJobRegistry).deregister(jobId);
+    }
+
+    @Test
+    public void shouldLeaveJobsForTasksNotRegisteredOnThisNodeToTheSchedulers() {
+        when(taskRegistry.getTaskNames()).thenReturn(singleton("localTask"));
+
+        localJobDispatcher.dispatch(new DueJobSubmittedEvent(randomUUID(), "otherTask"));
+
+        verifyZeroInteractions(executorService, jobService);
+    }
+
+    @Test
+    public void shouldLeaveJobsToTheSchedulersWhenTheExecutorIsAtCapacity() {
+        when(taskRegistry.getTaskNames()).thenReturn(singleton("localTask"));
+        when(claimBatchSizer.hasFreeCapacity()).thenReturn(false);
+
+        localJobDispatcher.dispatch(new DueJobSubmittedEvent(randomUUID(), "localTask"));
+
+        verifyZeroInteractions(executorService, jobService);
+    }
+
+    @Test
+    public void shouldLeaveJobsToTheSchedulersWhenTheirTaskIsAtItsConcurrencyLimit() {
+        when(taskRegistry.getTaskNames()).thenReturn(singleton("localTask"));
+        when(claimBatchSizer.hasFreeCapacity()).thenReturn(true);
+        when(taskConcurrencyLimits.hasFreeSlot("localTask")).thenReturn(false);
+
+        localJobDispatcher.dispatch(new DueJobSubmittedEvent(randomUUID(), "localTask"));
+
+        verifyZeroInteractions(executorService, jobService);
+    }
+
+    @Test
+    public void shouldLeaveJobsTheExecutorRejectsToTheSchedulers() {
+        when(taskRegistry.getTaskNames()).thenReturn(singleton("localTask"));
+        when(claimBatchSizer.hasFreeCapacity()).thenReturn(true);
+        when(taskConcurrencyLimits.hasFreeSlot("localTask")).thenReturn(true);
+        when(executorService.submit(any(Runnable.class))).thenThrow(new RejectedExecutionException());
+
+        localJobDispatcher.dispatch(new DueJobSubmittedEvent(randomUUID(), "localTask"));
+
+        verifyZeroInteractions(jobService);
+    }
+
+    @Test
+    public void shouldLeaveJobsToOtherNodesWhileDraining() {
+        when(taskRegistry.getTaskNames()).thenReturn(singleton("localTask"));
+        when(claimBatchSizer.hasFreeCapacity()).thenReturn(true);
+        when(lockedJobRegistry.isDraining()).thenReturn(true);
+
+        localJobDispatcher.dispatch(new DueJobSubmittedEvent(randomUUID(), "localTask"));
+        localJobDispatcher.claimAndExecute(randomUUID());
+
+        verifyZeroInteractions(executorService, jobService);
+    }
+
+    @Test
+    public void shouldNotRunAJobAlreadyClaimedByAnotherWorker() throws Exception {
+        final UUID jobId = randomUUID();
+        when(jobService.claimJob(any(UUID.class), any(UUID.class))).thenReturn(Stream.empty());
+
+        localJobDispatcher.claimAndExecute(jobId);
+
+        verify(userTransaction).commit();
+        verify(lockedJobRegistry, never()).register(any(Job.class));
+    }
+
+    @Test
+    public void shouldRollbackWhenTheClaimFails() throws Exception {
+        doThrow(new NotSupportedException()).when(userTransaction).begin();
+
+        localJobDispatcher.claimAndExecute(randomUUID());
+
+        verify(userTransaction).rollback();
+        verify(lockedJobRegistry, never()).register(any(Job.class));
+    }
+
+    @Test
+    public void shouldRollbackWhenTheClaimThrows() throws Exception {
+        final UUID jobId = randomUUID();
+        when(jobService.claimJob(any(UUID.class), any(UUID.class))).thenThrow(new IllegalStateException("database unavailable"));
+
+        localJobDispatcher.claimAndExecute(jobId);
+
+        verify(userTransaction).rollback();
+        verify(lockedJobRegistry, never()).register(any(Job.class));
+    }
+}
@@ -0,0 +1,104 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.util.Collections.singletonList;
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import uk.gov.moj.cpp.jobstore.persistence.Job;
+
+import org.junit.Test;
+
+public class LockedJobRegistryTest {
+
+    private final LockedJobRegistry lockedJobRegistry = new LockedJobRegistry();
+
+    @Test
+    public void shouldReturnRegisteredJobs() {
+        final Job job = Job.job().withJobId(randomUUID()).build();
+
+        lockedJobRegistry.register(job);
+
+        assertThat(lockedJobRegistry.getLockedJobs(), contains(job));
+    }
+
+    @Test
+    public void shouldNotReturnDeregisteredJobs() {
+        final Job job = Job.job().withJobId(randomUUID()).build();
+
+        lockedJobRegistry.register(job);
+        lockedJobRegistry.deregister(job.getJobId());
+
+        assertThat(lockedJobRegistry.getLockedJobs(), is(empty()));
+    }
+
+    @Test
+    public void shouldStopReturningJobsWhoseLeaseWasLostUntilTheyAreDeregistered() {
+        final Job lostJob = Job.job().withJobId(randomUUID()).build();
+        final Job heldJob = Job.job().withJobId(randomUUID()).build();
+
+        lockedJobRegistry.register(lostJob);
+        lockedJobRegistry.register(heldJob);
+        lockedJobRegistry.markLeasesLost(singletonList(lostJob));
+
+        assertThat(lockedJobRegistry.getLockedJobs(), contains(heldJob));
+        assertTrue(lockedJobRegistry.hasLostLease(lostJob.getJobId()));
+        assertFalse(lockedJobRegistry.hasLostLease(heldJob.getJobId()));
+
+        lockedJobRegistry.deregister(lostJob.getJobId());
+
+        assertFalse(lockedJobRegistry.hasLostLease(lostJob.getJobId()));
+    }
+
+    @Test
+    public void shouldCountRunningJobsAndTheJobsThatFinishedRunning() {
+        final Job runningJob = Job.job().withJobId(randomUUID()).build();
+        final Job waitingJob = Job.job().withJobId(randomUUID()).build();
+
+        lockedJobRegistry.register(runningJob);
+        lockedJobRegistry.register(waitingJob);
+        lockedJobRegistry.markRunning(runningJob.getJobId());
+
+        assertThat(lockedJobRegistry.getLockedJobCount(), is(2));
+        assertThat(lockedJobRegistry.getRunningJobCount(), is(1));
+
+        lockedJobRegistry.deregister(runningJob.getJobId());
+        lockedJobRegistry.deregister(waitingJob.getJobId());
+
+        assertThat(lockedJobRegistry.getLockedJobCount(), is(0));
+        assertThat(lockedJobRegistry.getRunningJobCount(), is(0));
+        assertThat(lockedJobRegistry.getFinishedJobCount(), is(1L));
+    }
+
+    @Test
+    public void shouldCountTheRegisteredJobsOfATask() {
+        lockedJobRegistry.register(Job.job().withJobId(randomUUID()).withNextTask("slowTask").build());
+        lockedJobRegistry.register(Job.job().withJobId(randomUUID()).withNextTask("slowTask").build());
+        lockedJobRegistry.register(Job.job().withJobId(randomUUID()).withNextTask("otherTask").build());
+
+        assertThat(lockedJobRegistry.getLockedJobCount("slowTask"), is(2));
+        assertThat(lockedJobRegistry.getLockedJobCount("otherTask"), is(1));
+        assertThat(lockedJobRegistry.getLockedJobCount("unknownTask"), is(0));
+    }
+
+    @Test
+    public void shouldNotStartJobsOnceDrainingAndReturnTheJobsThatHaveNotStarted() {
+        final Job runningJob = Job.job().withJobId(randomUUID()).build();
+        final Job waitingJob = Job.job().withJobId(randomUUID()).build();
+
+        lockedJobRegistry.register(runningJob);
+        lockedJobRegistry.register(waitingJob);
+        assertTrue(lockedJobRegistry.markRunning(runningJob.getJobId()));
+
+        lockedJobRegistry.startDraining();
+
+        assertTrue(lockedJobRegistry.isDraining());
+        assertFalse(lockedJobRegistry.markRunning(waitingJob.getJobId()));
+        assertThat(lockedJobRegistry.getRunningJobCount(), is(1));
+        assertThat(lockedJobRegistry.getNotStartedJobIds(), contains(waitingJob.getJobId()));
+    }
+}
@@ -0,0 +1,86 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import uk.gov.moj.cpp.jobstore.persistence.JdbcRepositoryException;
+import uk.gov.moj.cpp.jobstore.service.JobService;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.transaction.Status;
+import javax.transaction.UserTransaction;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RejectedJobReleaserTest {
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private JobService jobService;
+
+    @Mock
+    private LockedJobRegistry lockedJobRegistry;
+
+    @Mock
+    private UserTransaction userTransaction;
+
+    @InjectMocks
+    private RejectedJobReleaser rejectedJobReleaser;
+
+    @Test
+    public void shouldStopRenewingAndReleaseRejectedJobsInOneTransaction() throws Exception {
+        final UUID firstJobId = randomUUID();
+        final UUID secondJobId = randomUUID();
+        final List<UUID> rejectedJobIds = asList(firstJobId, secondJobId);
+
+        rejectedJobReleaser.release(rejectedJobIds);
+
+        verify(lockedJobRegistry).deregister(firstJobId);
+        verify(lockedJobRegistry).deregister(secondJobId);
+
+        final InOrder inOrder = Mockito.inOrder(userTransaction, jobService);
+        inOrder.verify(userTransaction).begin();
+        inOrder.verify(jobService).releaseJobs(rejectedJobIds);
+        inOrder.verify(userTransaction).commit();
+
+        assertThat(rejectedJobReleaser.getRejectedJobCount(), is(2L));
+    }
+
+    @Test
+    public void shouldDoNothingWhenNoJobsWereRejected() {
+        rejectedJobReleaser.release(emptyList());
+
+        verifyZeroInteractions(jobService, userTransaction, lockedJobRegistry);
+        assertThat(rejectedJobReleaser.getRejectedJobCount(), is(0L));
+    }
+
+    @Test
+    public void shouldRollbackWhenTheReleaseFails() throws Exception {
+        when(userTransaction.getStatus()).thenReturn(Status.STATUS_ACTIVE);
+        doThrow(new JdbcRepositoryException("release failed")).when(jobService).releaseJobs(anyCollectionOf(UUID.class));
+
+        rejectedJobReleaser.release(asList(randomUUID()));
+
+        verify(userTransaction).rollback();
+    }
+}
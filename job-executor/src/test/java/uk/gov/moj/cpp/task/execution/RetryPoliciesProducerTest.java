@@ -0,0 +1,50 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.time.Duration.ofMillis;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RetryPoliciesProducerTest {
+
+    private final RetryPoliciesProducer retryPoliciesProducer = new RetryPoliciesProducer();
+
+    @Before
+    public void setup() {
+        retryPoliciesProducer.maxAttempts = "5";
+        retryPoliciesProducer.initialBackoffMilliseconds = "1000";
+        retryPoliciesProducer.maxBackoffMilliseconds = "60000";
+        retryPoliciesProducer.taskRetryPolicies = "";
+    }
+
+    @Test
+    public void shouldProduceTheConfiguredDefaultPolicy() {
+        final RetryPolicy retryPolicy = retryPoliciesProducer.retryPolicies().policyFor("anyTask");
+
+        assertThat(retryPolicy.getMaxAttempts(), is(5));
+        assertThat(retryPolicy.getInitialBackoff(), is(ofMillis(1000)));
+        assertThat(retryPolicy.getMaxBackoff(), is(ofMillis(60000)));
+    }
+
+    @Test
+    public void shouldOverrideTheDefaultPolicyForConfiguredTasks() {
+        retryPoliciesProducer.taskRetryPolicies = "flakyTask:10:500:30000, fragileTask:1:0:0";
+
+        final RetryPolicies retryPolicies = retryPoliciesProducer.retryPolicies();
+
+        assertThat(retryPolicies.policyFor("flakyTask").getMaxAttempts(), is(10));
+        assertThat(retryPolicies.policyFor("flakyTask").getInitialBackoff(), is(ofMillis(500)));
+        assertThat(retryPolicies.policyFor("flakyTask").getMaxBackoff(), is(ofMillis(30000)));
+        assertThat(retryPolicies.policyFor("fragileTask").getMaxAttempts(), is(1));
+        assertThat(retryPolicies.policyFor("otherTask").getMaxAttempts(), is(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAnInvalidTaskPolicy() {
+        retryPoliciesProducer.taskRetryPolicies = "flakyTask:10";
+
+        retryPoliciesProducer.retryPolicies();
+    }
+}
@@ -0,0 +1,36 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+    private final RetryPolicy retryPolicy = new RetryPolicy(3, ofSeconds(1), ofSeconds(5));
+
+    @Test
+    public void shouldBeExhaustedOnceTheMaxAttemptsHaveFailed() {
+        assertFalse(retryPolicy.isExhausted(2));
+        assertTrue(retryPolicy.isExhausted(3));
+    }
+
+    @Test
+    public void shouldDoubleTheBackoffAfterEachFailureUpToTheMaxBackoff() {
+        assertThat(retryPolicy.backoffFor(1, 0.999999), is(ofMillis(999)));
+        assertThat(retryPolicy.backoffFor(2, 0.999999), is(ofMillis(1999)));
+        assertThat(retryPolicy.backoffFor(3, 0.999999), is(ofMillis(3999)));
+        assertThat(retryPolicy.backoffFor(4, 0.999999), is(ofMillis(4999)));
+        assertThat(retryPolicy.backoffFor(100, 0.999999), is(ofMillis(4999)));
+    }
+
+    @Test
+    public void shouldJitterTheBackoffBetweenHalfAndAllOfIt() {
+        assertThat(retryPolicy.backoffFor(2, 0), is(ofMillis(1000)));
+        assertThat(retryPolicy.backoffFor(2, 0.5), is(ofMillis(1500)));
+    }
+}
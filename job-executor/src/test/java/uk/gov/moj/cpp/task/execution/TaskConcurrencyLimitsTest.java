@@ -0,0 +1,68 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.util.Arrays.asList;
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import uk.gov.moj.cpp.jobstore.persistence.Job;
+
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TaskConcurrencyLimitsTest {
+
+    private final LockedJobRegistry lockedJobRegistry = new LockedJobRegistry();
+    private final TaskConcurrencyLimits taskConcurrencyLimits = new TaskConcurrencyLimits();
+
+    @Before
+    public void setup() {
+        taskConcurrencyLimits.lockedJobRegistry = lockedJobRegistry;
+        taskConcurrencyLimits.taskConcurrencyLimits = "";
+    }
+
+    @Test
+    public void shouldNotLimitTasksByDefault() {
+        taskConcurrencyLimits.init();
+        lockJobOf("anyTask");
+
+        assertThat(taskConcurrencyLimits.freeSlotsFor(new HashSet<>(asList("anyTask", "otherTask"))).isEmpty(), is(true));
+        assertTrue(taskConcurrencyLimits.hasFreeSlot("anyTask"));
+    }
+
+    @Test
+    public void shouldGiveTheFreeSlotsOfEachLimitedTask() {
+        taskConcurrencyLimits.taskConcurrencyLimits = "slowTask:2, limitedTask:3";
+        taskConcurrencyLimits.init();
+        lockJobOf("slowTask");
+        lockJobOf("slowTask");
+        lockJobOf("limitedTask");
+        lockJobOf("otherTask");
+
+        final Map<String, Integer> freeSlots = taskConcurrencyLimits.freeSlotsFor(new HashSet<>(asList("slowTask", "limitedTask", "otherTask")));
+
+        assertThat(freeSlots.size(), is(2));
+        assertThat(freeSlots, hasEntry("slowTask", 0));
+        assertThat(freeSlots, hasEntry("limitedTask", 2));
+        assertFalse(taskConcurrencyLimits.hasFreeSlot("slowTask"));
+        assertTrue(taskConcurrencyLimits.hasFreeSlot("limitedTask"));
+        assertTrue(taskConcurrencyLimits.hasFreeSlot("otherTask"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAnInvalidConcurrencyLimit() {
+        taskConcurrencyLimits.taskConcurrencyLimits = "slowTask:many";
+
+        taskConcurrencyLimits.init();
+    }
+
+    private void lockJobOf(final String taskName) {
+        lockedJobRegistry.register(Job.job().withJobId(randomUUID()).withNextTask(taskName).build());
+    }
+}
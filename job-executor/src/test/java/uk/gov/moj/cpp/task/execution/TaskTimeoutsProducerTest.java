@@ -0,0 +1,61 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TaskTimeoutsProducerTest {
+
+    private final TaskTimeoutsProducer taskTimeoutsProducer = new TaskTimeoutsProducer();
+
+    @Before
+    public void setup() {
+        taskTimeoutsProducer.defaultTimeoutMilliseconds = "0";
+        taskTimeoutsProducer.taskTimeouts = "";
+    }
+
+    @Test
+    public void shouldNotTimeTasksOutByDefault() {
+        final TaskTimeouts taskTimeouts = taskTimeoutsProducer.taskTimeouts();
+
+        assertThat(taskTimeouts.timeoutFor("anyTask", empty()), is(empty()));
+        assertThat(taskTimeouts.timeoutFor("declaredTask", of(ofSeconds(30))), is(of(ofSeconds(30))));
+    }
+
+    @Test
+    public void shouldPreferTheConfiguredTimeoutThenTheDeclaredTimeoutThenTheDefault() {
+        taskTimeoutsProducer.defaultTimeoutMilliseconds = "60000";
+        taskTimeoutsProducer.taskTimeouts = "slowTask:120000, declaredTask:5000";
+
+        final TaskTimeouts taskTimeouts = taskTimeoutsProducer.taskTimeouts();
+
+        assertThat(taskTimeouts.timeoutFor("slowTask", empty()), is(of(ofMillis(120000))));
+        assertThat(taskTimeouts.timeoutFor("declaredTask", of(ofSeconds(30))), is(of(ofMillis(5000))));
+        assertThat(taskTimeouts.timeoutFor("otherTask", of(ofSeconds(30))), is(of(ofSeconds(30))));
+        assertThat(taskTimeouts.timeoutFor("otherTask", empty()), is(of(ofMillis(60000))));
+    }
+
+    @Test
+    public void shouldRunATaskConfiguredWithATimeoutOfZeroWithoutATimeout() {
+        taskTimeoutsProducer.defaultTimeoutMilliseconds = "60000";
+        taskTimeoutsProducer.taskTimeouts = "endlessTask:0, declaredTask:-1";
+
+        final TaskTimeouts taskTimeouts = taskTimeoutsProducer.taskTimeouts();
+
+        assertThat(taskTimeouts.timeoutFor("endlessTask", empty()), is(empty()));
+        assertThat(taskTimeouts.timeoutFor("declaredTask", of(ofSeconds(30))), is(empty()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAnInvalidTaskTimeout() {
+        taskTimeoutsProducer.taskTimeouts = "slowTask";
+
+        taskTimeoutsProducer.taskTimeouts();
+    }
+}
@@ -0,0 +1,129 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.time.Duration.ofSeconds;
+import static java.util.Collections.emptyMap;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import uk.gov.justice.services.common.util.UtcClock;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TaskWatchdogTest {
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private ManagedScheduledExecutorService scheduledExecutorService;
+
+    @Mock
+    private UtcClock clock;
+
+    private final TaskWatchdog taskWatchdog = new TaskWatchdog();
+
+    private final ScheduledFuture ticker = mock(ScheduledFuture.class);
+
+    private final ZonedDateTime now = ZonedDateTime.now();
+
+    @Before
+    public void setup() {
+        taskWatchdog.logger = logger;
+        taskWatchdog.scheduledExecutorService = scheduledExecutorService;
+        taskWatchdog.taskTimeouts = new TaskTimeouts(empty(), emptyMap());
+        taskWatchdog.clock = clock;
+        taskWatchdog.tickMilliseconds = "100";
+        doReturn(ticker).when(scheduledExecutorService).scheduleAtFixedRate(any(Runnable.class), eq(100L), eq(100L), eq(MILLISECONDS));
+        when(clock.now()).thenReturn(now);
+    }
+
+    @After
+    public void clearInterrupt() {
+        Thread.interrupted();
+    }
+
+    @Test
+    public void shouldNotWatchTasksWithoutATimeout() {
+        final TaskWatchdog.Watch watch = taskWatchdog.watch("anyTask", empty());
+
+        assertFalse(watch.stop());
+        verifyZeroInteractions(scheduledExecutorService);
+    }
+
+    @Test
+    public void shouldForgetTheWatchOfATaskThatReturnsInTime() {
+        final TaskWatchdog.Watch firstWatch = taskWatchdog.watch("quickTask", of(ofSeconds(30)));
+        final TaskWatchdog.Watch secondWatch = taskWatchdog.watch("quickTask", of(ofSeconds(30)));
+
+        assertThat(taskWatchdog.getRunningWatchCount(), is(2));
+        assertFalse(firstWatch.stop());
+        assertFalse(secondWatch.stop());
+        assertThat(taskWatchdog.getRunningWatchCount(), is(0));
+        verify(scheduledExecutorService, times(1)).scheduleAtFixedRate(any(Runnable.class), eq(100L), eq(100L), eq(MILLISECONDS));
+        assertThat(taskWatchdog.getTimedOutTaskCount(), is(0L));
+    }
+
+    @Test
+    public void shouldInterruptATaskThatRunsPastItsTimeoutAndCountIt() {
+        final TaskWatchdog.Watch watch = taskWatchdog.watch("slowTask", of(ofSeconds(30)));
+
+        when(clock.now()).thenReturn(now.plusSeconds(29));
+        taskWatchdog.tick();
+        assertFalse(Thread.currentThread().isInterrupted());
+
+        when(clock.now()).thenReturn(now.plusSeconds(30));
+        taskWatchdog.tick();
+        assertTrue(Thread.currentThread().isInterrupted());
+        assertThat(taskWatchdog.getRunningWatchCount(), is(0));
+
+        assertTrue(watch.stop());
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertThat(taskWatchdog.getTimedOutTaskCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotInterruptATaskOnceItsWatchIsStopped() {
+        final TaskWatchdog.Watch watch = taskWatchdog.watch("quickTask", of(ofSeconds(30)));
+        watch.stop();
+
+        when(clock.now()).thenReturn(now.plusSeconds(31));
+        taskWatchdog.tick();
+
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertThat(taskWatchdog.getTimedOutTaskCount(), is(0L));
+    }
+
+    @Test
+    public void shouldCancelTheTickerWhenUnregistered() {
+        taskWatchdog.watch("quickTask", of(ofSeconds(30))).stop();
+
+        taskWatchdog.unregister();
+
+        verify(ticker).cancel(false);
+    }
+}
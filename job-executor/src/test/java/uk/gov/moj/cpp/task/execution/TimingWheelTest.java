@@ -0,0 +1,83 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    private final TimingWheel<String> timingWheel = new TimingWheel<>(10, 8, START);
+    private final List<String> fired = new ArrayList<>();
+
+    @Test
+    public void shouldNotScheduleItemsThatAreAlreadyDue() {
+        assertThat(timingWheel.schedule("due", START), is(false));
+        assertThat(timingWheel.schedule("overdue", START - 500), is(false));
+        assertThat(timingWheel.size(), is(0));
+    }
+
+    @Test
+    public void shouldFireAnItemOnTheFirstTickAtOrAfterItsDeadline() {
+        timingWheel.schedule("item", START + 25);
+
+        timingWheel.advanceTo(START + 20, fired::add);
+        assertThat(fired, is(emptyList()));
+
+        timingWheel.advanceTo(START + 29, fired::add);
+        assertThat(fired, is(emptyList()));
+
+        timingWheel.advanceTo(START + 30, fired::add);
+        assertThat(fired, is(singletonList("item")));
+        assertThat(timingWheel.size(), is(0));
+    }
+
+    @Test
+    public void shouldCascadeItemsBeyondTheFirstWheelDownToTheirExactTick() {
+        timingWheel.schedule("secondWheel", START + 350);
+        timingWheel.schedule("thirdWheel", START + 2_000);
+
+        timingWheel.advanceTo(START + 340, fired::add);
+        assertThat(fired, is(emptyList()));
+
+        timingWheel.advanceTo(START + 350, fired::add);
+        assertThat(fired, is(singletonList("secondWheel")));
+
+        timingWheel.advanceTo(START + 1_990, fired::add);
+        assertThat(fired, is(singletonList("secondWheel")));
+
+        timingWheel.advanceTo(START + 2_000, fired::add);
+        assertThat(fired, is(asList("secondWheel", "thirdWheel")));
+    }
+
+    @Test
+    public void shouldFireItemsInDeadlineOrderWhenAdvancedPastSeveralDeadlines() {
+        timingWheel.schedule("third", START + 700);
+        timingWheel.schedule("first", START + 15);
+        timingWheel.schedule("second", START + 90);
+
+        timingWheel.advanceTo(START + 10_000, fired::add);
+
+        assertThat(fired, is(asList("first", "second", "third")));
+    }
+
+    @Test
+    public void shouldKeepTimeWhileEmpty() {
+        timingWheel.advanceTo(START + 1_000_000, fired::add);
+
+        assertThat(timingWheel.schedule("item", START + 1_000_050), is(true));
+        timingWheel.advanceTo(START + 1_000_040, fired::add);
+        assertThat(fired, is(emptyList()));
+
+        timingWheel.advanceTo(START + 1_000_050, fired::add);
+        assertThat(fired, is(singletonList("item")));
+    }
+}
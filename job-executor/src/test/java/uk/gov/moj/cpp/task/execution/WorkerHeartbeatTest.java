@@ -0,0 +1,92 @@
+package uk.gov.moj.cpp.task.execution;
+
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import uk.gov.moj.cpp.jobstore.service.JobService;
+
+import java.util.UUID;
+
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WorkerHeartbeatTest {
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private TimerService timerService;
+
+    @Mock
+    private JobService jobService;
+
+    @Mock
+    private WorkerIdentity workerIdentity;
+
+    @Captor
+    private ArgumentCaptor<TimerConfig> timerConfigArgumentCaptor;
+
+    @InjectMocks
+    private WorkerHeartbeat workerHeartbeat;
+
+    @Test
+    public void shouldRecordThisWorkersHeartbeatAndThenReleaseTheJobsOfExpiredWorkers() {
+        final UUID workerId = randomUUID();
+        when(workerIdentity.getWorkerId()).thenReturn(workerId);
+        when(jobService.releaseJobsOfExpiredWorkers()).thenReturn(3);
+
+        workerHeartbeat.beat();
+
+        final InOrder inOrder = inOrder(jobService);
+        inOrder.verify(jobService).recordWorkerHeartbeat(workerId);
+        inOrder.verify(jobService).releaseJobsOfExpiredWorkers();
+    }
+
+    @Test
+    public void shouldSetTimerTaskOnPostConstruct() {
+        workerHeartbeat.heartbeatIntervalMilliseconds = "5000";
+        workerHeartbeat.heartbeatExpiryMilliseconds = "30000";
+        workerHeartbeat.moduleName = "TEST_TIMER";
+        workerHeartbeat.init();
+
+        verify(timerService).createIntervalTimer(eq(0L), eq(5000L), timerConfigArgumentCaptor.capture());
+
+        assertFalse(timerConfigArgumentCaptor.getValue().isPersistent());
+        assertThat(timerConfigArgumentCaptor.getValue().getInfo(), is("TEST_TIMER.job-manager.worker.heartbeat.timer"));
+    }
+
+    @Test
+    public void shouldRefuseToStartWhenTheExpiryIsNotSeveralHeartbeatIntervals() {
+        workerHeartbeat.heartbeatIntervalMilliseconds = "5000";
+        workerHeartbeat.heartbeatExpiryMilliseconds = "10000";
+
+        try {
+            workerHeartbeat.init();
+            fail("Expected a heartbeat expiry of two intervals to be rejected");
+        } catch (final IllegalArgumentException expected) {
+            verify(timerService, never()).createIntervalTimer(anyLong(), anyLong(), any(TimerConfig.class));
+        }
+    }
+}
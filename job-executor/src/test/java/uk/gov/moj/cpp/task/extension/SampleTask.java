@@ -7,7 +7,7 @@ import uk.gov.moj.cpp.jobstore.api.annotation.Task;
 import uk.gov.moj.cpp.jobstore.api.task.ExecutableTask;
 import uk.gov.moj.cpp.jobstore.api.task.ExecutionInfo;
 
-@Task("sample-task")
+@Task(value = "sample-task", timeoutMilliseconds = 30000)
 public class SampleTask implements ExecutableTask {
 
     @Override
@@ -1,5 +1,7 @@
 package uk.gov.moj.cpp.task.extension;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -7,6 +9,7 @@ import static org.mockito.Mockito.when;
 
 import uk.gov.moj.cpp.jobstore.api.task.ExecutableTask;
 
+import java.time.Duration;
 import java.util.Iterator;
 import java.util.Optional;
 
@@ -51,6 +54,26 @@ public class TaskRegistryTest {
 
     }
 
+    @Test
+    public void shouldListTheNamesOfRegisteredTasks() {
+        when(taskFoundEventMock.getClazz()).thenReturn((Class) SampleTask.class);
+        when(taskBeanProxyMock.iterator()).thenReturn(new TestIterator());
+
+        taskRegistry.register(taskFoundEventMock);
+
+        assertThat(taskRegistry.getTaskNames(), contains("sample-task"));
+    }
+
+    @Test
+    public void shouldReturnTheTimeoutDeclaredOnTheTask() {
+        when(taskFoundEventMock.getClazz()).thenReturn((Class) SampleTask.class);
+        when(taskBeanProxyMock.iterator()).thenReturn(new TestIterator());
+
+        taskRegistry.register(taskFoundEventMock);
+
+        assertThat(taskRegistry.getTaskTimeout("sample-task"), is(Optional.of(Duration.ofSeconds(30))));
+        assertThat(taskRegistry.getTaskTimeout("other-task"), is(Optional.empty()));
+    }
 
     class TestIterator implements Iterator<ExecutableTask> {
         int count = 1;
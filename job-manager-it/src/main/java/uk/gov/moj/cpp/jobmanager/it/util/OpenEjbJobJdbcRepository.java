@@ -12,6 +12,7 @@ import uk.gov.justice.services.test.utils.core.messaging.Poller;
 import uk.gov.moj.cpp.jobstore.persistence.Job;
 import uk.gov.moj.cpp.jobstore.persistence.JobJdbcRepository;
 import uk.gov.moj.cpp.jobstore.persistence.PreparedStatementWrapper;
+import uk.gov.moj.cpp.jobstore.persistence.PreparedStatementWrapperFactory;
 
 import java.io.StringReader;
 import java.sql.Connection;
@@ -39,6 +40,12 @@ public class OpenEjbJobJdbcRepository extends JobJdbcRepository {
     private static final String JOBS_PROCESSED_FOR_WORKER = "SELECT * FROM job where worker_id = ?";
     private static final String JOB_DATA_JSON = "{\"some\": \"json\"}";
 
+    public PreparedStatementWrapperFactory usePreparedStatementWrapperFactory(final PreparedStatementWrapperFactory preparedStatementWrapperFactory) {
+        final PreparedStatementWrapperFactory previous = this.preparedStatementWrapperFactory;
+        this.preparedStatementWrapperFactory = preparedStatementWrapperFactory;
+        return previous;
+    }
+
     public void waitForAllJobsToBeProcessed() {
 
         final Poller poller = new Poller(100, 500);
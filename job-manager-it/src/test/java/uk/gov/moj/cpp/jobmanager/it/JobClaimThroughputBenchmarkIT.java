@@ -0,0 +1,197 @@
+package uk.gov.moj.cpp.jobmanager.it;
+
+import static java.lang.System.nanoTime;
+import static java.time.Duration.ofHours;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import uk.gov.justice.services.cdi.InitialContextProducer;
+import uk.gov.justice.services.cdi.LoggerProducer;
+import uk.gov.justice.services.common.configuration.GlobalValueProducer;
+import uk.gov.justice.services.common.configuration.JndiBasedServiceContextNameProvider;
+import uk.gov.justice.services.common.configuration.ValueProducer;
+import uk.gov.moj.cpp.jobmanager.it.util.OpenEjbConfigurationBuilder;
+import uk.gov.moj.cpp.jobmanager.it.util.OpenEjbJobJdbcRepository;
+import uk.gov.moj.cpp.jobstore.persistence.JdbcJobStoreDataSourceProvider;
+import uk.gov.moj.cpp.jobstore.persistence.JdbcResultSetStreamer;
+import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.persistence.JobDataCodecRegistry;
+import uk.gov.moj.cpp.jobstore.persistence.JobRepository;
+import uk.gov.moj.cpp.jobstore.persistence.JobSqlProvider;
+import uk.gov.moj.cpp.jobstore.persistence.PostgresJobSqlProvider;
+import uk.gov.moj.cpp.jobstore.persistence.PreparedStatementWrapperFactory;
+import uk.gov.moj.cpp.jobstore.service.JobService;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimMetrics;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimQuotas;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.naming.InitialContext;
+import javax.sql.DataSource;
+import javax.transaction.UserTransaction;
+
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.apache.openejb.jee.WebApp;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.testing.Application;
+import org.apache.openejb.testing.Classes;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.Module;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmarks the single statement FOR UPDATE SKIP LOCKED ... RETURNING claim against the two
+ * statement lock-then-select claim it replaced. {@value #WORKER_COUNT} workers claim batches of
+ * jobs, each holding its claim transaction open as JobScheduler does while it hands the jobs out.
+ * Lock-then-select workers queue behind the rows the others have locked, so the skip locked claim
+ * must claim at least {@value #MIN_SPEED_UP} times as many jobs per second. Run with -Pbenchmarks.
+ */
+@RunWith(ApplicationComposer.class)
+public class JobClaimThroughputBenchmarkIT {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobClaimThroughputBenchmarkIT.class);
+
+    private static final String LIQUIBASE_JOB_STORE_DB_CHANGELOG_XML = "liquibase/jobstore-db-changelog.xml";
+    private static final int WORKER_COUNT = 8;
+    private static final int JOB_COUNT = 800;
+    private static final int JOBS_PER_CLAIM = 10;
+    private static final long CLAIM_TRANSACTION_HOLD_MILLIS = 20;
+    private static final double MIN_SPEED_UP = 2.0;
+
+    @Inject
+    OpenEjbJobJdbcRepository testJobJdbcRepository;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    @Resource(name = "openejb/Resource/jobStore")
+    private DataSource dataSource;
+
+    @Module
+    @Classes(cdi = true, value = {
+            JobService.class,
+            TaskClaimQuotas.class,
+            TaskClaimMetrics.class,
+            JobRepository.class,
+            JdbcJobStoreDataSourceProvider.class,
+            PreparedStatementWrapperFactory.class,
+            JobDataCodecRegistry.class,
+            JdbcResultSetStreamer.class,
+            JobSqlProvider.class,
+            LoggerProducer.class,
+            OpenEjbJobJdbcRepository.class,
+            GlobalValueProducer.class,
+            ValueProducer.class,
+            JndiBasedServiceContextNameProvider.class,
+            InitialContextProducer.class
+    }, cdiAlternatives = {PostgresJobSqlProvider.class})
+
+    public WebApp war() {
+        return new WebApp()
+                .contextRoot("framework-test")
+                .addServlet("ServiceApp", Application.class.getName());
+    }
+
+    @Configuration
+    public Properties configuration() {
+        return OpenEjbConfigurationBuilder.createOpenEjbConfigurationBuilder()
+                .addInitialContext()
+                .addHttpEjbPort(8080)
+                .addPostgresqlJobStore()
+                .build();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        final InitialContext initialContext = new InitialContext();
+        initialContext.bind("java:/app/JobClaimThroughputBenchmarkIT/DS.jobstore", dataSource);
+
+        new Liquibase(LIQUIBASE_JOB_STORE_DB_CHANGELOG_XML,
+                new ClassLoaderResourceAccessor(), new JdbcConnection(dataSource.getConnection()))
+                .update("");
+    }
+
+    @Test
+    public void shouldClaimJobsFasterWithSkipLockedThanWithLockThenSelect() throws Exception {
+
+        final double lockThenSelectClaimsPerSecond = claimsPerSecond(workerId -> {
+            testJobJdbcRepository.lockJobsFor(workerId, JOBS_PER_CLAIM);
+            return testJobJdbcRepository.findJobsLockedTo(workerId).collect(toList());
+        });
+
+        final double skipLockedClaimsPerSecond = claimsPerSecond(workerId ->
+                testJobJdbcRepository.claimJobsFor(workerId, JOBS_PER_CLAIM, ofHours(1)).collect(toList()));
+
+        LOGGER.info("{} workers: lock then select {} claims/s, skip locked claim {} claims/s",
+                WORKER_COUNT, lockThenSelectClaimsPerSecond, skipLockedClaimsPerSecond);
+
+        assertThat(skipLockedClaimsPerSecond, is(greaterThan(lockThenSelectClaimsPerSecond * MIN_SPEED_UP)));
+    }
+
+    private double claimsPerSecond(final Function<UUID, List<Job>> claim) throws Exception {
+        userTransaction.begin();
+        testJobJdbcRepository.cleanJobTables();
+        testJobJdbcRepository.createJobs(JOB_COUNT);
+        userTransaction.commit();
+
+        final Set<UUID> claimedJobIds = ConcurrentHashMap.newKeySet();
+        final AtomicInteger duplicateClaims = new AtomicInteger();
+        final CyclicBarrier gate = new CyclicBarrier(WORKER_COUNT + 1);
+        final CountDownLatch finished = new CountDownLatch(WORKER_COUNT);
+
+        for (int i = 0; i < WORKER_COUNT; i++) {
+            new Thread(() -> {
+                try {
+                    gate.await();
+                    while (claimedJobIds.size() < JOB_COUNT) {
+                        userTransaction.begin();
+                        final List<Job> jobs = claim.apply(randomUUID());
+                        Thread.sleep(CLAIM_TRANSACTION_HOLD_MILLIS);
+                        userTransaction.commit();
+
+                        jobs.forEach(job -> {
+                            if (!claimedJobIds.add(job.getJobId())) {
+                                duplicateClaims.incrementAndGet();
+                            }
+                        });
+                    }
+                } catch (final Exception e) {
+                    throw new RuntimeException("Failed to complete claim transaction", e);
+                } finally {
+                    finished.countDown();
+                }
+            }).start();
+        }
+
+        gate.await();
+        final long start = nanoTime();
+        finished.await(2, MINUTES);
+        final long elapsedNanos = nanoTime() - start;
+
+        assertThat(duplicateClaims.get(), is(0));
+        assertThat(claimedJobIds.size(), is(JOB_COUNT));
+
+        return JOB_COUNT * (double) SECONDS.toNanos(1) / elapsedNanos;
+    }
+}
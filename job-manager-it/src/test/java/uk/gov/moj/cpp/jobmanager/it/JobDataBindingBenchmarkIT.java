@@ -0,0 +1,210 @@
+package uk.gov.moj.cpp.jobmanager.it;
+
+import static java.lang.System.nanoTime;
+import static java.time.ZonedDateTime.now;
+import static java.util.UUID.randomUUID;
+import static javax.json.Json.createObjectBuilder;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static uk.gov.justice.services.common.converter.ZonedDateTimes.toSqlTimestamp;
+
+import uk.gov.justice.services.cdi.InitialContextProducer;
+import uk.gov.justice.services.cdi.LoggerProducer;
+import uk.gov.justice.services.common.configuration.GlobalValueProducer;
+import uk.gov.justice.services.common.configuration.JndiBasedServiceContextNameProvider;
+import uk.gov.justice.services.common.configuration.ValueProducer;
+import uk.gov.moj.cpp.jobmanager.it.util.OpenEjbConfigurationBuilder;
+import uk.gov.moj.cpp.jobmanager.it.util.OpenEjbJobJdbcRepository;
+import uk.gov.moj.cpp.jobstore.persistence.JdbcJobStoreDataSourceProvider;
+import uk.gov.moj.cpp.jobstore.persistence.JdbcResultSetStreamer;
+import uk.gov.moj.cpp.jobstore.persistence.JobDataCodecRegistry;
+import uk.gov.moj.cpp.jobstore.persistence.JobRepository;
+import uk.gov.moj.cpp.jobstore.persistence.JobSqlProvider;
+import uk.gov.moj.cpp.jobstore.persistence.PostgresJobSqlProvider;
+import uk.gov.moj.cpp.jobstore.persistence.PreparedStatementWrapperFactory;
+import uk.gov.moj.cpp.jobstore.service.JobService;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimMetrics;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimQuotas;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.json.JsonObjectBuilder;
+import javax.naming.InitialContext;
+import javax.sql.DataSource;
+
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.apache.openejb.jee.WebApp;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.testing.Application;
+import org.apache.openejb.testing.Classes;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.Module;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmarks inserting and updating job_data bound with the direct ?::jsonb cast that
+ * PostgresJobSqlProvider uses against to_jsonb(?::json), which the server parses twice, for
+ * payloads of 1, 10 and 100 KB. Small payloads are dominated by round trips, so only at
+ * {@value #ASSERTED_PAYLOAD_KILOBYTES} KB must the jsonb cast take at most
+ * {@value #MAX_TIME_RATIO} of the time. Run with -Pbenchmarks.
+ */
+@RunWith(ApplicationComposer.class)
+public class JobDataBindingBenchmarkIT {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobDataBindingBenchmarkIT.class);
+
+    private static final String LIQUIBASE_JOB_STORE_DB_CHANGELOG_XML = "liquibase/jobstore-db-changelog.xml";
+    private static final String TEXT_CAST_INSERT_JOB_SQL = "INSERT INTO job(job_id,worker_id,worker_lock_time,next_task,next_task_start_time,job_data) values (?,?,?,?,?,to_jsonb(?::json))";
+    private static final String TEXT_CAST_UPDATE_JOB_DATA_SQL = "UPDATE job SET job_data = to_jsonb(?::json) WHERE job_id = ?";
+    private static final String JSONB_CAST_INSERT_JOB_SQL = "INSERT INTO job(job_id,worker_id,worker_lock_time,next_task,next_task_start_time,job_data) values (?,?,?,?,?,?::jsonb)";
+    private static final String JSONB_CAST_UPDATE_JOB_DATA_SQL = "UPDATE job SET job_data = ?::jsonb WHERE job_id = ?";
+    private static final String COUNT_JOBS_WITH_JOB_DATA_SQL = "SELECT COUNT(*) FROM job WHERE job_data = ?::jsonb";
+    private static final int[] PAYLOAD_KILOBYTES = {1, 10, 100};
+    private static final int ASSERTED_PAYLOAD_KILOBYTES = 100;
+    private static final double MAX_TIME_RATIO = 0.9;
+    private static final int ROWS = 200;
+
+    @Inject
+    OpenEjbJobJdbcRepository testJobJdbcRepository;
+
+    @Resource(name = "openejb/Resource/jobStore")
+    private DataSource dataSource;
+
+    @Module
+    @Classes(cdi = true, value = {
+            JobService.class,
+            TaskClaimQuotas.class,
+            TaskClaimMetrics.class,
+            JobRepository.class,
+            JdbcJobStoreDataSourceProvider.class,
+            PreparedStatementWrapperFactory.class,
+            JobDataCodecRegistry.class,
+            JdbcResultSetStreamer.class,
+            JobSqlProvider.class,
+            LoggerProducer.class,
+            OpenEjbJobJdbcRepository.class,
+            GlobalValueProducer.class,
+            ValueProducer.class,
+            JndiBasedServiceContextNameProvider.class,
+            InitialContextProducer.class
+    }, cdiAlternatives = {PostgresJobSqlProvider.class})
+
+    public WebApp war() {
+        return new WebApp()
+                .contextRoot("framework-test")
+                .addServlet("ServiceApp", Application.class.getName());
+    }
+
+    @Configuration
+    public Properties configuration() {
+        return OpenEjbConfigurationBuilder.createOpenEjbConfigurationBuilder()
+                .addInitialContext()
+                .addHttpEjbPort(8080)
+                .addPostgresqlJobStore()
+                .build();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        final InitialContext initialContext = new InitialContext();
+        initialContext.bind("java:/app/JobDataBindingBenchmarkIT/DS.jobstore", dataSource);
+
+        new Liquibase(LIQUIBASE_JOB_STORE_DB_CHANGELOG_XML,
+                new ClassLoaderResourceAccessor(), new JdbcConnection(dataSource.getConnection()))
+                .update("");
+    }
+
+    @Test
+    public void shouldStoreLargeJobDataFasterWithDirectJsonbCastThanWithTextCast() throws Exception {
+        for (final int kilobytes : PAYLOAD_KILOBYTES) {
+            final String payload = payloadOf(kilobytes);
+
+            measure(kilobytes, payload, TEXT_CAST_INSERT_JOB_SQL, TEXT_CAST_UPDATE_JOB_DATA_SQL);
+            final double[] textCast = measure(kilobytes, payload, TEXT_CAST_INSERT_JOB_SQL, TEXT_CAST_UPDATE_JOB_DATA_SQL);
+            final double[] jsonbCast = measure(kilobytes, payload, JSONB_CAST_INSERT_JOB_SQL, JSONB_CAST_UPDATE_JOB_DATA_SQL);
+
+            LOGGER.info("{} KB payload: to_jsonb(?::json) insert {} us/KB update {} us/KB, ?::jsonb insert {} us/KB update {} us/KB",
+                    kilobytes, textCast[0], textCast[1], jsonbCast[0], jsonbCast[1]);
+
+            if (kilobytes == ASSERTED_PAYLOAD_KILOBYTES) {
+                assertThat(jsonbCast[0] + jsonbCast[1], is(lessThan((textCast[0] + textCast[1]) * MAX_TIME_RATIO)));
+            }
+        }
+    }
+
+    private double[] measure(final int kilobytes, final String payload, final String insertSql, final String updateSql) throws SQLException {
+        testJobJdbcRepository.cleanJobTables();
+
+        final List<UUID> jobIds = new ArrayList<>();
+
+        try (final Connection connection = dataSource.getConnection()) {
+            final long insertStart = nanoTime();
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(insertSql)) {
+                for (int row = 0; row < ROWS; row++) {
+                    final UUID jobId = randomUUID();
+                    jobIds.add(jobId);
+                    preparedStatement.setObject(1, jobId);
+                    preparedStatement.setObject(2, null);
+                    preparedStatement.setTimestamp(3, null);
+                    preparedStatement.setString(4, "nextTask");
+                    preparedStatement.setTimestamp(5, toSqlTimestamp(now()));
+                    preparedStatement.setString(6, payload);
+                    preparedStatement.executeUpdate();
+                }
+            }
+            final long insertNanos = nanoTime() - insertStart;
+
+            final long updateStart = nanoTime();
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(updateSql)) {
+                for (final UUID jobId : jobIds) {
+                    preparedStatement.setString(1, payload);
+                    preparedStatement.setObject(2, jobId);
+                    preparedStatement.executeUpdate();
+                }
+            }
+            final long updateNanos = nanoTime() - updateStart;
+
+            assertThat(countJobsWithJobData(connection, payload), is(ROWS));
+
+            return new double[]{microsPerKilobyte(insertNanos, kilobytes), microsPerKilobyte(updateNanos, kilobytes)};
+        }
+    }
+
+    private int countJobsWithJobData(final Connection connection, final String payload) throws SQLException {
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(COUNT_JOBS_WITH_JOB_DATA_SQL)) {
+            preparedStatement.setString(1, payload);
+            try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        }
+    }
+
+    private double microsPerKilobyte(final long nanos, final int kilobytes) {
+        return nanos / 1000.0 / ROWS / kilobytes;
+    }
+
+    private String payloadOf(final int kilobytes) {
+        final JsonObjectBuilder builder = createObjectBuilder();
+        for (int field = 0; field < kilobytes * 16; field++) {
+            builder.add("field" + field, "abcdefghijklmnopqrstuvwxyz0123456789abcdefghij");
+        }
+        return builder.build().toString();
+    }
+}
@@ -0,0 +1,185 @@
+package uk.gov.moj.cpp.jobmanager.it;
+
+import static java.lang.System.nanoTime;
+import static java.time.Duration.ofHours;
+import static java.time.ZonedDateTime.now;
+import static java.util.Optional.empty;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+import static javax.json.Json.createObjectBuilder;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static uk.gov.moj.cpp.jobstore.persistence.Job.job;
+
+import uk.gov.justice.services.cdi.InitialContextProducer;
+import uk.gov.justice.services.cdi.LoggerProducer;
+import uk.gov.justice.services.common.configuration.GlobalValueProducer;
+import uk.gov.justice.services.common.configuration.JndiBasedServiceContextNameProvider;
+import uk.gov.justice.services.common.configuration.ValueProducer;
+import uk.gov.moj.cpp.jobmanager.it.util.OpenEjbConfigurationBuilder;
+import uk.gov.moj.cpp.jobmanager.it.util.OpenEjbJobJdbcRepository;
+import uk.gov.moj.cpp.jobstore.persistence.JdbcJobStoreDataSourceProvider;
+import uk.gov.moj.cpp.jobstore.persistence.JdbcResultSetStreamer;
+import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.persistence.JobDataCodecRegistry;
+import uk.gov.moj.cpp.jobstore.persistence.JobRepository;
+import uk.gov.moj.cpp.jobstore.persistence.JobSqlProvider;
+import uk.gov.moj.cpp.jobstore.persistence.PostgresJobSqlProvider;
+import uk.gov.moj.cpp.jobstore.persistence.PreparedStatementWrapperFactory;
+import uk.gov.moj.cpp.jobstore.service.JobService;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimMetrics;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimQuotas;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.json.JsonObject;
+import javax.naming.InitialContext;
+import javax.sql.DataSource;
+import javax.transaction.UserTransaction;
+
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.apache.openejb.jee.WebApp;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.testing.Application;
+import org.apache.openejb.testing.Classes;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.Module;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures how long urgent jobs wait behind a large backlog of bulk jobs that fell due earlier,
+ * and the latency of each priority ordered claim while the backlog is drained.
+ */
+@RunWith(ApplicationComposer.class)
+public class JobPriorityClaimLatencyIT {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPriorityClaimLatencyIT.class);
+
+    private static final String LIQUIBASE_JOB_STORE_DB_CHANGELOG_XML = "liquibase/jobstore-db-changelog.xml";
+    private static final int BULK_JOB_COUNT = 10000;
+    private static final int URGENT_JOB_COUNT = 20;
+    private static final int URGENT_PRIORITY = 10;
+    private static final int JOBS_PER_CLAIM = 10;
+    private static final int CLAIMS_TO_MEASURE = 100;
+
+    @Inject
+    OpenEjbJobJdbcRepository testJobJdbcRepository;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    @Resource(name = "openejb/Resource/jobStore")
+    private DataSource dataSource;
+
+    @Module
+    @Classes(cdi = true, value = {
+            JobService.class,
+            TaskClaimQuotas.class,
+            TaskClaimMetrics.class,
+            JobRepository.class,
+            JdbcJobStoreDataSourceProvider.class,
+            PreparedStatementWrapperFactory.class,
+            JobDataCodecRegistry.class,
+            JdbcResultSetStreamer.class,
+            JobSqlProvider.class,
+            LoggerProducer.class,
+            OpenEjbJobJdbcRepository.class,
+            GlobalValueProducer.class,
+            ValueProducer.class,
+            JndiBasedServiceContextNameProvider.class,
+            InitialContextProducer.class
+    }, cdiAlternatives = {PostgresJobSqlProvider.class})
+
+    public WebApp war() {
+        return new WebApp()
+                .contextRoot("framework-test")
+                .addServlet("ServiceApp", Application.class.getName());
+    }
+
+    @Configuration
+    public Properties configuration() {
+        return OpenEjbConfigurationBuilder.createOpenEjbConfigurationBuilder()
+                .addInitialContext()
+                .addHttpEjbPort(8080)
+                .addPostgresqlJobStore()
+                .build();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        final InitialContext initialContext = new InitialContext();
+        initialContext.bind("java:/app/JobPriorityClaimLatencyIT/DS.jobstore", dataSource);
+
+        new Liquibase(LIQUIBASE_JOB_STORE_DB_CHANGELOG_XML,
+                new ClassLoaderResourceAccessor(), new JdbcConnection(dataSource.getConnection()))
+                .update("");
+    }
+
+    @Test
+    public void shouldClaimUrgentJobsAheadOfAnEarlierBulkBacklog() throws Exception {
+        final JsonObject jobData = createObjectBuilder().add("some", "json").build();
+
+        userTransaction.begin();
+        testJobJdbcRepository.cleanJobTables();
+        testJobJdbcRepository.insertJobs(IntStream.range(0, BULK_JOB_COUNT)
+                .mapToObj(index -> dueJob(jobData, Job.DEFAULT_PRIORITY, 5)), 500);
+        final List<Job> urgentJobs = IntStream.range(0, URGENT_JOB_COUNT)
+                .mapToObj(index -> dueJob(jobData, URGENT_PRIORITY, 1))
+                .collect(toList());
+        testJobJdbcRepository.insertJobs(urgentJobs.stream(), 500);
+        userTransaction.commit();
+
+        final Set<UUID> unclaimedUrgentJobIds = new HashSet<>();
+        urgentJobs.forEach(job -> unclaimedUrgentJobIds.add(job.getJobId()));
+
+        int claimsUntilUrgentJobsClaimed = 0;
+        long totalClaimNanos = 0;
+
+        for (int claim = 1; claim <= CLAIMS_TO_MEASURE; claim++) {
+            userTransaction.begin();
+            final long start = nanoTime();
+            final List<Job> claimedJobs = testJobJdbcRepository.claimJobsFor(randomUUID(), JOBS_PER_CLAIM, ofHours(1)).collect(toList());
+            totalClaimNanos += nanoTime() - start;
+            userTransaction.commit();
+
+            claimedJobs.forEach(job -> unclaimedUrgentJobIds.remove(job.getJobId()));
+            if (claimsUntilUrgentJobsClaimed == 0 && unclaimedUrgentJobIds.isEmpty()) {
+                claimsUntilUrgentJobsClaimed = claim;
+            }
+        }
+
+        final double meanClaimMillis = totalClaimNanos / (double) MILLISECONDS.toNanos(1) / CLAIMS_TO_MEASURE;
+        LOGGER.info("{} bulk jobs, {} urgent jobs: urgent jobs all claimed after {} claims, mean claim latency {} ms",
+                BULK_JOB_COUNT, URGENT_JOB_COUNT, claimsUntilUrgentJobsClaimed, meanClaimMillis);
+
+        assertThat(unclaimedUrgentJobIds.isEmpty(), is(true));
+        assertThat(claimsUntilUrgentJobsClaimed, is(lessThanOrEqualTo(URGENT_JOB_COUNT / JOBS_PER_CLAIM)));
+    }
+
+    private Job dueJob(final JsonObject jobData, final int priority, final long dueMinutesAgo) {
+        return job()
+                .withJobId(randomUUID())
+                .withJobData(jobData)
+                .withNextTask("nextTask")
+                .withNextTaskStartTime(now().minusMinutes(dueMinutesAgo))
+                .withWorkerId(empty())
+                .withWorkerLockTime(empty())
+                .withPriority(priority)
+                .build();
+    }
+}
@@ -18,15 +18,32 @@ import uk.gov.justice.services.common.util.UtcClock;
 import uk.gov.moj.cpp.jobmanager.it.util.OpenEjbConfigurationBuilder;
 import uk.gov.moj.cpp.jobmanager.it.util.OpenEjbJobJdbcRepository;
 import uk.gov.moj.cpp.jobstore.api.ExecutionService;
+import uk.gov.moj.cpp.jobstore.persistence.InJvmJobArrivalNotifier;
 import uk.gov.moj.cpp.jobstore.persistence.JdbcJobStoreDataSourceProvider;
 import uk.gov.moj.cpp.jobstore.persistence.JdbcResultSetStreamer;
 import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.persistence.JobArrivalNotifierProducer;
+import uk.gov.moj.cpp.jobstore.persistence.JobDataCodecRegistry;
 import uk.gov.moj.cpp.jobstore.persistence.JobRepository;
 import uk.gov.moj.cpp.jobstore.persistence.JobSqlProvider;
+import uk.gov.moj.cpp.jobstore.persistence.PostgresJobArrivalNotifier;
 import uk.gov.moj.cpp.jobstore.persistence.PostgresJobSqlProvider;
 import uk.gov.moj.cpp.jobstore.persistence.PreparedStatementWrapperFactory;
 import uk.gov.moj.cpp.jobstore.service.JobService;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimMetrics;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimQuotas;
+import uk.gov.moj.cpp.task.execution.ClaimBatchSizer;
+import uk.gov.moj.cpp.task.execution.InlineContinuationBudgetProducer;
 import uk.gov.moj.cpp.task.execution.JobScheduler;
+import uk.gov.moj.cpp.task.execution.JobStartTimer;
+import uk.gov.moj.cpp.task.execution.LocalJobDispatcher;
+import uk.gov.moj.cpp.task.execution.LockedJobRegistry;
+import uk.gov.moj.cpp.task.execution.RejectedJobReleaser;
+import uk.gov.moj.cpp.task.execution.RetryPoliciesProducer;
+import uk.gov.moj.cpp.task.execution.TaskConcurrencyLimits;
+import uk.gov.moj.cpp.task.execution.TaskTimeoutsProducer;
+import uk.gov.moj.cpp.task.execution.TaskWatchdog;
+import uk.gov.moj.cpp.task.execution.WorkerIdentity;
 import uk.gov.moj.cpp.task.extension.SampleTask;
 import uk.gov.moj.cpp.task.extension.TaskRegistry;
 
@@ -79,14 +96,31 @@ public class JobSchedulerIT {
     @Module
     @Classes(cdi = true, value = {
             JobService.class,
+            TaskClaimQuotas.class,
+            TaskClaimMetrics.class,
             ExecutionService.class,
             JobRepository.class,
             JdbcJobStoreDataSourceProvider.class,
             PreparedStatementWrapperFactory.class,
+            JobDataCodecRegistry.class,
             JdbcResultSetStreamer.class,
             JobSqlProvider.class,
+            JobArrivalNotifierProducer.class,
+            PostgresJobArrivalNotifier.class,
+            InJvmJobArrivalNotifier.class,
             OpenEjbJobJdbcRepository.class,
             JobScheduler.class,
+            LockedJobRegistry.class,
+            LocalJobDispatcher.class,
+            InlineContinuationBudgetProducer.class,
+            RetryPoliciesProducer.class,
+            TaskTimeoutsProducer.class,
+            JobStartTimer.class,
+            ClaimBatchSizer.class,
+            RejectedJobReleaser.class,
+            TaskWatchdog.class,
+            TaskConcurrencyLimits.class,
+            WorkerIdentity.class,
             GlobalValueProducer.class,
             TaskRegistry.class,
 
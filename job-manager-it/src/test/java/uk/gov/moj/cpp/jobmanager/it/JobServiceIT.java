@@ -20,11 +20,14 @@ import uk.gov.moj.cpp.jobmanager.it.util.OpenEjbJobJdbcRepository;
 import uk.gov.moj.cpp.jobstore.persistence.JdbcJobStoreDataSourceProvider;
 import uk.gov.moj.cpp.jobstore.persistence.JdbcResultSetStreamer;
 import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.persistence.JobDataCodecRegistry;
 import uk.gov.moj.cpp.jobstore.persistence.JobRepository;
 import uk.gov.moj.cpp.jobstore.persistence.JobSqlProvider;
 import uk.gov.moj.cpp.jobstore.persistence.PostgresJobSqlProvider;
 import uk.gov.moj.cpp.jobstore.persistence.PreparedStatementWrapperFactory;
 import uk.gov.moj.cpp.jobstore.service.JobService;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimMetrics;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimQuotas;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -79,9 +82,12 @@ public class JobServiceIT {
     @Module
     @Classes(cdi = true, value = {
             JobService.class,
+            TaskClaimQuotas.class,
+            TaskClaimMetrics.class,
             JobRepository.class,
             JdbcJobStoreDataSourceProvider.class,
             PreparedStatementWrapperFactory.class,
+            JobDataCodecRegistry.class,
             JdbcResultSetStreamer.class,
             JobSqlProvider.class,
             LoggerProducer.class,
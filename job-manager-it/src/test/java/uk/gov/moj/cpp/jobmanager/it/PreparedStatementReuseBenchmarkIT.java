@@ -0,0 +1,185 @@
+package uk.gov.moj.cpp.jobmanager.it;
+
+import static java.lang.System.nanoTime;
+import static java.time.Duration.ofHours;
+import static java.time.ZonedDateTime.now;
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static javax.json.Json.createObjectBuilder;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static uk.gov.justice.services.common.converter.ZonedDateTimes.toSqlTimestamp;
+
+import uk.gov.justice.services.cdi.InitialContextProducer;
+import uk.gov.justice.services.cdi.LoggerProducer;
+import uk.gov.justice.services.common.configuration.GlobalValueProducer;
+import uk.gov.justice.services.common.configuration.JndiBasedServiceContextNameProvider;
+import uk.gov.justice.services.common.configuration.ValueProducer;
+import uk.gov.moj.cpp.jobmanager.it.util.OpenEjbConfigurationBuilder;
+import uk.gov.moj.cpp.jobmanager.it.util.OpenEjbJobJdbcRepository;
+import uk.gov.moj.cpp.jobstore.persistence.JdbcJobStoreDataSourceProvider;
+import uk.gov.moj.cpp.jobstore.persistence.JdbcResultSetStreamer;
+import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.persistence.JobDataCodecRegistry;
+import uk.gov.moj.cpp.jobstore.persistence.JobRepository;
+import uk.gov.moj.cpp.jobstore.persistence.JobSqlProvider;
+import uk.gov.moj.cpp.jobstore.persistence.PostgresJobSqlProvider;
+import uk.gov.moj.cpp.jobstore.persistence.PreparedStatementWrapperFactory;
+import uk.gov.moj.cpp.jobstore.service.JobService;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimMetrics;
+import uk.gov.moj.cpp.jobstore.service.TaskClaimQuotas;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.json.JsonObject;
+import javax.naming.InitialContext;
+import javax.sql.DataSource;
+import javax.transaction.UserTransaction;
+
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.apache.openejb.jee.WebApp;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.testing.Application;
+import org.apache.openejb.testing.Classes;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.Module;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmarks job step transactions of three statements each, as JobExecutor runs them, with the
+ * transaction scoped connection and statement cache of PreparedStatementWrapperFactory against a
+ * connection checkout and statement preparation per statement. Reusing one connection and its
+ * prepared statements must take at most {@value #MAX_TIME_RATIO} of the time per transaction.
+ * Run with -Pbenchmarks.
+ */
+@RunWith(ApplicationComposer.class)
+public class PreparedStatementReuseBenchmarkIT {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreparedStatementReuseBenchmarkIT.class);
+
+    private static final String LIQUIBASE_JOB_STORE_DB_CHANGELOG_XML = "liquibase/jobstore-db-changelog.xml";
+    private static final int JOB_COUNT = 200;
+    private static final int WARM_UP_ROUNDS = 1;
+    private static final double MAX_TIME_RATIO = 0.9;
+
+    @Inject
+    OpenEjbJobJdbcRepository testJobJdbcRepository;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    @Resource(name = "openejb/Resource/jobStore")
+    private DataSource dataSource;
+
+    @Module
+    @Classes(cdi = true, value = {
+            JobService.class,
+            TaskClaimQuotas.class,
+            TaskClaimMetrics.class,
+            JobRepository.class,
+            JdbcJobStoreDataSourceProvider.class,
+            PreparedStatementWrapperFactory.class,
+            JobDataCodecRegistry.class,
+            JdbcResultSetStreamer.class,
+            JobSqlProvider.class,
+            LoggerProducer.class,
+            OpenEjbJobJdbcRepository.class,
+            GlobalValueProducer.class,
+            ValueProducer.class,
+            JndiBasedServiceContextNameProvider.class,
+            InitialContextProducer.class
+    }, cdiAlternatives = {PostgresJobSqlProvider.class})
+
+    public WebApp war() {
+        return new WebApp()
+                .contextRoot("framework-test")
+                .addServlet("ServiceApp", Application.class.getName());
+    }
+
+    @Configuration
+    public Properties configuration() {
+        return OpenEjbConfigurationBuilder.createOpenEjbConfigurationBuilder()
+                .addInitialContext()
+                .addHttpEjbPort(8080)
+                .addPostgresqlJobStore()
+                .build();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        final InitialContext initialContext = new InitialContext();
+        initialContext.bind("java:/app/PreparedStatementReuseBenchmarkIT/DS.jobstore", dataSource);
+
+        new Liquibase(LIQUIBASE_JOB_STORE_DB_CHANGELOG_XML,
+                new ClassLoaderResourceAccessor(), new JdbcConnection(dataSource.getConnection()))
+                .update("");
+    }
+
+    @Test
+    public void shouldRunJobStepTransactionsFasterWithTransactionScopedStatements() throws Exception {
+
+        final PreparedStatementWrapperFactory transactionScopedFactory = testJobJdbcRepository.usePreparedStatementWrapperFactory(new PreparedStatementWrapperFactory());
+
+        final double perStatementMillis = millisPerTransaction();
+
+        testJobJdbcRepository.usePreparedStatementWrapperFactory(transactionScopedFactory);
+
+        final double transactionScopedMillis = millisPerTransaction();
+
+        LOGGER.info("{} job step transactions: connection per statement {} ms/tx, transaction scoped statements {} ms/tx",
+                JOB_COUNT, perStatementMillis, transactionScopedMillis);
+
+        assertThat(transactionScopedMillis, is(lessThan(perStatementMillis * MAX_TIME_RATIO)));
+    }
+
+    private double millisPerTransaction() throws Exception {
+        long elapsedNanos = 0;
+
+        for (int round = 0; round <= WARM_UP_ROUNDS; round++) {
+            userTransaction.begin();
+            testJobJdbcRepository.cleanJobTables();
+            testJobJdbcRepository.createJobs(JOB_COUNT);
+            userTransaction.commit();
+
+            userTransaction.begin();
+            final List<UUID> jobIds = testJobJdbcRepository.claimJobsFor(randomUUID(), JOB_COUNT, ofHours(1))
+                    .map(Job::getJobId)
+                    .collect(toList());
+            userTransaction.commit();
+
+            final JsonObject jobData = createObjectBuilder().add("step", "next").build();
+            final long start = nanoTime();
+
+            for (final UUID jobId : jobIds) {
+                userTransaction.begin();
+                testJobJdbcRepository.updateJobData(jobId, jobData);
+                testJobJdbcRepository.updateNextTaskDetails(jobId, "nextTask", toSqlTimestamp(now()));
+                testJobJdbcRepository.releaseJob(jobId);
+                userTransaction.commit();
+            }
+
+            elapsedNanos = nanoTime() - start;
+
+            userTransaction.begin();
+            final long steppedJobCount = testJobJdbcRepository.claimJobsFor(randomUUID(), JOB_COUNT, ofHours(1))
+                    .filter(job -> job.getNextTask().equals("nextTask") && job.getJobData().equals(jobData))
+                    .count();
+            userTransaction.commit();
+
+            assertThat(steppedJobCount, is((long) JOB_COUNT));
+        }
+
+        return elapsedNanos / 1_000_000.0 / JOB_COUNT;
+    }
+}
@@ -0,0 +1,26 @@
+package uk.gov.moj.cpp.jobstore.api;
+
+import java.util.UUID;
+
+/**
+ * Fired by {@link ExecutionService} when local dispatch is enabled and a job is submitted that is
+ * due to start straight away.
+ */
+public class DueJobSubmittedEvent {
+
+    private final UUID jobId;
+    private final String nextTask;
+
+    public DueJobSubmittedEvent(final UUID jobId, final String nextTask) {
+        this.jobId = jobId;
+        this.nextTask = nextTask;
+    }
+
+    public UUID getJobId() {
+        return jobId;
+    }
+
+    public String getNextTask() {
+        return nextTask;
+    }
+}
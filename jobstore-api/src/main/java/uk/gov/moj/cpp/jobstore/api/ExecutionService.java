@@ -1,14 +1,22 @@
 package uk.gov.moj.cpp.jobstore.api;
 
 
+import static java.lang.Boolean.parseBoolean;
 import static java.util.Optional.empty;
 import static java.util.UUID.randomUUID;
+import static uk.gov.moj.cpp.jobstore.persistence.Job.job;
 
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.common.util.UtcClock;
 import uk.gov.moj.cpp.jobstore.api.task.ExecutionInfo;
 import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.persistence.JobArrivalNotifier;
 import uk.gov.moj.cpp.jobstore.service.JobService;
 
+import java.util.stream.Stream;
+
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
 
 @ApplicationScoped
@@ -17,8 +25,55 @@ public class ExecutionService {
     @Inject
     JobService jobService;
 
+    @Inject
+    JobArrivalNotifier jobArrivalNotifier;
+
+    @Inject
+    Event<DueJobSubmittedEvent> dueJobSubmittedEvent;
+
+    @Inject
+    UtcClock clock;
+
+    /**
+     * When true, a job submitted with executeWith that is already due is claimed by id and run on
+     * this node as soon as the submitting transaction commits, rather than waiting to be claimed
+     * by a scheduler.
+     */
+    @Inject
+    @Value(key = "jobstore.local.dispatch.enabled", defaultValue = "false")
+    String localDispatchEnabled;
+
     public void executeWith(final ExecutionInfo executionInfo) {
-        jobService.insertJob(new Job(randomUUID(), executionInfo.getJobData(),
-                executionInfo.getNextTask(), executionInfo.getNextTaskStartTime(), empty(), empty()));
+        final Job job = toJob(executionInfo);
+
+        jobService.insertJob(job);
+        jobArrivalNotifier.notifyJobArrival();
+
+        if (parseBoolean(localDispatchEnabled) && !job.getNextTaskStartTime().isAfter(clock.now())) {
+            dueJobSubmittedEvent.fire(new DueJobSubmittedEvent(job.getJobId(), job.getNextTask()));
+        }
+    }
+
+    /**
+     * Submits every job in the stream using batched inserts. The stream is consumed lazily, so
+     * it may be arbitrarily large. The schedulers are notified once, after the last insert.
+     *
+     * @param executionInfos the jobs to submit
+     */
+    public void executeAll(final Stream<ExecutionInfo> executionInfos) {
+        jobService.insertJobs(executionInfos.map(this::toJob));
+        jobArrivalNotifier.notifyJobArrival();
+    }
+
+    private Job toJob(final ExecutionInfo executionInfo) {
+        return job()
+                .withJobId(randomUUID())
+                .withJobData(executionInfo.getJobData())
+                .withNextTask(executionInfo.getNextTask())
+                .withNextTaskStartTime(executionInfo.getNextTaskStartTime())
+                .withWorkerId(empty())
+                .withWorkerLockTime(empty())
+                .withPriority(executionInfo.getPriority())
+                .build();
     }
 }
@@ -10,4 +10,10 @@ import java.lang.annotation.Target;
 @Target(TYPE)
 public @interface Task {
     String value();
+
+    /**
+     * How long the task may run, in milliseconds, before it is interrupted and its step rolled
+     * back and retried. 0, the default, leaves it to jobstore.task.timeout.milliseconds.
+     */
+    long timeoutMilliseconds() default 0;
 }
\ No newline at end of file
@@ -1,25 +1,38 @@
 package uk.gov.moj.cpp.jobstore.api.task;
 
+import static uk.gov.moj.cpp.jobstore.persistence.Job.DEFAULT_PRIORITY;
+
 import uk.gov.moj.cpp.jobstore.persistence.Job;
 
 import java.time.ZonedDateTime;
+import java.util.function.Supplier;
 
 import javax.json.JsonObject;
 
 public class ExecutionInfo {
-    private final JsonObject jobData;
+    private final Supplier<JsonObject> jobData;
     private final String nextTask;
     private final ZonedDateTime nextTaskStartTime;
     private final ExecutionStatus executionStatus;
+    private final int priority;
 
     public ExecutionInfo(final JsonObject jobData,
                          final String nextTask,
                          final ZonedDateTime nextTaskStartTime,
                          final ExecutionStatus executionStatus) {
+        this(() -> jobData, nextTask, nextTaskStartTime, executionStatus, DEFAULT_PRIORITY);
+    }
+
+    private ExecutionInfo(final Supplier<JsonObject> jobData,
+                          final String nextTask,
+                          final ZonedDateTime nextTaskStartTime,
+                          final ExecutionStatus executionStatus,
+                          final int priority) {
         this.jobData = jobData;
         this.nextTask = nextTask;
         this.nextTaskStartTime = nextTaskStartTime;
         this.executionStatus = executionStatus;
+        this.priority = priority;
     }
 
     public String getNextTask() {
@@ -34,21 +47,38 @@ public class ExecutionInfo {
         return executionStatus;
     }
 
+    /**
+     * The priority of the job, used when the job is submitted. Jobs with a higher priority are
+     * claimed first; the default is {@link Job#DEFAULT_PRIORITY}.
+     *
+     * @return the job priority
+     */
+    public int getPriority() {
+        return priority;
+    }
+
 
     public static Builder executionInfo() {
         return new Builder();
     }
 
+    /**
+     * The job data, which for an execution info built from a job read from the job store is
+     * only parsed on the first call.
+     *
+     * @return the job data
+     */
     public JsonObject getJobData() {
-        return jobData;
+        return jobData.get();
     }
 
     public static class Builder {
 
-        private JsonObject jobData;
+        private Supplier<JsonObject> jobData = () -> null;
         private String nextTask;
         private ZonedDateTime nextTaskStartTime;
         private ExecutionStatus executionStatus;
+        private int priority = DEFAULT_PRIORITY;
 
         private Builder() {
         }
@@ -58,16 +88,17 @@ public class ExecutionInfo {
             this.nextTask = executionInfo.nextTask;
             this.nextTaskStartTime = executionInfo.nextTaskStartTime;
             this.executionStatus = executionInfo.executionStatus;
+            this.priority = executionInfo.priority;
             return this;
         }
 
 
         public ExecutionInfo build() {
-            return new ExecutionInfo(jobData, nextTask, nextTaskStartTime, executionStatus);
+            return new ExecutionInfo(jobData, nextTask, nextTaskStartTime, executionStatus, priority);
         }
 
         public Builder withJobData(final JsonObject jobData) {
-            this.jobData = jobData;
+            this.jobData = () -> jobData;
             return this;
         }
 
@@ -86,11 +117,17 @@ public class ExecutionInfo {
             return this;
         }
 
+        public Builder withPriority(final int priority) {
+            this.priority = priority;
+            return this;
+        }
+
         public Builder fromJob(final Job job) {
             this.executionStatus = ExecutionStatus.STARTED;
-            this.jobData = job.getJobData();
+            this.jobData = job::getJobData;
             this.nextTask = job.getNextTask();
             this.nextTaskStartTime = job.getNextTaskStartTime();
+            this.priority = job.getPriority();
             return this;
         }
     }
@@ -1,19 +1,30 @@
 package uk.gov.moj.cpp.jobstore.api;
 
+import static java.util.stream.Collectors.toList;
 import static javax.json.Json.createObjectBuilder;
 import static org.hamcrest.CoreMatchers.any;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import uk.gov.justice.services.common.util.UtcClock;
 import uk.gov.moj.cpp.jobstore.api.task.ExecutionInfo;
 import uk.gov.moj.cpp.jobstore.api.task.ExecutionStatus;
 import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.persistence.JobArrivalNotifier;
 import uk.gov.moj.cpp.jobstore.service.JobService;
 
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import javax.enterprise.event.Event;
 import javax.json.JsonObject;
 
 import org.junit.Before;
@@ -21,6 +32,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -33,12 +45,27 @@ public class ExecutionServiceTest {
     @Mock
     private JobService jobService;
 
+    @Mock
+    private JobArrivalNotifier jobArrivalNotifier;
+
+    @Mock
+    private Event<DueJobSubmittedEvent> dueJobSubmittedEvent;
+
+    @Mock
+    private UtcClock clock;
+
     @InjectMocks
     private ExecutionService executionService;
 
     @Captor
     private ArgumentCaptor<Job> jobArgumentCaptor;
 
+    @Captor
+    private ArgumentCaptor<Stream<Job>> jobStreamArgumentCaptor;
+
+    @Captor
+    private ArgumentCaptor<DueJobSubmittedEvent> dueJobSubmittedEventCaptor;
+
     @Before
     public void setup() {
     }
@@ -61,4 +88,110 @@ public class ExecutionServiceTest {
         assertThat(jobArgumentCaptor.getValue().getNextTaskStartTime(), is(startTime));
         assertThat(jobArgumentCaptor.getValue().getJobData(), is(jobData));
     }
+
+    @Test
+    public void shouldExecuteAllAsOneBatchedInsert() {
+
+        final JsonObject jobData = createObjectBuilder().add("testName", "testValue").build();
+        final ZonedDateTime startTime = ZonedDateTime.now();
+        final ExecutionInfo firstJob = new ExecutionInfo(jobData, "firstTask", startTime, ExecutionStatus.STARTED);
+        final ExecutionInfo secondJob = new ExecutionInfo(jobData, "secondTask", startTime, ExecutionStatus.STARTED);
+
+        executionService.executeAll(Stream.of(firstJob, secondJob));
+        verify(jobService).insertJobs(jobStreamArgumentCaptor.capture());
+
+        final List<Job> jobs = jobStreamArgumentCaptor.getValue().collect(toList());
+        assertThat(jobs.size(), is(2));
+        assertThat(jobs.get(0).getNextTask(), is("firstTask"));
+        assertThat(jobs.get(1).getNextTask(), is("secondTask"));
+        assertThat(jobs.get(1).getJobData(), is(jobData));
+    }
+
+    @Test
+    public void shouldSubmitJobsWithTheirPriority() {
+
+        final JsonObject jobData = createObjectBuilder().add("testName", "testValue").build();
+        final ExecutionInfo urgentJob = ExecutionInfo.executionInfo()
+                .withJobData(jobData)
+                .withNextTask("urgentTask")
+                .withNextTaskStartTime(ZonedDateTime.now())
+                .withExecutionStatus(ExecutionStatus.STARTED)
+                .withPriority(10)
+                .build();
+
+        executionService.executeWith(urgentJob);
+        verify(jobService).insertJob(jobArgumentCaptor.capture());
+
+        assertThat(jobArgumentCaptor.getValue().getPriority(), is(10));
+    }
+
+    @Test
+    public void shouldNotifyTheSchedulersAfterInsertingAJob() {
+
+        final JsonObject jobData = createObjectBuilder().add("testName", "testValue").build();
+        final ExecutionInfo executionInfo = new ExecutionInfo(jobData, "startTask", ZonedDateTime.now(), ExecutionStatus.STARTED);
+
+        executionService.executeWith(executionInfo);
+
+        final InOrder inOrder = inOrder(jobService, jobArrivalNotifier);
+        inOrder.verify(jobService).insertJob(isA(Job.class));
+        inOrder.verify(jobArrivalNotifier).notifyJobArrival();
+    }
+
+    @Test
+    public void shouldNotifyTheSchedulersOnceAfterInsertingAllJobs() {
+
+        final JsonObject jobData = createObjectBuilder().add("testName", "testValue").build();
+        final ExecutionInfo firstJob = new ExecutionInfo(jobData, "firstTask", ZonedDateTime.now(), ExecutionStatus.STARTED);
+        final ExecutionInfo secondJob = new ExecutionInfo(jobData, "secondTask", ZonedDateTime.now(), ExecutionStatus.STARTED);
+
+        executionService.executeAll(Stream.of(firstJob, secondJob));
+
+        final InOrder inOrder = inOrder(jobService, jobArrivalNotifier);
+        inOrder.verify(jobService).insertJobs(jobStreamArgumentCaptor.capture());
+        inOrder.verify(jobArrivalNotifier, times(1)).notifyJobArrival();
+    }
+
+    @Test
+    public void shouldDispatchADueJobLocallyWhenEnabled() {
+
+        final ZonedDateTime now = ZonedDateTime.now();
+        final JsonObject jobData = createObjectBuilder().add("testName", "testValue").build();
+        final ExecutionInfo executionInfo = new ExecutionInfo(jobData, "startTask", now, ExecutionStatus.STARTED);
+        executionService.localDispatchEnabled = "true";
+        when(clock.now()).thenReturn(now);
+
+        executionService.executeWith(executionInfo);
+
+        verify(jobService).insertJob(jobArgumentCaptor.capture());
+        verify(dueJobSubmittedEvent).fire(dueJobSubmittedEventCaptor.capture());
+        assertThat(dueJobSubmittedEventCaptor.getValue().getJobId(), is(jobArgumentCaptor.getValue().getJobId()));
+        assertThat(dueJobSubmittedEventCaptor.getValue().getNextTask(), is("startTask"));
+    }
+
+    @Test
+    public void shouldNotDispatchAJobDueLaterLocally() {
+
+        final ZonedDateTime now = ZonedDateTime.now();
+        final JsonObject jobData = createObjectBuilder().add("testName", "testValue").build();
+        final ExecutionInfo executionInfo = new ExecutionInfo(jobData, "startTask", now.plusMinutes(1), ExecutionStatus.STARTED);
+        executionService.localDispatchEnabled = "true";
+        when(clock.now()).thenReturn(now);
+
+        executionService.executeWith(executionInfo);
+
+        verify(dueJobSubmittedEvent, never()).fire(isA(DueJobSubmittedEvent.class));
+    }
+
+    @Test
+    public void shouldNotDispatchJobsLocallyByDefault() {
+
+        final JsonObject jobData = createObjectBuilder().add("testName", "testValue").build();
+        final ExecutionInfo executionInfo = new ExecutionInfo(jobData, "startTask", ZonedDateTime.now().minusSeconds(1), ExecutionStatus.STARTED);
+        executionService.localDispatchEnabled = "false";
+
+        executionService.executeWith(executionInfo);
+
+        verify(dueJobSubmittedEvent, never()).fire(isA(DueJobSubmittedEvent.class));
+    }
 }
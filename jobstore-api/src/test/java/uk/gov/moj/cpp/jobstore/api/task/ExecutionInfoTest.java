@@ -7,6 +7,7 @@ import static org.junit.Assert.assertThat;
 
 import uk.gov.justice.services.common.util.UtcClock;
 import uk.gov.moj.cpp.jobstore.persistence.Job;
+import uk.gov.moj.cpp.jobstore.persistence.LazyJsonObject;
 
 import java.time.ZonedDateTime;
 
@@ -45,6 +46,18 @@ public class ExecutionInfoTest {
         assertThat(copiedExecutionInfo.getExecutionStatus(), is(ExecutionStatus.INPROGRESS));
     }
 
+    @Test
+    public void shouldNotMaterialiseJobDataOfJobUntilRequested() {
+        final LazyJsonObject lazyJobData = new LazyJsonObject("{\"some\": \"json\"}");
+        final Job job = new Job(randomUUID(), lazyJobData, NEXT_TASK, nextTaskStartTime, empty(), empty());
+
+        final ExecutionInfo executionInfo = ExecutionInfo.executionInfo().fromJob(job).build();
+
+        assertThat(lazyJobData.isParsed(), is(false));
+        assertThat(executionInfo.getJobData().getString("some"), is("json"));
+        assertThat(lazyJobData.isParsed(), is(true));
+    }
+
     @Test
     public void shouldPopulateBuilderFromJob() {
         Job job = new Job(randomUUID(), jobData, NEXT_TASK, nextTaskStartTime, empty(), empty());
@@ -84,4 +97,18 @@ public class ExecutionInfoTest {
 
         assertThat(copiedExecutionInfo.getExecutionStatus(), is(ExecutionStatus.STARTED));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldSetThePriority() {
+        ExecutionInfo copiedExecutionInfo = ExecutionInfo.executionInfo().withPriority(5).build();
+
+        assertThat(copiedExecutionInfo.getPriority(), is(5));
+    }
+
+    @Test
+    public void shouldDefaultThePriority() {
+        ExecutionInfo executionInfo = new ExecutionInfo(jobData, NEXT_TASK, nextTaskStartTime, ExecutionStatus.STARTED);
+
+        assertThat(executionInfo.getPriority(), is(0));
+    }
+}
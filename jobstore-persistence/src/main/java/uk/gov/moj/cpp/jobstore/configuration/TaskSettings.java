@@ -0,0 +1,60 @@
+package uk.gov.moj.cpp.jobstore.configuration;
+
+import static java.lang.String.format;
+import static java.util.Arrays.copyOfRange;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Parses the per task settings, comma separated lists of taskName:value entries such as
+ * jobstore.task.timeouts or jobstore.task.concurrency.limits, where the value may itself be made of
+ * several colon separated parts.
+ */
+public final class TaskSettings {
+
+    private TaskSettings() {
+    }
+
+    /**
+     * Parses a per task setting.
+     *
+     * @param key            the setting key, used in error messages
+     * @param setting        the setting value, which may be empty
+     * @param expectedFormat the format of each entry, e.g. taskName:maximum, which also gives the
+     *                       number of colon separated parts an entry must have
+     * @param valueOf        turns the trimmed parts of an entry after the task name into its value
+     * @param <T>            the type of the value
+     * @return the value of each task, in the order the tasks are listed
+     * @throws IllegalArgumentException if an entry has the wrong number of parts or a number in it
+     *                                  cannot be parsed
+     */
+    public static <T> Map<String, T> taskSettingsOf(final String key, final String setting, final String expectedFormat, final Function<String[], T> valueOf) {
+        final int partCount = expectedFormat.split(":").length;
+        final Map<String, T> taskSettings = new LinkedHashMap<>();
+
+        for (final String entry : setting.split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+
+            final String[] parts = entry.trim().split(":");
+            if (parts.length != partCount) {
+                throw new IllegalArgumentException(format("Invalid %s setting '%s', expected %s", key, entry.trim(), expectedFormat));
+            }
+
+            for (int part = 0; part < parts.length; part++) {
+                parts[part] = parts[part].trim();
+            }
+
+            try {
+                taskSettings.put(parts[0], valueOf.apply(copyOfRange(parts, 1, parts.length)));
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException(format("Invalid %s setting '%s', expected %s", key, entry.trim(), expectedFormat), e);
+            }
+        }
+
+        return taskSettings;
+    }
+}
@@ -0,0 +1,55 @@
+package uk.gov.moj.cpp.jobstore.management;
+
+import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+
+/**
+ * Registers the job manager MXBeans with the platform MBean server as
+ * uk.gov.moj.cpp.jobstore:type=&lt;type&gt;,module=&lt;module name&gt;. Monitoring is optional, so a
+ * bean that cannot be registered is logged and otherwise ignored.
+ */
+public final class PlatformMXBeans {
+
+    private PlatformMXBeans() {
+    }
+
+    /**
+     * Registers an MXBean.
+     *
+     * @param mxBean     the bean to register
+     * @param type       the type key of its object name
+     * @param moduleName the module it belongs to, local if there is none
+     * @param logger     the logger to warn on if it cannot be registered
+     * @return the object name it is registered under, null if it could not be registered
+     */
+    public static ObjectName register(final Object mxBean, final String type, final String moduleName, final Logger logger) {
+        try {
+            final ObjectName objectName = new ObjectName("uk.gov.moj.cpp.jobstore:type=" + type + ",module=" + (moduleName != null ? moduleName : "local"));
+            getPlatformMBeanServer().registerMBean(mxBean, objectName);
+            return objectName;
+        } catch (final JMException e) {
+            logger.warn("Unable to register MXBean of type " + type, e);
+            return null;
+        }
+    }
+
+    /**
+     * Unregisters an MXBean registered by {@link #register}.
+     *
+     * @param objectName the object name it is registered under, may be null
+     * @param logger     the logger to warn on if it cannot be unregistered
+     */
+    public static void unregister(final ObjectName objectName, final Logger logger) {
+        if (objectName != null) {
+            try {
+                getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (final JMException e) {
+                logger.warn("Unable to unregister MXBean " + objectName, e);
+            }
+        }
+    }
+}
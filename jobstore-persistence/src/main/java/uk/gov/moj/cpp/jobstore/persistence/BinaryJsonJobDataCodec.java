@@ -0,0 +1,352 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+/**
+ * A built in {@link JobDataCodec} that writes job data as tagged binary values instead of json
+ * text. Each object key is written once, in a dictionary at the start, and referred to by index
+ * after that; whole numbers are written as variable length integers and strings as length
+ * prefixed utf-8. Decoding reads the values straight into json builders, so unlike
+ * {@link GzipJsonJobDataCodec} there is no text to decompress or tokenize on each read.
+ *
+ * <pre>
+ *     encoded    = version keyCount key* value
+ *     key        = length utf8Bytes
+ *     value      = OBJECT size (keyIndex value)* | ARRAY size value* | STRING length utf8Bytes
+ *                | INTEGER zigzagVarLong | DECIMAL length utf8Bytes | TRUE | FALSE | NULL
+ * </pre>
+ */
+public class BinaryJsonJobDataCodec implements JobDataCodec {
+
+    public static final String BINARY_JSON = "binary-json";
+
+    private static final byte VERSION = 1;
+
+    private static final byte OBJECT = 0;
+    private static final byte ARRAY = 1;
+    private static final byte STRING = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DECIMAL = 4;
+    private static final byte TRUE = 5;
+    private static final byte FALSE = 6;
+    private static final byte NULL = 7;
+
+    private static final JsonBuilderFactory BUILDER_FACTORY = Json.createBuilderFactory(null);
+
+    @Override
+    public String getName() {
+        return BINARY_JSON;
+    }
+
+    @Override
+    public byte[] encode(final JsonObject jobData) {
+        final Encoder encoder = new Encoder();
+        encoder.writeValue(jobData);
+        return encoder.toByteArray();
+    }
+
+    @Override
+    public JsonObject decode(final byte[] encodedJobData) {
+        try {
+            final Decoder decoder = new Decoder(encodedJobData);
+            final JsonObject jobData = decoder.readObject();
+            decoder.checkFullyRead();
+            return jobData;
+        } catch (final IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new JdbcRepositoryException("Exception while decoding binary job data", e);
+        }
+    }
+
+    private static class Encoder {
+
+        private final Map<String, Integer> keyIndexes = new HashMap<>();
+        private final Buffer keys = new Buffer();
+        private final Buffer values = new Buffer();
+
+        void writeValue(final JsonValue value) {
+            switch (value.getValueType()) {
+                case OBJECT:
+                    writeObject((JsonObject) value);
+                    break;
+                case ARRAY:
+                    writeArray((JsonArray) value);
+                    break;
+                case STRING:
+                    values.write(STRING);
+                    values.writeString(((JsonString) value).getString());
+                    break;
+                case NUMBER:
+                    writeNumber((JsonNumber) value);
+                    break;
+                case TRUE:
+                    values.write(TRUE);
+                    break;
+                case FALSE:
+                    values.write(FALSE);
+                    break;
+                default:
+                    values.write(NULL);
+            }
+        }
+
+        byte[] toByteArray() {
+            final Buffer encoded = new Buffer();
+            encoded.write(VERSION);
+            encoded.writeVarLong(keyIndexes.size());
+            keys.writeTo(encoded);
+            values.writeTo(encoded);
+            return encoded.toByteArray();
+        }
+
+        private void writeObject(final JsonObject object) {
+            values.write(OBJECT);
+            values.writeVarLong(object.size());
+            for (final Map.Entry<String, JsonValue> entry : object.entrySet()) {
+                values.writeVarLong(keyIndexOf(entry.getKey()));
+                writeValue(entry.getValue());
+            }
+        }
+
+        private void writeArray(final JsonArray array) {
+            values.write(ARRAY);
+            values.writeVarLong(array.size());
+            for (final JsonValue item : array) {
+                writeValue(item);
+            }
+        }
+
+        private void writeNumber(final JsonNumber number) {
+            final BigDecimal decimal = number.bigDecimalValue();
+            if (decimal.scale() == 0 && decimal.precision() < 19) {
+                values.write(INTEGER);
+                final long integer = decimal.longValueExact();
+                values.writeVarLong((integer << 1) ^ (integer >> 63));
+            } else {
+                values.write(DECIMAL);
+                values.writeString(decimal.toString());
+            }
+        }
+
+        private int keyIndexOf(final String key) {
+            final Integer keyIndex = keyIndexes.get(key);
+            if (keyIndex != null) {
+                return keyIndex;
+            }
+
+            final int newKeyIndex = keyIndexes.size();
+            keyIndexes.put(key, newKeyIndex);
+            keys.writeString(key);
+            return newKeyIndex;
+        }
+    }
+
+    private static class Buffer {
+
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        void write(final byte value) {
+            ensureCapacity(1);
+            bytes[size++] = value;
+        }
+
+        void writeVarLong(final long value) {
+            ensureCapacity(10);
+            long remaining = value;
+            while ((remaining & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            bytes[size++] = (byte) remaining;
+        }
+
+        void writeString(final String value) {
+            final byte[] utf8 = value.getBytes(UTF_8);
+            writeVarLong(utf8.length);
+            writeBytes(utf8, utf8.length);
+        }
+
+        void writeTo(final Buffer buffer) {
+            buffer.writeBytes(bytes, size);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void writeBytes(final byte[] source, final int length) {
+            ensureCapacity(length);
+            System.arraycopy(source, 0, bytes, size, length);
+            size += length;
+        }
+
+        private void ensureCapacity(final int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static class Decoder {
+
+        private final byte[] bytes;
+        private final List<String> keys;
+        private int position;
+
+        Decoder(final byte[] bytes) {
+            this.bytes = bytes;
+
+            if (bytes[position++] != VERSION) {
+                throw new IllegalArgumentException(format("Unsupported binary job data version %d", bytes[0]));
+            }
+
+            final int keyCount = readSize();
+            keys = new ArrayList<>(keyCount);
+            for (int key = 0; key < keyCount; key++) {
+                keys.add(readString());
+            }
+        }
+
+        JsonObject readObject() {
+            if (bytes[position++] != OBJECT) {
+                throw new IllegalArgumentException("Binary job data is not a json object");
+            }
+            return readObjectBody();
+        }
+
+        void checkFullyRead() {
+            if (position != bytes.length) {
+                throw new IllegalArgumentException(format("Unexpected %d bytes after binary job data", bytes.length - position));
+            }
+        }
+
+        private JsonObject readObjectBody() {
+            final JsonObjectBuilder builder = BUILDER_FACTORY.createObjectBuilder();
+            final int size = readSize();
+            for (int entry = 0; entry < size; entry++) {
+                final String key = keys.get(readSize());
+                final byte type = bytes[position++];
+                switch (type) {
+                    case OBJECT:
+                        builder.add(key, readObjectBody());
+                        break;
+                    case ARRAY:
+                        builder.add(key, readArrayBody());
+                        break;
+                    case STRING:
+                        builder.add(key, readString());
+                        break;
+                    case INTEGER:
+                        builder.add(key, readInteger());
+                        break;
+                    case DECIMAL:
+                        builder.add(key, new BigDecimal(readString()));
+                        break;
+                    case TRUE:
+                        builder.add(key, true);
+                        break;
+                    case FALSE:
+                        builder.add(key, false);
+                        break;
+                    case NULL:
+                        builder.addNull(key);
+                        break;
+                    default:
+                        throw unknownType(type);
+                }
+            }
+            return builder.build();
+        }
+
+        private JsonArray readArrayBody() {
+            final JsonArrayBuilder builder = BUILDER_FACTORY.createArrayBuilder();
+            final int size = readSize();
+            for (int item = 0; item < size; item++) {
+                final byte type = bytes[position++];
+                switch (type) {
+                    case OBJECT:
+                        builder.add(readObjectBody());
+                        break;
+                    case ARRAY:
+                        builder.add(readArrayBody());
+                        break;
+                    case STRING:
+                        builder.add(readString());
+                        break;
+                    case INTEGER:
+                        builder.add(readInteger());
+                        break;
+                    case DECIMAL:
+                        builder.add(new BigDecimal(readString()));
+                        break;
+                    case TRUE:
+                        builder.add(true);
+                        break;
+                    case FALSE:
+                        builder.add(false);
+                        break;
+                    case NULL:
+                        builder.addNull();
+                        break;
+                    default:
+                        throw unknownType(type);
+                }
+            }
+            return builder.build();
+        }
+
+        private long readInteger() {
+            final long zigzag = readVarLong();
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        private String readString() {
+            final int length = readSize();
+            final String value = new String(bytes, position, length, UTF_8);
+            position += length;
+            return value;
+        }
+
+        private int readSize() {
+            final long size = readVarLong();
+            if (size < 0 || size > bytes.length) {
+                throw new IllegalArgumentException(format("Invalid size %d in binary job data", size));
+            }
+            return (int) size;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final byte next = bytes[position++];
+                value |= (long) (next & 0x7F) << shift;
+                if ((next & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed variable length integer in binary job data");
+        }
+
+        private IllegalArgumentException unknownType(final byte type) {
+            return new IllegalArgumentException(format("Unknown value type %d in binary job data", type));
+        }
+    }
+}
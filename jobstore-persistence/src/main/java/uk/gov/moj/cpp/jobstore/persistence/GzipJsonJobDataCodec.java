@@ -0,0 +1,60 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.json.Json.createReader;
+import static javax.json.Json.createWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonWriter;
+
+/**
+ * The built in {@link JobDataCodec}: gzip compressed json. Payloads that repeat the same keys
+ * compress to a fraction of their json size and are stored as plain bytes, so the database no
+ * longer parses or rewrites them as JsonB. It saves storage and database work, not client CPU:
+ * decoding decompresses and then parses the json, so each read costs more than reading a json row.
+ * Use the {@link BinaryJsonJobDataCodec} where client CPU matters more than storage.
+ */
+public class GzipJsonJobDataCodec implements JobDataCodec {
+
+    public static final String GZIP_JSON = "gzip-json";
+
+    @Override
+    public String getName() {
+        return GZIP_JSON;
+    }
+
+    @Override
+    public byte[] encode(final JsonObject jobData) {
+        final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+
+        try (final Writer writer = new OutputStreamWriter(new GZIPOutputStream(encoded), UTF_8);
+             final JsonWriter jsonWriter = createWriter(writer)) {
+            jsonWriter.writeObject(jobData);
+        } catch (final IOException e) {
+            throw new JdbcRepositoryException("Exception while compressing job data", e);
+        }
+
+        return encoded.toByteArray();
+    }
+
+    @Override
+    public JsonObject decode(final byte[] encodedJobData) {
+        try (final Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(encodedJobData)), UTF_8);
+             final JsonReader jsonReader = createReader(reader)) {
+            return jsonReader.readObject();
+        } catch (final IOException e) {
+            throw new JdbcRepositoryException("Exception while decompressing job data", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static java.util.Optional.empty;
+
+import java.util.Optional;
+
+import javax.enterprise.inject.Alternative;
+
+/**
+ * Sql for the in memory H2 database, where job_data is a plain TEXT column and an update cannot
+ * return the rows it changed, so jobs are claimed by locking and then reading them back.
+ */
+@Alternative
+public class H2JobSqlProvider implements JobSqlProvider {
+
+    private static final String INSERT_JOB_SQL = "INSERT INTO job(job_id,worker_id,worker_lock_time,next_task,next_task_start_time,job_data,job_data_codec,job_data_encoded,priority,effective_start_time) values (?,?,?,?,?,?,?,?,?,?)";
+    private static final String UPDATE_JOB_DATA_SQL = "UPDATE job SET job_data = ?, job_data_codec = ?, job_data_encoded = ? WHERE job_id = ?";
+    private static final String ADVANCE_JOB_SQL = "UPDATE job SET job_data = ?, job_data_codec = ?, job_data_encoded = ?, next_task = ?, next_task_start_time = ?, effective_start_time = ?, attempts = 0, worker_id = null, worker_lock_time = null WHERE job_id = ?";
+    private static final String CHECKPOINT_JOB_SQL = "UPDATE job SET job_data = ?, job_data_codec = ?, job_data_encoded = ?, next_task = ?, next_task_start_time = ?, effective_start_time = ?, attempts = 0, worker_lock_time = ? WHERE job_id = ?";
+    private static final String COMPLETE_JOB_SQL = "DELETE from job where job_id= ? ";
+
+    @Override
+    public String getInsertSql() {
+        return INSERT_JOB_SQL;
+    }
+
+    @Override
+    public String getUpdateJobDataSql() {
+        return UPDATE_JOB_DATA_SQL;
+    }
+
+    @Override
+    public String getAdvanceJobSql() {
+        return ADVANCE_JOB_SQL;
+    }
+
+    @Override
+    public String getCheckpointJobSql() {
+        return CHECKPOINT_JOB_SQL;
+    }
+
+    @Override
+    public Optional<String> getClaimJobsSql() {
+        return empty();
+    }
+
+    @Override
+    public String getCompleteJobSql() {
+        return COMPLETE_JOB_SQL;
+    }
+
+    @Override
+    public boolean isPartitioned() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsListenNotify() {
+        return false;
+    }
+}
@@ -0,0 +1,84 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static javax.transaction.Status.STATUS_ACTIVE;
+import static javax.transaction.Status.STATUS_COMMITTED;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Typed;
+import javax.inject.Inject;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.slf4j.Logger;
+
+/**
+ * Notifies the listeners in this JVM only, once the transaction that inserted the jobs commits.
+ * Used with the in memory H2 database and wherever the job store has a single node.
+ */
+@ApplicationScoped
+@Typed(InJvmJobArrivalNotifier.class)
+public class InJvmJobArrivalNotifier implements JobArrivalNotifier {
+
+    private static final String NOTIFICATION_PENDING_KEY = InJvmJobArrivalNotifier.class.getName();
+
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    @Inject
+    Logger logger;
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void notifyJobArrival() {
+        if (!isTransactionActive()) {
+            fireJobArrival();
+            return;
+        }
+
+        if (transactionSynchronizationRegistry.getResource(NOTIFICATION_PENDING_KEY) == null) {
+            transactionSynchronizationRegistry.putResource(NOTIFICATION_PENDING_KEY, Boolean.TRUE);
+            transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(final int status) {
+                    if (status == STATUS_COMMITTED) {
+                        fireJobArrival();
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void addListener(final Runnable listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(final Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private boolean isTransactionActive() {
+        return transactionSynchronizationRegistry != null
+                && transactionSynchronizationRegistry.getTransactionStatus() == STATUS_ACTIVE;
+    }
+
+    private void fireJobArrival() {
+        for (final Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (final RuntimeException e) {
+                logger.warn("Job arrival listener failed", e);
+            }
+        }
+    }
+}
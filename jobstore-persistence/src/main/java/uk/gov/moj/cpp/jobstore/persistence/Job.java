@@ -3,17 +3,25 @@ package uk.gov.moj.cpp.jobstore.persistence;
 import java.time.ZonedDateTime;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import javax.json.JsonObject;
 
 public class Job {
 
+    /**
+     * The priority of jobs submitted without one. Jobs with a higher priority are claimed first.
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+
     private final UUID jobId;
     private final Optional<UUID> workerId;
     private final Optional<ZonedDateTime> workerLockTime;
     private final String nextTask;
     private final ZonedDateTime nextTaskStartTime;
-    private final JsonObject jobData;
+    private final Supplier<JsonObject> jobData;
+    private final int priority;
+    private final int attempts;
 
     public Job(final UUID jobId,
                final JsonObject jobData,
@@ -21,12 +29,58 @@ public class Job {
                final ZonedDateTime nextTaskStartTime,
                final Optional<UUID> workerId,
                final Optional<ZonedDateTime> workerLockTime) {
+        this(jobId, () -> jobData, nextTask, nextTaskStartTime, workerId, workerLockTime);
+    }
+
+    /**
+     * Creates a job whose data is only materialised when {@link #getJobData()} is first called.
+     * The supplier is called on every {@link #getJobData()}, so should memoize, as
+     * {@link LazyJsonObject} does.
+     */
+    public Job(final UUID jobId,
+               final Supplier<JsonObject> jobData,
+               final String nextTask,
+               final ZonedDateTime nextTaskStartTime,
+               final Optional<UUID> workerId,
+               final Optional<ZonedDateTime> workerLockTime) {
+        this(jobId, jobData, nextTask, nextTaskStartTime, workerId, workerLockTime, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Creates a job with a priority. Jobs with a higher priority are claimed ahead of jobs due at
+     * the same time, and a job's claim order improves the longer it has been due, so low priority
+     * jobs are not starved.
+     */
+    public Job(final UUID jobId,
+               final Supplier<JsonObject> jobData,
+               final String nextTask,
+               final ZonedDateTime nextTaskStartTime,
+               final Optional<UUID> workerId,
+               final Optional<ZonedDateTime> workerLockTime,
+               final int priority) {
+        this(jobId, jobData, nextTask, nextTaskStartTime, workerId, workerLockTime, priority, 0);
+    }
+
+    /**
+     * Creates a job whose next task has already failed the given number of times, so its retry
+     * policy can back off further or give up on it.
+     */
+    public Job(final UUID jobId,
+               final Supplier<JsonObject> jobData,
+               final String nextTask,
+               final ZonedDateTime nextTaskStartTime,
+               final Optional<UUID> workerId,
+               final Optional<ZonedDateTime> workerLockTime,
+               final int priority,
+               final int attempts) {
         this.jobId = jobId;
         this.workerId = workerId;
         this.workerLockTime = workerLockTime;
         this.jobData = jobData;
         this.nextTask = nextTask;
         this.nextTaskStartTime = nextTaskStartTime;
+        this.priority = priority;
+        this.attempts = attempts;
     }
 
     @Override
@@ -38,6 +92,8 @@ public class Job {
                 .append(", workerLockTime=").append(workerLockTime.orElse(null))
                 .append(", nextTask='").append(nextTask).append("'\\")
                 .append(", nextTaskStartTime=").append(nextTaskStartTime)
+                .append(", priority=").append(priority)
+                .append(", attempts=").append(attempts)
                 .append("]");
 
         return sb.toString();
@@ -48,7 +104,7 @@ public class Job {
     }
 
     public JsonObject getJobData() {
-        return jobData;
+        return jobData.get();
     }
 
     public Optional<UUID> getWorkerId() {
@@ -67,6 +123,14 @@ public class Job {
         return nextTaskStartTime;
     }
 
+    public int getPriority() {
+        return priority;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
     public static Builder job() {
         return new Builder();
     }
@@ -74,11 +138,13 @@ public class Job {
     public static class Builder {
 
         private UUID jobId;
-        private JsonObject jobData;
+        private Supplier<JsonObject> jobData = () -> null;
         private Optional<UUID> workerId;
         private Optional<ZonedDateTime> workerLockTime;
         private String nextTask;
         private ZonedDateTime nextTaskStartTime;
+        private int priority = DEFAULT_PRIORITY;
+        private int attempts;
 
         private Builder(){}
 
@@ -89,11 +155,13 @@ public class Job {
             this.workerLockTime = job.workerLockTime;
             this.nextTask = job.nextTask;
             this.nextTaskStartTime = job.nextTaskStartTime;
+            this.priority = job.priority;
+            this.attempts = job.attempts;
             return this;
         }
 
         public Job build() {
-            return new Job(jobId, jobData, nextTask, nextTaskStartTime, workerId, workerLockTime);
+            return new Job(jobId, jobData, nextTask, nextTaskStartTime, workerId, workerLockTime, priority, attempts);
         }
 
         public Builder withJobId(final UUID jobId) {
@@ -102,7 +170,7 @@ public class Job {
         }
 
         public Builder withJobData(final JsonObject jobData) {
-            this.jobData = jobData;
+            this.jobData = () -> jobData;
             return this;
         }
 
@@ -125,5 +193,15 @@ public class Job {
             this.nextTaskStartTime = nextTaskStartTime;
             return this;
         }
+
+        public Builder withPriority(final int priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        public Builder withAttempts(final int attempts) {
+            this.attempts = attempts;
+            return this;
+        }
     }
 }
@@ -0,0 +1,29 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+/**
+ * Tells the job schedulers that new jobs have been submitted, so they can claim them straight
+ * away rather than waiting for their next poll of the job store.
+ */
+public interface JobArrivalNotifier {
+
+    /**
+     * Signals that jobs have been inserted. Inside a transaction the listeners are only told once
+     * the transaction commits, so they never look for jobs that cannot be seen yet.
+     */
+    void notifyJobArrival();
+
+    /**
+     * Registers a listener to be run whenever jobs arrive. Listeners are run on the notifier's own
+     * threads and should return quickly, handing any real work to an executor.
+     *
+     * @param listener the listener to run
+     */
+    void addListener(Runnable listener);
+
+    /**
+     * Stops running the given listener.
+     *
+     * @param listener the listener to remove
+     */
+    void removeListener(Runnable listener);
+}
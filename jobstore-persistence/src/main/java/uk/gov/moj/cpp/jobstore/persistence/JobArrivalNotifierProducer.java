@@ -0,0 +1,30 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+
+/**
+ * Produces the {@link JobArrivalNotifier} for the job store's database: postgres LISTEN/NOTIFY
+ * where the {@link JobSqlProvider} supports it, so jobs submitted on one node wake the schedulers
+ * on every node, and otherwise an in JVM notifier.
+ */
+public class JobArrivalNotifierProducer {
+
+    @Inject
+    JobSqlProvider jobSqlProvider;
+
+    @Inject
+    PostgresJobArrivalNotifier postgresJobArrivalNotifier;
+
+    @Inject
+    InJvmJobArrivalNotifier inJvmJobArrivalNotifier;
+
+    @Produces
+    public JobArrivalNotifier jobArrivalNotifier() {
+        if (jobSqlProvider.supportsListenNotify()) {
+            return postgresJobArrivalNotifier;
+        }
+
+        return inJvmJobArrivalNotifier;
+    }
+}
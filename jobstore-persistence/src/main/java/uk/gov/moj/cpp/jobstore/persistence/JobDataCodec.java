@@ -0,0 +1,36 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import javax.json.JsonObject;
+
+/**
+ * Encodes job data into a compact binary form stored in the job_data_encoded column instead of
+ * the json job_data column. Implementations are CDI beans, registered by name with the
+ * {@link JobDataCodecRegistry} and chosen per task with the jobstore.job.data.codecs setting.
+ * The name is stored with every encoded row, so a codec must keep its name and remain able to
+ * decode what it has written.
+ */
+public interface JobDataCodec {
+
+    /**
+     * get the codec name
+     *
+     * @return the name stored in the job_data_codec column of rows written by this codec
+     */
+    String getName();
+
+    /**
+     * encode job data
+     *
+     * @param jobData the job data to encode
+     * @return the encoded job data
+     */
+    byte[] encode(final JsonObject jobData);
+
+    /**
+     * decode job data
+     *
+     * @param encodedJobData job data previously encoded by this codec
+     * @return the decoded job data
+     */
+    JsonObject decode(final byte[] encodedJobData);
+}
@@ -0,0 +1,74 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static java.lang.String.format;
+import static java.util.Optional.ofNullable;
+import static uk.gov.moj.cpp.jobstore.configuration.TaskSettings.taskSettingsOf;
+
+import uk.gov.justice.services.common.configuration.Value;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Looks up {@link JobDataCodec}s by name, and by the task a job is about to run as configured in
+ * jobstore.job.data.codecs, a comma separated list of taskName:codecName pairs. Jobs for tasks
+ * without a codec keep their data as json.
+ */
+@ApplicationScoped
+public class JobDataCodecRegistry {
+
+    @Inject
+    @Value(key = "jobstore.job.data.codecs", defaultValue = "")
+    String taskCodecs;
+
+    @Inject
+    Instance<JobDataCodec> jobDataCodecs;
+
+    @Inject
+    Logger logger;
+
+    private final Map<String, JobDataCodec> codecsByName = new HashMap<>();
+    private final Map<String, JobDataCodec> codecsByTask = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (final JobDataCodec jobDataCodec : jobDataCodecs) {
+            codecsByName.put(jobDataCodec.getName(), jobDataCodec);
+        }
+        codecsByName.putIfAbsent(GzipJsonJobDataCodec.GZIP_JSON, new GzipJsonJobDataCodec());
+        codecsByName.putIfAbsent(BinaryJsonJobDataCodec.BINARY_JSON, new BinaryJsonJobDataCodec());
+
+        taskSettingsOf("jobstore.job.data.codecs", taskCodecs, "taskName:codecName", values -> values[0]).forEach(this::registerTaskCodec);
+    }
+
+    public Optional<JobDataCodec> codecForTask(final String taskName) {
+        return ofNullable(codecsByTask.get(taskName));
+    }
+
+    public JobDataCodec codecNamed(final String codecName) {
+        final JobDataCodec jobDataCodec = codecsByName.get(codecName);
+
+        if (jobDataCodec == null) {
+            throw new JdbcRepositoryException(format("No job data codec registered with name %s", codecName));
+        }
+
+        return jobDataCodec;
+    }
+
+    private void registerTaskCodec(final String taskName, final String codecName) {
+        if (!codecsByName.containsKey(codecName)) {
+            throw new IllegalArgumentException(format("Unknown job data codec '%s' configured for task %s", codecName, taskName));
+        }
+
+        logger.info("Job data for task [{}] will be written with codec [{}]", taskName, codecName);
+        codecsByTask.put(taskName, codecsByName.get(codecName));
+    }
+}
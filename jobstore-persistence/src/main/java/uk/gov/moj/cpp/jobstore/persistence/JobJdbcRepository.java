@@ -1,22 +1,36 @@
 package uk.gov.moj.cpp.jobstore.persistence;
 
+import static java.lang.Long.parseLong;
 import static java.lang.Long.valueOf;
 import static java.lang.String.format;
+import static java.lang.String.join;
+import static java.time.ZoneOffset.UTC;
 import static java.time.ZonedDateTime.now;
+import static java.time.temporal.ChronoUnit.MILLIS;
+import static java.time.format.DateTimeFormatter.BASIC_ISO_DATE;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.nCopies;
 import static java.util.Optional.of;
 import static java.util.UUID.fromString;
-import static javax.json.Json.createReader;
+import static java.util.stream.Collectors.toList;
 import static uk.gov.justice.services.common.converter.ZonedDateTimes.fromSqlTimestamp;
 import static uk.gov.justice.services.common.converter.ZonedDateTimes.toSqlTimestamp;
 
+import uk.gov.justice.services.common.configuration.Value;
 import uk.gov.justice.services.common.converter.ZonedDateTimes;
 
-import java.io.StringReader;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -25,7 +39,6 @@ import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.json.JsonObject;
-import javax.json.JsonReader;
 import javax.sql.DataSource;
 
 import org.slf4j.Logger;
@@ -33,15 +46,53 @@ import org.slf4j.Logger;
 @ApplicationScoped
 public class JobJdbcRepository implements JobRepository {
 
-    private static final String UPDATE_NEXT_TASK_DETAILS_SQL = "UPDATE job set next_task= ?, next_task_start_time= ? where job_id= ? ";
-    private static final String DELETE_JOB_SQL = "DELETE from job where job_id= ? ";
+    private static final String UPDATE_NEXT_TASK_DETAILS_SQL = "UPDATE job set next_task= ?, next_task_start_time= ?, effective_start_time= ? where job_id= ? ";
     private static final String RELEASE_JOB_SQL = "UPDATE job set worker_id= null, worker_lock_time= null where job_id= ? ";
-    private static final String JOBS_LOCKED_TO_SQL = "SELECT job_id, job_data, worker_id, worker_lock_time, next_task, next_task_start_time from job WHERE worker_id= ?";
+    private static final String RELEASE_JOBS_SQL = "UPDATE job set worker_id= null, worker_lock_time= null where job_id in (%s)";
+    private static final String JOBS_LOCKED_TO_SQL = "SELECT job_id, job_data, job_data_codec, job_data_encoded, worker_id, worker_lock_time, next_task, next_task_start_time, priority, attempts from job WHERE worker_id= ?";
+    private static final String JOBS_LOCKED_TO_AT_SQL = JOBS_LOCKED_TO_SQL + " and worker_lock_time= ?";
+    private static final String JOB_LOCKED_TO_SQL = JOBS_LOCKED_TO_SQL + " and job_id= ?";
 
     private static final String LOCK_JOBS_SQL = "UPDATE job set worker_id= ? , worker_lock_time= ? where job_id in " +
-            "(select job_id from job where (worker_id is null or worker_lock_time < ?) and next_task_start_time < ? limit ? for update) " +
+            "(select job_id from job where (worker_id is null or worker_lock_time < ?) and next_task_start_time < ?%s order by effective_start_time limit ? for update) " +
             "and (worker_id is null or worker_lock_time < ?)";
 
+    private static final String CLAIM_JOB_SQL = "UPDATE job set worker_id= ? , worker_lock_time= ? where job_id= ? " +
+            "and next_task_start_time is not null and (worker_id is null or worker_lock_time < ?)";
+
+    private static final String RETRY_JOB_SQL = "UPDATE job set attempts= ?, next_task_start_time= ?, effective_start_time= ?, worker_id= null, worker_lock_time= null where job_id= ?";
+    private static final String DEAD_LETTER_JOB_SQL = "INSERT INTO job_dead_letter(job_id, job_data, job_data_codec, job_data_encoded, next_task, priority, attempts, failure, dead_letter_time) " +
+            "SELECT job_id, job_data, job_data_codec, job_data_encoded, next_task, priority, attempts, ?, ? from job where job_id= ?";
+
+    private static final String EARLIEST_UNASSIGNED_START_TIME_SQL = "SELECT min(next_task_start_time) from job where worker_id is null%s";
+
+    private static final String NEXT_TASK_FILTER_SQL = " and next_task in (%s)";
+
+    private static final String UPDATE_WORKER_HEARTBEAT_SQL = "UPDATE worker set heartbeat_time= ? where worker_id= ?";
+    private static final String INSERT_WORKER_HEARTBEAT_SQL = "INSERT INTO worker(worker_id, heartbeat_time) values (?, ?)";
+    private static final String RELEASE_JOBS_OF_EXPIRED_WORKERS_SQL = "UPDATE job set worker_id= null, worker_lock_time= null where worker_id in " +
+            "(select worker_id from worker where heartbeat_time < ?)";
+    private static final String DELETE_EXPIRED_WORKERS_SQL = "DELETE from worker where heartbeat_time < ?";
+
+    private static final String RENEW_JOB_LEASE_SQL = "UPDATE job set worker_lock_time= ? where job_id= ? and worker_id= ?";
+
+    private static final String JOB_PARTITIONS_SQL = "SELECT partition.relname FROM pg_inherits " +
+            "JOIN pg_class partition ON partition.oid = pg_inherits.inhrelid " +
+            "JOIN pg_class parent ON parent.oid = pg_inherits.inhparent WHERE parent.relname = 'job'";
+    private static final String TRY_LOCK_JOB_PARTITIONS_SQL = "SELECT pg_try_advisory_xact_lock(hashtext('job-manager.job.partition'))";
+    private static final String JOB_PARTITION_LOCK_TIMEOUT_SQL = "SET LOCAL lock_timeout = '5s'";
+    private static final String CREATE_JOB_PARTITION_SQL = "CREATE TABLE %s PARTITION OF job FOR VALUES FROM ('%s') TO ('%s')";
+    private static final String JOBS_IN_DEFAULT_PARTITION_SQL = "SELECT COUNT(*) FROM job_default WHERE created_time >= ? AND created_time < ?";
+    private static final String CREATE_UNATTACHED_JOB_PARTITION_SQL = "CREATE TABLE %s (LIKE job INCLUDING DEFAULTS)";
+    private static final String MOVE_DEFAULT_PARTITION_JOBS_SQL = "WITH moved AS (DELETE FROM job_default WHERE created_time >= ? AND created_time < ? RETURNING *) INSERT INTO %s SELECT * FROM moved";
+    private static final String ATTACH_JOB_PARTITION_SQL = "ALTER TABLE job ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')";
+    private static final String UNFINISHED_JOBS_IN_PARTITION_SQL = "SELECT COUNT(*) FROM %s WHERE next_task_start_time IS NOT NULL";
+    private static final String DETACH_JOB_PARTITION_SQL = "ALTER TABLE job DETACH PARTITION %s";
+    private static final String DROP_JOB_PARTITION_SQL = "DROP TABLE %s";
+
+    private static final String JOB_PARTITION_PREFIX = "job_p";
+    private static final Duration DEFAULT_JOB_LEASE = Duration.ofHours(1);
+
     protected DataSource dataSource;
 
     @Inject
@@ -53,9 +104,22 @@ public class JobJdbcRepository implements JobRepository {
     @Inject
     protected JobSqlProvider jobSqlProvider;
 
+    @Inject
+    protected JobDataCodecRegistry jobDataCodecRegistry;
+
     @Inject
     protected Logger logger;
 
+    /**
+     * How long a job has to be due for to be claimed as if it had one more level of priority.
+     * Jobs are claimed in order of effective_start_time, which is next_task_start_time brought
+     * forward by this many seconds per level of priority, so a waiting low priority job eventually
+     * overtakes newly due higher priority jobs.
+     */
+    @Inject
+    @Value(key = "jobstore.priority.aging.seconds", defaultValue = "60")
+    protected String priorityAgingSeconds;
+
     @Inject
     private JdbcJobStoreDataSourceProvider jdbcJobStoreDataSourceProvider;
 
@@ -72,7 +136,9 @@ public class JobJdbcRepository implements JobRepository {
             ps.setTimestamp(3, convertToTimestamp(job.getWorkerLockTime()));
             ps.setString(4, job.getNextTask());
             ps.setTimestamp(5, convertToTimestamp(job.getNextTaskStartTime()));
-            ps.setString(6, job.getJobData().toString());
+            setJobData(ps, 6, job.getNextTask(), job.getJobData());
+            ps.setInt(9, job.getPriority());
+            ps.setTimestamp(10, effectiveStartTime(job.getNextTaskStartTime(), job.getPriority()));
             ps.executeUpdate();
         } catch (final SQLException e) {
             logger.error("Error storing job to the database", e);
@@ -81,11 +147,49 @@ public class JobJdbcRepository implements JobRepository {
         }
     }
 
+    @Override
+    public void insertJobs(final Stream<Job> jobs, final int batchSize) {
+        int batchCount = 0;
+        int insertedCount = 0;
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, jobSqlProvider.getInsertSql())) {
+            final Iterator<Job> iterator = jobs.iterator();
+            while (iterator.hasNext()) {
+                final Job job = iterator.next();
+                ps.setObject(1, job.getJobId());
+                ps.setObject(2, job.getWorkerId().orElse(null));
+                ps.setTimestamp(3, convertToTimestamp(job.getWorkerLockTime()));
+                ps.setString(4, job.getNextTask());
+                ps.setTimestamp(5, convertToTimestamp(job.getNextTaskStartTime()));
+                setJobData(ps, 6, job.getNextTask(), job.getJobData());
+                ps.setInt(9, job.getPriority());
+                ps.setTimestamp(10, effectiveStartTime(job.getNextTaskStartTime(), job.getPriority()));
+                ps.addBatch();
+
+                if (++batchCount == batchSize) {
+                    ps.executeBatch();
+                    insertedCount += batchCount;
+                    batchCount = 0;
+                }
+            }
+
+            if (batchCount > 0) {
+                ps.executeBatch();
+                insertedCount += batchCount;
+            }
+
+            logger.debug("Inserted {} jobs in batches of {}", insertedCount, batchSize);
+        } catch (final SQLException e) {
+            logger.error("Error storing jobs to the database", e);
+            throw new JdbcRepositoryException(format("Exception while storing jobs after %d jobs were inserted", insertedCount), e);
+        }
+    }
+
     @Override
     public void updateJobData(final UUID jobId, final JsonObject jobData) {
         try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, jobSqlProvider.getUpdateJobDataSql())) {
-            ps.setString(1, jobData.toString());
-            ps.setObject(2, jobId);
+            setJobData(ps, 1, null, jobData);
+            ps.setObject(4, jobId);
             ps.executeUpdate();
         } catch (final SQLException e) {
             logger.error("Error updating task data for the job", e);
@@ -98,7 +202,8 @@ public class JobJdbcRepository implements JobRepository {
         try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, UPDATE_NEXT_TASK_DETAILS_SQL)) {
             ps.setObject(1, nextTask);
             ps.setTimestamp(2, nextTaskStartTime);
-            ps.setObject(3, jobId);
+            ps.setTimestamp(3, nextTaskStartTime);
+            ps.setObject(4, jobId);
             ps.executeUpdate();
         } catch (final SQLException e) {
             logger.error("Error updating next task details to the job", e);
@@ -106,20 +211,64 @@ public class JobJdbcRepository implements JobRepository {
         }
     }
 
+    @Override
+    public void advanceJob(final UUID jobId, final JsonObject jobData, final String nextTask, final Timestamp nextTaskStartTime, final int priority) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, jobSqlProvider.getAdvanceJobSql())) {
+            setJobData(ps, 1, nextTask, jobData);
+            ps.setString(4, nextTask);
+            ps.setTimestamp(5, nextTaskStartTime);
+            ps.setTimestamp(6, effectiveStartTime(fromSqlTimestamp(nextTaskStartTime), priority));
+            ps.setObject(7, jobId);
+            ps.executeUpdate();
+        } catch (final SQLException e) {
+            logger.error("Error advancing the job to its next task", e);
+            throw new JdbcRepositoryException(format("Exception while advancing job with job id %s", jobId), e);
+        }
+    }
+
+    /**
+     * Writes the job data and next task details of a job that its worker is going to carry on
+     * running, keeping it locked to the worker and renewing its lease.
+     */
+    @Override
+    public void checkpointJob(final UUID jobId, final JsonObject jobData, final String nextTask, final Timestamp nextTaskStartTime, final int priority) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, jobSqlProvider.getCheckpointJobSql())) {
+            setJobData(ps, 1, nextTask, jobData);
+            ps.setString(4, nextTask);
+            ps.setTimestamp(5, nextTaskStartTime);
+            ps.setTimestamp(6, effectiveStartTime(fromSqlTimestamp(nextTaskStartTime), priority));
+            ps.setTimestamp(7, toSqlTimestamp(now()));
+            ps.setObject(8, jobId);
+            ps.executeUpdate();
+        } catch (final SQLException e) {
+            logger.error("Error checkpointing the job", e);
+            throw new JdbcRepositoryException(format("Exception while checkpointing job with job id %s", jobId), e);
+        }
+    }
+
     @Override
     public void lockJobsFor(final UUID workerId, final int jobCountToLock) {
+        lockJobsFor(workerId, jobCountToLock, DEFAULT_JOB_LEASE);
+    }
+
+    @Override
+    public void lockJobsFor(final UUID workerId, final int jobCountToLock, final Duration jobLease) {
+        lockJobsFor(workerId, jobCountToLock, jobLease, emptyList(), Duration.ZERO, now());
+    }
+
+    private void lockJobsFor(final UUID workerId, final int jobCountToLock, final Duration jobLease, final Collection<String> taskNames, final Duration lookAhead, final ZonedDateTime now) {
         logger.debug("Locking jobs for worker: {}", workerId);
 
-        ZonedDateTime now = now();
-        Timestamp oneHourAgo = toSqlTimestamp((now.minusHours(1)));
+        final Timestamp leaseExpiry = toSqlTimestamp(now.minus(jobLease));
 
-        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, LOCK_JOBS_SQL)) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, withNextTaskFilter(LOCK_JOBS_SQL, taskNames))) {
             ps.setObject(1, workerId);
             ps.setTimestamp(2, toSqlTimestamp(now));
-            ps.setTimestamp(3, oneHourAgo);
-            ps.setTimestamp(4, toSqlTimestamp(now));
-            ps.setLong(5, valueOf(jobCountToLock));
-            ps.setTimestamp(6, oneHourAgo);
+            ps.setTimestamp(3, leaseExpiry);
+            ps.setTimestamp(4, toSqlTimestamp(now.plus(lookAhead)));
+            final int limitIndex = setNextTaskFilter(ps, 5, taskNames);
+            ps.setLong(limitIndex, valueOf(jobCountToLock));
+            ps.setTimestamp(limitIndex + 1, leaseExpiry);
             ps.executeUpdate();
         } catch (final SQLException e) {
             logger.error("Error locking jobs", e);
@@ -127,6 +276,135 @@ public class JobJdbcRepository implements JobRepository {
         }
     }
 
+    @Override
+    public Stream<Job> claimJobsFor(final UUID workerId, final int jobCountToClaim, final Duration jobLease) {
+        return claimJobs(workerId, jobCountToClaim, jobLease, emptyList(), Duration.ZERO);
+    }
+
+    @Override
+    public Stream<Job> claimJobsFor(final UUID workerId, final int jobCountToClaim, final Duration jobLease, final Set<String> taskNames) {
+        return claimJobsFor(workerId, jobCountToClaim, jobLease, taskNames, Duration.ZERO);
+    }
+
+    /**
+     * Claims jobs that are due, or that fall due within the look ahead, so a worker can hold them
+     * and start each one at its exact start time rather than on the first poll after it.
+     */
+    @Override
+    public Stream<Job> claimJobsFor(final UUID workerId, final int jobCountToClaim, final Duration jobLease, final Set<String> taskNames, final Duration lookAhead) {
+        if (taskNames.isEmpty()) {
+            return Stream.empty();
+        }
+
+        return claimJobs(workerId, jobCountToClaim, jobLease, taskNames, lookAhead);
+    }
+
+    private Stream<Job> claimJobs(final UUID workerId, final int jobCountToClaim, final Duration jobLease, final Collection<String> taskNames, final Duration lookAhead) {
+        final Optional<String> claimJobsSql = jobSqlProvider.getClaimJobsSql();
+
+        if (!claimJobsSql.isPresent()) {
+            final ZonedDateTime lockTime = now().truncatedTo(MILLIS);
+            lockJobsFor(workerId, jobCountToClaim, jobLease, taskNames, lookAhead, lockTime);
+            return findJobsLockedTo(workerId, toSqlTimestamp(lockTime));
+        }
+
+        logger.debug("Claiming jobs for worker: {}", workerId);
+
+        final ZonedDateTime now = now();
+        final Timestamp leaseExpiry = toSqlTimestamp(now.minus(jobLease));
+
+        try {
+            final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, withNextTaskFilter(claimJobsSql.get(), taskNames));
+            ps.setObject(1, workerId);
+            ps.setTimestamp(2, toSqlTimestamp(now));
+            ps.setTimestamp(3, leaseExpiry);
+            ps.setTimestamp(4, toSqlTimestamp(now.plus(lookAhead)));
+            ps.setLong(setNextTaskFilter(ps, 5, taskNames), valueOf(jobCountToClaim));
+            return jdbcResultSetStreamer.streamOf(ps, entityFromFunction());
+        } catch (final SQLException e) {
+            logger.error("Error claiming jobs", e);
+            throw new JdbcRepositoryException(format("Exception while claiming jobs for worker id %s", workerId), e);
+        }
+    }
+
+    /**
+     * Claims a single job by its id, if it is not already locked to a worker, so a job can be
+     * handed to a local executor without waiting for the next claim cycle.
+     *
+     * @return the claimed job, or an empty stream if another worker holds it or it has finished;
+     * other jobs already locked to the worker are not returned
+     */
+    @Override
+    public Stream<Job> claimJob(final UUID jobId, final UUID workerId, final Duration jobLease) {
+        final ZonedDateTime now = now();
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, CLAIM_JOB_SQL)) {
+            ps.setObject(1, workerId);
+            ps.setTimestamp(2, toSqlTimestamp(now));
+            ps.setObject(3, jobId);
+            ps.setTimestamp(4, toSqlTimestamp(now.minus(jobLease)));
+
+            if (ps.executeUpdate() == 0) {
+                return Stream.empty();
+            }
+        } catch (final SQLException e) {
+            logger.error("Error claiming job", e);
+            throw new JdbcRepositoryException(format("Exception while claiming job with job id %s", jobId), e);
+        }
+
+        try {
+            final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, JOB_LOCKED_TO_SQL);
+            ps.setObject(1, workerId);
+            ps.setObject(2, jobId);
+            return jdbcResultSetStreamer.streamOf(ps, entityFromFunction());
+        } catch (final SQLException e) {
+            logger.error("Error retrieving claimed job", e);
+            throw new JdbcRepositoryException(format("Exception while retrieving claimed job with job id %s", jobId), e);
+        }
+    }
+
+    /**
+     * Renews the leases of the given jobs in one batch, provided each is still locked to the
+     * worker that claimed it.
+     *
+     * @param lockedJobs the jobs whose leases to renew
+     * @return the jobs whose lease could not be renewed because they are no longer locked to their
+     * worker, e.g. because its heartbeat expired and they were released to be claimed again
+     */
+    @Override
+    public List<Job> renewJobLeases(final Collection<Job> lockedJobs) {
+        if (lockedJobs.isEmpty()) {
+            return emptyList();
+        }
+
+        logger.debug("Renewing leases of {} jobs", lockedJobs.size());
+
+        final Timestamp now = toSqlTimestamp(now());
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, RENEW_JOB_LEASE_SQL)) {
+            for (final Job job : lockedJobs) {
+                ps.setTimestamp(1, now);
+                ps.setObject(2, job.getJobId());
+                ps.setObject(3, job.getWorkerId().orElse(null));
+                ps.addBatch();
+            }
+            final int[] renewedCounts = ps.executeBatch();
+
+            final List<Job> lostJobs = new ArrayList<>();
+            int index = 0;
+            for (final Job job : lockedJobs) {
+                if (index < renewedCounts.length && renewedCounts[index] == 0) {
+                    lostJobs.add(job);
+                }
+                index++;
+            }
+            return lostJobs;
+        } catch (final SQLException e) {
+            logger.error("Error renewing job leases", e);
+            throw new JdbcRepositoryException(format("Exception while renewing leases of %d jobs", lockedJobs.size()), e);
+        }
+    }
+
     @Override
     public Stream<Job> findJobsLockedTo(final UUID workerId) {
         try {
@@ -139,9 +417,109 @@ public class JobJdbcRepository implements JobRepository {
         }
     }
 
+    /**
+     * Finds the earliest next task start time of the jobs that are not locked to any worker, so
+     * an idle worker can sleep until the next job falls due. The query is answered from the
+     * partial index on next_task_start_time for unassigned jobs.
+     *
+     * @return the earliest start time, or empty if no unassigned jobs are waiting for the tasks
+     */
+    @Override
+    public Optional<ZonedDateTime> findEarliestUnassignedStartTime(final Set<String> taskNames) {
+        if (taskNames.isEmpty()) {
+            return Optional.empty();
+        }
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, withNextTaskFilter(EARLIEST_UNASSIGNED_START_TIME_SQL, taskNames))) {
+            setNextTaskFilter(ps, 1, taskNames);
+            final ResultSet resultSet = ps.executeQuery();
+            resultSet.next();
+            return Optional.ofNullable(resultSet.getTimestamp(1)).map(ZonedDateTimes::fromSqlTimestamp);
+        } catch (final SQLException e) {
+            logger.error("Error finding the earliest unassigned job start time", e);
+            throw new JdbcRepositoryException("Exception while finding the earliest unassigned job start time", e);
+        }
+    }
+
+    /**
+     * Finds the jobs locked to the worker by the lock made at the given time, so a worker that
+     * keeps the same id for all of its claims only reads back the jobs it has just locked.
+     */
+    private Stream<Job> findJobsLockedTo(final UUID workerId, final Timestamp lockTime) {
+        try {
+            final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, JOBS_LOCKED_TO_AT_SQL);
+            ps.setObject(1, workerId);
+            ps.setTimestamp(2, lockTime);
+            return jdbcResultSetStreamer.streamOf(ps, entityFromFunction());
+        } catch (final SQLException e) {
+            logger.error("Error retrieving locked jobs for workerId " + workerId, e);
+            throw new JdbcRepositoryException(format("Exception while retrieving jobs locked to worker id %s", workerId), e);
+        }
+    }
+
+    /**
+     * Records that the worker is alive, adding it to the worker table the first time.
+     */
+    @Override
+    public void recordWorkerHeartbeat(final UUID workerId) {
+        final Timestamp now = toSqlTimestamp(now());
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, UPDATE_WORKER_HEARTBEAT_SQL)) {
+            ps.setTimestamp(1, now);
+            ps.setObject(2, workerId);
+
+            if (ps.executeUpdate() > 0) {
+                return;
+            }
+        } catch (final SQLException e) {
+            logger.error("Error recording worker heartbeat", e);
+            throw new JdbcRepositoryException(format("Exception while recording heartbeat of worker id %s", workerId), e);
+        }
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, INSERT_WORKER_HEARTBEAT_SQL)) {
+            ps.setObject(1, workerId);
+            ps.setTimestamp(2, now);
+            ps.executeUpdate();
+        } catch (final SQLException e) {
+            logger.error("Error recording worker heartbeat", e);
+            throw new JdbcRepositoryException(format("Exception while recording heartbeat of worker id %s", workerId), e);
+        }
+    }
+
+    /**
+     * Releases, in a single update, every job locked to a worker whose last heartbeat is older
+     * than the heartbeat expiry, then removes those workers. Jobs locked to workers that never recorded a
+     * heartbeat are left to their leases.
+     *
+     * @return the number of jobs released
+     */
+    @Override
+    public int releaseJobsOfExpiredWorkers(final Duration heartbeatExpiry) {
+        final Timestamp expiredBefore = toSqlTimestamp(now().minus(heartbeatExpiry));
+        final int releasedCount;
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, RELEASE_JOBS_OF_EXPIRED_WORKERS_SQL)) {
+            ps.setTimestamp(1, expiredBefore);
+            releasedCount = ps.executeUpdate();
+        } catch (final SQLException e) {
+            logger.error("Error releasing jobs of expired workers", e);
+            throw new JdbcRepositoryException("Exception while releasing jobs of expired workers", e);
+        }
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, DELETE_EXPIRED_WORKERS_SQL)) {
+            ps.setTimestamp(1, expiredBefore);
+            ps.executeUpdate();
+        } catch (final SQLException e) {
+            logger.error("Error deleting expired workers", e);
+            throw new JdbcRepositoryException("Exception while deleting expired workers", e);
+        }
+
+        return releasedCount;
+    }
+
     @Override
     public void deleteJob(final UUID jobId) {
-        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, DELETE_JOB_SQL)) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, jobSqlProvider.getCompleteJobSql())) {
             ps.setObject(1, jobId);
             ps.executeUpdate();
         } catch (final SQLException e) {
@@ -161,22 +539,188 @@ public class JobJdbcRepository implements JobRepository {
         }
     }
 
+    /**
+     * Releases a job whose task failed, recording the failed attempt and pushing its next task
+     * start time back so it is claimed again once its retry backoff has passed.
+     */
+    @Override
+    public void retryJob(final UUID jobId, final int attempts, final Timestamp nextTaskStartTime, final int priority) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, RETRY_JOB_SQL)) {
+            ps.setInt(1, attempts);
+            ps.setTimestamp(2, nextTaskStartTime);
+            ps.setTimestamp(3, effectiveStartTime(fromSqlTimestamp(nextTaskStartTime), priority));
+            ps.setObject(4, jobId);
+            ps.executeUpdate();
+        } catch (final SQLException e) {
+            logger.error("Error scheduling the retry of the job", e);
+            throw new JdbcRepositoryException(format("Exception while scheduling the retry of job with job id %s", jobId), e);
+        }
+    }
+
+    /**
+     * Moves a job whose task has failed too many times to the job_dead_letter table with the
+     * reason it last failed, then finishes it in the job table so it is never claimed again.
+     */
+    @Override
+    public void deadLetterJob(final UUID jobId, final String failure) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, DEAD_LETTER_JOB_SQL)) {
+            ps.setString(1, failure);
+            ps.setTimestamp(2, toSqlTimestamp(now()));
+            ps.setObject(3, jobId);
+            ps.executeUpdate();
+        } catch (final SQLException e) {
+            logger.error("Error dead lettering the job", e);
+            throw new JdbcRepositoryException(format("Exception while dead lettering job with job id %s", jobId), e);
+        }
+
+        deleteJob(jobId);
+    }
+
+    /**
+     * Releases the given jobs in a single update, so they can be claimed straight away by any
+     * worker rather than once their leases expire.
+     *
+     * @return the number of jobs released
+     */
+    @Override
+    public int releaseJobs(final Collection<UUID> jobIds) {
+        if (jobIds.isEmpty()) {
+            return 0;
+        }
+
+        final String releaseJobsSql = format(RELEASE_JOBS_SQL, join(",", nCopies(jobIds.size(), "?")));
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, releaseJobsSql)) {
+            int parameterIndex = 1;
+            for (final UUID jobId : jobIds) {
+                ps.setObject(parameterIndex++, jobId);
+            }
+            return ps.executeUpdate();
+        } catch (final SQLException e) {
+            logger.error("Error releasing jobs", e);
+            throw new JdbcRepositoryException(format("Exception while releasing %d jobs", jobIds.size()), e);
+        }
+    }
+
+    /**
+     * Creates the daily job partitions from today until the given day. Jobs that were inserted into
+     * job_default while a day had no partition are moved into its partition as it is created, as
+     * Postgres refuses to create a partition for rows the default partition holds. Does nothing if
+     * another node holds the partition maintenance lock; run it in its own short transaction, as
+     * that lock is held until the transaction ends.
+     *
+     * @param lastDay the last day to create a partition for
+     */
+    @Override
+    public void createJobPartitionsUntil(final LocalDate lastDay) {
+        if (!jobSqlProvider.isPartitioned() || !tryLockJobPartitions()) {
+            return;
+        }
+
+        final List<String> partitionNames = jobPartitionNames();
+
+        for (LocalDate day = LocalDate.now(UTC); !day.isAfter(lastDay); day = day.plusDays(1)) {
+            final String partitionName = jobPartitionName(day);
+            if (partitionNames.contains(partitionName)) {
+                continue;
+            }
+
+            final ZonedDateTime from = day.atStartOfDay(UTC);
+            final ZonedDateTime to = day.plusDays(1).atStartOfDay(UTC);
+            final long defaultPartitionJobCount = jobsInDefaultPartitionBetween(from, to);
+
+            if (defaultPartitionJobCount == 0) {
+                executeJobPartitionDdl(format(CREATE_JOB_PARTITION_SQL, partitionName, from, to));
+            } else {
+                logger.warn("Moving {} jobs from job_default into new job partition [{}]", defaultPartitionJobCount, partitionName);
+                executeJobPartitionDdl(format(CREATE_UNATTACHED_JOB_PARTITION_SQL, partitionName));
+                moveDefaultPartitionJobsInto(partitionName, from, to);
+                executeJobPartitionDdl(format(ATTACH_JOB_PARTITION_SQL, partitionName, from, to));
+            }
+        }
+    }
+
+    /**
+     * Detaches and drops the daily job partitions before the given day whose jobs have all
+     * finished. Does nothing if another node holds the partition maintenance lock, and gives up
+     * rather than queue the claims behind it if the job table cannot be locked within a few
+     * seconds; run it in its own short transaction, as both locks are held until it ends.
+     *
+     * @param firstDayToKeep the first day whose partition is kept
+     * @return the number of partitions dropped
+     */
+    @Override
+    public int dropFinishedJobPartitionsBefore(final LocalDate firstDayToKeep) {
+        if (!jobSqlProvider.isPartitioned() || !tryLockJobPartitions()) {
+            return 0;
+        }
+
+        executeJobPartitionDdl(JOB_PARTITION_LOCK_TIMEOUT_SQL);
+
+        int droppedCount = 0;
+
+        for (final String partitionName : jobPartitionsBefore(firstDayToKeep)) {
+            if (unfinishedJobsIn(partitionName) > 0) {
+                logger.info("Keeping job partition [{}] as it still has unfinished jobs", partitionName);
+                continue;
+            }
+
+            executeJobPartitionDdl(format(DETACH_JOB_PARTITION_SQL, partitionName));
+            executeJobPartitionDdl(format(DROP_JOB_PARTITION_SQL, partitionName));
+            logger.info("Dropped job partition [{}]", partitionName);
+            droppedCount++;
+        }
+
+        return droppedCount;
+    }
+
     protected Function<ResultSet, Job> entityFromFunction() {
         return resultSet -> {
             try {
                 return new Job(
                         fromString(resultSet.getString("job_id")),
-                        toJsonObject(resultSet.getString("job_data")),
+                        jobDataOf(resultSet),
                         resultSet.getString("next_task"),
                         getZoneDateTime(resultSet, "next_task_start_time"),
                         of(getUUID(resultSet, "worker_id")),
-                        of(getZoneDateTime(resultSet, "worker_lock_time")));
+                        of(getZoneDateTime(resultSet, "worker_lock_time")),
+                        resultSet.getInt("priority"),
+                        resultSet.getInt("attempts"));
             } catch (final SQLException e) {
                 throw new JdbcRepositoryException("Unexpected SQLException mapping ResultSet to Job instance", e);
             }
         };
     }
 
+    /**
+     * Binds job data to three consecutive parameters, job_data, job_data_codec and
+     * job_data_encoded, as json or, when a codec is configured for the task the job will run
+     * next, encoded by that codec.
+     */
+    protected void setJobData(final PreparedStatementWrapper ps, final int parameterIndex, final String nextTask, final JsonObject jobData) throws SQLException {
+        final Optional<JobDataCodec> jobDataCodec = nextTask == null ? Optional.empty() : jobDataCodecRegistry.codecForTask(nextTask);
+
+        if (jobDataCodec.isPresent()) {
+            ps.setString(parameterIndex, null);
+            ps.setString(parameterIndex + 1, jobDataCodec.get().getName());
+            ps.setBytes(parameterIndex + 2, jobDataCodec.get().encode(jobData));
+        } else {
+            ps.setString(parameterIndex, jobData.toString());
+            ps.setString(parameterIndex + 1, null);
+            ps.setBytes(parameterIndex + 2, null);
+        }
+    }
+
+    protected LazyJsonObject jobDataOf(final ResultSet resultSet) throws SQLException {
+        final String codecName = resultSet.getString("job_data_codec");
+
+        if (codecName == null) {
+            return new LazyJsonObject(resultSet.getString("job_data"));
+        }
+
+        return new LazyJsonObject(resultSet.getBytes("job_data_encoded"), () -> jobDataCodecRegistry.codecNamed(codecName));
+    }
+
     protected ZonedDateTime getZoneDateTime(final ResultSet resultSet, final String column) throws SQLException {
         final Timestamp timestamp = resultSet.getTimestamp(column);
         return timestamp == null ? null : fromSqlTimestamp(timestamp);
@@ -187,6 +731,131 @@ public class JobJdbcRepository implements JobRepository {
         return uuid == null ? null : UUID.fromString(uuid);
     }
 
+    /**
+     * Fills the %s placeholder of a claim statement with an in list of one parameter per task
+     * name, or with nothing when jobs for any task may be claimed. The statement text only
+     * changes with the number of task names, so it is still reused between claims.
+     */
+    private String withNextTaskFilter(final String claimSql, final Collection<String> taskNames) {
+        if (taskNames.isEmpty()) {
+            return format(claimSql, "");
+        }
+
+        return format(claimSql, format(NEXT_TASK_FILTER_SQL, join(",", nCopies(taskNames.size(), "?"))));
+    }
+
+    private int setNextTaskFilter(final PreparedStatementWrapper ps, final int firstIndex, final Collection<String> taskNames) throws SQLException {
+        int parameterIndex = firstIndex;
+        for (final String taskName : taskNames) {
+            ps.setString(parameterIndex++, taskName);
+        }
+
+        return parameterIndex;
+    }
+
+    private Timestamp effectiveStartTime(final ZonedDateTime nextTaskStartTime, final int priority) {
+        if (nextTaskStartTime == null) {
+            return null;
+        }
+
+        return toSqlTimestamp(nextTaskStartTime.minusSeconds(priority * parseLong(priorityAgingSeconds)));
+    }
+
+    private boolean tryLockJobPartitions() {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, TRY_LOCK_JOB_PARTITIONS_SQL)) {
+            final ResultSet resultSet = ps.executeQuery();
+            resultSet.next();
+            if (resultSet.getBoolean(1)) {
+                return true;
+            }
+
+            logger.debug("Job partitions are being maintained by another worker");
+            return false;
+        } catch (final SQLException e) {
+            logger.error("Error locking job partitions", e);
+            throw new JdbcRepositoryException("Exception while locking job partitions", e);
+        }
+    }
+
+    private List<String> jobPartitionsBefore(final LocalDate firstDayToKeep) {
+        return jobPartitionNames().stream()
+                .filter(partitionName -> isJobPartitionBefore(partitionName, firstDayToKeep))
+                .collect(toList());
+    }
+
+    private List<String> jobPartitionNames() {
+        final List<String> partitionNames = new ArrayList<>();
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, JOB_PARTITIONS_SQL)) {
+            final ResultSet resultSet = ps.executeQuery();
+            while (resultSet.next()) {
+                partitionNames.add(resultSet.getString(1));
+            }
+        } catch (final SQLException e) {
+            logger.error("Error listing job partitions", e);
+            throw new JdbcRepositoryException("Exception while listing job partitions", e);
+        }
+
+        return partitionNames;
+    }
+
+    private long jobsInDefaultPartitionBetween(final ZonedDateTime from, final ZonedDateTime to) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, JOBS_IN_DEFAULT_PARTITION_SQL)) {
+            ps.setTimestamp(1, toSqlTimestamp(from));
+            ps.setTimestamp(2, toSqlTimestamp(to));
+            final ResultSet resultSet = ps.executeQuery();
+            resultSet.next();
+            return resultSet.getLong(1);
+        } catch (final SQLException e) {
+            logger.error("Error counting jobs in the default job partition", e);
+            throw new JdbcRepositoryException(format("Exception while counting jobs in the default partition from %s", from), e);
+        }
+    }
+
+    private void moveDefaultPartitionJobsInto(final String partitionName, final ZonedDateTime from, final ZonedDateTime to) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, format(MOVE_DEFAULT_PARTITION_JOBS_SQL, partitionName))) {
+            ps.setTimestamp(1, toSqlTimestamp(from));
+            ps.setTimestamp(2, toSqlTimestamp(to));
+            ps.executeUpdate();
+        } catch (final SQLException e) {
+            logger.error("Error moving jobs out of the default job partition", e);
+            throw new JdbcRepositoryException(format("Exception while moving jobs from the default partition into %s", partitionName), e);
+        }
+    }
+
+    private boolean isJobPartitionBefore(final String partitionName, final LocalDate firstDayToKeep) {
+        if (!partitionName.matches(JOB_PARTITION_PREFIX + "\\d{8}")) {
+            return false;
+        }
+
+        final LocalDate day = LocalDate.parse(partitionName.substring(JOB_PARTITION_PREFIX.length()), BASIC_ISO_DATE);
+        return day.isBefore(firstDayToKeep);
+    }
+
+    private long unfinishedJobsIn(final String partitionName) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, format(UNFINISHED_JOBS_IN_PARTITION_SQL, partitionName))) {
+            final ResultSet resultSet = ps.executeQuery();
+            resultSet.next();
+            return resultSet.getLong(1);
+        } catch (final SQLException e) {
+            logger.error("Error counting unfinished jobs in job partition", e);
+            throw new JdbcRepositoryException(format("Exception while counting unfinished jobs in partition %s", partitionName), e);
+        }
+    }
+
+    private void executeJobPartitionDdl(final String sql) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, sql)) {
+            ps.executeUpdate();
+        } catch (final SQLException e) {
+            logger.error("Error maintaining job partitions", e);
+            throw new JdbcRepositoryException(format("Exception while executing '%s'", sql), e);
+        }
+    }
+
+    private String jobPartitionName(final LocalDate day) {
+        return JOB_PARTITION_PREFIX + day.format(BASIC_ISO_DATE);
+    }
+
     private Timestamp convertToTimestamp(final Optional<ZonedDateTime> date) {
         return date
                 .map(ZonedDateTimes::toSqlTimestamp)
@@ -196,10 +865,4 @@ public class JobJdbcRepository implements JobRepository {
     private Timestamp convertToTimestamp(final ZonedDateTime date) {
         return ZonedDateTimes.toSqlTimestamp(date);
     }
-
-    private JsonObject toJsonObject(final String json) {
-        try (final JsonReader reader = createReader(new StringReader(json))) {
-            return reader.readObject();
-        }
-    }
 }
@@ -1,6 +1,13 @@
 package uk.gov.moj.cpp.jobstore.persistence;
 
 import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -9,15 +16,49 @@ import javax.json.JsonObject;
 public interface JobRepository {
     void insertJob(final Job notificationJob);
 
+    void insertJobs(final Stream<Job> jobs, final int batchSize);
+
     void updateJobData(final UUID id, final JsonObject taskData);
 
     void updateNextTaskDetails(final UUID id, final String nextTask, final Timestamp nextTaskDate);
 
+    void advanceJob(final UUID id, final JsonObject jobData, final String nextTask, final Timestamp nextTaskStartTime, final int priority);
+
+    void checkpointJob(final UUID id, final JsonObject jobData, final String nextTask, final Timestamp nextTaskStartTime, final int priority);
+
     void lockJobsFor(final UUID workerId, final int jobCountToLock);
 
+    void lockJobsFor(final UUID workerId, final int jobCountToLock, final Duration jobLease);
+
+    Stream<Job> claimJobsFor(final UUID workerId, final int jobCountToClaim, final Duration jobLease);
+
+    Stream<Job> claimJobsFor(final UUID workerId, final int jobCountToClaim, final Duration jobLease, final Set<String> taskNames);
+
+    Stream<Job> claimJobsFor(final UUID workerId, final int jobCountToClaim, final Duration jobLease, final Set<String> taskNames, final Duration lookAhead);
+
+    Stream<Job> claimJob(final UUID jobId, final UUID workerId, final Duration jobLease);
+
+    List<Job> renewJobLeases(final Collection<Job> lockedJobs);
+
     Stream<Job> findJobsLockedTo(final UUID workerId);
 
+    Optional<ZonedDateTime> findEarliestUnassignedStartTime(final Set<String> taskNames);
+
+    void recordWorkerHeartbeat(final UUID workerId);
+
+    int releaseJobsOfExpiredWorkers(final Duration heartbeatExpiry);
+
     void deleteJob(final UUID jobId);
 
     void releaseJob(final UUID jobId);
+
+    void retryJob(final UUID jobId, final int attempts, final Timestamp nextTaskStartTime, final int priority);
+
+    void deadLetterJob(final UUID jobId, final String failure);
+
+    int releaseJobs(final Collection<UUID> jobIds);
+
+    void createJobPartitionsUntil(final LocalDate lastDay);
+
+    int dropFinishedJobPartitionsBefore(final LocalDate firstDayToKeep);
 }
@@ -1,5 +1,7 @@
 package uk.gov.moj.cpp.jobstore.persistence;
 
+import java.util.Optional;
+
 /**
  * Gets the insert and update sql statements for the {@link JobSqlProvider}. This class allows
  * the sql to be overridden from the default postgres specific sql (used for inserting json as a
@@ -10,14 +12,70 @@ public interface JobSqlProvider {
     /**
      * get the insert sql
      *
-     * @return the insert sql for inserting job_data into the job table
+     * @return the insert sql for inserting job_data into the job table, with job_data,
+     * job_data_codec and job_data_encoded as the sixth to eighth parameters, followed by priority
+     * and effective_start_time
      */
     String getInsertSql();
 
     /**
      * get the update sql
      *
-     * @return the update job data sql for updating job_data into the job table
+     * @return the update job data sql for updating job_data into the job table, with job_data,
+     * job_data_codec and job_data_encoded as the first three parameters
      */
     String getUpdateJobDataSql();
+
+    /**
+     * get the advance job sql
+     *
+     * @return the sql that writes job_data and the next task details, resets the attempt count and
+     * releases the worker lock of a job in a single update, with job_data, job_data_codec and job_data_encoded as the first
+     * three parameters, followed by next_task, next_task_start_time, effective_start_time and the
+     * job id
+     */
+    String getAdvanceJobSql();
+
+    /**
+     * get the checkpoint job sql
+     *
+     * @return the sql that writes job_data and the next task details of a job and resets its
+     * attempt count while keeping it locked to its worker, with the same parameters as the advance job sql except that the
+     * renewed worker_lock_time comes before the job id
+     */
+    String getCheckpointJobSql();
+
+    /**
+     * get the claim jobs sql
+     *
+     * @return the sql that locks the unassigned jobs with the earliest effective_start_time to a
+     * worker and returns the locked rows, including priority and attempts, in a single statement, or empty if the database cannot
+     * return rows from an update. The sql has a %s placeholder in its where clause for the
+     * optional filter on next_task
+     */
+    Optional<String> getClaimJobsSql();
+
+    /**
+     * get the complete job sql
+     *
+     * @return the sql that removes a finished job from the job store, with the job id as its only
+     * parameter
+     */
+    String getCompleteJobSql();
+
+    /**
+     * is the job table partitioned
+     *
+     * @return true if the job table is partitioned by creation day, so finished jobs are purged by
+     * dropping partitions
+     */
+    boolean isPartitioned();
+
+    /**
+     * does the database support LISTEN/NOTIFY
+     *
+     * @return true if job arrivals can be signalled to every node through the database with
+     * LISTEN/NOTIFY
+     */
+    boolean supportsListenNotify();
 }
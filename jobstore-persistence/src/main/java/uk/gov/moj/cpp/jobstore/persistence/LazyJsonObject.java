@@ -0,0 +1,55 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static javax.json.Json.createReader;
+
+import java.io.StringReader;
+import java.util.function.Supplier;
+
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+/**
+ * Holds a raw job data payload and materialises it into a {@link JsonObject} the first time it
+ * is asked for, so rows that are read but never executed are never parsed or decoded. The raw
+ * payload is dropped once materialised.
+ */
+public class LazyJsonObject implements Supplier<JsonObject> {
+
+    private Supplier<JsonObject> materialiser;
+    private volatile JsonObject jsonObject;
+
+    public LazyJsonObject(final String json) {
+        this(() -> parse(json));
+    }
+
+    public LazyJsonObject(final byte[] encodedJson, final Supplier<JobDataCodec> jobDataCodec) {
+        this(() -> jobDataCodec.get().decode(encodedJson));
+    }
+
+    private LazyJsonObject(final Supplier<JsonObject> materialiser) {
+        this.materialiser = materialiser;
+    }
+
+    @Override
+    public JsonObject get() {
+        if (jsonObject == null) {
+            synchronized (this) {
+                if (jsonObject == null) {
+                    jsonObject = materialiser.get();
+                    materialiser = null;
+                }
+            }
+        }
+        return jsonObject;
+    }
+
+    public boolean isParsed() {
+        return jsonObject != null;
+    }
+
+    private static JsonObject parse(final String json) {
+        try (final JsonReader reader = createReader(new StringReader(json))) {
+            return reader.readObject();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import javax.enterprise.inject.Alternative;
+
+/**
+ * Sql for a job table partitioned by creation day (jobstore-partitioned-db-changelog.xml). A
+ * finished job is not deleted but released with no next task start time and no job data, so it
+ * drops out of every claim index and is never claimed again, and what is left of it until its
+ * partition is dropped is a row of a few dozen bytes. Like a delete, the update leaves the old
+ * row version behind, but its space goes back in bulk with the partition rather than row by row.
+ */
+@Alternative
+public class PartitionedPostgresJobSqlProvider extends PostgresJobSqlProvider {
+
+    private static final String COMPLETE_JOB_SQL = "UPDATE job SET next_task_start_time = null, worker_id = null, worker_lock_time = null, job_data = null, job_data_codec = null, job_data_encoded = null WHERE job_id = ?";
+
+    @Override
+    public String getCompleteJobSql() {
+        return COMPLETE_JOB_SQL;
+    }
+
+    @Override
+    public boolean isPartitioned() {
+        return true;
+    }
+}
@@ -0,0 +1,156 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static java.lang.Long.parseLong;
+
+import uk.gov.justice.services.common.configuration.Value;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Typed;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Notifies the listeners on every node using postgres LISTEN/NOTIFY. The NOTIFY is sent on the
+ * connection of the transaction that inserted the jobs, so postgres only delivers it once that
+ * transaction commits. A single thread per node holds its own connection LISTENing on the
+ * channel and checks it for notifications every jobstore.job.arrival.poll.milliseconds.
+ *
+ * The notifications are read through the postgres driver's PGConnection, which is looked up by
+ * name so the job store does not depend on the driver at compile time. If it cannot be found the
+ * listeners are never run and the schedulers fall back to their polling timers.
+ */
+@ApplicationScoped
+@Typed(PostgresJobArrivalNotifier.class)
+public class PostgresJobArrivalNotifier implements JobArrivalNotifier {
+
+    private static final String NOTIFY_JOB_ARRIVAL_SQL = "NOTIFY job_arrival";
+    private static final String LISTEN_JOB_ARRIVAL_SQL = "LISTEN job_arrival";
+    private static final String ROUND_TRIP_SQL = "SELECT 1";
+    private static final String PG_CONNECTION_CLASS = "org.postgresql.PGConnection";
+
+    @Inject
+    PreparedStatementWrapperFactory preparedStatementWrapperFactory;
+
+    @Inject
+    JdbcJobStoreDataSourceProvider jdbcJobStoreDataSourceProvider;
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    @Value(key = "jobstore.job.arrival.poll.milliseconds", defaultValue = "500")
+    String pollMilliseconds;
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    private Thread listenerThread;
+    private volatile boolean listening;
+
+    @Override
+    public void notifyJobArrival() {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperFactory.preparedStatementWrapperOf(jdbcJobStoreDataSourceProvider.getDataSource(), NOTIFY_JOB_ARRIVAL_SQL)) {
+            ps.executeUpdate();
+        } catch (final SQLException e) {
+            throw new JdbcRepositoryException("Exception while notifying job arrival", e);
+        }
+    }
+
+    @Override
+    public synchronized void addListener(final Runnable listener) {
+        listeners.add(listener);
+
+        if (listenerThread == null) {
+            listening = true;
+            listenerThread = managedThreadFactory.newThread(this::listen);
+            listenerThread.setDaemon(true);
+            listenerThread.start();
+        }
+    }
+
+    @Override
+    public void removeListener(final Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    @PreDestroy
+    public synchronized void stopListening() {
+        listening = false;
+
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            listenerThread = null;
+        }
+    }
+
+    private void listen() {
+        final long pollInterval = parseLong(pollMilliseconds);
+
+        try {
+            while (listening) {
+                try (final Connection connection = jdbcJobStoreDataSourceProvider.getDataSource().getConnection()) {
+                    execute(connection, LISTEN_JOB_ARRIVAL_SQL);
+                    final Method getNotifications = getNotificationsMethod();
+
+                    while (listening) {
+                        execute(connection, ROUND_TRIP_SQL);
+                        if (hasNotifications(connection, getNotifications)) {
+                            fireJobArrival();
+                        }
+                        Thread.sleep(pollInterval);
+                    }
+                } catch (final SQLException e) {
+                    logger.warn("Lost connection listening for job arrivals, reconnecting", e);
+                    Thread.sleep(pollInterval);
+                }
+            }
+        } catch (final ClassNotFoundException | NoSuchMethodException e) {
+            logger.warn("Postgres driver not visible to the job store, job arrivals will only be picked up by polling", e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(final Connection connection, final String sql) throws SQLException {
+        try (final Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private Method getNotificationsMethod() throws ClassNotFoundException, NoSuchMethodException {
+        return Class.forName(PG_CONNECTION_CLASS, true, Thread.currentThread().getContextClassLoader()).getMethod("getNotifications");
+    }
+
+    private boolean hasNotifications(final Connection connection, final Method getNotifications) throws SQLException {
+        try {
+            final Object[] notifications = (Object[]) getNotifications.invoke(connection.unwrap(getNotifications.getDeclaringClass()));
+            return notifications != null && notifications.length > 0;
+        } catch (final IllegalAccessException | InvocationTargetException e) {
+            throw new SQLException("Could not read job arrival notifications", e);
+        }
+    }
+
+    private void fireJobArrival() {
+        for (final Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (final RuntimeException e) {
+                logger.warn("Job arrival listener failed", e);
+            }
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package uk.gov.moj.cpp.jobstore.persistence;
 
+import static java.util.Optional.of;
+
+import java.util.Optional;
+
 import javax.enterprise.inject.Alternative;
 
 @Alternative
 public class PostgresJobSqlProvider implements JobSqlProvider {
 
-    private static final String INSERT_JOB_SQL = "INSERT INTO job(job_id,worker_id,worker_lock_time,next_task,next_task_start_time,job_data) values (?,?,?,?,?,to_jsonb(?::json))";
-    private static final String UPDATE_JOB_DATA_SQL = "UPDATE job SET job_data = to_jsonb(?::json) WHERE job_id = ?";
+    private static final String INSERT_JOB_SQL = "INSERT INTO job(job_id,worker_id,worker_lock_time,next_task,next_task_start_time,job_data,job_data_codec,job_data_encoded,priority,effective_start_time) values (?,?,?,?,?,?::jsonb,?,?,?,?)";
+    private static final String UPDATE_JOB_DATA_SQL = "UPDATE job SET job_data = ?::jsonb, job_data_codec = ?, job_data_encoded = ? WHERE job_id = ?";
+    private static final String ADVANCE_JOB_SQL = "UPDATE job SET job_data = ?::jsonb, job_data_codec = ?, job_data_encoded = ?, next_task = ?, next_task_start_time = ?, effective_start_time = ?, attempts = 0, worker_id = null, worker_lock_time = null WHERE job_id = ?";
+    private static final String CHECKPOINT_JOB_SQL = "UPDATE job SET job_data = ?::jsonb, job_data_codec = ?, job_data_encoded = ?, next_task = ?, next_task_start_time = ?, effective_start_time = ?, attempts = 0, worker_lock_time = ? WHERE job_id = ?";
+    private static final String COMPLETE_JOB_SQL = "DELETE from job where job_id= ? ";
+
+    private static final String CLAIM_JOBS_SQL = "UPDATE job set worker_id= ? , worker_lock_time= ? where job_id in " +
+            "(select job_id from job where (worker_id is null or worker_lock_time < ?) and next_task_start_time < ?%s order by effective_start_time limit ? for update skip locked) " +
+            "returning job_id, job_data, job_data_codec, job_data_encoded, worker_id, worker_lock_time, next_task, next_task_start_time, priority, attempts";
 
     @Override
     public String getInsertSql() {
@@ -17,4 +28,34 @@ public class PostgresJobSqlProvider implements JobSqlProvider {
     public String getUpdateJobDataSql() {
         return UPDATE_JOB_DATA_SQL;
     }
+
+    @Override
+    public String getAdvanceJobSql() {
+        return ADVANCE_JOB_SQL;
+    }
+
+    @Override
+    public String getCheckpointJobSql() {
+        return CHECKPOINT_JOB_SQL;
+    }
+
+    @Override
+    public Optional<String> getClaimJobsSql() {
+        return of(CLAIM_JOBS_SQL);
+    }
+
+    @Override
+    public String getCompleteJobSql() {
+        return COMPLETE_JOB_SQL;
+    }
+
+    @Override
+    public boolean isPartitioned() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsListenNotify() {
+        return true;
+    }
 }
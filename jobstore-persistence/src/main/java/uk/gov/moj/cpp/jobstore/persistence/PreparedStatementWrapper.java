@@ -23,6 +23,18 @@ public class PreparedStatementWrapper implements AutoCloseable {
         return preparedStatementWrapper;
     }
 
+    /**
+     * Wraps a statement owned by a {@link TransactionScopedConnection}; closing the wrapper closes
+     * only the result sets it opened, leaving the statement and connection for reuse within the
+     * transaction.
+     *
+     * @param preparedStatement the transaction scoped statement
+     * @return a wrapper that does not close the statement or its connection
+     */
+    public static PreparedStatementWrapper transactionScopedValueOf(final PreparedStatement preparedStatement) {
+        return new PreparedStatementWrapper(preparedStatement);
+    }
+
     private static void handle(final SQLException sqlEx, final AutoCloseable closeable) throws SQLException {
         try {
             closeable.close();
@@ -48,6 +60,14 @@ public class PreparedStatementWrapper implements AutoCloseable {
         }
     }
 
+    public void setBytes(final int parameterIndex, final byte[] bytes) throws SQLException {
+        try {
+            this.preparedStatement.setBytes(parameterIndex, bytes);
+        } catch (SQLException e) {
+            handle(e, this);
+        }
+    }
+
     public void setLong(final int parameterIndex, final Long lng) throws SQLException {
         try {
             this.preparedStatement.setLong(parameterIndex, lng);
@@ -101,6 +121,24 @@ public class PreparedStatementWrapper implements AutoCloseable {
         return result;
     }
 
+    public void addBatch() throws SQLException {
+        try {
+            preparedStatement.addBatch();
+        } catch (SQLException e) {
+            handle(e, this);
+        }
+    }
+
+    public int[] executeBatch() throws SQLException {
+        int[] result = new int[0];
+        try {
+            result = preparedStatement.executeBatch();
+        } catch (SQLException e) {
+            handle(e, this);
+        }
+        return result;
+    }
+
     @Override
     public void close() {
         this.closeables.forEach(c -> {
@@ -116,4 +154,8 @@ public class PreparedStatementWrapper implements AutoCloseable {
         this.closeables.add(connection);
         this.preparedStatement = preparedStatement;
     }
+
+    private PreparedStatementWrapper(final PreparedStatement preparedStatement) {
+        this.preparedStatement = preparedStatement;
+    }
 }
@@ -1,14 +1,60 @@
 package uk.gov.moj.cpp.jobstore.persistence;
 
+import static javax.transaction.Status.STATUS_ACTIVE;
 import static uk.gov.moj.cpp.jobstore.persistence.PreparedStatementWrapper.valueOf;
 
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 
+import javax.annotation.Resource;
 import javax.sql.DataSource;
+import javax.transaction.TransactionSynchronizationRegistry;
 
+/**
+ * Creates {@link PreparedStatementWrapper}s. Inside an active transaction the connection is bound
+ * to the transaction and statements are cached on it, so repeated calls within one transaction
+ * share a single pool checkout and prepare each sql once; closing the wrapper then only closes
+ * its result sets. Outside a transaction every wrapper gets, and closes, its own connection.
+ */
 public class PreparedStatementWrapperFactory {
 
+    private static final String TRANSACTION_SCOPED_CONNECTIONS_KEY = TransactionScopedConnection.class.getName();
+
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
     public PreparedStatementWrapper preparedStatementWrapperOf(final DataSource dataSource, final String query) throws SQLException {
-        return valueOf(dataSource.getConnection(), query);
+        if (!isTransactionActive()) {
+            return valueOf(dataSource.getConnection(), query);
+        }
+
+        return PreparedStatementWrapper.transactionScopedValueOf(transactionScopedConnectionOf(dataSource).preparedStatementOf(query));
+    }
+
+    private boolean isTransactionActive() {
+        return transactionSynchronizationRegistry != null
+                && transactionSynchronizationRegistry.getTransactionStatus() == STATUS_ACTIVE;
+    }
+
+    @SuppressWarnings("unchecked")
+    private TransactionScopedConnection transactionScopedConnectionOf(final DataSource dataSource) throws SQLException {
+        Map<DataSource, TransactionScopedConnection> connections =
+                (Map<DataSource, TransactionScopedConnection>) transactionSynchronizationRegistry.getResource(TRANSACTION_SCOPED_CONNECTIONS_KEY);
+
+        if (connections == null) {
+            connections = new HashMap<>();
+            transactionSynchronizationRegistry.putResource(TRANSACTION_SCOPED_CONNECTIONS_KEY, connections);
+        }
+
+        TransactionScopedConnection connection = connections.get(dataSource);
+
+        if (connection == null) {
+            connection = new TransactionScopedConnection(dataSource.getConnection());
+            transactionSynchronizationRegistry.registerInterposedSynchronization(connection);
+            connections.put(dataSource, connection);
+        }
+
+        return connection;
     }
 }
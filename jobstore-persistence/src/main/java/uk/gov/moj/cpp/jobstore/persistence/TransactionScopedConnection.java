@@ -0,0 +1,57 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.transaction.Synchronization;
+
+/**
+ * A connection held for the life of a transaction, with the statements prepared on it cached by
+ * sql so each statement is parsed once per transaction. The statements and the connection are
+ * closed when the transaction completes.
+ */
+class TransactionScopedConnection implements Synchronization {
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> preparedStatementsBySql = new HashMap<>();
+
+    TransactionScopedConnection(final Connection connection) {
+        this.connection = connection;
+    }
+
+    PreparedStatement preparedStatementOf(final String sql) throws SQLException {
+        PreparedStatement preparedStatement = preparedStatementsBySql.get(sql);
+
+        if (preparedStatement == null) {
+            preparedStatement = connection.prepareStatement(sql);
+            preparedStatementsBySql.put(sql, preparedStatement);
+        } else {
+            preparedStatement.clearParameters();
+        }
+
+        return preparedStatement;
+    }
+
+    @Override
+    public void beforeCompletion() {
+        // statements may still be used until the transaction completes
+    }
+
+    @Override
+    public void afterCompletion(final int status) {
+        preparedStatementsBySql.values().forEach(this::closeQuietly);
+        preparedStatementsBySql.clear();
+        closeQuietly(connection);
+    }
+
+    private void closeQuietly(final AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (final Exception e) {
+            // the transaction is already complete, nothing can be done about a failed close
+        }
+    }
+}
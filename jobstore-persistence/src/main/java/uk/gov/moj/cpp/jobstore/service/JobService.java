@@ -2,13 +2,31 @@ package uk.gov.moj.cpp.jobstore.service;
 
 
 import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singleton;
 import static uk.gov.justice.services.common.converter.ZonedDateTimes.toSqlTimestamp;
 
 import uk.gov.justice.services.common.configuration.Value;
 import uk.gov.moj.cpp.jobstore.persistence.Job;
 import uk.gov.moj.cpp.jobstore.persistence.JobRepository;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -23,24 +41,238 @@ public class JobService {
     @Value(key = "worker.job.count", defaultValue = "10")
     String jobCount;
 
+    @Inject
+    @Value(key = "worker.job.lease.seconds", defaultValue = "3600")
+    String jobLeaseSeconds;
+
+    @Inject
+    @Value(key = "jobstore.insert.batch.size", defaultValue = "500")
+    String insertBatchSize;
+
+    /**
+     * How far ahead of their start time jobs are claimed, so the scheduler can start each one at
+     * its exact start time. 0 claims only jobs that are already due.
+     */
+    @Inject
+    @Value(key = "jobstore.claim.look.ahead.milliseconds", defaultValue = "0")
+    String claimLookAheadMilliseconds;
+
+    /**
+     * How long after its last heartbeat a worker is taken to be dead and its jobs are released.
+     * Should be several times jobstore.worker.heartbeat.interval.milliseconds.
+     */
+    @Inject
+    @Value(key = "jobstore.worker.heartbeat.expiry.milliseconds", defaultValue = "30000")
+    String workerHeartbeatExpiryMilliseconds;
+
     @Inject
     JobRepository jobRepository;
 
+    @Inject
+    TaskClaimQuotas taskClaimQuotas;
+
+    @Inject
+    TaskClaimMetrics taskClaimMetrics;
+
     public void lockJobsFor(final UUID jobId, final int count) {
         jobRepository.lockJobsFor(jobId, count);
     }
 
     public Stream<Job> getUnassignedJobsFor(final UUID workerId) {
 
-        jobRepository.lockJobsFor(workerId, parseInt(jobCount));
+        return jobRepository.claimJobsFor(workerId, parseInt(jobCount), ofSeconds(parseLong(jobLeaseSeconds)));
+    }
+
+    /**
+     * Claims a batch of worker.job.count unassigned jobs whose next task is one of the given
+     * tasks.
+     *
+     * @see #getUnassignedJobsFor(UUID, Set, int)
+     */
+    public Stream<Job> getUnassignedJobsFor(final UUID workerId, final Set<String> taskNames) {
+        return getUnassignedJobsFor(workerId, taskNames, parseInt(jobCount));
+    }
+
+    /**
+     * Claims unassigned jobs whose next task is one of the given tasks, so a node only claims
+     * the work it can execute. When fair share claiming is configured the batch is split between
+     * the tasks by {@link TaskClaimQuotas}, claiming each task's quota separately and then topping
+     * the batch up from any task if some tasks had fewer jobs waiting than their quota. Jobs
+     * falling due within jobstore.claim.look.ahead.milliseconds are claimed as well.
+     *
+     * @param workerId  the worker to lock the jobs to
+     * @param taskNames the tasks this node can execute
+     * @param batchSize the most jobs to claim
+     * @return the claimed jobs
+     */
+    public Stream<Job> getUnassignedJobsFor(final UUID workerId, final Set<String> taskNames, final int batchSize) {
+        return getUnassignedJobsFor(workerId, taskNames, batchSize, emptyMap());
+    }
+
+    /**
+     * Claims unassigned jobs as {@link #getUnassignedJobsFor(UUID, Set, int)} does, but never
+     * claims more jobs of a task than its limit. The batch is claimed across all the tasks in
+     * claim order, as if the tasks had no limits; the jobs a task claimed beyond its limit are
+     * released straight away, in the same transaction, and the batch is topped up from the tasks
+     * that are still below their limits. Each top up leaves out at least one more task, so there
+     * are at most as many claims as limited tasks, plus one. Fair share quotas are capped at the
+     * limits too.
+     *
+     * @param workerId   the worker to lock the jobs to
+     * @param taskNames  the tasks this node can execute
+     * @param batchSize  the most jobs to claim
+     * @param taskLimits the most jobs to claim of each limited task
+     * @return the claimed jobs
+     */
+    public Stream<Job> getUnassignedJobsFor(final UUID workerId, final Set<String> taskNames, final int batchSize, final Map<String, Integer> taskLimits) {
+        final Duration jobLease = ofSeconds(parseLong(jobLeaseSeconds));
+        final Duration lookAhead = ofMillis(parseLong(claimLookAheadMilliseconds));
+
+        final Map<String, Integer> freeSlots = new HashMap<>(taskLimits);
+        freeSlots.keySet().retainAll(taskNames);
+
+        taskClaimMetrics.recordClaimBatch();
+
+        if (freeSlots.isEmpty() && !taskClaimQuotas.isEnabled()) {
+            return jobRepository.claimJobsFor(workerId, batchSize, jobLease, taskNames, lookAhead).peek(taskClaimMetrics::recordClaimed);
+        }
+
+        final Map<UUID, Job> claimedJobs = new LinkedHashMap<>();
+        boolean topUp = true;
+
+        if (taskClaimQuotas.isEnabled()) {
+            boolean anyQuotaFilled = false;
+
+            for (final Map.Entry<String, Integer> taskQuota : taskClaimQuotas.quotasFor(taskNames, batchSize).entrySet()) {
+                final String taskName = taskQuota.getKey();
+                final int count = min(taskQuota.getValue(), freeSlots.getOrDefault(taskName, taskQuota.getValue()));
+
+                if (count > 0) {
+                    final int claimedBefore = claimedJobs.size();
+                    claimInto(claimedJobs, workerId, count, jobLease, singleton(taskName), lookAhead);
+                    final int claimed = claimedJobs.size() - claimedBefore;
+                    freeSlots.computeIfPresent(taskName, (name, slots) -> slots - claimed);
+                    anyQuotaFilled |= count == taskQuota.getValue() && claimed == count;
+                }
+            }
+
+            topUp = anyQuotaFilled;
+        }
 
-        return jobRepository.findJobsLockedTo(workerId);
+        if (topUp) {
+            claimWithinLimitsInto(claimedJobs, workerId, batchSize, jobLease, taskNames, freeSlots, lookAhead);
+        }
+
+        claimedJobs.values().forEach(taskClaimMetrics::recordClaimed);
+
+        return claimedJobs.values().stream();
+    }
+
+    private void claimWithinLimitsInto(final Map<UUID, Job> claimedJobs, final UUID workerId, final int batchSize, final Duration jobLease, final Set<String> taskNames, final Map<String, Integer> freeSlots, final Duration lookAhead) {
+        final Set<String> claimableTaskNames = new HashSet<>(taskNames);
+
+        while (true) {
+            claimableTaskNames.removeIf(taskName -> freeSlots.getOrDefault(taskName, 1) <= 0);
+
+            final int count = batchSize - claimedJobs.size();
+            if (count <= 0 || claimableTaskNames.isEmpty()) {
+                return;
+            }
+
+            final List<UUID> surplusJobIds = new ArrayList<>();
+            int claimed = 0;
+
+            try (final Stream<Job> jobs = jobRepository.claimJobsFor(workerId, count, jobLease, claimableTaskNames, lookAhead)) {
+                for (final Job job : (Iterable<Job>) jobs::iterator) {
+                    claimed++;
+
+                    if (freeSlots.getOrDefault(job.getNextTask(), 1) <= 0) {
+                        surplusJobIds.add(job.getJobId());
+                    } else {
+                        freeSlots.computeIfPresent(job.getNextTask(), (taskName, slots) -> slots - 1);
+                        claimedJobs.putIfAbsent(job.getJobId(), job);
+                    }
+                }
+            }
+
+            if (surplusJobIds.isEmpty()) {
+                return;
+            }
+
+            jobRepository.releaseJobs(surplusJobIds);
+
+            if (claimed < count) {
+                return;
+            }
+        }
+    }
+
+    private void claimInto(final Map<UUID, Job> claimedJobs, final UUID workerId, final int count, final Duration jobLease, final Set<String> taskNames, final Duration lookAhead) {
+        try (final Stream<Job> jobs = jobRepository.claimJobsFor(workerId, count, jobLease, taskNames, lookAhead)) {
+            jobs.forEach(job -> claimedJobs.putIfAbsent(job.getJobId(), job));
+        }
+    }
+
+    /**
+     * Claims the given job for the worker if no other worker holds it.
+     *
+     * @param jobId    the job to claim
+     * @param workerId the worker to lock the job to
+     * @return the claimed job, or an empty stream if it could not be claimed
+     */
+    public Stream<Job> claimJob(final UUID jobId, final UUID workerId) {
+        return jobRepository.claimJob(jobId, workerId, ofSeconds(parseLong(jobLeaseSeconds))).peek(taskClaimMetrics::recordClaimed);
+    }
+
+    /**
+     * Gets the time at which the next unassigned job for the given tasks can be claimed: the
+     * earliest next task start time brought forward by jobstore.claim.look.ahead.milliseconds.
+     *
+     * @param taskNames the tasks this node can execute
+     * @return the time the next job can be claimed, or empty if no unassigned jobs are waiting
+     */
+    public Optional<ZonedDateTime> getNextClaimableTime(final Set<String> taskNames) {
+        final Duration lookAhead = ofMillis(parseLong(claimLookAheadMilliseconds));
+        return jobRepository.findEarliestUnassignedStartTime(taskNames).map(startTime -> startTime.minus(lookAhead));
+    }
+
+    /**
+     * Renews the leases of jobs locked to this node.
+     *
+     * @param lockedJobs the jobs whose leases to renew
+     * @return the jobs that are no longer locked to this node, whose leases were lost
+     */
+    public List<Job> renewJobLeases(final Collection<Job> lockedJobs) {
+        return jobRepository.renewJobLeases(lockedJobs);
+    }
+
+    public void recordWorkerHeartbeat(final UUID workerId) {
+        jobRepository.recordWorkerHeartbeat(workerId);
+    }
+
+    /**
+     * Releases the jobs of workers whose heartbeat is older than
+     * jobstore.worker.heartbeat.expiry.milliseconds.
+     *
+     * @return the number of jobs released
+     */
+    public int releaseJobsOfExpiredWorkers() {
+        return jobRepository.releaseJobsOfExpiredWorkers(ofMillis(parseLong(workerHeartbeatExpiryMilliseconds)));
     }
 
     public void insertJob(final Job job) {
         jobRepository.insertJob(job);
     }
 
+    public void insertJobs(final Stream<Job> jobs) {
+        final int batchSize = parseInt(insertBatchSize);
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException(format("Invalid jobstore.insert.batch.size setting '%s', expected a positive number", insertBatchSize));
+        }
+
+        jobRepository.insertJobs(jobs, batchSize);
+    }
+
     public void updateJobTaskData(final UUID jobId, final JsonObject data) {
         jobRepository.updateJobData(jobId, data);
     }
@@ -49,6 +281,14 @@ public class JobService {
         jobRepository.updateNextTaskDetails(jobId, nextTask, toSqlTimestamp(startTime));
     }
 
+    public void advanceJob(final UUID jobId, final JsonObject data, final String nextTask, final ZonedDateTime startTime, final int priority) {
+        jobRepository.advanceJob(jobId, data, nextTask, toSqlTimestamp(startTime), priority);
+    }
+
+    public void checkpointJob(final UUID jobId, final JsonObject data, final String nextTask, final ZonedDateTime startTime, final int priority) {
+        jobRepository.checkpointJob(jobId, data, nextTask, toSqlTimestamp(startTime), priority);
+    }
+
     public void deleteJob(final UUID jobId) {
         jobRepository.deleteJob(jobId);
     }
@@ -56,4 +296,32 @@ public class JobService {
     public void releaseJob(final UUID jobId) {
         jobRepository.releaseJob(jobId);
     }
+
+    /**
+     * Releases a job whose task failed, to be claimed again at the given start time.
+     *
+     * @param attempts the number of times the job's next task has now failed
+     */
+    public void retryJob(final UUID jobId, final int attempts, final ZonedDateTime startTime, final int priority) {
+        jobRepository.retryJob(jobId, attempts, toSqlTimestamp(startTime), priority);
+    }
+
+    /**
+     * Moves a job whose task has failed too many times to the dead letter table.
+     */
+    public void deadLetterJob(final UUID jobId, final String failure) {
+        jobRepository.deadLetterJob(jobId, failure);
+    }
+
+    public int releaseJobs(final Collection<UUID> jobIds) {
+        return jobRepository.releaseJobs(jobIds);
+    }
+
+    public void createJobPartitionsUntil(final LocalDate lastDay) {
+        jobRepository.createJobPartitionsUntil(lastDay);
+    }
+
+    public int dropFinishedJobPartitionsBefore(final LocalDate firstDayToKeep) {
+        return jobRepository.dropFinishedJobPartitionsBefore(firstDayToKeep);
+    }
 }
@@ -0,0 +1,74 @@
+package uk.gov.moj.cpp.jobstore.service;
+
+import uk.gov.moj.cpp.jobstore.management.PlatformMXBeans;
+import uk.gov.moj.cpp.jobstore.persistence.Job;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+
+/**
+ * Counts the jobs claimed per task type, registered as the platform MXBean
+ * uk.gov.moj.cpp.jobstore:type=TaskClaimMetrics,module=&lt;module name&gt;.
+ */
+@ApplicationScoped
+public class TaskClaimMetrics implements TaskClaimMetricsMXBean {
+
+    @Inject
+    Logger logger;
+
+    @Resource(lookup = "java:module/ModuleName")
+    String moduleName;
+
+    private final ConcurrentMap<String, LongAdder> claimedJobCounts = new ConcurrentHashMap<>();
+    private final LongAdder claimBatchCount = new LongAdder();
+
+    private ObjectName objectName;
+
+    @PostConstruct
+    public void register() {
+        objectName = PlatformMXBeans.register(this, "TaskClaimMetrics", moduleName, logger);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        PlatformMXBeans.unregister(objectName, logger);
+    }
+
+    public void recordClaimBatch() {
+        claimBatchCount.increment();
+    }
+
+    public void recordClaimed(final Job job) {
+        claimedJobCounts.computeIfAbsent(job.getNextTask(), taskName -> new LongAdder()).increment();
+    }
+
+    @Override
+    public Map<String, Long> getClaimedJobCounts() {
+        final Map<String, Long> counts = new TreeMap<>();
+        claimedJobCounts.forEach((taskName, count) -> counts.put(taskName, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public long getClaimBatchCount() {
+        return claimBatchCount.sum();
+    }
+
+    @Override
+    public void reset() {
+        claimedJobCounts.clear();
+        claimBatchCount.reset();
+    }
+}
@@ -0,0 +1,22 @@
+package uk.gov.moj.cpp.jobstore.service;
+
+import java.util.Map;
+
+/**
+ * Per task type claim counts, exposed over JMX to check how fairly claim batches are shared
+ * between task types under load.
+ */
+public interface TaskClaimMetricsMXBean {
+
+    /**
+     * @return the number of jobs claimed per task name since startup or the last reset
+     */
+    Map<String, Long> getClaimedJobCounts();
+
+    /**
+     * @return the number of claim batches since startup or the last reset
+     */
+    long getClaimBatchCount();
+
+    void reset();
+}
@@ -0,0 +1,105 @@
+package uk.gov.moj.cpp.jobstore.service;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Math.min;
+import static uk.gov.moj.cpp.jobstore.configuration.TaskSettings.taskSettingsOf;
+
+import uk.gov.justice.services.common.configuration.Value;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Splits each claim batch between task types so one task with a large backlog cannot fill every
+ * batch. Each task first gets its configured minimum (jobstore.task.claim.minimums), then the rest
+ * of the batch is shared by weight (jobstore.task.claim.weights, default weight 1) using smooth
+ * weighted round robin, whose credits carry over between batches so the shares hold even when a
+ * batch is smaller than the number of task types. Both settings are comma separated
+ * taskName:number pairs; fair share claiming is off when neither is set.
+ */
+@ApplicationScoped
+public class TaskClaimQuotas {
+
+    private static final int DEFAULT_WEIGHT = 1;
+
+    @Inject
+    @Value(key = "jobstore.task.claim.weights", defaultValue = "")
+    String taskWeights;
+
+    @Inject
+    @Value(key = "jobstore.task.claim.minimums", defaultValue = "")
+    String taskMinimums;
+
+    private Map<String, Integer> weights;
+    private Map<String, Integer> minimums;
+
+    private final Map<String, Double> credits = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        weights = taskSettingsOf("jobstore.task.claim.weights", taskWeights, "taskName:weight", values -> parseInt(values[0]));
+        minimums = taskSettingsOf("jobstore.task.claim.minimums", taskMinimums, "taskName:minimum", values -> parseInt(values[0]));
+    }
+
+    public boolean isEnabled() {
+        return !weights.isEmpty() || !minimums.isEmpty();
+    }
+
+    /**
+     * Works out how many jobs of each task to claim in the next batch.
+     *
+     * @param taskNames the tasks that may be claimed
+     * @param batchSize the number of jobs to claim
+     * @return the number of jobs to claim per task, which adds up to the batch size
+     */
+    public synchronized Map<String, Integer> quotasFor(final Set<String> taskNames, final int batchSize) {
+        final Set<String> sortedTaskNames = new TreeSet<>(taskNames);
+        final Map<String, Integer> quotas = new LinkedHashMap<>();
+
+        int remaining = batchSize;
+        for (final String taskName : sortedTaskNames) {
+            final int minimum = min(minimums.getOrDefault(taskName, 0), remaining);
+            quotas.put(taskName, minimum);
+            remaining -= minimum;
+        }
+
+        final int totalWeight = sortedTaskNames.stream().mapToInt(this::weightOf).sum();
+        if (totalWeight == 0) {
+            return quotas;
+        }
+
+        for (final String taskName : sortedTaskNames) {
+            credits.merge(taskName, (double) remaining * weightOf(taskName) / totalWeight, Double::sum);
+        }
+
+        for (; remaining > 0; remaining--) {
+            final String taskName = taskWithMostCredit(sortedTaskNames);
+            quotas.merge(taskName, 1, Integer::sum);
+            credits.merge(taskName, -1.0, Double::sum);
+        }
+
+        return quotas;
+    }
+
+    private String taskWithMostCredit(final Set<String> taskNames) {
+        String selectedTaskName = null;
+        for (final String taskName : taskNames) {
+            if (weightOf(taskName) > 0 && (selectedTaskName == null || credits.get(taskName) > credits.get(selectedTaskName))) {
+                selectedTaskName = taskName;
+            }
+        }
+
+        return selectedTaskName;
+    }
+
+    private int weightOf(final String taskName) {
+        return weights.getOrDefault(taskName, DEFAULT_WEIGHT);
+    }
+}
@@ -0,0 +1,55 @@
+package uk.gov.moj.cpp.jobstore.configuration;
+
+import static java.lang.Integer.parseInt;
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static uk.gov.moj.cpp.jobstore.configuration.TaskSettings.taskSettingsOf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TaskSettingsTest {
+
+    @Test
+    public void shouldParseTrimmedTaskValuesInTheOrderTheyAreListed() {
+        final Map<String, Integer> taskSettings = taskSettingsOf("limits", " slowTask : 2,,fastTask:10 ", "taskName:maximum", values -> parseInt(values[0]));
+
+        assertThat(new ArrayList<>(taskSettings.keySet()), is(asList("slowTask", "fastTask")));
+        assertThat(taskSettings.get("slowTask"), is(2));
+        assertThat(taskSettings.get("fastTask"), is(10));
+    }
+
+    @Test
+    public void shouldPassEveryPartAfterTheTaskNameToTheValueParser() {
+        final Map<String, List<String>> taskSettings = taskSettingsOf("policies", "slowTask:3: 100:1000", "taskName:attempts:initial:max", values -> asList(values));
+
+        assertThat(taskSettings.get("slowTask"), is(asList("3", "100", "1000")));
+    }
+
+    @Test
+    public void shouldParseAnEmptySettingToNoTasks() {
+        assertThat(taskSettingsOf("limits", "", "taskName:maximum", values -> parseInt(values[0])).isEmpty(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAnEntryWithTheWrongNumberOfParts() {
+        taskSettingsOf("limits", "slowTask:2:3", "taskName:maximum", values -> parseInt(values[0]));
+    }
+
+    @Test
+    public void shouldRejectAnEntryWhoseNumberCannotBeParsedNamingTheSetting() {
+        try {
+            taskSettingsOf("limits", "slowTask:many", "taskName:maximum", values -> parseInt(values[0]));
+            fail("Expected an invalid number to be rejected");
+        } catch (final IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("Invalid limits setting 'slowTask:many', expected taskName:maximum"));
+            assertThat(e.getCause(), is(instanceOf(NumberFormatException.class)));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package uk.gov.moj.cpp.jobstore.management;
+
+import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.verify;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PlatformMXBeansTest {
+
+    @Mock
+    private Logger logger;
+
+    @Test
+    public void shouldRegisterAndUnregisterAnMXBeanUnderItsTypeAndModule() throws Exception {
+        final ObjectName objectName = PlatformMXBeans.register(new Counter(), "Counter", "TEST_MODULE", logger);
+
+        assertThat(objectName, is(new ObjectName("uk.gov.moj.cpp.jobstore:type=Counter,module=TEST_MODULE")));
+        assertThat(getPlatformMBeanServer().getAttribute(objectName, "Count"), is(3));
+
+        PlatformMXBeans.unregister(objectName, logger);
+
+        assertThat(getPlatformMBeanServer().isRegistered(objectName), is(false));
+    }
+
+    @Test
+    public void shouldWarnAndCarryOnWhenTheMXBeanCannotBeRegistered() {
+        final ObjectName objectName = PlatformMXBeans.register(new Counter(), "Counter", null, logger);
+
+        try {
+            assertThat(PlatformMXBeans.register(new Counter(), "Counter", null, logger), is(nullValue()));
+            verify(logger).warn(anyString(), any(JMException.class));
+        } finally {
+            PlatformMXBeans.unregister(objectName, logger);
+        }
+    }
+
+    @Test
+    public void shouldIgnoreAnMXBeanThatWasNeverRegistered() {
+        PlatformMXBeans.unregister(null, logger);
+    }
+
+    public interface CounterMXBean {
+
+        int getCount();
+    }
+
+    public static class Counter implements CounterMXBean {
+
+        @Override
+        public int getCount() {
+            return 3;
+        }
+    }
+}
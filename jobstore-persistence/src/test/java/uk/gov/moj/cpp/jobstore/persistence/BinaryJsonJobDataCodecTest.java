@@ -0,0 +1,72 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.json.Json.createArrayBuilder;
+import static javax.json.Json.createObjectBuilder;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+
+import org.junit.Test;
+
+public class BinaryJsonJobDataCodecTest {
+
+    private final BinaryJsonJobDataCodec binaryJsonJobDataCodec = new BinaryJsonJobDataCodec();
+
+    @Test
+    public void shouldDecodeWhatItEncodes() {
+        final JsonObject jobData = createObjectBuilder()
+                .add("string", "caf\u00e9 \u2603")
+                .add("empty", "")
+                .add("zero", 0)
+                .add("negative", -42)
+                .add("minimum", Long.MIN_VALUE)
+                .add("maximum", Long.MAX_VALUE)
+                .add("huge", new BigInteger("123456789012345678901234567890"))
+                .add("decimal", new BigDecimal("-12.340"))
+                .add("exponent", new BigDecimal("1E+3"))
+                .add("true", true)
+                .add("false", false)
+                .addNull("null")
+                .add("nested", createObjectBuilder().add("string", "again").add("emptyObject", createObjectBuilder()))
+                .add("array", createArrayBuilder().add(1).add("two").add(3.5).add(true).add(false).addNull().add(createArrayBuilder()).add(createObjectBuilder().add("zero", 0)))
+                .build();
+
+        assertThat(binaryJsonJobDataCodec.decode(binaryJsonJobDataCodec.encode(jobData)), is(jobData));
+    }
+
+    @Test
+    public void shouldEncodePayloadsWithRepeatedKeysSmallerThanJson() {
+        final JsonArrayBuilder items = createArrayBuilder();
+        for (int item = 0; item < 200; item++) {
+            items.add(createObjectBuilder().add("caseId", "case-" + item).add("defendantName", "name " + item).add("status", "OPEN").add("hearingDay", item));
+        }
+        final JsonObject jobData = createObjectBuilder().add("items", items).build();
+
+        assertThat(binaryJsonJobDataCodec.encode(jobData).length, is(lessThan(jobData.toString().getBytes(UTF_8).length / 2)));
+    }
+
+    @Test(expected = JdbcRepositoryException.class)
+    public void shouldThrowOnTruncatedJobData() {
+        final byte[] encoded = binaryJsonJobDataCodec.encode(createObjectBuilder().add("some", "json").build());
+
+        binaryJsonJobDataCodec.decode(Arrays.copyOf(encoded, encoded.length - 2));
+    }
+
+    @Test(expected = JdbcRepositoryException.class)
+    public void shouldThrowOnJobDataWrittenByAnotherCodec() {
+        binaryJsonJobDataCodec.decode(new GzipJsonJobDataCodec().encode(createObjectBuilder().add("some", "json").build()));
+    }
+
+    @Test
+    public void shouldBeNamedBinaryJson() {
+        assertThat(binaryJsonJobDataCodec.getName(), is("binary-json"));
+    }
+}
@@ -0,0 +1,41 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.json.Json.createArrayBuilder;
+import static javax.json.Json.createObjectBuilder;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+
+import org.junit.Test;
+
+public class GzipJsonJobDataCodecTest {
+
+    private final GzipJsonJobDataCodec gzipJsonJobDataCodec = new GzipJsonJobDataCodec();
+
+    @Test
+    public void shouldDecodeWhatItEncodes() {
+        final JsonObject jobData = createObjectBuilder().add("some", "json").add("count", 3).build();
+
+        assertThat(gzipJsonJobDataCodec.decode(gzipJsonJobDataCodec.encode(jobData)), is(jobData));
+    }
+
+    @Test
+    public void shouldEncodePayloadsWithRepeatedKeysSmallerThanJson() {
+        final JsonArrayBuilder items = createArrayBuilder();
+        for (int item = 0; item < 200; item++) {
+            items.add(createObjectBuilder().add("caseId", "case-" + item).add("defendantName", "name " + item).add("status", "OPEN"));
+        }
+        final JsonObject jobData = createObjectBuilder().add("items", items).build();
+
+        assertThat(gzipJsonJobDataCodec.encode(jobData).length, is(lessThan(jobData.toString().getBytes(UTF_8).length / 4)));
+    }
+
+    @Test
+    public void shouldBeNamedGzipJson() {
+        assertThat(gzipJsonJobDataCodec.getName(), is("gzip-json"));
+    }
+}
@@ -0,0 +1,51 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static java.util.Optional.empty;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class H2JobSqlProviderTest {
+    private static final String INSERT_JOB_SQL = "INSERT INTO job(job_id,worker_id,worker_lock_time,next_task,next_task_start_time,job_data,job_data_codec,job_data_encoded,priority,effective_start_time) values (?,?,?,?,?,?,?,?,?,?)";
+    private static final String UPDATE_JOB_DATA_SQL = "UPDATE job SET job_data = ?, job_data_codec = ?, job_data_encoded = ? WHERE job_id = ?";
+    private static final String ADVANCE_JOB_SQL = "UPDATE job SET job_data = ?, job_data_codec = ?, job_data_encoded = ?, next_task = ?, next_task_start_time = ?, effective_start_time = ?, attempts = 0, worker_id = null, worker_lock_time = null WHERE job_id = ?";
+
+    private final H2JobSqlProvider h2JobSqlProvider = new H2JobSqlProvider();
+
+    @Test
+    public void shouldReturnH2InsertSQL() {
+        assertThat(h2JobSqlProvider.getInsertSql(), is(INSERT_JOB_SQL));
+    }
+
+    @Test
+    public void shouldReturnH2UpdateJobDataSQL() {
+        assertThat(h2JobSqlProvider.getUpdateJobDataSql(), is(UPDATE_JOB_DATA_SQL));
+    }
+
+    @Test
+    public void shouldReturnH2AdvanceJobSQL() {
+        assertThat(h2JobSqlProvider.getAdvanceJobSql(), is(ADVANCE_JOB_SQL));
+    }
+
+    @Test
+    public void shouldReturnH2CheckpointJobSQL() {
+        assertThat(h2JobSqlProvider.getCheckpointJobSql(), is("UPDATE job SET job_data = ?, job_data_codec = ?, job_data_encoded = ?, next_task = ?, next_task_start_time = ?, effective_start_time = ?, attempts = 0, worker_lock_time = ? WHERE job_id = ?"));
+    }
+
+    @Test
+    public void shouldNotProvideSingleStatementClaimSQL() {
+        assertThat(h2JobSqlProvider.getClaimJobsSql(), is(empty()));
+    }
+
+    @Test
+    public void shouldDeleteCompletedJobs() {
+        assertThat(h2JobSqlProvider.getCompleteJobSql(), is("DELETE from job where job_id= ? "));
+        assertThat(h2JobSqlProvider.isPartitioned(), is(false));
+    }
+
+    @Test
+    public void shouldNotSupportListenNotify() {
+        assertThat(h2JobSqlProvider.supportsListenNotify(), is(false));
+    }
+}
@@ -0,0 +1,108 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static javax.transaction.Status.STATUS_ACTIVE;
+import static javax.transaction.Status.STATUS_COMMITTED;
+import static javax.transaction.Status.STATUS_NO_TRANSACTION;
+import static javax.transaction.Status.STATUS_ROLLEDBACK;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InJvmJobArrivalNotifierTest {
+
+    @Mock
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    @Mock
+    private Logger logger;
+
+    @InjectMocks
+    private InJvmJobArrivalNotifier inJvmJobArrivalNotifier;
+
+    @Test
+    public void shouldRunListenersStraightAwayOutsideATransaction() {
+        final Runnable listener = mock(Runnable.class);
+        when(transactionSynchronizationRegistry.getTransactionStatus()).thenReturn(STATUS_NO_TRANSACTION);
+
+        inJvmJobArrivalNotifier.addListener(listener);
+        inJvmJobArrivalNotifier.notifyJobArrival();
+
+        verify(listener).run();
+    }
+
+    @Test
+    public void shouldRunListenersOnceWhenTheTransactionCommits() {
+        final Runnable listener = mock(Runnable.class);
+        final ArgumentCaptor<Synchronization> synchronizationCaptor = ArgumentCaptor.forClass(Synchronization.class);
+        when(transactionSynchronizationRegistry.getTransactionStatus()).thenReturn(STATUS_ACTIVE);
+        when(transactionSynchronizationRegistry.getResource(any())).thenReturn(null, Boolean.TRUE);
+
+        inJvmJobArrivalNotifier.addListener(listener);
+        inJvmJobArrivalNotifier.notifyJobArrival();
+        inJvmJobArrivalNotifier.notifyJobArrival();
+
+        verify(listener, never()).run();
+        verify(transactionSynchronizationRegistry, times(1)).registerInterposedSynchronization(synchronizationCaptor.capture());
+
+        synchronizationCaptor.getValue().afterCompletion(STATUS_COMMITTED);
+
+        verify(listener).run();
+    }
+
+    @Test
+    public void shouldNotRunListenersWhenTheTransactionRollsBack() {
+        final Runnable listener = mock(Runnable.class);
+        final ArgumentCaptor<Synchronization> synchronizationCaptor = ArgumentCaptor.forClass(Synchronization.class);
+        when(transactionSynchronizationRegistry.getTransactionStatus()).thenReturn(STATUS_ACTIVE);
+
+        inJvmJobArrivalNotifier.addListener(listener);
+        inJvmJobArrivalNotifier.notifyJobArrival();
+
+        verify(transactionSynchronizationRegistry).registerInterposedSynchronization(synchronizationCaptor.capture());
+        synchronizationCaptor.getValue().afterCompletion(STATUS_ROLLEDBACK);
+
+        verify(listener, never()).run();
+    }
+
+    @Test
+    public void shouldKeepRunningListenersWhenOneFails() {
+        final Runnable failingListener = mock(Runnable.class);
+        final Runnable listener = mock(Runnable.class);
+        doThrow(new IllegalStateException("failed")).when(failingListener).run();
+        when(transactionSynchronizationRegistry.getTransactionStatus()).thenReturn(STATUS_NO_TRANSACTION);
+
+        inJvmJobArrivalNotifier.addListener(failingListener);
+        inJvmJobArrivalNotifier.addListener(listener);
+        inJvmJobArrivalNotifier.notifyJobArrival();
+
+        verify(listener).run();
+    }
+
+    @Test
+    public void shouldNotRunRemovedListeners() {
+        final Runnable listener = mock(Runnable.class);
+        when(transactionSynchronizationRegistry.getTransactionStatus()).thenReturn(STATUS_NO_TRANSACTION);
+
+        inJvmJobArrivalNotifier.addListener(listener);
+        inJvmJobArrivalNotifier.removeListener(listener);
+        inJvmJobArrivalNotifier.notifyJobArrival();
+
+        verify(listener, never()).run();
+    }
+}
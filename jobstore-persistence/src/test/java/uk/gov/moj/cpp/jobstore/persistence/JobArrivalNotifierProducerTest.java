@@ -0,0 +1,37 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JobArrivalNotifierProducerTest {
+
+    @Mock
+    private PostgresJobArrivalNotifier postgresJobArrivalNotifier;
+
+    @Mock
+    private InJvmJobArrivalNotifier inJvmJobArrivalNotifier;
+
+    @InjectMocks
+    private JobArrivalNotifierProducer jobArrivalNotifierProducer;
+
+    @Test
+    public void shouldUseListenNotifyForPostgres() {
+        jobArrivalNotifierProducer.jobSqlProvider = new PostgresJobSqlProvider();
+
+        assertThat(jobArrivalNotifierProducer.jobArrivalNotifier(), is(postgresJobArrivalNotifier));
+    }
+
+    @Test
+    public void shouldNotifyWithinTheJvmForH2() {
+        jobArrivalNotifierProducer.jobSqlProvider = new H2JobSqlProvider();
+
+        assertThat(jobArrivalNotifierProducer.jobArrivalNotifier(), is(inJvmJobArrivalNotifier));
+    }
+}
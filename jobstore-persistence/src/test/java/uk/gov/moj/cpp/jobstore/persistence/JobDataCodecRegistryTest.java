@@ -0,0 +1,72 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyIterator;
+import static java.util.Optional.empty;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import javax.enterprise.inject.Instance;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JobDataCodecRegistryTest {
+
+    @Mock
+    private Instance<JobDataCodec> jobDataCodecs;
+
+    @Mock
+    private Logger logger;
+
+    @InjectMocks
+    private JobDataCodecRegistry jobDataCodecRegistry;
+
+    @Test
+    public void shouldAlwaysProvideTheBuiltInCodecs() {
+        when(jobDataCodecs.iterator()).thenReturn(emptyIterator());
+        jobDataCodecRegistry.taskCodecs = "";
+        jobDataCodecRegistry.init();
+
+        assertThat(jobDataCodecRegistry.codecNamed("gzip-json"), is(instanceOf(GzipJsonJobDataCodec.class)));
+        assertThat(jobDataCodecRegistry.codecNamed("binary-json"), is(instanceOf(BinaryJsonJobDataCodec.class)));
+    }
+
+    @Test
+    public void shouldProvideTheCodecConfiguredForATask() {
+        final JobDataCodec customCodec = mock(JobDataCodec.class);
+        when(customCodec.getName()).thenReturn("custom");
+        when(jobDataCodecs.iterator()).thenReturn(asList(customCodec).iterator());
+        jobDataCodecRegistry.taskCodecs = "firstTask:custom, secondTask:gzip-json";
+        jobDataCodecRegistry.init();
+
+        assertThat(jobDataCodecRegistry.codecForTask("firstTask").get(), is(sameInstance(customCodec)));
+        assertThat(jobDataCodecRegistry.codecForTask("secondTask").get(), is(instanceOf(GzipJsonJobDataCodec.class)));
+        assertThat(jobDataCodecRegistry.codecForTask("otherTask"), is(empty()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAnUnknownCodecInTheTaskCodecSetting() {
+        when(jobDataCodecs.iterator()).thenReturn(emptyIterator());
+        jobDataCodecRegistry.taskCodecs = "firstTask:unknown";
+        jobDataCodecRegistry.init();
+    }
+
+    @Test(expected = JdbcRepositoryException.class)
+    public void shouldThrowWhenReadingJobDataWrittenByAnUnknownCodec() {
+        when(jobDataCodecs.iterator()).thenReturn(emptyIterator());
+        jobDataCodecRegistry.taskCodecs = "";
+        jobDataCodecRegistry.init();
+
+        jobDataCodecRegistry.codecNamed("unknown");
+    }
+}
@@ -0,0 +1,474 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static java.time.Duration.ofSeconds;
+import static java.time.ZonedDateTime.now;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyIterator;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static javax.json.Json.createReader;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.moj.cpp.jobstore.persistence.Job.job;
+import static uk.gov.justice.services.common.converter.ZonedDateTimes.toSqlTimestamp;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import javax.enterprise.inject.Instance;
+import javax.json.JsonObject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+public class JobJdbcRepositoryH2Test {
+
+    private static final String LIQUIBASE_JOB_STORE_DB_CHANGELOG_XML = "liquibase/jobstore-db-changelog.xml";
+    private static final String JOB_DATA_JSON = "{\"some\": \"json\"}";
+    private static final Duration JOB_LEASE = ofSeconds(30);
+
+    private final JobJdbcRepository jdbcRepository = new JobJdbcRepository();
+
+    @Before
+    public void createJdbcRepository() throws Exception {
+        jdbcRepository.dataSource = new TestDataSourceFactory(LIQUIBASE_JOB_STORE_DB_CHANGELOG_XML).createDataSource();
+        jdbcRepository.logger = mock(Logger.class);
+        jdbcRepository.preparedStatementWrapperFactory = new PreparedStatementWrapperFactory();
+        jdbcRepository.jdbcResultSetStreamer = new JdbcResultSetStreamer();
+        jdbcRepository.jobSqlProvider = new H2JobSqlProvider();
+        jdbcRepository.jobDataCodecRegistry = jobDataCodecRegistry("compressedTask:gzip-json");
+        jdbcRepository.priorityAgingSeconds = "60";
+    }
+
+    @Test
+    public void shouldWriteJobDataWithTheCodecConfiguredForItsNextTask() throws Exception {
+        final Job job = new Job(randomUUID(), jobData(JOB_DATA_JSON), "compressedTask", now().minusSeconds(1), empty(), empty());
+
+        jdbcRepository.insertJob(job);
+
+        try (final Connection connection = jdbcRepository.dataSource.getConnection();
+             final PreparedStatement preparedStatement = connection.prepareStatement(
+                     "SELECT job_data, job_data_codec, job_data_encoded FROM job WHERE job_id = ?")) {
+            preparedStatement.setObject(1, job.getJobId());
+
+            try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                assertThat(resultSet.getString("job_data"), is(nullValue()));
+                assertThat(resultSet.getString("job_data_codec"), is("gzip-json"));
+                assertThat(new GzipJsonJobDataCodec().decode(resultSet.getBytes("job_data_encoded")), is(jobData(JOB_DATA_JSON)));
+            }
+        }
+        assertThat(jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).findFirst().get().getJobData(), is(jobData(JOB_DATA_JSON)));
+    }
+
+    @Test
+    public void shouldSwitchJobDataBetweenJsonAndCodecAsTheJobAdvances() {
+        final UUID workerId = randomUUID();
+        final Job job = new Job(randomUUID(), jobData(JOB_DATA_JSON), "firstTask", now().minusMinutes(1), of(workerId), of(now()));
+        jdbcRepository.insertJob(job);
+
+        jdbcRepository.advanceJob(job.getJobId(), jobData("{\"some\": \"compressed json\"}"), "compressedTask", toSqlTimestamp(now().minusSeconds(1)), 0);
+        final Job compressedJob = jdbcRepository.claimJobsFor(workerId, 10, JOB_LEASE).findFirst().get();
+        assertThat(compressedJob.getJobData(), is(jobData("{\"some\": \"compressed json\"}")));
+
+        jdbcRepository.advanceJob(job.getJobId(), jobData("{\"some\": \"plain json\"}"), "lastTask", toSqlTimestamp(now().minusSeconds(1)), 0);
+        assertThat(jdbcRepository.claimJobsFor(workerId, 10, JOB_LEASE).findFirst().get().getJobData(), is(jobData("{\"some\": \"plain json\"}")));
+    }
+
+    @Test
+    public void shouldClaimJobsByLockingThenReadingWhenUpdateCannotReturnRows() {
+        createJobs(10);
+        final UUID workerId = randomUUID();
+
+        final List<Job> claimedJobs = jdbcRepository.claimJobsFor(workerId, 4, JOB_LEASE).collect(toList());
+
+        assertThat(claimedJobs.size(), is(4));
+        claimedJobs.forEach(job -> assertThat(job.getWorkerId(), is(of(workerId))));
+        assertThat(claimedJobs.get(0).getJobData(), is(jobData(JOB_DATA_JSON)));
+    }
+
+    @Test
+    public void shouldAdvanceJobToItsNextTaskAndReleaseIt() {
+        final UUID workerId = randomUUID();
+        final ZonedDateTime nextTaskStartTime = now().minusSeconds(1);
+        final Job job = new Job(randomUUID(), jobData(JOB_DATA_JSON), "firstTask", now().minusMinutes(1), of(workerId), of(now()));
+        jdbcRepository.insertJob(job);
+
+        jdbcRepository.advanceJob(job.getJobId(), jobData("{\"some\": \"updated json\"}"), "secondTask", toSqlTimestamp(nextTaskStartTime), 0);
+
+        assertThat(jdbcRepository.findJobsLockedTo(workerId).count(), is(0L));
+        final List<Job> claimedJobs = jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).collect(toList());
+        assertThat(claimedJobs.size(), is(1));
+        assertThat(claimedJobs.get(0).getNextTask(), is("secondTask"));
+        assertThat(claimedJobs.get(0).getNextTaskStartTime().toInstant(), is(nextTaskStartTime.toInstant()));
+        assertThat(claimedJobs.get(0).getJobData(), is(jobData("{\"some\": \"updated json\"}")));
+    }
+
+    @Test
+    public void shouldReleaseTheGivenJobsInOneUpdate() {
+        final UUID workerId = randomUUID();
+        final Job firstJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(1), of(workerId), of(now()));
+        final Job secondJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(1), of(workerId), of(now()));
+        final Job keptJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(1), of(workerId), of(now()));
+        jdbcRepository.insertJobs(Stream.of(firstJob, secondJob, keptJob), 10);
+
+        final int releasedCount = jdbcRepository.releaseJobs(asList(firstJob.getJobId(), secondJob.getJobId()));
+
+        assertThat(releasedCount, is(2));
+        assertThat(jdbcRepository.findJobsLockedTo(workerId).map(Job::getJobId).collect(toList()), is(singletonList(keptJob.getJobId())));
+    }
+
+    @Test
+    public void shouldRecordTheFailedAttemptAndReleaseTheJobUntilItsRetryTime() {
+        final UUID workerId = randomUUID();
+        final Job job = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(1), of(workerId), of(now()));
+        jdbcRepository.insertJob(job);
+
+        jdbcRepository.retryJob(job.getJobId(), 1, toSqlTimestamp(now().plusMinutes(1)), 0);
+
+        assertThat(jdbcRepository.findJobsLockedTo(workerId).count(), is(0L));
+        assertThat(jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).count(), is(0L));
+
+        jdbcRepository.retryJob(job.getJobId(), 2, toSqlTimestamp(now().minusSeconds(1)), 0);
+
+        final List<Job> claimedJobs = jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).collect(toList());
+        assertThat(claimedJobs.size(), is(1));
+        assertThat(claimedJobs.get(0).getAttempts(), is(2));
+    }
+
+    @Test
+    public void shouldResetTheAttemptsWhenTheJobAdvancesToItsNextTask() {
+        final Job job = dueJob(now().minusMinutes(1));
+        jdbcRepository.insertJob(job);
+        jdbcRepository.retryJob(job.getJobId(), 3, toSqlTimestamp(now().minusMinutes(1)), 0);
+
+        jdbcRepository.advanceJob(job.getJobId(), jobData(JOB_DATA_JSON), "secondTask", toSqlTimestamp(now().minusSeconds(1)), 0);
+
+        assertThat(jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).findFirst().get().getAttempts(), is(0));
+    }
+
+    @Test
+    public void shouldMoveADeadLetteredJobToTheDeadLetterTable() throws Exception {
+        final Job job = dueJob(now().minusMinutes(1));
+        jdbcRepository.insertJob(job);
+        jdbcRepository.retryJob(job.getJobId(), 4, toSqlTimestamp(now().minusMinutes(1)), 0);
+
+        jdbcRepository.deadLetterJob(job.getJobId(), "java.lang.IllegalStateException: downstream unavailable");
+
+        assertThat(jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).count(), is(0L));
+
+        try (final Connection connection = jdbcRepository.dataSource.getConnection();
+             final PreparedStatement preparedStatement = connection.prepareStatement(
+                     "SELECT job_data, next_task, attempts, failure, dead_letter_time FROM job_dead_letter WHERE job_id = ?")) {
+            preparedStatement.setObject(1, job.getJobId());
+
+            try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                assertThat(resultSet.getString("job_data"), is(jobData(JOB_DATA_JSON).toString()));
+                assertThat(resultSet.getString("next_task"), is("nextTask"));
+                assertThat(resultSet.getInt("attempts"), is(4));
+                assertThat(resultSet.getString("failure"), is("java.lang.IllegalStateException: downstream unavailable"));
+                assertThat(resultSet.getTimestamp("dead_letter_time"), is(notNullValue()));
+            }
+        }
+    }
+
+    @Test
+    public void shouldCheckpointJobWithoutReleasingIt() {
+        final UUID workerId = randomUUID();
+        final ZonedDateTime nextTaskStartTime = now().minusSeconds(1);
+        final Job job = new Job(randomUUID(), jobData(JOB_DATA_JSON), "firstTask", now().minusMinutes(1), of(workerId), of(now().minusMinutes(10)));
+        jdbcRepository.insertJob(job);
+
+        jdbcRepository.checkpointJob(job.getJobId(), jobData("{\"some\": \"checkpointed json\"}"), "secondTask", toSqlTimestamp(nextTaskStartTime), 0);
+
+        assertThat(jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).count(), is(0L));
+        final List<Job> lockedJobs = jdbcRepository.findJobsLockedTo(workerId).collect(toList());
+        assertThat(lockedJobs.size(), is(1));
+        assertThat(lockedJobs.get(0).getNextTask(), is("secondTask"));
+        assertThat(lockedJobs.get(0).getJobData(), is(jobData("{\"some\": \"checkpointed json\"}")));
+    }
+
+    @Test
+    public void shouldInsertJobsInBatchesIncludingAPartialLastBatch() {
+        final List<UUID> jobIds = Stream.generate(UUID::randomUUID).limit(10).collect(toList());
+
+        jdbcRepository.insertJobs(jobIds.stream().map(jobId -> new Job(jobId, jobData(JOB_DATA_JSON), "nextTask", now().minusSeconds(1), empty(), empty())), 3);
+
+        final List<UUID> claimedJobIds = jdbcRepository.claimJobsFor(randomUUID(), 20, JOB_LEASE).map(Job::getJobId).collect(toList());
+        assertThat(claimedJobIds.size(), is(10));
+        assertThat(claimedJobIds.containsAll(jobIds), is(true));
+    }
+
+    @Test
+    public void shouldNotClaimJobsWhoseLeaseHasBeenRenewed() {
+        final UUID workerId = randomUUID();
+        final Job lockedJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(5), of(workerId), of(now().minusMinutes(1)));
+        jdbcRepository.insertJob(lockedJob);
+
+        jdbcRepository.renewJobLeases(singletonList(lockedJob));
+
+        assertThat(jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).count(), is(0L));
+        assertThat(jdbcRepository.findJobsLockedTo(workerId).count(), is(1L));
+    }
+
+    @Test
+    public void shouldReturnTheJobsWhoseLeaseCouldNotBeRenewed() {
+        final UUID workerId = randomUUID();
+        final Job lockedJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(5), of(workerId), of(now().minusMinutes(1)));
+        final Job releasedJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(5), empty(), empty());
+        jdbcRepository.insertJob(lockedJob);
+        jdbcRepository.insertJob(releasedJob);
+        final Job releasedJobAsHeld = new Job(releasedJob.getJobId(), releasedJob.getJobData(), "nextTask", releasedJob.getNextTaskStartTime(), of(workerId), of(now()));
+
+        final List<Job> lostJobs = jdbcRepository.renewJobLeases(asList(lockedJob, releasedJobAsHeld));
+
+        assertThat(lostJobs, is(singletonList(releasedJobAsHeld)));
+    }
+
+    @Test
+    public void shouldClaimJobsWhoseLeaseHasExpired() {
+        final Job expiredJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(5), of(randomUUID()), of(now().minusMinutes(1)));
+        jdbcRepository.insertJob(expiredJob);
+        final UUID workerId = randomUUID();
+
+        final List<Job> claimedJobs = jdbcRepository.claimJobsFor(workerId, 10, JOB_LEASE).collect(toList());
+
+        assertThat(claimedJobs.size(), is(1));
+        assertThat(claimedJobs.get(0).getWorkerId(), is(of(workerId)));
+    }
+
+    @Test
+    public void shouldClaimASingleJobById() {
+        createJobs(3);
+        final Job job = dueJob(now().minusSeconds(1));
+        jdbcRepository.insertJob(job);
+        final UUID workerId = randomUUID();
+
+        final List<Job> claimedJobs = jdbcRepository.claimJob(job.getJobId(), workerId, JOB_LEASE).collect(toList());
+
+        assertThat(claimedJobs.size(), is(1));
+        assertThat(claimedJobs.get(0).getJobId(), is(job.getJobId()));
+        assertThat(claimedJobs.get(0).getWorkerId(), is(of(workerId)));
+        assertThat(jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).count(), is(3L));
+    }
+
+    @Test
+    public void shouldOnlyReturnTheNewlyClaimedJobsToAWorkerThatAlreadyHoldsJobs() {
+        final UUID workerId = randomUUID();
+        final Job heldJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusSeconds(1), of(workerId), of(now().minusSeconds(5)));
+        final Job dueJob = dueJob(now().minusSeconds(1));
+        final Job jobDueById = dueJob(now().minusSeconds(1));
+        jdbcRepository.insertJobs(Stream.of(heldJob, dueJob, jobDueById), 10);
+
+        assertThat(jdbcRepository.claimJob(jobDueById.getJobId(), workerId, JOB_LEASE).map(Job::getJobId).collect(toList()), is(singletonList(jobDueById.getJobId())));
+        assertThat(jdbcRepository.claimJobsFor(workerId, 10, JOB_LEASE).map(Job::getJobId).collect(toList()), is(singletonList(dueJob.getJobId())));
+        assertThat(jdbcRepository.findJobsLockedTo(workerId).count(), is(3L));
+    }
+
+    @Test
+    public void shouldReleaseTheJobsOfWorkersWhoseHeartbeatHasExpired() throws Exception {
+        final UUID deadWorkerId = randomUUID();
+        final UUID liveWorkerId = randomUUID();
+        final UUID unknownWorkerId = randomUUID();
+        jdbcRepository.insertJobs(Stream.of(
+                new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(1), of(deadWorkerId), of(now())),
+                new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(1), of(deadWorkerId), of(now())),
+                new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(1), of(liveWorkerId), of(now())),
+                new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(1), of(unknownWorkerId), of(now()))), 10);
+        jdbcRepository.recordWorkerHeartbeat(deadWorkerId);
+        jdbcRepository.recordWorkerHeartbeat(liveWorkerId);
+        setHeartbeatTime(deadWorkerId, now().minusMinutes(5));
+
+        jdbcRepository.recordWorkerHeartbeat(liveWorkerId);
+        final int releasedCount = jdbcRepository.releaseJobsOfExpiredWorkers(ofSeconds(30));
+
+        assertThat(releasedCount, is(2));
+        assertThat(jdbcRepository.findJobsLockedTo(deadWorkerId).count(), is(0L));
+        assertThat(jdbcRepository.findJobsLockedTo(liveWorkerId).count(), is(1L));
+        assertThat(jdbcRepository.findJobsLockedTo(unknownWorkerId).count(), is(1L));
+        assertThat(jdbcRepository.releaseJobsOfExpiredWorkers(ofSeconds(30)), is(0));
+    }
+
+    @Test
+    public void shouldNotClaimAJobByIdThatIsLockedToAnotherWorker() {
+        final UUID workerId = randomUUID();
+        final Job lockedJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusSeconds(1), of(workerId), of(now()));
+        jdbcRepository.insertJob(lockedJob);
+
+        assertThat(jdbcRepository.claimJob(lockedJob.getJobId(), randomUUID(), JOB_LEASE).count(), is(0L));
+        assertThat(jdbcRepository.findJobsLockedTo(workerId).count(), is(1L));
+    }
+
+    @Test
+    public void shouldFindJobsLockedToWorkerUsingTheWorkerIdIndex() throws Exception {
+        try (final Connection connection = jdbcRepository.dataSource.getConnection();
+             final PreparedStatement preparedStatement = connection.prepareStatement(
+                     "EXPLAIN SELECT job_id FROM job WHERE worker_id = ?")) {
+            preparedStatement.setObject(1, randomUUID());
+
+            try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                assertThat(resultSet.getString(1).toLowerCase(), containsString("job_worker_id_next_task_start_time_idx"));
+            }
+        }
+    }
+
+    @Test
+    public void shouldOnlyClaimJobsForTheGivenTasks() {
+        final Job firstTaskJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "firstTask", now().minusSeconds(1), empty(), empty());
+        final Job secondTaskJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "secondTask", now().minusSeconds(1), empty(), empty());
+        final Job otherTaskJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "otherTask", now().minusSeconds(1), empty(), empty());
+        jdbcRepository.insertJobs(Stream.of(firstTaskJob, secondTaskJob, otherTaskJob), 10);
+
+        final List<UUID> claimedJobIds = jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE, new HashSet<>(asList("firstTask", "secondTask")))
+                .map(Job::getJobId)
+                .collect(toList());
+
+        assertThat(claimedJobIds.size(), is(2));
+        assertThat(claimedJobIds.containsAll(asList(firstTaskJob.getJobId(), secondTaskJob.getJobId())), is(true));
+    }
+
+    @Test
+    public void shouldClaimJobsFallingDueWithinTheLookAhead() {
+        final Job dueSoonJob = dueJob(now().plusSeconds(5));
+        final Job dueLaterJob = dueJob(now().plusMinutes(5));
+        jdbcRepository.insertJobs(Stream.of(dueSoonJob, dueLaterJob), 10);
+        final Set<String> taskNames = singleton("nextTask");
+
+        assertThat(jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE, taskNames).count(), is(0L));
+
+        final List<UUID> claimedJobIds = jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE, taskNames, ofSeconds(30)).map(Job::getJobId).collect(toList());
+        assertThat(claimedJobIds, is(singletonList(dueSoonJob.getJobId())));
+    }
+
+    @Test
+    public void shouldFindTheEarliestStartTimeOfTheUnassignedJobsForTheGivenTasks() {
+        final Job laterJob = dueJob(now().plusMinutes(10));
+        final Job earliestJob = dueJob(now().plusMinutes(5));
+        final Job otherTaskJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "otherTask", now().plusMinutes(1), empty(), empty());
+        jdbcRepository.insertJobs(Stream.of(laterJob, earliestJob, otherTaskJob), 10);
+
+        final Optional<ZonedDateTime> earliestStartTime = jdbcRepository.findEarliestUnassignedStartTime(singleton("nextTask"));
+
+        assertThat(earliestStartTime.map(startTime -> startTime.toInstant().toEpochMilli()), is(of(earliestJob.getNextTaskStartTime().toInstant().toEpochMilli())));
+        assertThat(jdbcRepository.findEarliestUnassignedStartTime(singleton("unknownTask")), is(empty()));
+    }
+
+    @Test
+    public void shouldNotClaimAnyJobsWhenNoTasksAreGiven() {
+        createJobs(3);
+
+        assertThat(jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE, emptySet()).count(), is(0L));
+        assertThat(jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).count(), is(3L));
+    }
+
+    @Test
+    public void shouldClaimHigherPriorityJobsFirst() {
+        createJobs(5);
+        final Job urgentJob = job().from(dueJob(now().minusSeconds(1))).withPriority(5).build();
+        final Job otherUrgentJob = job().from(dueJob(now().minusSeconds(1))).withPriority(3).build();
+        jdbcRepository.insertJob(urgentJob);
+        jdbcRepository.insertJob(otherUrgentJob);
+
+        final List<UUID> claimedJobIds = jdbcRepository.claimJobsFor(randomUUID(), 2, JOB_LEASE).map(Job::getJobId).collect(toList());
+
+        assertThat(claimedJobIds.size(), is(2));
+        assertThat(claimedJobIds.containsAll(asList(urgentJob.getJobId(), otherUrgentJob.getJobId())), is(true));
+    }
+
+    @Test
+    public void shouldClaimALongWaitingJobAheadOfANewlyDueHigherPriorityJob() {
+        final Job waitingJob = dueJob(now().minusMinutes(10));
+        final Job urgentJob = job().from(dueJob(now().minusSeconds(1))).withPriority(5).build();
+        jdbcRepository.insertJob(urgentJob);
+        jdbcRepository.insertJob(waitingJob);
+
+        final List<Job> claimedJobs = jdbcRepository.claimJobsFor(randomUUID(), 1, JOB_LEASE).collect(toList());
+
+        assertThat(claimedJobs.size(), is(1));
+        assertThat(claimedJobs.get(0).getJobId(), is(waitingJob.getJobId()));
+        assertThat(claimedJobs.get(0).getPriority(), is(0));
+    }
+
+    @Test
+    public void shouldKeepThePriorityOfAnAdvancedJob() {
+        final UUID workerId = randomUUID();
+        final Job job = job().from(dueJob(now().minusMinutes(1))).withWorkerId(of(workerId)).withWorkerLockTime(of(now())).withPriority(7).build();
+        jdbcRepository.insertJob(job);
+
+        jdbcRepository.advanceJob(job.getJobId(), jobData(JOB_DATA_JSON), "secondTask", toSqlTimestamp(now().minusSeconds(1)), job.getPriority());
+
+        assertThat(jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).findFirst().get().getPriority(), is(7));
+    }
+
+    @Test
+    public void shouldDeleteCompletedJobsAndLeavePartitionsAloneWhenTheTableIsNotPartitioned() {
+        final UUID workerId = randomUUID();
+        final Job job = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(1), of(workerId), of(now()));
+        jdbcRepository.insertJob(job);
+
+        jdbcRepository.createJobPartitionsUntil(LocalDate.now().plusDays(7));
+        jdbcRepository.deleteJob(job.getJobId());
+
+        assertThat(jdbcRepository.findJobsLockedTo(workerId).count(), is(0L));
+        assertThat(jdbcRepository.dropFinishedJobPartitionsBefore(LocalDate.now()), is(0));
+    }
+
+    private void createJobs(final int count) {
+        for (int i = 0; i < count; i++) {
+            jdbcRepository.insertJob(new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusSeconds(1), empty(), empty()));
+        }
+    }
+
+    private void setHeartbeatTime(final UUID workerId, final ZonedDateTime heartbeatTime) throws Exception {
+        try (final Connection connection = jdbcRepository.dataSource.getConnection();
+             final PreparedStatement preparedStatement = connection.prepareStatement("UPDATE worker SET heartbeat_time = ? WHERE worker_id = ?")) {
+            preparedStatement.setTimestamp(1, toSqlTimestamp(heartbeatTime));
+            preparedStatement.setObject(2, workerId);
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    private Job dueJob(final ZonedDateTime nextTaskStartTime) {
+        return new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", nextTaskStartTime, empty(), empty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private JobDataCodecRegistry jobDataCodecRegistry(final String taskCodecs) {
+        final JobDataCodecRegistry jobDataCodecRegistry = new JobDataCodecRegistry();
+        jobDataCodecRegistry.taskCodecs = taskCodecs;
+        jobDataCodecRegistry.jobDataCodecs = mock(Instance.class);
+        jobDataCodecRegistry.logger = mock(Logger.class);
+        when(jobDataCodecRegistry.jobDataCodecs.iterator()).thenReturn(emptyIterator());
+        jobDataCodecRegistry.init();
+
+        return jobDataCodecRegistry;
+    }
+
+    private JsonObject jobData(final String json) {
+        return createReader(new StringReader(json)).readObject();
+    }
+}
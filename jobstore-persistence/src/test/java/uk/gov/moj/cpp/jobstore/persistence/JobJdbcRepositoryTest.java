@@ -1,12 +1,18 @@
 package uk.gov.moj.cpp.jobstore.persistence;
 
+import static java.time.Duration.ofSeconds;
 import static java.time.ZonedDateTime.now;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyIterator;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
 import static java.util.UUID.randomUUID;
 import static java.util.stream.Collectors.toList;
 import static javax.json.Json.createReader;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
@@ -23,12 +29,15 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.enterprise.inject.Instance;
 import javax.json.JsonObject;
 import javax.sql.DataSource;
 
@@ -41,6 +50,7 @@ public class JobJdbcRepositoryTest {
     private static final String LIQUIBASE_JOB_STORE_DB_CHANGELOG_XML = "liquibase/jobstore-db-changelog.xml";
     private static final String JOBS_COUNT = "SELECT COUNT(*) FROM job";
     private static final String JOB_DATA_JSON = "{\"some\": \"json\"}";
+    private static final Duration JOB_LEASE = ofSeconds(30);
 
     private final DataSource eventStoreDataSource = new PostgresDataSourceFactory().createJobStoreDataSource();
     private final JobJdbcRepository jdbcRepository = new JobJdbcRepository();
@@ -60,6 +70,8 @@ public class JobJdbcRepositoryTest {
         jdbcRepository.preparedStatementWrapperFactory = new PreparedStatementWrapperFactory();
         jdbcRepository.jdbcResultSetStreamer = new JdbcResultSetStreamer();
         jdbcRepository.jobSqlProvider = new PostgresJobSqlProvider();
+        jdbcRepository.jobDataCodecRegistry = jobDataCodecRegistry("compressedTask:gzip-json");
+        jdbcRepository.priorityAgingSeconds = "60";
         checkIfReady();
     }
 
@@ -146,6 +158,29 @@ public class JobJdbcRepositoryTest {
         assertThat(jobs.get(0).getNextTaskStartTime(), is(nextTaskStartTimeAfterUpdate));
     }
 
+    @Test
+    public void shouldInsertJobsInBatches() throws SQLException {
+        jdbcRepository.insertJobs(Stream.generate(() -> new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now(), empty(), empty())).limit(25), 10);
+
+        assertThat(jobsCount(), is(25));
+    }
+
+    @Test
+    public void shouldAdvanceJobToItsNextTaskAndReleaseIt() {
+        final UUID workerId = randomUUID();
+        final ZonedDateTime nextTaskStartTime = now().minusSeconds(1);
+        final Job job = new Job(randomUUID(), jobData(JOB_DATA_JSON), "firstTask", now().minusMinutes(1), of(workerId), of(now()));
+        jdbcRepository.insertJob(job);
+
+        jdbcRepository.advanceJob(job.getJobId(), jobData("{\"some\": \"updated json\"}"), "secondTask", toSqlTimestamp(nextTaskStartTime), 0);
+
+        assertThat(jdbcRepository.findJobsLockedTo(workerId).count(), is(0L));
+        final List<Job> claimedJobs = jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).collect(toList());
+        assertThat(claimedJobs.size(), is(1));
+        assertThat(claimedJobs.get(0).getNextTask(), is("secondTask"));
+        assertThat(claimedJobs.get(0).getJobData(), is(jobData("{\"some\": \"updated json\"}")));
+    }
+
     @Test
     public void shouldLockJobsToWorker() throws SQLException {
         createJobs(10);
@@ -185,6 +220,61 @@ public class JobJdbcRepositoryTest {
         assertThat(jobs.get(1).getWorkerId(), is(of(worker)));
     }
 
+    @Test
+    public void shouldClaimJobsToWorker() {
+        createJobs(10);
+        final UUID workerId = randomUUID();
+
+        final List<Job> claimedJobs = jdbcRepository.claimJobsFor(workerId, 4, JOB_LEASE).collect(toList());
+
+        assertThat(claimedJobs.size(), is(4));
+        claimedJobs.forEach(job -> assertThat(job.getWorkerId(), is(of(workerId))));
+        assertThat(jdbcRepository.findJobsLockedTo(workerId).count(), is(4L));
+    }
+
+    @Test
+    public void shouldNotClaimJobsAlreadyClaimedByAnotherWorker() {
+        createJobs(6);
+        final UUID firstWorkerId = randomUUID();
+        final UUID secondWorkerId = randomUUID();
+
+        final List<Job> firstClaim = jdbcRepository.claimJobsFor(firstWorkerId, 4, JOB_LEASE).collect(toList());
+        final List<Job> secondClaim = jdbcRepository.claimJobsFor(secondWorkerId, 4, JOB_LEASE).collect(toList());
+
+        assertThat(firstClaim.size(), is(4));
+        assertThat(secondClaim.size(), is(2));
+        secondClaim.forEach(job -> assertThat(firstClaim.stream().anyMatch(claimed -> claimed.getJobId().equals(job.getJobId())), is(false)));
+    }
+
+    @Test
+    public void shouldClaimJobsWhoseLeaseHasExpired() {
+        final UUID deadWorkerId = randomUUID();
+        final Job expiredJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(5), of(deadWorkerId), of(now().minusMinutes(1)));
+        final Job leasedJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(5), of(deadWorkerId), of(now()));
+        jdbcRepository.insertJob(expiredJob);
+        jdbcRepository.insertJob(leasedJob);
+        final UUID workerId = randomUUID();
+
+        final List<Job> claimedJobs = jdbcRepository.claimJobsFor(workerId, 10, JOB_LEASE).collect(toList());
+
+        assertThat(claimedJobs.size(), is(1));
+        assertThat(claimedJobs.get(0).getJobId(), is(expiredJob.getJobId()));
+    }
+
+    @Test
+    public void shouldRenewLeasesOfJobsStillLockedToTheirWorker() {
+        final UUID workerId = randomUUID();
+        final Job lockedJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(5), of(workerId), of(now().minusMinutes(1)));
+        final Job releasedJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusMinutes(5), empty(), empty());
+        jdbcRepository.insertJob(lockedJob);
+        jdbcRepository.insertJob(releasedJob);
+
+        jdbcRepository.renewJobLeases(asList(lockedJob, new Job(releasedJob.getJobId(), releasedJob.getJobData(), "nextTask", releasedJob.getNextTaskStartTime(), of(workerId), of(now()))));
+
+        assertThat(jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).map(Job::getJobId).collect(toList()), is(singletonList(releasedJob.getJobId())));
+        assertThat(jdbcRepository.findJobsLockedTo(workerId).count(), is(1L));
+    }
+
     @Test
     public void shouldReleaseJob() {
         final UUID jobId1 = randomUUID();
@@ -239,6 +329,14 @@ public class JobJdbcRepositoryTest {
         jdbcRepository.insertJob(mock(Job.class));
     }
 
+    @Test(expected = JdbcRepositoryException.class)
+    public void shouldThrowJdbcRepositoryExceptionWhenCreatingInBatches() throws SQLException {
+        final PreparedStatementWrapperFactory preparedStatementWrapperFactory = mock(PreparedStatementWrapperFactory.class);
+        when(preparedStatementWrapperFactory.preparedStatementWrapperOf(any(), any())).thenThrow(SQLException.class);
+        jdbcRepository.preparedStatementWrapperFactory = preparedStatementWrapperFactory;
+        jdbcRepository.insertJobs(Stream.of(mock(Job.class)), 10);
+    }
+
     @Test(expected = JdbcRepositoryException.class)
     public void shouldThrowJdbcRepositoryExceptionWhenDeleting() throws SQLException {
         final PreparedStatementWrapperFactory preparedStatementWrapperFactory = mock(PreparedStatementWrapperFactory.class);
@@ -263,6 +361,14 @@ public class JobJdbcRepositoryTest {
         jdbcRepository.updateNextTaskDetails(randomUUID(), "string", mock(Timestamp.class));
     }
 
+    @Test(expected = JdbcRepositoryException.class)
+    public void shouldThrowJdbcRepositoryExceptionWhenAdvancingJob() throws SQLException {
+        final PreparedStatementWrapperFactory preparedStatementWrapperFactory = mock(PreparedStatementWrapperFactory.class);
+        when(preparedStatementWrapperFactory.preparedStatementWrapperOf(any(), any())).thenThrow(SQLException.class);
+        jdbcRepository.preparedStatementWrapperFactory = preparedStatementWrapperFactory;
+        jdbcRepository.advanceJob(randomUUID(), mock(JsonObject.class), "string", mock(Timestamp.class), 0);
+    }
+
     @Test(expected = JdbcRepositoryException.class)
     public void shouldThrowJdbcRepositoryExceptionWhenLocingJobs() throws SQLException {
         final PreparedStatementWrapperFactory preparedStatementWrapperFactory = mock(PreparedStatementWrapperFactory.class);
@@ -271,6 +377,22 @@ public class JobJdbcRepositoryTest {
         jdbcRepository.lockJobsFor(randomUUID(), 2);
     }
 
+    @Test(expected = JdbcRepositoryException.class)
+    public void shouldThrowJdbcRepositoryExceptionWhenClaimingJobs() throws SQLException {
+        final PreparedStatementWrapperFactory preparedStatementWrapperFactory = mock(PreparedStatementWrapperFactory.class);
+        when(preparedStatementWrapperFactory.preparedStatementWrapperOf(any(), any())).thenThrow(SQLException.class);
+        jdbcRepository.preparedStatementWrapperFactory = preparedStatementWrapperFactory;
+        jdbcRepository.claimJobsFor(randomUUID(), 2, JOB_LEASE);
+    }
+
+    @Test(expected = JdbcRepositoryException.class)
+    public void shouldThrowJdbcRepositoryExceptionWhenRenewingJobLeases() throws SQLException {
+        final PreparedStatementWrapperFactory preparedStatementWrapperFactory = mock(PreparedStatementWrapperFactory.class);
+        when(preparedStatementWrapperFactory.preparedStatementWrapperOf(any(), any())).thenThrow(SQLException.class);
+        jdbcRepository.preparedStatementWrapperFactory = preparedStatementWrapperFactory;
+        jdbcRepository.renewJobLeases(singletonList(mock(Job.class)));
+    }
+
     @Test(expected = JdbcRepositoryException.class)
     public void shouldThrowJdbcRepositoryExceptionWheoFindingJobsLockedTo() throws SQLException {
         final PreparedStatementWrapperFactory preparedStatementWrapperFactory = mock(PreparedStatementWrapperFactory.class);
@@ -287,6 +409,40 @@ public class JobJdbcRepositoryTest {
         jdbcRepository.releaseJob(randomUUID());
     }
 
+    @Test
+    public void shouldOnlyClaimJobsForTheGivenTasks() {
+        final Job registeredTaskJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "registeredTask", now().minusSeconds(1), empty(), empty());
+        final Job otherTaskJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "otherTask", now().minusSeconds(1), empty(), empty());
+        jdbcRepository.insertJob(registeredTaskJob);
+        jdbcRepository.insertJob(otherTaskJob);
+
+        final List<Job> claimedJobs = jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE, singleton("registeredTask")).collect(toList());
+
+        assertThat(claimedJobs.size(), is(1));
+        assertThat(claimedJobs.get(0).getJobId(), is(registeredTaskJob.getJobId()));
+    }
+
+    @Test
+    public void shouldStoreJobDataForCodecTasksEncodedAndReadLegacyJsonRows() throws SQLException {
+        final Job compressedJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "compressedTask", now().minusSeconds(1), empty(), empty());
+        final Job jsonJob = new Job(randomUUID(), jobData(JOB_DATA_JSON), "nextTask", now().minusSeconds(1), empty(), empty());
+        jdbcRepository.insertJob(compressedJob);
+        jdbcRepository.insertJob(jsonJob);
+
+        final PreparedStatementWrapper ps = jdbcRepository.preparedStatementWrapperFactory.preparedStatementWrapperOf(jdbcRepository.dataSource,
+                "SELECT job_data, job_data_codec FROM job WHERE job_id = ?");
+        ps.setObject(1, compressedJob.getJobId());
+        final ResultSet rs = ps.executeQuery();
+        rs.next();
+        assertThat(rs.getString("job_data"), is(nullValue()));
+        assertThat(rs.getString("job_data_codec"), is("gzip-json"));
+        ps.close();
+
+        final List<Job> claimedJobs = jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).collect(toList());
+        assertThat(claimedJobs.size(), is(2));
+        claimedJobs.forEach(job -> assertThat(job.getJobData(), is(jobData(JOB_DATA_JSON))));
+    }
+
     private void createJobs(final int count) {
         int i = 0;
         while (i < count) {
@@ -312,6 +468,18 @@ public class JobJdbcRepositoryTest {
         return jobsCount;
     }
 
+    @SuppressWarnings("unchecked")
+    private JobDataCodecRegistry jobDataCodecRegistry(final String taskCodecs) {
+        final JobDataCodecRegistry jobDataCodecRegistry = new JobDataCodecRegistry();
+        jobDataCodecRegistry.taskCodecs = taskCodecs;
+        jobDataCodecRegistry.jobDataCodecs = mock(Instance.class);
+        jobDataCodecRegistry.logger = mock(Logger.class);
+        when(jobDataCodecRegistry.jobDataCodecs.iterator()).thenReturn(emptyIterator());
+        jobDataCodecRegistry.init();
+
+        return jobDataCodecRegistry;
+    }
+
     private JsonObject jobData(final String json) {
         return createReader(new StringReader(json)).readObject();
     }
@@ -0,0 +1,117 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static java.lang.String.format;
+import static java.time.ZonedDateTime.now;
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static uk.gov.justice.services.common.converter.ZonedDateTimes.toSqlTimestamp;
+
+import uk.gov.justice.services.test.utils.core.jdbc.LiquibaseDatabaseBootstrapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Guards the query plans of the claim and lookup statements against regressing to sequential
+ * scans of the job table. Sequential scans are disabled for the session so the planner picks the
+ * claim indexes whenever they can answer the query, regardless of how few rows the table holds.
+ */
+public class JobQueryPlanTest {
+
+    private static final String LIQUIBASE_JOB_STORE_DB_CHANGELOG_XML = "liquibase/jobstore-db-changelog.xml";
+    private static final String JOBS_LOCKED_TO_SQL = "SELECT job_id, job_data, job_data_codec, job_data_encoded, worker_id, worker_lock_time, next_task, next_task_start_time, priority, attempts from job WHERE worker_id= ?";
+
+    private final DataSource jobStoreDataSource = new PostgresDataSourceFactory().createJobStoreDataSource();
+
+    @Before
+    public void runLiquibase() throws Exception {
+        try (final Connection connection = jobStoreDataSource.getConnection()) {
+            new LiquibaseDatabaseBootstrapper().bootstrap(LIQUIBASE_JOB_STORE_DB_CHANGELOG_XML, connection);
+        }
+    }
+
+    @Test
+    public void shouldClaimJobsInEffectiveStartTimeOrderUsingTheEffectiveStartTimeIndex() throws Exception {
+        final Timestamp now = toSqlTimestamp(now());
+        final Timestamp oneHourAgo = toSqlTimestamp(now().minusHours(1));
+
+        final String plan = explain(format(new PostgresJobSqlProvider().getClaimJobsSql().get(), ""),
+                randomUUID(), now, oneHourAgo, now, 10);
+
+        assertThat(plan, containsString("job_effective_start_time_idx"));
+        assertThat(plan, not(containsString("Sort")));
+        assertThat(plan, not(containsString("Seq Scan")));
+    }
+
+    @Test
+    public void shouldNotWalkPastFinishedJobsWhenClaiming() throws Exception {
+        final Timestamp now = toSqlTimestamp(now());
+        final Timestamp oneHourAgo = toSqlTimestamp(now().minusHours(1));
+
+        try (final Connection connection = jobStoreDataSource.getConnection()) {
+            connection.setAutoCommit(false);
+
+            try (final Statement statement = connection.createStatement()) {
+                statement.execute("SET enable_seqscan = off");
+                statement.execute("INSERT INTO job (job_id, job_data, next_task, next_task_start_time, effective_start_time) " +
+                        "SELECT md5(random()::text)::uuid, '{}'::jsonb, 'finishedTask', null, now() - interval '2 days' + n * interval '1 second' " +
+                        "FROM generate_series(1, 1000) n");
+                statement.execute("ANALYZE job");
+            }
+
+            final String plan = explain(connection, "EXPLAIN ANALYZE " + format(new PostgresJobSqlProvider().getClaimJobsSql().get(), ""),
+                    randomUUID(), now, oneHourAgo, now, 10);
+
+            connection.rollback();
+
+            assertThat(plan, containsString("job_effective_start_time_idx"));
+            assertThat(plan, not(containsString("Rows Removed by Filter")));
+        }
+    }
+
+    @Test
+    public void shouldFindJobsLockedToWorkerUsingTheWorkerIdIndex() throws Exception {
+        final String plan = explain(JOBS_LOCKED_TO_SQL, randomUUID());
+
+        assertThat(plan, containsString("job_worker_id_idx"));
+        assertThat(plan, not(containsString("Seq Scan")));
+    }
+
+    private String explain(final String sql, final Object... parameters) throws SQLException {
+        try (final Connection connection = jobStoreDataSource.getConnection()) {
+            try (final Statement statement = connection.createStatement()) {
+                statement.execute("SET enable_seqscan = off");
+            }
+
+            return explain(connection, "EXPLAIN " + sql, parameters);
+        }
+    }
+
+    private String explain(final Connection connection, final String explainSql, final Object... parameters) throws SQLException {
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(explainSql)) {
+            for (int index = 0; index < parameters.length; index++) {
+                preparedStatement.setObject(index + 1, parameters[index]);
+            }
+
+            final StringBuilder plan = new StringBuilder();
+            try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
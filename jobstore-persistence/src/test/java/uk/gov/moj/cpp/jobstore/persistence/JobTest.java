@@ -39,4 +39,23 @@ public class JobTest {
         assertThat(copiedExecutionInfo.getNextTaskStartTime(), is(nextTaskStartTime));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldNotMaterialiseLazyJobDataUntilRequested() {
+        final LazyJsonObject lazyJobData = new LazyJsonObject("{\"some\": \"json\"}");
+        final Job job = new Job(randomUUID(), lazyJobData, NEXT_TASK, nextTaskStartTime, empty(), empty());
+
+        final Job copiedJob = Job.job().from(job).build();
+
+        assertThat(lazyJobData.isParsed(), is(false));
+        assertThat(copiedJob.getJobData().getString("some"), is("json"));
+        assertThat(lazyJobData.isParsed(), is(true));
+    }
+
+    @Test
+    public void shouldCopyThePriorityOfAJob() {
+        final Job job = Job.job().from(new Job(randomUUID(), jobData, NEXT_TASK, nextTaskStartTime, empty(), empty())).withPriority(5).build();
+
+        assertThat(Job.job().from(job).build().getPriority(), is(5));
+        assertThat(new Job(randomUUID(), jobData, NEXT_TASK, nextTaskStartTime, empty(), empty()).getPriority(), is(Job.DEFAULT_PRIORITY));
+    }
+}
@@ -0,0 +1,33 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import javax.json.JsonObject;
+
+import org.junit.Test;
+
+public class LazyJsonObjectTest {
+
+    private static final String JOB_DATA_JSON = "{\"some\": \"json\"}";
+
+    @Test
+    public void shouldNotParseUntilFirstRequested() {
+        final LazyJsonObject lazyJsonObject = new LazyJsonObject(JOB_DATA_JSON);
+
+        assertThat(lazyJsonObject.isParsed(), is(false));
+
+        assertThat(lazyJsonObject.get().getString("some"), is("json"));
+        assertThat(lazyJsonObject.isParsed(), is(true));
+    }
+
+    @Test
+    public void shouldParseOnlyOnce() {
+        final LazyJsonObject lazyJsonObject = new LazyJsonObject(JOB_DATA_JSON);
+
+        final JsonObject first = lazyJsonObject.get();
+
+        assertThat(lazyJsonObject.get(), is(sameInstance(first)));
+    }
+}
@@ -0,0 +1,229 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static java.lang.String.format;
+import static java.time.Duration.ofSeconds;
+import static java.time.ZoneOffset.UTC;
+import static java.time.ZonedDateTime.now;
+import static java.time.format.DateTimeFormatter.BASIC_ISO_DATE;
+import static java.util.Collections.emptyIterator;
+import static java.util.Optional.empty;
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static javax.json.Json.createObjectBuilder;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.justice.services.common.converter.ZonedDateTimes.toSqlTimestamp;
+
+import uk.gov.justice.services.test.utils.core.jdbc.LiquibaseDatabaseBootstrapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import javax.enterprise.inject.Instance;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+public class PartitionedJobJdbcRepositoryTest {
+
+    private static final String LIQUIBASE_PARTITIONED_JOB_STORE_DB_CHANGELOG_XML = "liquibase/jobstore-partitioned-db-changelog.xml";
+    private static final String DROP_JOB_TABLE_SQL = "DROP TABLE IF EXISTS job CASCADE";
+    private static final String CREATE_JOB_PARTITION_SQL = "CREATE TABLE %s PARTITION OF job FOR VALUES FROM ('%s') TO ('%s')";
+    private static final String MOVE_JOB_TO_DAY_SQL = "UPDATE job SET created_time = ? WHERE job_id = ?";
+    private static final String JOBS_COUNT_SQL = "SELECT COUNT(*) FROM %s";
+    private static final String JOB_PARTITION_COUNT_SQL = "SELECT COUNT(*) FROM pg_class WHERE relname = ?";
+    private static final String LOCK_JOB_PARTITIONS_SQL = "SELECT pg_advisory_xact_lock(hashtext('job-manager.job.partition'))";
+    private static final Duration JOB_LEASE = ofSeconds(30);
+
+    private final DataSource jobStoreDataSource = new PostgresDataSourceFactory().createJobStoreDataSource();
+    private final JobJdbcRepository jdbcRepository = new JobJdbcRepository();
+
+    private final LocalDate today = LocalDate.now(UTC);
+    private final LocalDate pastDay = today.minusDays(10);
+
+    @Before
+    public void runLiquibase() throws Exception {
+        try (final Connection connection = jobStoreDataSource.getConnection()) {
+            execute(connection, DROP_JOB_TABLE_SQL);
+            new LiquibaseDatabaseBootstrapper().bootstrap(LIQUIBASE_PARTITIONED_JOB_STORE_DB_CHANGELOG_XML, connection);
+        }
+    }
+
+    @Before
+    public void createJdbcRepository() {
+        jdbcRepository.dataSource = jobStoreDataSource;
+        jdbcRepository.logger = mock(Logger.class);
+        jdbcRepository.preparedStatementWrapperFactory = new PreparedStatementWrapperFactory();
+        jdbcRepository.jdbcResultSetStreamer = new JdbcResultSetStreamer();
+        jdbcRepository.jobSqlProvider = new PartitionedPostgresJobSqlProvider();
+        jdbcRepository.jobDataCodecRegistry = jobDataCodecRegistry();
+        jdbcRepository.priorityAgingSeconds = "60";
+    }
+
+    @After
+    public void dropPartitionedJobTable() throws Exception {
+        try (final Connection connection = jobStoreDataSource.getConnection()) {
+            execute(connection, DROP_JOB_TABLE_SQL);
+        }
+    }
+
+    @Test
+    public void shouldKeepCompletedJobsUntilTheirPartitionIsDropped() throws Exception {
+        createJobPartitionFor(pastDay);
+        final UUID jobId = insertJobCreatedOn(pastDay);
+
+        jdbcRepository.deleteJob(jobId);
+
+        assertThat(jobsIn(jobPartitionName(pastDay)), is(1));
+        assertThat(jdbcRepository.dropFinishedJobPartitionsBefore(pastDay), is(0));
+        assertThat(jobsIn(jobPartitionName(pastDay)), is(1));
+
+        assertThat(jdbcRepository.dropFinishedJobPartitionsBefore(today), is(1));
+        assertThat(jobPartitionExists(pastDay), is(false));
+        assertThat(jobsIn("job"), is(0));
+    }
+
+    @Test
+    public void shouldKeepPartitionsThatStillHoldUnfinishedJobs() throws Exception {
+        createJobPartitionFor(pastDay);
+        final UUID finishedJobId = insertJobCreatedOn(pastDay);
+        final UUID unfinishedJobId = insertJobCreatedOn(pastDay);
+
+        jdbcRepository.deleteJob(finishedJobId);
+
+        assertThat(jdbcRepository.dropFinishedJobPartitionsBefore(today), is(0));
+        assertThat(jobPartitionExists(pastDay), is(true));
+        assertThat(jobsIn(jobPartitionName(pastDay)), is(2));
+
+        jdbcRepository.deleteJob(unfinishedJobId);
+
+        assertThat(jdbcRepository.dropFinishedJobPartitionsBefore(today), is(1));
+        assertThat(jobPartitionExists(pastDay), is(false));
+    }
+
+    @Test
+    public void shouldNotClaimFinishedJobs() {
+        final UUID finishedJobId = insertJob();
+        final UUID unfinishedJobId = insertJob();
+
+        jdbcRepository.deleteJob(finishedJobId);
+
+        final List<UUID> claimedJobIds = jdbcRepository.claimJobsFor(randomUUID(), 10, JOB_LEASE).map(Job::getJobId).collect(toList());
+
+        assertThat(claimedJobIds.size(), is(1));
+        assertThat(claimedJobIds.get(0), is(unfinishedJobId));
+        assertThat(jobsIn("job"), is(2));
+    }
+
+    @Test
+    public void shouldMoveJobsOutOfTheDefaultPartitionWhenCreatingTheirPartition() throws Exception {
+        final LocalDate dayWithoutPartition = today.plusDays(30);
+        insertJobCreatedOn(dayWithoutPartition);
+
+        assertThat(jobsIn("job_default"), is(1));
+
+        jdbcRepository.createJobPartitionsUntil(dayWithoutPartition);
+
+        assertThat(jobPartitionExists(dayWithoutPartition), is(true));
+        assertThat(jobsIn(jobPartitionName(dayWithoutPartition)), is(1));
+        assertThat(jobsIn("job_default"), is(0));
+    }
+
+    @Test
+    public void shouldLeaveThePartitionsAloneWhileAnotherWorkerIsMaintainingThem() throws Exception {
+        final LocalDate dayWithoutPartition = today.plusDays(30);
+
+        try (final Connection otherWorkerConnection = jobStoreDataSource.getConnection()) {
+            otherWorkerConnection.setAutoCommit(false);
+            execute(otherWorkerConnection, LOCK_JOB_PARTITIONS_SQL);
+
+            jdbcRepository.createJobPartitionsUntil(dayWithoutPartition);
+
+            otherWorkerConnection.rollback();
+        }
+
+        assertThat(jobPartitionExists(dayWithoutPartition), is(false));
+    }
+
+    private UUID insertJob() {
+        final UUID jobId = randomUUID();
+        jdbcRepository.insertJob(new Job(jobId, createObjectBuilder().add("some", "json").build(), "nextTask", now(), empty(), empty()));
+        return jobId;
+    }
+
+    private UUID insertJobCreatedOn(final LocalDate day) throws SQLException {
+        final UUID jobId = insertJob();
+
+        try (final Connection connection = jobStoreDataSource.getConnection();
+             final PreparedStatement preparedStatement = connection.prepareStatement(MOVE_JOB_TO_DAY_SQL)) {
+            preparedStatement.setTimestamp(1, toSqlTimestamp(day.atStartOfDay(UTC).plusHours(12)));
+            preparedStatement.setObject(2, jobId);
+            preparedStatement.executeUpdate();
+        }
+
+        return jobId;
+    }
+
+    private void createJobPartitionFor(final LocalDate day) throws SQLException {
+        try (final Connection connection = jobStoreDataSource.getConnection()) {
+            execute(connection, format(CREATE_JOB_PARTITION_SQL, jobPartitionName(day), day.atStartOfDay(UTC), day.plusDays(1).atStartOfDay(UTC)));
+        }
+    }
+
+    private boolean jobPartitionExists(final LocalDate day) throws SQLException {
+        try (final Connection connection = jobStoreDataSource.getConnection();
+             final PreparedStatement preparedStatement = connection.prepareStatement(JOB_PARTITION_COUNT_SQL)) {
+            preparedStatement.setString(1, jobPartitionName(day));
+            return countOf(preparedStatement) > 0;
+        }
+    }
+
+    private int jobsIn(final String tableName) {
+        try (final Connection connection = jobStoreDataSource.getConnection();
+             final PreparedStatement preparedStatement = connection.prepareStatement(format(JOBS_COUNT_SQL, tableName))) {
+            return countOf(preparedStatement);
+        } catch (final SQLException e) {
+            throw new JdbcRepositoryException("Exception while retrieving jobs count", e);
+        }
+    }
+
+    private int countOf(final PreparedStatement preparedStatement) throws SQLException {
+        try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private void execute(final Connection connection, final String sql) throws SQLException {
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.execute();
+        }
+    }
+
+    private String jobPartitionName(final LocalDate day) {
+        return "job_p" + day.format(BASIC_ISO_DATE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private JobDataCodecRegistry jobDataCodecRegistry() {
+        final JobDataCodecRegistry jobDataCodecRegistry = new JobDataCodecRegistry();
+        jobDataCodecRegistry.taskCodecs = "";
+        jobDataCodecRegistry.jobDataCodecs = mock(Instance.class);
+        jobDataCodecRegistry.logger = mock(Logger.class);
+        when(jobDataCodecRegistry.jobDataCodecs.iterator()).thenReturn(emptyIterator());
+        jobDataCodecRegistry.init();
+
+        return jobDataCodecRegistry;
+    }
+}
@@ -0,0 +1,34 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class PartitionedPostgresJobSqlProviderTest {
+
+    private static final String COMPLETE_JOB_SQL = "UPDATE job SET next_task_start_time = null, worker_id = null, worker_lock_time = null, job_data = null, job_data_codec = null, job_data_encoded = null WHERE job_id = ?";
+
+    private final PartitionedPostgresJobSqlProvider partitionedPostgresJobSqlProvider = new PartitionedPostgresJobSqlProvider();
+
+    @Test
+    public void shouldMarkCompletedJobsAsFinishedRatherThanDeletingThem() {
+        assertThat(partitionedPostgresJobSqlProvider.getCompleteJobSql(), is(COMPLETE_JOB_SQL));
+    }
+
+    @Test
+    public void shouldBePartitioned() {
+        assertThat(partitionedPostgresJobSqlProvider.isPartitioned(), is(true));
+    }
+
+    @Test
+    public void shouldUseThePostgresSqlForEverythingElse() {
+        final PostgresJobSqlProvider postgresJobSqlProvider = new PostgresJobSqlProvider();
+
+        assertThat(partitionedPostgresJobSqlProvider.getInsertSql(), is(postgresJobSqlProvider.getInsertSql()));
+        assertThat(partitionedPostgresJobSqlProvider.getAdvanceJobSql(), is(postgresJobSqlProvider.getAdvanceJobSql()));
+        assertThat(partitionedPostgresJobSqlProvider.getCheckpointJobSql(), is(postgresJobSqlProvider.getCheckpointJobSql()));
+        assertThat(partitionedPostgresJobSqlProvider.getClaimJobsSql(), is(postgresJobSqlProvider.getClaimJobsSql()));
+        assertThat(partitionedPostgresJobSqlProvider.supportsListenNotify(), is(true));
+    }
+}
@@ -0,0 +1,52 @@
+package uk.gov.moj.cpp.jobstore.persistence;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PostgresJobArrivalNotifierTest {
+
+    @Mock
+    private PreparedStatementWrapperFactory preparedStatementWrapperFactory;
+
+    @Mock
+    private JdbcJobStoreDataSourceProvider jdbcJobStoreDataSourceProvider;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private PreparedStatementWrapper preparedStatementWrapper;
+
+    @InjectMocks
+    private PostgresJobArrivalNotifier postgresJobArrivalNotifier;
+
+    @Test
+    public void shouldNotifyOnTheJobArrivalChannel() throws Exception {
+        when(jdbcJobStoreDataSourceProvider.getDataSource()).thenReturn(dataSource);
+        when(preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, "NOTIFY job_arrival")).thenReturn(preparedStatementWrapper);
+
+        postgresJobArrivalNotifier.notifyJobArrival();
+
+        verify(preparedStatementWrapper).executeUpdate();
+        verify(preparedStatementWrapper).close();
+    }
+
+    @Test(expected = JdbcRepositoryException.class)
+    public void shouldThrowJdbcRepositoryExceptionWhenTheNotifyFails() throws Exception {
+        when(jdbcJobStoreDataSourceProvider.getDataSource()).thenReturn(dataSource);
+        when(preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, "NOTIFY job_arrival")).thenThrow(new SQLException("failed"));
+
+        postgresJobArrivalNotifier.notifyJobArrival();
+    }
+}
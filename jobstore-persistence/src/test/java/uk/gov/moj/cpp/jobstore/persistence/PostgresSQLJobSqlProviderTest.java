@@ -1,13 +1,18 @@
 package uk.gov.moj.cpp.jobstore.persistence;
 
+import static java.util.Optional.of;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
 import org.junit.Test;
 
 public class PostgresSQLJobSqlProviderTest {
-    private static final String INSERT_JOB_SQL = "INSERT INTO job(job_id,worker_id,worker_lock_time,next_task,next_task_start_time,job_data) values (?,?,?,?,?,to_jsonb(?::json))";
-    private static final String UPDATE_JOB_DATA_SQL = "UPDATE job SET job_data = to_jsonb(?::json) WHERE job_id = ?";
+    private static final String INSERT_JOB_SQL = "INSERT INTO job(job_id,worker_id,worker_lock_time,next_task,next_task_start_time,job_data,job_data_codec,job_data_encoded,priority,effective_start_time) values (?,?,?,?,?,?::jsonb,?,?,?,?)";
+    private static final String UPDATE_JOB_DATA_SQL = "UPDATE job SET job_data = ?::jsonb, job_data_codec = ?, job_data_encoded = ? WHERE job_id = ?";
+    private static final String ADVANCE_JOB_SQL = "UPDATE job SET job_data = ?::jsonb, job_data_codec = ?, job_data_encoded = ?, next_task = ?, next_task_start_time = ?, effective_start_time = ?, attempts = 0, worker_id = null, worker_lock_time = null WHERE job_id = ?";
+    private static final String CLAIM_JOBS_SQL = "UPDATE job set worker_id= ? , worker_lock_time= ? where job_id in " +
+            "(select job_id from job where (worker_id is null or worker_lock_time < ?) and next_task_start_time < ?%s order by effective_start_time limit ? for update skip locked) " +
+            "returning job_id, job_data, job_data_codec, job_data_encoded, worker_id, worker_lock_time, next_task, next_task_start_time, priority, attempts";
 
     @Test
     public void shouldReturnPostgresInsertSQL() {
@@ -22,4 +27,40 @@ public class PostgresSQLJobSqlProviderTest {
         final PostgresJobSqlProvider postgresSQLJobSqlProvider = new PostgresJobSqlProvider();
         assertThat(postgresSQLJobSqlProvider.getUpdateJobDataSql(), is(UPDATE_JOB_DATA_SQL));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldReturnPostgresAdvanceJobSQL() {
+
+        final PostgresJobSqlProvider postgresSQLJobSqlProvider = new PostgresJobSqlProvider();
+        assertThat(postgresSQLJobSqlProvider.getAdvanceJobSql(), is(ADVANCE_JOB_SQL));
+    }
+
+    @Test
+    public void shouldReturnPostgresCheckpointJobSQL() {
+
+        final PostgresJobSqlProvider postgresSQLJobSqlProvider = new PostgresJobSqlProvider();
+        assertThat(postgresSQLJobSqlProvider.getCheckpointJobSql(), is("UPDATE job SET job_data = ?::jsonb, job_data_codec = ?, job_data_encoded = ?, next_task = ?, next_task_start_time = ?, effective_start_time = ?, attempts = 0, worker_lock_time = ? WHERE job_id = ?"));
+    }
+
+    @Test
+    public void shouldReturnPostgresClaimJobsSQL() {
+
+        final PostgresJobSqlProvider postgresSQLJobSqlProvider = new PostgresJobSqlProvider();
+        assertThat(postgresSQLJobSqlProvider.getClaimJobsSql(), is(of(CLAIM_JOBS_SQL)));
+    }
+
+    @Test
+    public void shouldDeleteCompletedJobsFromAnUnpartitionedTable() {
+
+        final PostgresJobSqlProvider postgresSQLJobSqlProvider = new PostgresJobSqlProvider();
+        assertThat(postgresSQLJobSqlProvider.getCompleteJobSql(), is("DELETE from job where job_id= ? "));
+        assertThat(postgresSQLJobSqlProvider.isPartitioned(), is(false));
+    }
+
+    @Test
+    public void shouldSupportListenNotify() {
+
+        final PostgresJobSqlProvider postgresSQLJobSqlProvider = new PostgresJobSqlProvider();
+        assertThat(postgresSQLJobSqlProvider.supportsListenNotify(), is(true));
+    }
+}
@@ -1,29 +1,50 @@
 package uk.gov.moj.cpp.jobstore.persistence;
 
+import static javax.transaction.Status.STATUS_ACTIVE;
+import static javax.transaction.Status.STATUS_COMMITTED;
+import static javax.transaction.Status.STATUS_NO_TRANSACTION;
 import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.justice.services.test.utils.core.reflection.ReflectionUtil.getValueOfField;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
 
 import javax.sql.DataSource;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 @RunWith(MockitoJUnitRunner.class)
 public class PreparedStatementWrapperFactoryTest {
 
+    @Mock
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
     @InjectMocks
     private PreparedStatementWrapperFactory preparedStatementWrapperFactory;
 
+    private final Map<Object, Object> transactionResources = new HashMap<>();
+
     @SuppressWarnings("unchecked")
     @Test
     public void shouldCreatePreparedStatementWrapper() throws Exception {
@@ -34,6 +55,7 @@ public class PreparedStatementWrapperFactoryTest {
         final Connection connection = mock(Connection.class);
         final PreparedStatement preparedStatement = mock(PreparedStatement.class);
 
+        when(transactionSynchronizationRegistry.getTransactionStatus()).thenReturn(STATUS_NO_TRANSACTION);
         when(dataSource.getConnection()).thenReturn(connection);
         when(connection.prepareStatement(query)).thenReturn(preparedStatement);
 
@@ -47,4 +69,86 @@ public class PreparedStatementWrapperFactoryTest {
 
         assertThat(closeables, hasItems(connection, preparedStatement));
     }
+
+    @Test
+    public void shouldShareOneConnectionAndCacheStatementsWithinATransaction() throws Exception {
+
+        final String query = "SELECT something FROM somewhere";
+        final String otherQuery = "SELECT something_else FROM somewhere";
+
+        final DataSource dataSource = mock(DataSource.class);
+        final Connection connection = mock(Connection.class);
+        final PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        final PreparedStatement otherPreparedStatement = mock(PreparedStatement.class);
+
+        givenAnActiveTransaction();
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(query)).thenReturn(preparedStatement);
+        when(connection.prepareStatement(otherQuery)).thenReturn(otherPreparedStatement);
+
+        final PreparedStatementWrapper first = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, query);
+        first.close();
+        final PreparedStatementWrapper second = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, query);
+        final PreparedStatementWrapper other = preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, otherQuery);
+
+        assertThat(getValueOfField(second, "preparedStatement", PreparedStatement.class), is(preparedStatement));
+        assertThat(getValueOfField(other, "preparedStatement", PreparedStatement.class), is(otherPreparedStatement));
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, times(1)).prepareStatement(query);
+        verify(preparedStatement).clearParameters();
+        verify(preparedStatement, never()).close();
+        verify(connection, never()).close();
+        verify(transactionSynchronizationRegistry, times(1)).registerInterposedSynchronization(any(Synchronization.class));
+    }
+
+    @Test
+    public void shouldCloseStatementsAndConnectionWhenTheTransactionCompletes() throws Exception {
+
+        final String query = "SELECT something FROM somewhere";
+
+        final DataSource dataSource = mock(DataSource.class);
+        final Connection connection = mock(Connection.class);
+        final PreparedStatement preparedStatement = mock(PreparedStatement.class);
+
+        givenAnActiveTransaction();
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(query)).thenReturn(preparedStatement);
+
+        preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, query).close();
+
+        final ArgumentCaptor<Synchronization> synchronizationCaptor = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transactionSynchronizationRegistry).registerInterposedSynchronization(synchronizationCaptor.capture());
+        synchronizationCaptor.getValue().afterCompletion(STATUS_COMMITTED);
+
+        final InOrder inOrder = inOrder(preparedStatement, connection);
+        inOrder.verify(preparedStatement).close();
+        inOrder.verify(connection).close();
+    }
+
+    @Test
+    public void shouldUseAConnectionPerWrapperWhenNoTransactionIsActive() throws Exception {
+
+        final String query = "SELECT something FROM somewhere";
+
+        final DataSource dataSource = mock(DataSource.class);
+        final Connection connection = mock(Connection.class);
+        final PreparedStatement preparedStatement = mock(PreparedStatement.class);
+
+        when(transactionSynchronizationRegistry.getTransactionStatus()).thenReturn(STATUS_NO_TRANSACTION);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(query)).thenReturn(preparedStatement);
+
+        preparedStatementWrapperFactory.preparedStatementWrapperOf(dataSource, query).close();
+
+        verify(preparedStatement).close();
+        verify(connection).close();
+        verify(transactionSynchronizationRegistry, never()).registerInterposedSynchronization(any(Synchronization.class));
+    }
+
+    private void givenAnActiveTransaction() {
+        when(transactionSynchronizationRegistry.getTransactionStatus()).thenReturn(STATUS_ACTIVE);
+        when(transactionSynchronizationRegistry.getResource(any())).thenAnswer(invocation -> transactionResources.get(invocation.getArguments()[0]));
+        doAnswer(invocation -> transactionResources.put(invocation.getArguments()[0], invocation.getArguments()[1]))
+                .when(transactionSynchronizationRegistry).putResource(any(), any());
+    }
 }
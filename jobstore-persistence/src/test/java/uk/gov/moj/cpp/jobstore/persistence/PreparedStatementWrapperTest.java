@@ -5,6 +5,7 @@ import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -257,4 +258,41 @@ public class PreparedStatementWrapperTest {
         inOrder.verify(preparedStatement).close();
         inOrder.verify(connection).close();
     }
+
+    @Test
+    public void shouldDelegateBatchMethodCalls() throws SQLException {
+
+        final String query = "dummy";
+        final int[] updateCounts = {1, 1};
+
+        when(connection.prepareStatement(query)).thenReturn(preparedStatement);
+        when(preparedStatement.executeBatch()).thenReturn(updateCounts);
+
+        final PreparedStatementWrapper ps = PreparedStatementWrapper.valueOf(connection, query);
+        ps.addBatch();
+        ps.addBatch();
+
+        assertThat(ps.executeBatch(), is(updateCounts));
+        verify(preparedStatement, times(2)).addBatch();
+    }
+
+    @Test
+    public void shouldCloseStatementOnExceptionOnExecuteBatch() throws SQLException {
+
+        final String query = "dummy";
+
+        when(connection.prepareStatement(query)).thenReturn(preparedStatement);
+        when(preparedStatement.executeBatch()).thenThrow(new SQLException());
+
+        final PreparedStatementWrapper ps = PreparedStatementWrapper.valueOf(connection, query);
+        try {
+            ps.executeBatch();
+        } catch (Exception e) {
+            //Do nothing
+        }
+
+        final InOrder inOrder = inOrder(preparedStatement, connection);
+        inOrder.verify(preparedStatement).close();
+        inOrder.verify(connection).close();
+    }
 }
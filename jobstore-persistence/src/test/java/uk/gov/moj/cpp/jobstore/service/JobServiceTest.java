@@ -1,13 +1,24 @@
 package uk.gov.moj.cpp.jobstore.service;
 
+import static java.time.Duration.ZERO;
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
 import static java.time.ZonedDateTime.now;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static java.util.Optional.empty;
 import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
 import static javax.json.Json.createObjectBuilder;
 import static javax.json.Json.createReader;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.justice.services.common.converter.ZonedDateTimes.toSqlTimestamp;
@@ -16,7 +27,15 @@ import uk.gov.moj.cpp.jobstore.persistence.Job;
 import uk.gov.moj.cpp.jobstore.persistence.JobRepository;
 
 import java.io.StringReader;
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -39,6 +58,12 @@ public class JobServiceTest {
     @Mock
     private JobRepository jobRepository;
 
+    @Mock
+    private TaskClaimQuotas taskClaimQuotas;
+
+    @Mock
+    private TaskClaimMetrics taskClaimMetrics;
+
     @InjectMocks
     private JobService jobService;
 
@@ -48,18 +73,186 @@ public class JobServiceTest {
     @Before
     public void setup() {
         jobService.jobCount = "10";
+        jobService.jobLeaseSeconds = "30";
+        jobService.insertBatchSize = "500";
+        jobService.claimLookAheadMilliseconds = "0";
     }
 
     @Test
     public void shouldReturnNextUnassignedJobs() {
 
         final UUID workerId = randomUUID();
-        when(jobRepository.findJobsLockedTo(workerId)).thenReturn(mockJobs());
+        when(jobRepository.claimJobsFor(workerId, 10, ofSeconds(30))).thenReturn(mockJobs());
 
         final Stream<Job> jobs = jobService.getUnassignedJobsFor(workerId);
 
         assertThat(jobs.count(), is(3L));
-        verify(jobRepository).lockJobsFor(workerId, 10);
+    }
+
+    @Test
+    public void shouldReturnNextUnassignedJobsForTheGivenTasks() {
+
+        final UUID workerId = randomUUID();
+        final Set<String> taskNames = singleton("nextTask");
+        when(jobRepository.claimJobsFor(workerId, 10, ofSeconds(30), taskNames, ZERO)).thenReturn(mockJobs());
+
+        final Stream<Job> jobs = jobService.getUnassignedJobsFor(workerId, taskNames);
+
+        assertThat(jobs.count(), is(3L));
+    }
+
+    @Test
+    public void shouldClaimTheGivenBatchSize() {
+
+        final UUID workerId = randomUUID();
+        final Set<String> taskNames = singleton("nextTask");
+        when(jobRepository.claimJobsFor(workerId, 25, ofSeconds(30), taskNames, ZERO)).thenReturn(mockJobs());
+
+        final Stream<Job> jobs = jobService.getUnassignedJobsFor(workerId, taskNames, 25);
+
+        assertThat(jobs.count(), is(3L));
+    }
+
+    @Test
+    public void shouldClaimJobsFallingDueWithinTheLookAhead() {
+
+        final UUID workerId = randomUUID();
+        final Set<String> taskNames = singleton("nextTask");
+        jobService.claimLookAheadMilliseconds = "5000";
+        when(jobRepository.claimJobsFor(workerId, 10, ofSeconds(30), taskNames, ofMillis(5000))).thenReturn(mockJobs());
+
+        final Stream<Job> jobs = jobService.getUnassignedJobsFor(workerId, taskNames);
+
+        assertThat(jobs.count(), is(3L));
+    }
+
+    @Test
+    public void shouldBringTheNextClaimableTimeForwardByTheLookAhead() {
+
+        final Set<String> taskNames = singleton("nextTask");
+        final ZonedDateTime startTime = ZonedDateTime.now().plusMinutes(1);
+        jobService.claimLookAheadMilliseconds = "5000";
+        when(jobRepository.findEarliestUnassignedStartTime(taskNames)).thenReturn(Optional.of(startTime));
+
+        assertThat(jobService.getNextClaimableTime(taskNames), is(Optional.of(startTime.minusSeconds(5))));
+    }
+
+    @Test
+    public void shouldClaimEachTaskQuotaAndTopUpTheBatchWhenAQuotaWasFilled() {
+
+        final UUID workerId = randomUUID();
+        final Set<String> taskNames = new HashSet<>(asList("bulkTask", "urgentTask"));
+        final Map<String, Integer> quotas = new LinkedHashMap<>();
+        quotas.put("bulkTask", 7);
+        quotas.put("urgentTask", 3);
+        final List<Job> bulkJobs = jobsFor("bulkTask", 7);
+        final List<Job> urgentJobs = jobsFor("urgentTask", 1);
+        final List<Job> topUpJobs = jobsFor("bulkTask", 2);
+
+        when(taskClaimQuotas.isEnabled()).thenReturn(true);
+        when(taskClaimQuotas.quotasFor(taskNames, 10)).thenReturn(quotas);
+        when(jobRepository.claimJobsFor(workerId, 7, ofSeconds(30), singleton("bulkTask"), ZERO)).thenReturn(bulkJobs.stream());
+        when(jobRepository.claimJobsFor(workerId, 3, ofSeconds(30), singleton("urgentTask"), ZERO)).thenReturn(urgentJobs.stream());
+        when(jobRepository.claimJobsFor(workerId, 2, ofSeconds(30), taskNames, ZERO)).thenReturn(topUpJobs.stream());
+
+        final List<Job> claimedJobs = jobService.getUnassignedJobsFor(workerId, taskNames).collect(toList());
+
+        assertThat(claimedJobs.size(), is(10));
+        verify(taskClaimMetrics).recordClaimBatch();
+        verify(taskClaimMetrics, times(10)).recordClaimed(any(Job.class));
+    }
+
+    @Test
+    public void shouldNotTopUpTheBatchWhenNoTaskFilledItsQuota() {
+
+        final UUID workerId = randomUUID();
+        final Set<String> taskNames = singleton("quietTask");
+
+        when(taskClaimQuotas.isEnabled()).thenReturn(true);
+        when(taskClaimQuotas.quotasFor(taskNames, 10)).thenReturn(singletonMap("quietTask", 10));
+        when(jobRepository.claimJobsFor(workerId, 10, ofSeconds(30), taskNames, ZERO)).thenReturn(jobsFor("quietTask", 4).stream());
+
+        assertThat(jobService.getUnassignedJobsFor(workerId, taskNames).count(), is(4L));
+        verify(jobRepository, times(1)).claimJobsFor(workerId, 10, ofSeconds(30), taskNames, ZERO);
+    }
+
+    @Test
+    public void shouldClaimInClaimOrderAcrossTasksReleasingJobsClaimedBeyondATasksLimit() {
+
+        final UUID workerId = randomUUID();
+        final Set<String> taskNames = new HashSet<>(asList("slowTask", "otherTask"));
+        final List<Job> slowJobs = jobsFor("slowTask", 3);
+        final List<Job> otherJobs = jobsFor("otherTask", 7);
+        final List<Job> topUpJobs = jobsFor("otherTask", 1);
+        final List<Job> firstClaim = new ArrayList<>(slowJobs);
+        firstClaim.addAll(otherJobs);
+
+        when(jobRepository.claimJobsFor(workerId, 10, ofSeconds(30), taskNames, ZERO)).thenReturn(firstClaim.stream());
+        when(jobRepository.claimJobsFor(workerId, 1, ofSeconds(30), singleton("otherTask"), ZERO)).thenReturn(topUpJobs.stream());
+
+        final List<Job> claimedJobs = jobService.getUnassignedJobsFor(workerId, taskNames, 10, singletonMap("slowTask", 2)).collect(toList());
+
+        assertThat(claimedJobs.size(), is(10));
+        assertThat(claimedJobs.stream().filter(job -> job.getNextTask().equals("slowTask")).count(), is(2L));
+        verify(jobRepository).releaseJobs(singletonList(slowJobs.get(2).getJobId()));
+        verify(taskClaimMetrics).recordClaimBatch();
+        verify(taskClaimMetrics, times(10)).recordClaimed(any(Job.class));
+    }
+
+    @Test
+    public void shouldCapFairShareQuotasAtTheTaskLimits() {
+
+        final UUID workerId = randomUUID();
+        final Set<String> taskNames = new HashSet<>(asList("slowTask", "otherTask"));
+        final Map<String, Integer> quotas = new LinkedHashMap<>();
+        quotas.put("otherTask", 5);
+        quotas.put("slowTask", 5);
+
+        when(taskClaimQuotas.isEnabled()).thenReturn(true);
+        when(taskClaimQuotas.quotasFor(taskNames, 10)).thenReturn(quotas);
+        when(jobRepository.claimJobsFor(workerId, 5, ofSeconds(30), singleton("otherTask"), ZERO)).thenReturn(jobsFor("otherTask", 5).stream());
+        when(jobRepository.claimJobsFor(workerId, 2, ofSeconds(30), singleton("slowTask"), ZERO)).thenReturn(jobsFor("slowTask", 2).stream());
+        when(jobRepository.claimJobsFor(workerId, 3, ofSeconds(30), singleton("otherTask"), ZERO)).thenReturn(jobsFor("otherTask", 3).stream());
+
+        final List<Job> claimedJobs = jobService.getUnassignedJobsFor(workerId, taskNames, 10, singletonMap("slowTask", 2)).collect(toList());
+
+        assertThat(claimedJobs.size(), is(10));
+        assertThat(claimedJobs.stream().filter(job -> job.getNextTask().equals("slowTask")).count(), is(2L));
+        verify(jobRepository, never()).releaseJobs(any());
+    }
+
+    @Test
+    public void shouldNotClaimMoreThanTheBatchSizeOfALimitedTask() {
+
+        final UUID workerId = randomUUID();
+        final Set<String> taskNames = singleton("slowTask");
+
+        when(jobRepository.claimJobsFor(workerId, 5, ofSeconds(30), taskNames, ZERO)).thenReturn(jobsFor("slowTask", 5).stream());
+
+        assertThat(jobService.getUnassignedJobsFor(workerId, taskNames, 5, singletonMap("slowTask", 20)).count(), is(5L));
+        verify(jobRepository, times(1)).claimJobsFor(workerId, 5, ofSeconds(30), taskNames, ZERO);
+    }
+
+    @Test
+    public void shouldClaimASingleJobById() {
+
+        final UUID jobId = randomUUID();
+        final UUID workerId = randomUUID();
+        final Job job = mock(Job.class);
+        when(jobRepository.claimJob(jobId, workerId, ofSeconds(30))).thenReturn(Stream.of(job));
+
+        final List<Job> jobs = jobService.claimJob(jobId, workerId).collect(toList());
+
+        assertThat(jobs, is(singletonList(job)));
+        verify(taskClaimMetrics).recordClaimed(job);
+    }
+
+    @Test
+    public void shouldRenewJobLeases() {
+
+        final List<Job> lockedJobs = singletonList(mock(Job.class));
+        jobService.renewJobLeases(lockedJobs);
+        verify(jobRepository).renewJobLeases(lockedJobs);
     }
 
     @Test
@@ -82,6 +275,22 @@ public class JobServiceTest {
         assertThat(jobArgumentCaptor.getValue().getJobData(), is(jobData));
     }
 
+    @Test
+    public void shouldInsertJobsInBatches() {
+
+        final Stream<Job> jobs = mockJobs();
+        jobService.insertJobs(jobs);
+        verify(jobRepository).insertJobs(jobs, 500);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectANonPositiveInsertBatchSize() {
+
+        jobService.insertBatchSize = "0";
+
+        jobService.insertJobs(Stream.of(mock(Job.class)));
+    }
+
     @Test
     public void shouldUpdateJobTaskData() {
 
@@ -100,6 +309,26 @@ public class JobServiceTest {
         verify(jobRepository).updateNextTaskDetails(jobId, input, toSqlTimestamp(now));
     }
 
+    @Test
+    public void shouldAdvanceJob() {
+
+        final UUID jobId = randomUUID();
+        final String nextTask = "new next task";
+        final ZonedDateTime now = now();
+        jobService.advanceJob(jobId, jobData(JOB_DATA_JSON), nextTask, now, 3);
+        verify(jobRepository).advanceJob(jobId, jobData(JOB_DATA_JSON), nextTask, toSqlTimestamp(now), 3);
+    }
+
+    @Test
+    public void shouldCheckpointJob() {
+
+        final UUID jobId = randomUUID();
+        final String nextTask = "new next task";
+        final ZonedDateTime now = now();
+        jobService.checkpointJob(jobId, jobData(JOB_DATA_JSON), nextTask, now, 3);
+        verify(jobRepository).checkpointJob(jobId, jobData(JOB_DATA_JSON), nextTask, toSqlTimestamp(now), 3);
+    }
+
     @Test
     public void shouldDeleteJob() {
 
@@ -116,6 +345,71 @@ public class JobServiceTest {
         verify(jobRepository).releaseJob(jobId);
     }
 
+    @Test
+    public void shouldRetryJob() {
+
+        final UUID jobId = randomUUID();
+        final ZonedDateTime retryTime = ZonedDateTime.now().plusSeconds(10);
+        jobService.retryJob(jobId, 2, retryTime, 1);
+        verify(jobRepository).retryJob(jobId, 2, toSqlTimestamp(retryTime), 1);
+    }
+
+    @Test
+    public void shouldDeadLetterJob() {
+
+        final UUID jobId = randomUUID();
+        jobService.deadLetterJob(jobId, "failure");
+        verify(jobRepository).deadLetterJob(jobId, "failure");
+    }
+
+    @Test
+    public void shouldRecordWorkerHeartbeat() {
+
+        final UUID workerId = randomUUID();
+        jobService.recordWorkerHeartbeat(workerId);
+        verify(jobRepository).recordWorkerHeartbeat(workerId);
+    }
+
+    @Test
+    public void shouldReleaseTheJobsOfWorkersWhoseHeartbeatIsOlderThanTheExpiry() {
+
+        jobService.workerHeartbeatExpiryMilliseconds = "30000";
+        when(jobRepository.releaseJobsOfExpiredWorkers(ofSeconds(30))).thenReturn(4);
+
+        assertThat(jobService.releaseJobsOfExpiredWorkers(), is(4));
+    }
+
+    @Test
+    public void shouldReleaseJobs() {
+
+        final List<UUID> jobIds = singletonList(randomUUID());
+        jobService.releaseJobs(jobIds);
+        verify(jobRepository).releaseJobs(jobIds);
+    }
+
+    @Test
+    public void shouldCreateJobPartitions() {
+
+        final LocalDate lastDay = LocalDate.of(2019, 3, 14);
+        jobService.createJobPartitionsUntil(lastDay);
+        verify(jobRepository).createJobPartitionsUntil(lastDay);
+    }
+
+    @Test
+    public void shouldDropFinishedJobPartitions() {
+
+        final LocalDate firstDayToKeep = LocalDate.of(2019, 3, 7);
+        when(jobRepository.dropFinishedJobPartitionsBefore(firstDayToKeep)).thenReturn(2);
+
+        assertThat(jobService.dropFinishedJobPartitionsBefore(firstDayToKeep), is(2));
+    }
+
+    private List<Job> jobsFor(final String taskName, final int count) {
+        return Stream.generate(() -> new Job(randomUUID(), jobData(JOB_DATA_JSON), taskName, now(), empty(), empty()))
+                .limit(count)
+                .collect(toList());
+    }
+
     private Stream<Job> mockJobs() {
 
         return Stream.of(mock(Job.class),
@@ -0,0 +1,67 @@
+package uk.gov.moj.cpp.jobstore.service;
+
+import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
+import static java.time.ZonedDateTime.now;
+import static java.util.Optional.empty;
+import static java.util.UUID.randomUUID;
+import static javax.json.Json.createObjectBuilder;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import uk.gov.moj.cpp.jobstore.persistence.Job;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TaskClaimMetricsTest {
+
+    @Mock
+    private Logger logger;
+
+    @InjectMocks
+    private TaskClaimMetrics taskClaimMetrics;
+
+    @Test
+    public void shouldCountClaimedJobsPerTask() {
+        taskClaimMetrics.recordClaimBatch();
+        taskClaimMetrics.recordClaimed(jobFor("bulkTask"));
+        taskClaimMetrics.recordClaimed(jobFor("bulkTask"));
+        taskClaimMetrics.recordClaimed(jobFor("urgentTask"));
+
+        assertThat(taskClaimMetrics.getClaimBatchCount(), is(1L));
+        assertThat(taskClaimMetrics.getClaimedJobCounts().get("bulkTask"), is(2L));
+        assertThat(taskClaimMetrics.getClaimedJobCounts().get("urgentTask"), is(1L));
+
+        taskClaimMetrics.reset();
+
+        assertThat(taskClaimMetrics.getClaimBatchCount(), is(0L));
+        assertThat(taskClaimMetrics.getClaimedJobCounts().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldRegisterAsAPlatformMXBean() throws Exception {
+        taskClaimMetrics.moduleName = "TEST_MODULE";
+        final ObjectName objectName = new ObjectName("uk.gov.moj.cpp.jobstore:type=TaskClaimMetrics,module=TEST_MODULE");
+
+        taskClaimMetrics.register();
+        try {
+            taskClaimMetrics.recordClaimBatch();
+            assertThat(getPlatformMBeanServer().getAttribute(objectName, "ClaimBatchCount"), is(1L));
+        } finally {
+            taskClaimMetrics.unregister();
+        }
+
+        assertThat(getPlatformMBeanServer().isRegistered(objectName), is(false));
+    }
+
+    private Job jobFor(final String taskName) {
+        return new Job(randomUUID(), createObjectBuilder().build(), taskName, now(), empty(), empty());
+    }
+}
@@ -0,0 +1,69 @@
+package uk.gov.moj.cpp.jobstore.service;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TaskClaimQuotasTest {
+
+    private final Set<String> taskNames = new HashSet<>(asList("bulkTask", "reportTask", "urgentTask"));
+
+    @Test
+    public void shouldNotBeEnabledWhenNoWeightsOrMinimumsAreConfigured() {
+        assertThat(taskClaimQuotas("", "").isEnabled(), is(false));
+        assertThat(taskClaimQuotas("bulkTask:1", "").isEnabled(), is(true));
+        assertThat(taskClaimQuotas("", "urgentTask:1").isEnabled(), is(true));
+    }
+
+    @Test
+    public void shouldShareEachBatchByWeight() {
+        final Map<String, Integer> quotas = taskClaimQuotas("bulkTask:2, reportTask:1, urgentTask:1", "").quotasFor(taskNames, 8);
+
+        assertThat(quotas.get("bulkTask"), is(4));
+        assertThat(quotas.get("reportTask"), is(2));
+        assertThat(quotas.get("urgentTask"), is(2));
+    }
+
+    @Test
+    public void shouldGiveEachTaskItsMinimumBeforeSharingByWeight() {
+        final Map<String, Integer> quotas = taskClaimQuotas("bulkTask:10", "urgentTask:3").quotasFor(taskNames, 10);
+
+        assertThat(quotas.get("urgentTask") >= 3, is(true));
+        assertThat(quotas.values().stream().mapToInt(Integer::intValue).sum(), is(10));
+    }
+
+    @Test
+    public void shouldCarryCreditsBetweenBatchesSoSharesHoldForSmallBatches() {
+        final TaskClaimQuotas taskClaimQuotas = taskClaimQuotas("bulkTask:3, reportTask:1, urgentTask:0", "");
+        final Map<String, Integer> totals = new HashMap<>();
+
+        for (int batch = 0; batch < 100; batch++) {
+            taskClaimQuotas.quotasFor(taskNames, 1).forEach((taskName, quota) -> totals.merge(taskName, quota, Integer::sum));
+        }
+
+        assertThat(totals.get("bulkTask"), is(75));
+        assertThat(totals.get("reportTask"), is(25));
+        assertThat(totals.get("urgentTask"), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAnInvalidSetting() {
+        taskClaimQuotas("bulkTask:many", "");
+    }
+
+    private TaskClaimQuotas taskClaimQuotas(final String taskWeights, final String taskMinimums) {
+        final TaskClaimQuotas taskClaimQuotas = new TaskClaimQuotas();
+        taskClaimQuotas.taskWeights = taskWeights;
+        taskClaimQuotas.taskMinimums = taskMinimums;
+        taskClaimQuotas.init();
+
+        return taskClaimQuotas;
+    }
+}